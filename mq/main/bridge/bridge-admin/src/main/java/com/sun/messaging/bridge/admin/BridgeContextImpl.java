@@ -27,6 +27,8 @@ import java.util.Enumeration;
 import com.sun.messaging.bridge.api.BridgeContext;
 import com.sun.messaging.bridge.api.BridgeBaseContext;
 import com.sun.messaging.bridge.api.BridgeUtil;
+import com.sun.messaging.bridge.api.StompConnection;
+import com.sun.messaging.bridge.api.StompProtocolHandler;
 
 /**
  * The runtime context for a Bridge Service
@@ -94,6 +96,11 @@ public class BridgeContextImpl implements BridgeContext {
         return _bc.getPUService();
     }
 
+    @Override
+    public StompConnection createDirectStompConnection(String serviceName, StompProtocolHandler sph) throws Exception {
+        return _bc.createDirectStompConnection(serviceName, sph);
+    }
+
     /**
      *
      * @return the runtime configuration for a bridge service
@@ -61,6 +61,15 @@ public interface BridgeCmdSharedResources {
     String I_BGMGR_TITLE_REF = "BS1020";
     String I_BGMGR_TITLE_COUNT = "BS1021";
 
+    String I_BGMGR_TITLE_BATCH_SIZE = "BS1022";
+    String I_BGMGR_TITLE_NUM_MSGS = "BS1023";
+    String I_BGMGR_TITLE_NUM_BATCHES = "BS1024";
+    String I_BGMGR_TITLE_MSG_RATE = "BS1025";
+
+    String I_BGMGR_TITLE_WORKER = "BS1026";
+    String I_BGMGR_TITLE_NUM_FAILURES = "BS1027";
+    String I_BGMGR_TITLE_NUM_QUEUED = "BS1028";
+
     String I_STATE_UNINITIALIZED = "BS1500";
     String I_STATE_STARTING = "BS1501";
     String I_STATE_STARTED = "BS1502";
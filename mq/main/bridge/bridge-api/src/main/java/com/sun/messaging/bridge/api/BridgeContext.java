@@ -65,6 +65,17 @@ public interface BridgeContext {
      */
     Object getPUService();
 
+    /**
+     * Create a STOMP connection that is served directly by the broker's in-process JMSService of the given direct
+     * mode connection service instead of by a JMS client connection
+     *
+     * @param serviceName the name of an active broker connection service that has the "direct" handler
+     * @param sph the STOMP protocol handler the connection belongs to
+     *
+     * @throws Exception if the service is not an active direct mode connection service
+     */
+    StompConnection createDirectStompConnection(String serviceName, StompProtocolHandler sph) throws Exception;
+
     /**
      *
      * @return the runtime configuration for a bridge service
@@ -31,5 +31,35 @@ public interface ByteBufferWrapper<T> {
 
     byte get();
 
+    /**
+     * Absolute get, does not change the position
+     */
+    default byte get(int index) {
+        int pos = position();
+        position(index);
+        byte b = get();
+        position(pos);
+        return b;
+    }
+
+    /**
+     * Relative bulk get
+     */
+    default ByteBufferWrapper get(byte[] dst, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            dst[i] = get();
+        }
+        return this;
+    }
+
+    ByteBufferWrapper put(byte b);
+
+    default ByteBufferWrapper put(byte[] src, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            put(src[i]);
+        }
+        return this;
+    }
+
     T getWrapped();
 }
@@ -19,12 +19,15 @@
 package com.sun.messaging.bridge.api;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.io.PrintStream;
 import java.io.OutputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import com.sun.messaging.jmq.util.LoggerWrapper;
 
 /**
@@ -39,9 +42,9 @@ public abstract class StompFrameMessage {
     public static final String STOMP_PROTOCOL_VERSION_12 = "1.2";
 
     public static final String HEADER_SEPERATOR = ":";
-    private static final String NEWLINESTR = "\n";
 
     private static final byte NEWLINE_BYTE = '\n';
+    private static final byte HEADER_SEPERATOR_BYTE = ':';
     private static final byte NULL_BYTE = '\0';
     private static final byte[] END_OF_FRAME = new byte[] { 0, '\n' };
 
@@ -194,6 +197,39 @@ public abstract class StompFrameMessage {
         COMMAND, HEADER, BODY, NULL, DONE
     }
 
+    private static final byte[][] COMMAND_BYTES = new byte[Command.values().length][];
+
+    /**
+     * command line prefixes in the order they are matched, and the command each one parses to
+     */
+    private static final Command[] COMMAND_PREFIX_OF = { Command.CONNECTED, Command.RECEIPT, Command.MESSAGE, Command.ERROR, Command.CONNECT, Command.STOMP,
+            Command.SEND, Command.SUBSCRIBE, Command.ACK, Command.NACK, Command.UNSUBSCRIBE, Command.BEGIN, Command.COMMIT, Command.ABORT,
+            Command.DISCONNECT };
+    private static final Command[] COMMAND_MATCHES = { Command.CONNECTED, Command.RECEIPT, Command.MESSAGE, Command.ERROR, Command.CONNECT, Command.CONNECT,
+            Command.SEND, Command.SUBSCRIBE, Command.ACK, Command.NACK, Command.UNSUBSCRIBE, Command.BEGIN, Command.COMMIT, Command.ABORT,
+            Command.DISCONNECT };
+    private static final byte[][] COMMAND_PREFIXES = new byte[COMMAND_PREFIX_OF.length][];
+
+    private static final String[] KNOWN_HEADERS = { CommonHeader.RECEIPT, CommonHeader.TRANSACTION, CommonHeader.CONTENTLENGTH, CommonHeader.CONTENTTYPE,
+            ResponseCommonHeader.RECEIPTID, SendHeader.DESTINATION, SendHeader.EXPIRES, SendHeader.PRIORITY, SendHeader.TYPE, SendHeader.PERSISTENT,
+            SendHeader.REPLYTO, SendHeader.CORRELATIONID, MessageHeader.MESSAGEID, MessageHeader.TIMESTAMP, MessageHeader.REDELIVERED,
+            MessageHeader.SUBSCRIPTION, MessageHeader.ACK, SubscribeHeader.SELECTOR, SubscribeHeader.ID, SubscribeHeader.DURASUBNAME,
+            SubscribeHeader.NOLOCAL, ConnectHeader.LOGIN, ConnectHeader.PASSCODE, ConnectHeader.CLIENTID, ConnectHeader.ACCEPT_VERSION,
+            ConnectHeader.HEART_BEAT, "host" };
+    private static final byte[][] KNOWN_HEADER_BYTES = new byte[KNOWN_HEADERS.length][];
+
+    static {
+        for (Command c : Command.values()) {
+            COMMAND_BYTES[c.ordinal()] = c.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        for (int i = 0; i < COMMAND_PREFIX_OF.length; i++) {
+            COMMAND_PREFIXES[i] = COMMAND_BYTES[COMMAND_PREFIX_OF[i].ordinal()];
+        }
+        for (int i = 0; i < KNOWN_HEADERS.length; i++) {
+            KNOWN_HEADER_BYTES[i] = KNOWN_HEADERS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
     private Command _command = Command.UNKNOWN;
 
     private ArrayList<String> _requiredHeaders = new ArrayList<>();
@@ -203,10 +239,13 @@ public abstract class StompFrameMessage {
 
     protected ParseStage _parseStage = ParseStage.COMMAND;
 
-    private ByteArrayOutputStream _bao = null;
+    private byte[] _bodyBuf = null;
+    private int _bodySize = 0;
     private byte[] _body = null;
     private Exception _parseException = null;
 
+    private byte[] _line = null;
+
     private boolean _fatalERROR = false;
     private boolean isTextMessage = false;
 
@@ -271,47 +310,39 @@ public abstract class StompFrameMessage {
         if (_body != null) {
             return _body;
         }
-        if (_bao == null) {
+        if (_bodyBuf == null) {
             return (new byte[] {});
         }
-        _body = _bao.toByteArray();
+        _body = (_bodySize == _bodyBuf.length ? _bodyBuf : Arrays.copyOf(_bodyBuf, _bodySize));
         return _body;
     }
 
     public String getBodyText() throws StompFrameParseException {
-        String text = "";
-
-        if (_body != null) {
-            try {
-                return new String(_body, "UTF-8");
-            } catch (Exception e) {
-                throw new StompFrameParseException(e.getMessage(), e);
-            }
-        }
-
-        if (_bao == null) {
-            return text;
+        if (_body == null && _bodyBuf == null) {
+            return "";
         }
-
-        _body = _bao.toByteArray();
-
         try {
-            text = new String(_body, "UTF-8");
-            return text;
+            return new String(getBody(), StandardCharsets.UTF_8);
         } catch (Exception e) {
             throw new StompFrameParseException(getKStringX_CANNOT_PARSE_BODY_TO_TEXT(getCommand().toString(), e.getMessage()));
         }
     }
 
-    private void writeByteToBody(byte b) throws Exception {
-        if (_bao == null) {
-            if (getContentLength() != -1) {
-                _bao = new ByteArrayOutputStream(getContentLength());
-            } else {
-                _bao = new ByteArrayOutputStream();
-            }
+    /**
+     * Bulk copy length bytes from buf to the body
+     */
+    private void readToBody(ByteBufferWrapper buf, int length) {
+        if (length <= 0) {
+            return;
         }
-        _bao.write(b);
+        int size = _bodySize + length;
+        if (_bodyBuf == null) {
+            _bodyBuf = new byte[Math.max(size, getContentLength())];
+        } else if (size > _bodyBuf.length) {
+            _bodyBuf = Arrays.copyOf(_bodyBuf, Math.max(size, _bodyBuf.length * 2));
+        }
+        buf.get(_bodyBuf, _bodySize, length);
+        _bodySize = size;
     }
 
     public void setBody(byte[] data) {
@@ -322,18 +353,18 @@ public abstract class StompFrameMessage {
         if (t == null) {
             return;
         }
-        if (_bao == null) {
-            _bao = new ByteArrayOutputStream();
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        if (_bodyBuf != null) {
+            bao.write(_bodyBuf, 0, _bodySize);
         }
-        t.printStackTrace(new PrintStream(_bao, true, "UTF-8"));
+        t.printStackTrace(new PrintStream(bao, true, "UTF-8"));
+        _bodyBuf = bao.toByteArray();
+        _bodySize = _bodyBuf.length;
         addHeader(CommonHeader.CONTENTLENGTH, String.valueOf(getBodySize()));
     }
 
     private int getBodySize() {
-        if (_bao == null) {
-            return 0;
-        }
-        return _bao.size();
+        return _bodySize;
     }
 
     protected void setNextParseStage(ParseStage s) {
@@ -348,15 +379,6 @@ public abstract class StompFrameMessage {
                 }
             }
         }
-        if (s == ParseStage.DONE) {
-            try {
-                if (_bao != null) {
-                    _bao.close();
-                }
-            } catch (Exception e) {
-                logger.logWarn("Exception in closing ByteArrayOutputStream:" + e.getMessage(), null);
-            }
-        }
     }
 
     public ParseStage getNextParseStage() {
@@ -386,43 +408,86 @@ public abstract class StompFrameMessage {
         return len;
     }
 
+    /**
+     * Encode this frame in one pass into a buffer of the exact frame size from allocateBuffer(obj, size). If the
+     * subclass does not allocate buffers, the encoded frame is written to newBufferOutputStream(obj)
+     */
     public ByteBufferWrapper marshall(Object obj) throws IOException {
-        OutputStream bos = null;
-        DataOutputStream dos = null;
+        byte[] cmd = COMMAND_BYTES[getCommand().ordinal()];
+        byte[] body = getBody();
 
-        try {
-            bos = newBufferOutputStream(obj);
-            dos = new DataOutputStream(bos);
-
-            StringBuilder sbuf = new StringBuilder();
-            sbuf.append(getCommand());
-            sbuf.append(NEWLINESTR);
-            for (String key : _headers.keySet()) {
-                sbuf.append(key);
-                sbuf.append(HEADER_SEPERATOR);
-                sbuf.append(_headers.get(key));
-                sbuf.append(NEWLINESTR);
-            }
-            sbuf.append(NEWLINESTR);
-
-            dos.write(sbuf.toString().getBytes("UTF-8"));
-            dos.write(getBody());
-            dos.write(END_OF_FRAME);
-            dos.flush();
-            ByteBufferWrapper bb = getBuffer(bos);
+        int n = _headers.size() * 2;
+        String[] strs = new String[n];
+        int i = 0;
+        for (Map.Entry<String, String> e : _headers.entrySet()) {
+            strs[i++] = e.getKey();
+            strs[i++] = String.valueOf(e.getValue());
+        }
+        byte[][] encoded = null; // non-ASCII header keys and values
+        int size = cmd.length + 1;
+        for (i = 0; i < n; i++) {
+            if (isASCII(strs[i])) {
+                size += strs[i].length() + 1;
+            } else {
+                if (encoded == null) {
+                    encoded = new byte[n][];
+                }
+                encoded[i] = strs[i].getBytes(StandardCharsets.UTF_8);
+                size += encoded[i].length + 1;
+            }
+        }
+        size += 1 + body.length + END_OF_FRAME.length;
+
+        ByteBufferWrapper bb = allocateBuffer(obj, size);
+        boolean allocated = (bb != null);
+        if (!allocated) {
+            bb = new HeapByteBufferWrapper(ByteBuffer.allocate(size));
+        }
+        bb.put(cmd, 0, cmd.length).put(NEWLINE_BYTE);
+        for (i = 0; i < n; i++) {
+            if (encoded != null && encoded[i] != null) {
+                bb.put(encoded[i], 0, encoded[i].length);
+            } else {
+                String str = strs[i];
+                for (int j = 0; j < str.length(); j++) {
+                    bb.put((byte) str.charAt(j));
+                }
+            }
+            bb.put((i % 2 == 0) ? HEADER_SEPERATOR_BYTE : NEWLINE_BYTE);
+        }
+        bb.put(NEWLINE_BYTE);
+        bb.put(body, 0, body.length);
+        bb.put(END_OF_FRAME, 0, END_OF_FRAME.length);
+        if (allocated) {
             bb.flip();
             return bb;
+        }
+
+        OutputStream bos = null;
+        try {
+            bos = newBufferOutputStream(obj);
+            bos.write(((ByteBuffer) bb.getWrapped()).array(), 0, size);
+            bos.flush();
+            ByteBufferWrapper ret = getBuffer(bos);
+            ret.flip();
+            return ret;
 
         } finally {
-            if (dos != null) {
-                dos.close();
-            }
             if (bos != null) {
                 bos.close();
             }
         }
     }
 
+    private static boolean isASCII(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      */
     public void parseHeader(ByteBufferWrapper buf) throws Exception {
@@ -435,34 +500,46 @@ public abstract class StompFrameMessage {
         try {
 
             while (buf.hasRemaining()) {
-                byte[] line = parseLine(buf, MAX_HEADER_LEN);
-                if (line == null) {
+                int start = buf.position();
+                int end = findLineEnd(buf, MAX_HEADER_LEN);
+                if (end == -1) {
                     return;
                 }
-                header = new String(line, "UTF-8");
+                int from = trimStart(buf, start, end);
+                int to = trimEnd(buf, from, end);
 
                 if (logger.isFineLoggable()) {
-                    logger.logFine("parseHeader: got line byte-length=" + line.length + ", header=:" + header + ", header-length=" + header.length()
-                            + ", position=" + buf.position(), null);
+                    header = decode(buf, start, end);
+                    buf.position(start);
+                    logger.logFine("parseHeader: got line byte-length=" + (end - start) + ", header=:" + header + ", header-length=" + header.length()
+                            + ", position=" + end, null);
                 }
 
-                if (header.trim().length() == 0) {
+                if (from == to) {
+                    buf.position(end + 1);
                     setNextParseStage(ParseStage.BODY);
                     if (logger.isFinestLoggable()) {
                         logger.logFinest("parseHeader: DONE - position=" + buf.position(), null);
                     }
                     return;
                 }
-                int index = header.indexOf(HEADER_SEPERATOR);
+                String key = null;
+                String val = null;
+                int index = indexOf(buf, HEADER_SEPERATOR_BYTE, from, to);
                 if (index == -1) {
+                    header = decode(buf, start, end);
                     if (_parseException == null) {
                         _parseException = new StompFrameParseException(getKStringX_INVALID_HEADER(header));
                         logger.logSevere(_parseException.getMessage(), null);
                     }
                     index = header.length() - 1;
+                    key = header.substring(0, index).trim();
+                    val = header.substring(index + 1, header.length()).trim();
+                } else {
+                    key = headerName(buf, from, trimEnd(buf, from, index));
+                    val = decode(buf, trimStart(buf, index + 1, to), to);
                 }
-                String key = header.substring(0, index).trim();
-                String val = header.substring(index + 1, header.length()).trim();
+                buf.position(end + 1);
                 addHeader(key, val);
                 if (_headers.size() > MAX_HEADERS) { // XXX
                     throw new StompFrameParseException(getKStringX_MAX_HEADERS_EXCEEDED(MAX_HEADERS));
@@ -477,6 +554,36 @@ public abstract class StompFrameMessage {
         }
     }
 
+    /**
+     * @return a known header name constant for the header name bytes in [from, to) of buf, so that common header
+     * names are not decoded for each frame
+     */
+    private String headerName(ByteBufferWrapper buf, int from, int to) {
+        int len = to - from;
+        for (int i = 0; i < KNOWN_HEADER_BYTES.length; i++) {
+            if (KNOWN_HEADER_BYTES[i].length == len && startsWith(buf, from, to, KNOWN_HEADER_BYTES[i])) {
+                return KNOWN_HEADERS[i];
+            }
+        }
+        return decode(buf, from, to);
+    }
+
+    /**
+     * Decode UTF-8 bytes in [from, to) of buf, leaves buf position at to
+     */
+    private String decode(ByteBufferWrapper buf, int from, int to) {
+        int len = to - from;
+        if (len <= 0) {
+            return "";
+        }
+        if (_line == null || _line.length < len) {
+            _line = new byte[Math.max(len, 128)];
+        }
+        buf.position(from);
+        buf.get(_line, 0, len);
+        return new String(_line, 0, len, StandardCharsets.UTF_8);
+    }
+
     /**
      *
      */
@@ -489,45 +596,48 @@ public abstract class StompFrameMessage {
                     + getBodySize(), null);
         }
 
-        byte b;
-        while (buf.hasRemaining()) {
-            if (clen != -1 && clen == getBodySize()) {
+        if (clen != -1) {
+            readToBody(buf, Math.min(buf.remaining(), clen - getBodySize()));
+            if (clen <= getBodySize()) {
                 if (logger.isFinestLoggable()) {
                     logger.logFinest("Body has beed read!", null);
                 }
                 setNextParseStage(ParseStage.NULL);
-                return;
             }
-            b = buf.get();
-            if (b == NULL_BYTE && clen == -1) {
-
-                if (buf.hasRemaining()) {
-                    int pos = buf.position();
-                    byte bb = buf.get();
-                    if (bb != '\n' && bb != '\r') {
-                        buf.position(pos);
-                    }
-                }
-                if (buf.hasRemaining()) {
-                    int pos = buf.position();
-                    byte bb = buf.get();
-                    if (bb != '\n') {
-                        buf.position(pos);
-                    }
-                }
-                if (logger.isFinestLoggable()) {
-                    logger.logFinest("readBody: DONE - position=" + buf.position() + ", remaining=" + buf.remaining(), null);
-                }
+            return;
+        }
 
-                setNextParseStage(ParseStage.DONE);
-                return;
+        int pos = buf.position();
+        int index = indexOf(buf, NULL_BYTE, pos, pos + buf.remaining());
+        if (index == -1) {
+            readToBody(buf, buf.remaining());
+            if (logger.isFinestLoggable()) {
+                logger.logFinest("leaving readBody(): BODY_SIZE=" + getBodySize(), null);
+            }
+            return;
+        }
+        readToBody(buf, index - pos);
+        buf.get();
+
+        if (buf.hasRemaining()) {
+            pos = buf.position();
+            byte bb = buf.get();
+            if (bb != '\n' && bb != '\r') {
+                buf.position(pos);
+            }
+        }
+        if (buf.hasRemaining()) {
+            pos = buf.position();
+            byte bb = buf.get();
+            if (bb != '\n') {
+                buf.position(pos);
             }
-            writeByteToBody(b);
         }
         if (logger.isFinestLoggable()) {
-            logger.logFinest("leaving readBody(): BODY_SIZE=" + getBodySize(), null);
+            logger.logFinest("readBody: DONE - position=" + buf.position() + ", remaining=" + buf.remaining(), null);
         }
-        return;
+
+        setNextParseStage(ParseStage.DONE);
     }
 
     /**
@@ -567,7 +677,6 @@ public abstract class StompFrameMessage {
     public static StompFrameMessage parseCommand(ByteBufferWrapper buf, LoggerWrapper logger, StompFrameMessageFactory factory) throws Exception {
 
         StompFrameMessage message = null;
-        String cmd = "";
 
         if (logger.isFinestLoggable()) {
             logger.logFinest("parseCommand: pos:remaining[" + buf.position() + ":" + buf.remaining() + "]", null);
@@ -575,59 +684,42 @@ public abstract class StompFrameMessage {
 
         try {
 
-            while (cmd.trim().length() == 0) {
-                byte[] line = parseLine(buf, MAX_COMMAND_LEN);
-                if (line == null) {
+            int start = 0;
+            int end = 0;
+            do {
+                start = buf.position();
+                end = findLineEnd(buf, MAX_COMMAND_LEN);
+                if (end == -1) {
                     if (logger.isFinestLoggable()) {
                         logger.logFinest("parseCommand: position[" + buf.position() + "] command line not found", null);
                     }
                     return null;
                 }
-                cmd = new String(line, "UTF-8");
+                buf.position(end + 1);
 
                 if (logger.isFinestLoggable()) {
-                    logger.logFinest("parseCommand: got line:" + cmd + ", position=" + buf.position(), null);
+                    logger.logFinest("parseCommand: got line:" + decodeLine(buf, start, end) + ", position=" + buf.position(), null);
                 }
-            }
-
-            if (cmd.startsWith((Command.CONNECTED).toString())) {
-                message = factory.newStompFrameMessage(Command.CONNECTED, logger);
-            } else if (cmd.startsWith((Command.RECEIPT).toString())) {
-                message = factory.newStompFrameMessage(Command.RECEIPT, logger);
-            } else if (cmd.startsWith((Command.MESSAGE).toString())) {
-                message = factory.newStompFrameMessage(Command.MESSAGE, logger);
-            } else if (cmd.startsWith((Command.ERROR).toString())) {
-                message = factory.newStompFrameMessage(Command.ERROR, logger);
+            } while (trimStart(buf, start, end) == end);
 
-            } else if (cmd.startsWith((Command.CONNECT).toString()) || cmd.startsWith((Command.STOMP).toString())) {
-                message = factory.newStompFrameMessage(Command.CONNECT, logger);
-            } else if (cmd.startsWith((Command.SEND).toString())) {
-                message = factory.newStompFrameMessage(Command.SEND, logger);
-            } else if (cmd.startsWith((Command.SUBSCRIBE).toString())) {
-                message = factory.newStompFrameMessage(Command.SUBSCRIBE, logger);
-            } else if (cmd.startsWith((Command.ACK).toString())) {
-                message = factory.newStompFrameMessage(Command.ACK, logger);
-            } else if (cmd.startsWith((Command.NACK).toString())) {
-                message = factory.newStompFrameMessage(Command.NACK, logger);
-            } else if (cmd.startsWith((Command.UNSUBSCRIBE).toString())) {
-                message = factory.newStompFrameMessage(Command.UNSUBSCRIBE, logger);
-            } else if (cmd.startsWith((Command.BEGIN).toString())) {
-                message = factory.newStompFrameMessage(Command.BEGIN, logger);
-            } else if (cmd.startsWith((Command.COMMIT).toString())) {
-                message = factory.newStompFrameMessage(Command.COMMIT, logger);
-            } else if (cmd.startsWith((Command.ABORT).toString())) {
-                message = factory.newStompFrameMessage(Command.ABORT, logger);
-            } else if (cmd.startsWith((Command.DISCONNECT).toString())) {
-                message = factory.newStompFrameMessage(Command.DISCONNECT, logger);
+            Command cmd = null;
+            for (int i = 0; i < COMMAND_PREFIXES.length; i++) {
+                if (startsWith(buf, start, end, COMMAND_PREFIXES[i])) {
+                    cmd = COMMAND_MATCHES[i];
+                    break;
+                }
+            }
+            if (cmd != null) {
+                message = factory.newStompFrameMessage(cmd, logger);
             } else {
                 message = factory.newStompFrameMessage(Command.ERROR, logger);
-                String emsg = message.getKStringX_UNKNOWN_STOMP_CMD(cmd);
+                String emsg = message.getKStringX_UNKNOWN_STOMP_CMD(decodeLine(buf, start, end));
                 message._parseException = new StompFrameParseException(emsg);
                 logger.logSevere(emsg, null);
             }
 
             if (logger.isFinestLoggable()) {
-                logger.logFinest("parseCommand: DONE - cmd=" + cmd + ", position=" + buf.position(), null);
+                logger.logFinest("parseCommand: DONE - cmd=" + decodeLine(buf, start, end) + ", position=" + buf.position(), null);
             }
 
             message.setNextParseStage(ParseStage.HEADER);
@@ -643,36 +735,75 @@ public abstract class StompFrameMessage {
     }
 
     /**
+     * Decode the line in [start, end) of buf without changing buf position
      */
-    private static byte[] parseLine(ByteBufferWrapper buf, int maxbytes) throws Exception {
+    private static String decodeLine(ByteBufferWrapper buf, int start, int end) {
+        byte[] line = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            line[i - start] = buf.get(i);
+        }
+        return new String(line, StandardCharsets.UTF_8);
+    }
 
-        byte[] line = new byte[maxbytes];
+    /**
+     * @return index of the newline that ends the line at buf position, or -1 if the line is not complete
+     */
+    private static int findLineEnd(ByteBufferWrapper buf, int maxbytes) throws Exception {
         int pos = buf.position();
-        boolean foundline = false;
-        int i = 0;
-        byte b;
-        while (buf.hasRemaining()) {
-            b = buf.get();
-            /*
-             * if (logger.isFinestLoggable()) { logger.logFinest("parseLine: byte="+Byte.valueOf(b), null); }
-             */
-            if (b == NEWLINE_BYTE) {
-                foundline = true;
-                break;
-            }
-            line[i++] = b;
-            if (i >= (maxbytes - 1)) {
+        int limit = pos + buf.remaining();
+        for (int i = pos; i < limit; i++) {
+            if (buf.get(i) == NEWLINE_BYTE) {
+                return i;
+            }
+            if (i - pos + 1 >= (maxbytes - 1)) {
                 StompFrameMessage em = newStompFrameMessageERROR();
                 throw new StompFrameParseException(em.getKStringX_MAX_LINELEN_EXCEEDED(maxbytes));
             }
         }
-        if (!foundline) {
-            buf.position(pos);
-            return null;
+        return -1;
+    }
+
+    private static int indexOf(ByteBufferWrapper buf, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the first byte in [from, to) of buf that String.trim() would keep, or to
+     */
+    private static int trimStart(ByteBufferWrapper buf, int from, int to) {
+        int i = from;
+        while (i < to && (buf.get(i) & 0xff) <= ' ') {
+            i++;
         }
-        byte[] tmp = new byte[i];
-        System.arraycopy(line, 0, tmp, 0, i);
-        return tmp;
+        return i;
+    }
+
+    /**
+     * @return index after the last byte in [from, to) of buf that String.trim() would keep, or from
+     */
+    private static int trimEnd(ByteBufferWrapper buf, int from, int to) {
+        int i = to;
+        while (i > from && (buf.get(i - 1) & 0xff) <= ' ') {
+            i--;
+        }
+        return i;
+    }
+
+    private static boolean startsWith(ByteBufferWrapper buf, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     protected static StompFrameMessage newStompFrameMessageERROR() {
@@ -734,6 +865,14 @@ public abstract class StompFrameMessage {
         };
     }
 
+    /**
+     * @param obj as passed to marshall
+     * @return a buffer of size bytes to encode a frame in, or null to use newBufferOutputStream
+     */
+    protected ByteBufferWrapper allocateBuffer(Object obj, int size) throws IOException {
+        return null;
+    }
+
     protected abstract OutputStream newBufferOutputStream(Object obj) throws IOException;
 
     protected abstract ByteBufferWrapper getBuffer(OutputStream os) throws IOException;
@@ -755,4 +894,61 @@ public abstract class StompFrameMessage {
     protected abstract String getKStringX_UNKNOWN_STOMP_CMD(String cmd);
 
     protected abstract String getKStringX_MAX_LINELEN_EXCEEDED(int maxbytes);
+
+    private static class HeapByteBufferWrapper implements ByteBufferWrapper<ByteBuffer> {
+        private ByteBuffer buf = null;
+
+        HeapByteBufferWrapper(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public ByteBuffer getWrapped() {
+            return buf;
+        }
+
+        @Override
+        public int position() {
+            return buf.position();
+        }
+
+        @Override
+        public ByteBufferWrapper position(int newPosition) {
+            buf.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public boolean hasRemaining() {
+            return buf.hasRemaining();
+        }
+
+        @Override
+        public int remaining() {
+            return buf.remaining();
+        }
+
+        @Override
+        public ByteBufferWrapper flip() {
+            buf.flip();
+            return this;
+        }
+
+        @Override
+        public byte get() {
+            return buf.get();
+        }
+
+        @Override
+        public ByteBufferWrapper put(byte b) {
+            buf.put(b);
+            return this;
+        }
+
+        @Override
+        public ByteBufferWrapper put(byte[] src, int offset, int length) {
+            buf.put(src, offset, length);
+            return this;
+        }
+    }
 }
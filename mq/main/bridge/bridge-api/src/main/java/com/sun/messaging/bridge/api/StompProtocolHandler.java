@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
+import java.net.InetAddress;
 import com.sun.messaging.jmq.util.LoggerWrapper;
 
 /**
@@ -61,6 +62,17 @@ public abstract class StompProtocolHandler {
         return false;
     }
 
+    /**
+     * @return the address of the remote STOMP client, null if not known
+     */
+    public InetAddress getRemoteAddress() {
+        return null;
+    }
+
+    public int getRemotePort() {
+        return 0;
+    }
+
     public void close(boolean spawnthread) {
 
         logger.logInfo(getKStringI_CLOSE_STOMP_CONN(stompConnection.toString()) + "(" + spawnthread + ")", null);
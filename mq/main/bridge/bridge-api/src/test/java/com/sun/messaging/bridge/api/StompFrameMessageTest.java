@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.bridge.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.bridge.api.StompFrameMessage.Command;
+
+class StompFrameMessageTest {
+
+    private static final String FRAMES = "SEND\ndestination:/queue/a\ncontent-length:5\nreceipt:r1\n\nhello\0\n" //
+            + "SEND\ndestination:/queue/b\nx-custom:  padded value  \n\nworld\0\n";
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<StompFrameMessage> parse(byte[]... chunks) throws Exception {
+        TestStompFrames parser = new TestStompFrames();
+        List<StompFrameMessage> frames = new ArrayList<>();
+        for (byte[] chunk : chunks) {
+            frames.addAll(parser.parse(chunk));
+        }
+        return frames;
+    }
+
+    private static void assertFrames(List<StompFrameMessage> frames) throws Exception {
+        assertEquals(2, frames.size());
+
+        StompFrameMessage f = frames.get(0);
+        assertNull(f.getParseException());
+        assertEquals(Command.SEND, f.getCommand());
+        assertEquals("/queue/a", f.getHeader(StompFrameMessage.SendHeader.DESTINATION));
+        assertEquals("5", f.getHeader(StompFrameMessage.CommonHeader.CONTENTLENGTH));
+        assertEquals("r1", f.getHeader(StompFrameMessage.CommonHeader.RECEIPT));
+        assertEquals("hello", f.getBodyText());
+
+        f = frames.get(1);
+        assertNull(f.getParseException());
+        assertEquals(Command.SEND, f.getCommand());
+        assertEquals("/queue/b", f.getHeader(StompFrameMessage.SendHeader.DESTINATION));
+        assertEquals("padded value", f.getHeader("x-custom"));
+        assertEquals("world", f.getBodyText());
+    }
+
+    @Test
+    void testFramesInOneBuffer() throws Exception {
+        assertFrames(parse(bytes(FRAMES)));
+    }
+
+    @Test
+    void testFramesSplitAtEveryPosition() throws Exception {
+        byte[] data = bytes(FRAMES);
+        for (int i = 0; i <= data.length; i++) {
+            assertFrames(parse(Arrays.copyOfRange(data, 0, i), Arrays.copyOfRange(data, i, data.length)));
+        }
+    }
+
+    @Test
+    void testFramesByteByByte() throws Exception {
+        byte[] data = bytes(FRAMES);
+        byte[][] chunks = new byte[data.length][];
+        for (int i = 0; i < data.length; i++) {
+            chunks[i] = new byte[] { data[i] };
+        }
+        assertFrames(parse(chunks));
+    }
+
+    @Test
+    void testContentLengthBodyMayContainNUL() throws Exception {
+        List<StompFrameMessage> frames = parse(bytes("SEND\ndestination:/queue/a\ncontent-length:3\n\na\0b\0\n"));
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(new byte[] { 'a', 0, 'b' }, frames.get(0).getBody());
+    }
+
+    @Test
+    void testContentLengthBodyWithoutNULTerminator() throws Exception {
+        Exception e = assertThrows(StompFrameParseException.class, () -> parse(bytes("SEND\ndestination:/queue/a\ncontent-length:3\n\nabcd")));
+        assertEquals("NO_NULL_TERMINATOR content-length 3", e.getMessage());
+    }
+
+    @Test
+    void testNULTerminatedBody() throws Exception {
+        List<StompFrameMessage> frames = parse(bytes("SEND\ndestination:/queue/a\n\nsome text\0SEND\ndestination:/queue/b\n\n\0"));
+
+        assertEquals(2, frames.size());
+        assertEquals("some text", frames.get(0).getBodyText());
+        assertEquals(0, frames.get(1).getBody().length);
+        assertEquals("/queue/b", frames.get(1).getHeader(StompFrameMessage.SendHeader.DESTINATION));
+    }
+
+    @Test
+    void testCRLFLines() throws Exception {
+        byte[] data = bytes("\r\nSEND\r\ndestination:/queue/a\r\nreceipt : r1 \r\n\r\nbody\0\r\n" + "COMMIT\r\ntransaction:t1\r\n\r\n\0\r\n");
+        for (int i = 0; i <= data.length; i++) {
+            List<StompFrameMessage> frames = parse(Arrays.copyOfRange(data, 0, i), Arrays.copyOfRange(data, i, data.length));
+
+            assertEquals(2, frames.size());
+            StompFrameMessage f = frames.get(0);
+            assertEquals(Command.SEND, f.getCommand());
+            assertEquals("/queue/a", f.getHeader(StompFrameMessage.SendHeader.DESTINATION));
+            assertEquals("r1", f.getHeader(StompFrameMessage.CommonHeader.RECEIPT));
+            assertEquals("body", f.getBodyText());
+            f = frames.get(1);
+            assertEquals(Command.COMMIT, f.getCommand());
+            assertEquals("t1", f.getHeader(StompFrameMessage.CommonHeader.TRANSACTION));
+        }
+    }
+
+    @Test
+    void testNonASCIIHeaders() throws Exception {
+        byte[] data = bytes("SEND\ndestination:/queue/café\nnom-été:日本語\n\nü\0");
+        for (int i = 0; i <= data.length; i++) {
+            List<StompFrameMessage> frames = parse(Arrays.copyOfRange(data, 0, i), Arrays.copyOfRange(data, i, data.length));
+
+            assertEquals(1, frames.size());
+            StompFrameMessage f = frames.get(0);
+            assertEquals("/queue/café", f.getHeader(StompFrameMessage.SendHeader.DESTINATION));
+            assertEquals("日本語", f.getHeader("nom-été"));
+            assertEquals("ü", f.getBodyText());
+        }
+    }
+
+    @Test
+    void testUnknownCommand() throws Exception {
+        List<StompFrameMessage> frames = parse(bytes("FOO\n\n\0"));
+
+        assertEquals(1, frames.size());
+        assertEquals(Command.ERROR, frames.get(0).getCommand());
+        assertEquals("UNKNOWN_STOMP_CMD FOO", frames.get(0).getParseException().getMessage());
+    }
+
+    @Test
+    void testMissingRequiredHeader() throws Exception {
+        List<StompFrameMessage> frames = parse(bytes("SEND\nreceipt:r1\n\n\0"));
+
+        assertEquals("HEADER_NOT_SPECIFIED_FOR destination SEND", frames.get(0).getParseException().getMessage());
+    }
+
+    private static String line(String prefix, int length) {
+        char[] chars = new char[length - prefix.length()];
+        Arrays.fill(chars, 'v');
+        return prefix + new String(chars);
+    }
+
+    @Test
+    void testMaxHeaderLineLength() throws Exception {
+        // a line may have up to MAX_HEADER_LEN - 2 bytes before its newline
+        String longest = line("x-long:", StompFrameMessage.MAX_HEADER_LEN - 2);
+        List<StompFrameMessage> frames = parse(bytes("SEND\ndestination:/queue/a\n" + longest + "\n\n\0"));
+        assertEquals(longest.substring(7), frames.get(0).getHeader("x-long"));
+
+        String tooLong = line("x-long:", StompFrameMessage.MAX_HEADER_LEN - 1);
+        assertThrows(StompFrameParseException.class, () -> parse(bytes("SEND\ndestination:/queue/a\n" + tooLong + "\n\n\0")));
+
+        // the limit also applies while the newline has not arrived yet
+        assertThrows(StompFrameParseException.class, () -> parse(bytes("SEND\ndestination:/queue/a\n" + tooLong)));
+    }
+
+    @Test
+    void testMaxCommandLineLength() throws Exception {
+        String longest = line("SEND", StompFrameMessage.MAX_COMMAND_LEN - 2);
+        List<StompFrameMessage> frames = parse(bytes(longest + "\ndestination:/queue/a\n\n\0"));
+        assertEquals(Command.SEND, frames.get(0).getCommand());
+
+        String tooLong = line("SEND", StompFrameMessage.MAX_COMMAND_LEN - 1);
+        assertThrows(StompFrameParseException.class, () -> parse(bytes(tooLong)));
+    }
+
+    private static StompFrameMessage roundTrip(Object obj) throws Exception {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(StompFrameMessage.MessageHeader.DESTINATION, "/topic/té");
+        headers.put(StompFrameMessage.MessageHeader.MESSAGEID, "ID:1");
+        headers.put(StompFrameMessage.MessageHeader.SUBSCRIPTION, "sub-0");
+        headers.put("x-日", "été");
+        headers.put(StompFrameMessage.CommonHeader.CONTENTLENGTH, "4");
+
+        StompFrameMessage msg = TestStompFrames.FACTORY.newStompFrameMessage(Command.MESSAGE, TestStompFrames.LOGGER);
+        headers.forEach(msg::addHeader);
+        msg.setBody(new byte[] { 1, 0, 2, 3 });
+
+        byte[] data = TestStompFrames.toBytes(msg.marshall(obj));
+        List<StompFrameMessage> frames = parse(data);
+
+        assertEquals(1, frames.size());
+        StompFrameMessage f = frames.get(0);
+        assertEquals(Command.MESSAGE, f.getCommand());
+        assertEquals(headers, f.getHeaders());
+        assertArrayEquals(new byte[] { 1, 0, 2, 3 }, f.getBody());
+        return f;
+    }
+
+    @Test
+    void testMarshallParseRoundTrip() throws Exception {
+        roundTrip(null);
+    }
+
+    @Test
+    void testMarshallToAllocatedBufferParseRoundTrip() throws Exception {
+        roundTrip(TestStompFrames.ALLOCATE);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.bridge.api;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures parsing STOMP SEND frames, whole and split across buffers, and marshalling MESSAGE frames.
+ *
+ * <pre>
+ * java -cp ... com.sun.messaging.bridge.api.StompFrameParseBenchmark [bodySize] [frames]
+ * </pre>
+ */
+public class StompFrameParseBenchmark {
+
+    private static final int SPLIT_BYTES = 1460;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        String text = new String(chars);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            bos.write(("SEND\ndestination:/queue/bench\npersistent:true\nreceipt:r-" + i + "\ncontent-length:" + size + "\nx-app:value-" + i + "\n\n"
+                    + text + "\0\n").getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] data = bos.toByteArray();
+
+        for (boolean report : new boolean[] { false, true }) {
+            int n = report ? frames : frames / 4;
+            parse(data, n, data.length, report);
+            parse(data, n, SPLIT_BYTES, report);
+            marshall(text, n, report);
+        }
+    }
+
+    private static void parse(byte[] data, int frames, int chunkSize, boolean report) throws Exception {
+        byte[][] chunks = new byte[(data.length + chunkSize - 1) / chunkSize][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Arrays.copyOfRange(data, i * chunkSize, Math.min(data.length, (i + 1) * chunkSize));
+        }
+        int parsed = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        TestStompFrames parser = new TestStompFrames();
+        while (parsed < frames) {
+            for (byte[] chunk : chunks) {
+                List<StompFrameMessage> l = parser.parse(chunk);
+                for (StompFrameMessage f : l) {
+                    bytes += f.getBody().length;
+                }
+                parsed += l.size();
+            }
+        }
+        report(report, chunkSize == data.length ? "parse" : "split", parsed, bytes, System.nanoTime() - start);
+    }
+
+    private static void marshall(String text, int frames, boolean report) throws Exception {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            StompFrameMessage msg = TestStompFrames.FACTORY.newStompFrameMessage(StompFrameMessage.Command.MESSAGE, TestStompFrames.LOGGER);
+            msg.addHeader(StompFrameMessage.MessageHeader.DESTINATION, "/queue/bench");
+            msg.addHeader(StompFrameMessage.MessageHeader.MESSAGEID, "ID:" + i);
+            msg.addHeader(StompFrameMessage.MessageHeader.SUBSCRIPTION, "sub-0");
+            msg.addHeader(StompFrameMessage.CommonHeader.CONTENTLENGTH, String.valueOf(body.length));
+            msg.setBody(body);
+            bytes += msg.marshall(TestStompFrames.ALLOCATE).remaining();
+        }
+        report(report, "marshall", frames, bytes, System.nanoTime() - start);
+    }
+
+    private static void report(boolean report, String name, int frames, long bytes, long nanos) {
+        if (report) {
+            System.out.printf("%-8s frames=%d %.0f frames/s %.1f MB/s%n", name, frames, frames / (nanos / 1e9), bytes / (1024.0 * 1024) / (nanos / 1e9));
+        }
+    }
+}
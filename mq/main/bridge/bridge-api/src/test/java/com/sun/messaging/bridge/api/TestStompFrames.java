@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.bridge.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import com.sun.messaging.jmq.util.LoggerWrapper;
+
+/**
+ * Frame, buffer and parse loop for the STOMP frame tests. parse feeds the chunks to StompFrameMessage the way the
+ * STOMP bridge filter does: unconsumed bytes are kept and the next chunk is appended to them.
+ */
+class TestStompFrames {
+
+    /**
+     * marshall obj that makes the frame allocate its buffer
+     */
+    static final Object ALLOCATE = new Object();
+
+    static final LoggerWrapper LOGGER = new LoggerWrapper() {
+        @Override
+        public void logInfo(String msg, Throwable t) {
+        }
+
+        @Override
+        public void logWarn(String msg, Throwable t) {
+        }
+
+        @Override
+        public void logSevere(String msg, Throwable t) {
+        }
+
+        @Override
+        public void logFine(String msg, Throwable t) {
+        }
+
+        @Override
+        public void logFinest(String msg, Throwable t) {
+        }
+
+        @Override
+        public boolean isFineLoggable() {
+            return false;
+        }
+
+        @Override
+        public boolean isFinestLoggable() {
+            return false;
+        }
+    };
+
+    static final StompFrameMessageFactory FACTORY = (cmd, logger) -> new Frame(cmd);
+
+    private ByteBuffer pending = ByteBuffer.allocate(0);
+    private StompFrameMessage message = null;
+
+    /**
+     * @return the frames completed by chunk
+     */
+    List<StompFrameMessage> parse(byte[] chunk) throws Exception {
+        ByteBuffer in = ByteBuffer.allocate(pending.remaining() + chunk.length);
+        in.put(pending).put(chunk).flip();
+        pending = in;
+
+        List<StompFrameMessage> frames = new ArrayList<>();
+        Buffer buf = new Buffer(in);
+        while (true) {
+            if (message == null) {
+                if (in.remaining() < StompFrameMessage.MIN_COMMAND_LEN) {
+                    return frames;
+                }
+                int pos = in.position();
+                message = StompFrameMessage.parseCommand(buf, LOGGER, FACTORY);
+                if (message == null) {
+                    in.position(pos);
+                    return frames;
+                }
+            }
+            if (message.getNextParseStage() == StompFrameMessage.ParseStage.HEADER) {
+                message.parseHeader(buf);
+            }
+            if (message.getNextParseStage() == StompFrameMessage.ParseStage.BODY) {
+                message.readBody(buf);
+            }
+            if (message.getNextParseStage() == StompFrameMessage.ParseStage.NULL) {
+                message.readNULL(buf);
+            }
+            if (message.getNextParseStage() != StompFrameMessage.ParseStage.DONE) {
+                return frames;
+            }
+            frames.add(message);
+            message = null;
+        }
+    }
+
+    static byte[] toBytes(ByteBufferWrapper bb) {
+        ByteBuffer b = (ByteBuffer) bb.getWrapped();
+        byte[] bytes = new byte[b.remaining()];
+        b.get(bytes);
+        return bytes;
+    }
+
+    static class Frame extends StompFrameMessage {
+
+        Frame(Command cmd) {
+            super(cmd, LOGGER);
+        }
+
+        @Override
+        protected ByteBufferWrapper allocateBuffer(Object obj, int size) throws IOException {
+            return (obj == ALLOCATE ? new Buffer(ByteBuffer.allocate(size)) : null);
+        }
+
+        @Override
+        protected OutputStream newBufferOutputStream(Object obj) throws IOException {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        protected ByteBufferWrapper getBuffer(OutputStream os) throws IOException {
+            byte[] bytes = ((ByteArrayOutputStream) os).toByteArray();
+            return new Buffer(ByteBuffer.allocate(bytes.length).put(bytes));
+        }
+
+        @Override
+        protected String getKStringX_CANNOT_PARSE_BODY_TO_TEXT(String cmd, String emsg) {
+            return "CANNOT_PARSE_BODY_TO_TEXT " + cmd + " " + emsg;
+        }
+
+        @Override
+        protected String getKStringX_HEADER_NOT_SPECIFIED_FOR(String headerName, String cmd) {
+            return "HEADER_NOT_SPECIFIED_FOR " + headerName + " " + cmd;
+        }
+
+        @Override
+        protected String getKStringX_INVALID_HEADER_VALUE(String headerValue, String cmd) {
+            return "INVALID_HEADER_VALUE " + headerValue + " " + cmd;
+        }
+
+        @Override
+        protected String getKStringX_INVALID_HEADER(String headerName) {
+            return "INVALID_HEADER " + headerName;
+        }
+
+        @Override
+        protected String getKStringX_MAX_HEADERS_EXCEEDED(int maxHeaders) {
+            return "MAX_HEADERS_EXCEEDED " + maxHeaders;
+        }
+
+        @Override
+        protected String getKStringX_EXCEPTION_PARSE_HEADER(String headerName, String emsg) {
+            return "EXCEPTION_PARSE_HEADER " + headerName + " " + emsg;
+        }
+
+        @Override
+        protected String getKStringX_NO_NULL_TERMINATOR(String contentlen) {
+            return "NO_NULL_TERMINATOR " + contentlen;
+        }
+
+        @Override
+        protected String getKStringX_UNKNOWN_STOMP_CMD(String cmd) {
+            return "UNKNOWN_STOMP_CMD " + cmd;
+        }
+
+        @Override
+        protected String getKStringX_MAX_LINELEN_EXCEEDED(int maxbytes) {
+            return "MAX_LINELEN_EXCEEDED " + maxbytes;
+        }
+    }
+
+    /**
+     * Implements only what ByteBufferWrapper requires, so that its default methods are used
+     */
+    static class Buffer implements ByteBufferWrapper<ByteBuffer> {
+        private final ByteBuffer buf;
+
+        Buffer(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public ByteBuffer getWrapped() {
+            return buf;
+        }
+
+        @Override
+        public int position() {
+            return buf.position();
+        }
+
+        @Override
+        public ByteBufferWrapper position(int newPosition) {
+            buf.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public boolean hasRemaining() {
+            return buf.hasRemaining();
+        }
+
+        @Override
+        public int remaining() {
+            return buf.remaining();
+        }
+
+        @Override
+        public ByteBufferWrapper flip() {
+            buf.flip();
+            return this;
+        }
+
+        @Override
+        public byte get() {
+            return buf.get();
+        }
+
+        @Override
+        public ByteBufferWrapper put(byte b) {
+            buf.put(b);
+            return this;
+        }
+    }
+}
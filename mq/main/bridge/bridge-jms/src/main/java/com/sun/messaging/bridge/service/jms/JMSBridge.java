@@ -746,6 +746,39 @@ public class JMSBridge {
                 return replys;
             }
 
+            BridgeCmdSharedReplyData srep = new BridgeCmdSharedReplyData(4, 3, "-");
+            String soneRow[] = new String[4];
+            soneRow[0] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_BATCH_SIZE);
+            soneRow[1] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_NUM_MSGS);
+            soneRow[2] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_NUM_BATCHES);
+            soneRow[3] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_MSG_RATE);
+            srep.addTitle(soneRow);
+            soneRow[0] = String.valueOf(l.getBatchSize());
+            soneRow[1] = String.valueOf(l.getMessageCount());
+            soneRow[2] = String.valueOf(l.getBatchCount());
+            soneRow[3] = String.valueOf(l.getMessageRate());
+            srep.add(soneRow);
+            replys.add(srep);
+
+            LinkWorker[] workers = l.getWorkers();
+            if (workers != null) {
+                BridgeCmdSharedReplyData wrep = new BridgeCmdSharedReplyData(4, 3, "-");
+                String woneRow[] = new String[4];
+                woneRow[0] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_WORKER);
+                woneRow[1] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_NUM_MSGS);
+                woneRow[2] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_NUM_FAILURES);
+                woneRow[3] = rb.getString(BridgeCmdSharedResources.I_BGMGR_TITLE_NUM_QUEUED);
+                wrep.addTitle(woneRow);
+                for (int i = 0; i < workers.length; i++) {
+                    woneRow[0] = String.valueOf(workers[i].getId());
+                    woneRow[1] = String.valueOf(workers[i].getMessageCount());
+                    woneRow[2] = String.valueOf(workers[i].getFailureCount());
+                    woneRow[3] = String.valueOf(workers[i].getQueuedCount());
+                    wrep.add(woneRow);
+                }
+                replys.add(wrep);
+            }
+
             if (l.isTransacted()) {
                 BridgeCmdSharedReplyData rep = new BridgeCmdSharedReplyData(1, 3, "-");
                 String toneRow[] = new String[1];
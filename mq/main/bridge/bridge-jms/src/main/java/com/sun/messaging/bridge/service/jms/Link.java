@@ -18,7 +18,12 @@
 
 package com.sun.messaging.bridge.service.jms;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.ResourceBundle;
@@ -151,6 +156,7 @@ public class Link implements Runnable {
     private String _targetDestName = null;
     private EventNotifier _notifier = null;
     private static final int MIN_TRANSACTION_TIMEOUT = 60; // seconds
+    private static final long STOP_ACK_WAIT = 5000L; // msec
     private boolean _enabled = true;
     private boolean _isTransacted = true;
     private MessageTransformer<Message, Message> _msgTransformer = null;
@@ -170,6 +176,20 @@ public class Link implements Runnable {
     private int _sourceAttemptInterval = 5; // sec
     private int _targetAttemptInterval = 5; // sec
 
+    private int _batchSize = 1;
+    private long _batchTime = 0L; // msec
+    private boolean _transfersPending = false;
+
+    private final LongAdder _msgCount = new LongAdder();
+    private final LongAdder _batchCount = new LongAdder();
+    private volatile long _runStartTime = 0L;
+
+    private int _workerCount = 1;
+    private String _orderingKey = null;
+    private volatile LinkWorker[] _workers = null;
+    private int _inflight = 0; // messages with the workers, link thread only
+    private long _nokey = 0L;
+
     public synchronized void init(Properties linkAttrs, Properties srcAttrs, Properties tgtAttrs, Properties tgtProps, JMSBridge parent) throws Exception {
         _linkAttrs = linkAttrs;
         _srcAttrs = srcAttrs;
@@ -192,6 +212,21 @@ public class Link implements Runnable {
 
         _isTransacted = Boolean.parseBoolean(_linkAttrs.getProperty(JMSBridgeXMLConstant.Link.TRANSACTED, JMSBridgeXMLConstant.Link.TRANSACTED_DEFAULT));
 
+        _batchSize = Integer.parseInt(_linkAttrs.getProperty(JMSBridgeXMLConstant.Link.BATCHSIZE, JMSBridgeXMLConstant.Link.BATCHSIZE_DEFAULT));
+        if (_batchSize < 1) {
+            throw new IllegalArgumentException("Invalid " + JMSBridgeXMLConstant.Link.BATCHSIZE + " " + _batchSize + " for " + this);
+        }
+        _batchTime = Long.parseLong(_linkAttrs.getProperty(JMSBridgeXMLConstant.Link.BATCHTIME, JMSBridgeXMLConstant.Link.BATCHTIME_DEFAULT));
+        if (_batchTime < 0L) {
+            throw new IllegalArgumentException("Invalid " + JMSBridgeXMLConstant.Link.BATCHTIME + " " + _batchTime + " for " + this);
+        }
+        _workerCount = Integer.parseInt(_linkAttrs.getProperty(JMSBridgeXMLConstant.Link.WORKERS, JMSBridgeXMLConstant.Link.WORKERS_DEFAULT));
+        if (_workerCount < 1 || (_workerCount > 1 && _isTransacted)) {
+            throw new IllegalArgumentException("Invalid " + JMSBridgeXMLConstant.Link.WORKERS + " " + _workerCount + " for "
+                    + (_isTransacted ? _jbr.getString(_jbr.M_TRANSACTED) + " " : "") + this);
+        }
+        _orderingKey = _linkAttrs.getProperty(JMSBridgeXMLConstant.Link.ORDERINGKEY, JMSBridgeXMLConstant.Link.ORDERINGKEY_DEFAULT);
+
         if (_isTransacted && !(_sourceCF instanceof XAConnectionFactory)) {
             String[] eparam = { "XAConnectionFactory", _jbr.getString(_jbr.M_TRANSACTED), this.toString() };
             throw new IllegalArgumentException(_jbr.getKString(_jbr.X_REQUIRED_FOR_LINK, eparam));
@@ -306,6 +341,40 @@ public class Link implements Runnable {
         return _isTransacted;
     }
 
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
+    /**
+     * @return number of messages forwarded (or consumed without transfer) since the link thread started
+     */
+    public long getMessageCount() {
+        return _msgCount.sum();
+    }
+
+    /**
+     * @return number of transactions committed, or acknowledgements made if non-transacted, since the link thread started
+     */
+    public long getBatchCount() {
+        return _batchCount.sum();
+    }
+
+    public long getMessageRate() {
+        long start = _runStartTime;
+        if (start == 0L) {
+            return 0L;
+        }
+        long secs = (System.currentTimeMillis() - start) / 1000L;
+        return (secs <= 0L ? _msgCount.sum() : _msgCount.sum() / secs);
+    }
+
+    /**
+     * @return the workers of a partitioned link or null
+     */
+    LinkWorker[] getWorkers() {
+        return _workers;
+    }
+
     public void enable() throws Exception {
         if (isEnabled()) {
             _logger.log(Level.INFO, this + " is already enabled");
@@ -452,6 +521,14 @@ public class Link implements Runnable {
             _logger.log(Level.INFO, _jbr.getString(_jbr.I_STOPPING_LINK, this.toString()));
 
             if (_thread != null && Thread.currentThread() != _thread) {
+                // a pending batch is received with a timeout of at most batchTime
+                try {
+                    if (!awaitTransfersAcknowledged(_batchTime + STOP_ACK_WAIT)) {
+                        _logger.log(Level.WARNING, "Forwarded messages not acknowledged before stop of " + this + " will be forwarded again");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
                 _thread.interrupt();
             }
 
@@ -950,6 +1027,9 @@ public class Link implements Runnable {
 
     @Override
     public void run() {
+        _msgCount.reset();
+        _batchCount.reset();
+        _runStartTime = System.currentTimeMillis();
         try {
 
             if (_sourceConn instanceof XAConnection) {
@@ -957,7 +1037,11 @@ public class Link implements Runnable {
                 runTransacted();
             } else {
                 _logger.log(Level.INFO, _jbr.getString(_jbr.I_RUNNING_NONTXN_CONSUMER, this.toString()));
-                runNonTransacted();
+                if (_workerCount > 1) {
+                    runPartitioned();
+                } else {
+                    runNonTransacted();
+                }
             }
 
         } catch (Throwable t) {
@@ -1013,10 +1097,17 @@ public class Link implements Runnable {
         if (_parent.supportTransactionTimeout()) {
             receiveTimeout = (((long) _parent.getTransactionTimeout()) / (long) 2) * 1000;
         }
+        long batchTime = _batchTime;
+        if (receiveTimeout > 0L && batchTime > receiveTimeout) {
+            batchTime = receiveTimeout;
+        }
 
         int consecutiveThrowables = 0;
 
-        while (_state != LinkState.STOPPING && _state != LinkState.STOPPED) {
+        // after a failed batch, forward one message per transaction until a commit succeeds
+        boolean singleMessage = false;
+
+        nextTransaction: while (_state != LinkState.STOPPING && _state != LinkState.STOPPED) {
 
             if (Thread.currentThread().isInterrupted()) {
                 throw new InterruptedException(_jbr.getKString(_jbr.X_LINK_INTERRUPTED, this.toString()));
@@ -1029,6 +1120,9 @@ public class Link implements Runnable {
             MessageHeaders srcmhs = null;
             String mid = null;
             Throwable currentThrowable = null;
+            int batchSize = (singleMessage ? 1 : _batchSize);
+            List<String[]> transfers = new ArrayList<>(batchSize);
+            List<Message> batch = new ArrayList<>(batchSize);
             _branchProducer = null;
             _targetCurrentDestinationName = null;
             try {
@@ -1079,199 +1173,229 @@ public class Link implements Runnable {
                     continue;
                 }
 
-                try {
-                    if (_logger.isLoggable(Level.FINE)) {
-                        _logger.log(Level.FINE, "Receiving(" + receiveTimeout + ") message from source in transaction " + transaction + " in " + this);
-                    }
-                    if (_fi.FAULT_INJECTION) {
-                        _fi.setLogger(_logger);
-                        _fi.checkFaultAndThrowException(FaultInjection.FAULT_RECEIVE_1, null, "jakarta.jms.JMSException", true);
+                long batchEnd = 0L;
+                while (transfers.size() < batchSize) {
+                    boolean first = transfers.isEmpty();
+                    long timeout = receiveTimeout;
+                    if (!first) {
+                        timeout = batchEnd - System.currentTimeMillis();
+                        if (batchTime > 0L && timeout <= 0L) {
+                            break;
+                        }
                     }
-                    m = _consumer.receive(receiveTimeout);
-                    if (m == null) {
-                        try {
-                            String logmsg = ((receiveTimeout > 0L) ? _jbr.getKString(_jbr.W_SOURCE_CONN_CLOSED_OR_RECEIVE_TIMEOUT, this.toString())
-                                    : _jbr.getKString(_jbr.W_SOURCE_CONN_CLOSED, this.toString()));
-                            _logger.log(Level.WARNING, logmsg);
-                        } catch (Throwable t) {
+                    try {
+                        if (_logger.isLoggable(Level.FINE)) {
+                            _logger.log(Level.FINE, "Receiving(" + timeout + ") message from source in transaction " + transaction + " in " + this);
                         }
-                        try {
-                            _tm.rollback();
-                        } catch (Throwable t1) {
+                        if (_fi.FAULT_INJECTION) {
+                            _fi.setLogger(_logger);
+                            _fi.checkFaultAndThrowException(FaultInjection.FAULT_RECEIVE_1, null, "jakarta.jms.JMSException", true);
+                        }
+                        if (first) {
+                            m = _consumer.receive(timeout);
+                        } else if (batchTime > 0L) {
+                            m = _consumer.receive(timeout);
+                        } else {
+                            m = _consumer.receiveNoWait();
+                        }
+                        if (m == null && !first) {
+                            break;
+                        }
+                        if (m == null) {
                             try {
-                                if (receiveTimeout == 0L) {
-                                    _logger.log(Level.FINE,
-                                            "Unable to rollback transaction " + transaction + " on closed source connection or receive() timeout ", t1);
-                                } else {
-                                    logWarning("Unable to rollback transaction " + transaction + " on closed source connection or receive() timeout ", t1);
-                                }
+                                String logmsg = ((receiveTimeout > 0L) ? _jbr.getKString(_jbr.W_SOURCE_CONN_CLOSED_OR_RECEIVE_TIMEOUT, this.toString())
+                                        : _jbr.getKString(_jbr.W_SOURCE_CONN_CLOSED, this.toString()));
+                                _logger.log(Level.WARNING, logmsg);
                             } catch (Throwable t) {
                             }
+                            try {
+                                _tm.rollback();
+                            } catch (Throwable t1) {
+                                try {
+                                    if (receiveTimeout == 0L) {
+                                        _logger.log(Level.FINE,
+                                                "Unable to rollback transaction " + transaction + " on closed source connection or receive() timeout ", t1);
+                                    } else {
+                                        logWarning("Unable to rollback transaction " + transaction + " on closed source connection or receive() timeout ", t1);
+                                    }
+                                } catch (Throwable t) {
+                                }
+                            }
+                            continue nextTransaction;
                         }
-                        continue;
-                    }
 
-                    msgCount++;
-                    if (_logger.isLoggable(Level.FINE)) {
-                        _logger.log(Level.FINE,
-                                "Received message " + m + " from source in transaction " + transaction + " in " + this + ", msgCount=" + msgCount);
-                    }
-                    if (_fi.FAULT_INJECTION) {
-                        _fi.setLogger(_logger);
-                        _fi.checkFaultAndThrowException(FaultInjection.FAULT_RECEIVE_2, null, "jakarta.jms.JMSException", true);
-                    }
-                } catch (Throwable t) {
-                    currentThrowable = t;
-                    logWarning("Exception in receiving message in " + this, t);
-                    try {
-                        _tm.rollback();
-                    } catch (Throwable t1) {
-                        logWarning("Exception on rollback transaction " + transaction + " on receiving failure", t1);
-                    }
-                    continue;
-                }
-                if (!isTransactionActive(transaction, _tm)) {
-                    continue;
-                }
-
-                srcmhs = MessageHeaders.getMessageHeaders(m);
-                mid = srcmhs.mid;
-                long ttl = srcmhs.expiration;
-                if (ttl != 0L) {
-                    ttl = ttl - System.currentTimeMillis();
-                }
-                if (ttl < 0) {
-                    handleExpiredMessage(m, mid, transaction, _tm, srh);
-                    continue;
-                }
-                if (!isTransactionActive(transaction, _tm)) {
-                    continue;
-                }
-
-                if (!_targetStayConnected) {
-                    try {
-                        initTarget();
-                    } catch (Exception e) {
-                        _logger.log(Level.SEVERE, "Unable to connect to target in " + this, e);
+                        msgCount++;
+                        if (_logger.isLoggable(Level.FINE)) {
+                            _logger.log(Level.FINE,
+                                    "Received message " + m + " from source in transaction " + transaction + " in " + this + ", msgCount=" + msgCount);
+                        }
+                        if (_fi.FAULT_INJECTION) {
+                            _fi.setLogger(_logger);
+                            _fi.checkFaultAndThrowException(FaultInjection.FAULT_RECEIVE_2, null, "jakarta.jms.JMSException", true);
+                        }
+                    } catch (Throwable t) {
+                        currentThrowable = t;
+                        logWarning("Exception in receiving message in " + this, t);
                         try {
                             _tm.rollback();
                         } catch (Throwable t1) {
-                            _logger.log(Level.WARNING,
-                                    "Unable to rollback transaction " + transaction + " on init target failure for message " + mid + " in " + this, t1);
+                            logWarning("Exception on rollback transaction " + transaction + " on receiving failure", t1);
                         }
-                        throw e;
+                        continue nextTransaction;
+                    }
+                    if (first) {
+                        batchEnd = System.currentTimeMillis() + batchTime;
                     }
-                }
-                if (!isTransactionActive(transaction, _tm)) {
-                    continue;
-                }
-
-                Message sm = null;
-                String midSent = null;
-
-                try {
-                    sm = handleMessageTransformer(m, srcmhs);
-                } catch (Throwable t) {
-                    _logger.log(Level.WARNING, _jbr.getString(_jbr.W_STOP_LINK_BECAUSE_OF, this, t.getMessage()), t);
-                    throw t;
-                }
-                if (sm == null) {
-                    _logger.log(Level.WARNING, _jbr.getString(_jbr.W_CONSUME_NO_TRANSFER, mid, this));
                     if (!isTransactionActive(transaction, _tm)) {
-                        continue;
+                        continue nextTransaction;
                     }
 
-                } else {
+                    srcmhs = MessageHeaders.getMessageHeaders(m);
+                    mid = srcmhs.mid;
+                    long ttl = srcmhs.expiration;
+                    if (ttl != 0L) {
+                        ttl = ttl - System.currentTimeMillis();
+                    }
+                    if (ttl < 0) {
+                        // rolls back the messages already in this batch too, let them be redelivered one by one
+                        singleMessage = !first;
+                        handleExpiredMessage(m, mid, transaction, _tm, srh);
+                        continue nextTransaction;
+                    }
+                    if (!isTransactionActive(transaction, _tm)) {
+                        continue nextTransaction;
+                    }
 
-                    if (_targetCF.isEmbeded() && _sourceCF.isEmbeded()) {
-                        trh.xar = srh.xar;
-                    } else {
-                        trh.xar = ((XASession) _targetSession).getXAResource();
-                        if (!(_tm instanceof TransactionManagerImpl) && trh.xar.getClass().getName().equals(srh.xar.getClass().getName())) {
-                            trh.xar = new XAResourceImpl(trh.xar);
-                            _logger.log(Level.INFO, "Use XAResource wrapper " + trh.xar + " for target XAResource " + trh.xar.getClass().getName());
-                        }
-                        if (_logger.isLoggable(Level.FINE)) {
-                            _logger.log(Level.FINE, "enlist target in transaction " + transaction + " in " + this);
-                        }
-                        if (!doEnlistAndRollbackOnError(transaction, _tm, trh)) {
-                            currentThrowable = trh.ex;
-                            continue;
+                    if (first && !_targetStayConnected) {
+                        try {
+                            initTarget();
+                        } catch (Exception e) {
+                            _logger.log(Level.SEVERE, "Unable to connect to target in " + this, e);
+                            try {
+                                _tm.rollback();
+                            } catch (Throwable t1) {
+                                _logger.log(Level.WARNING,
+                                        "Unable to rollback transaction " + transaction + " on init target failure for message " + mid + " in " + this, t1);
+                            }
+                            throw e;
                         }
                     }
+                    if (!isTransactionActive(transaction, _tm)) {
+                        continue nextTransaction;
+                    }
+
+                    Message sm = null;
+                    String midSent = null;
+                    _branchProducer = null;
+                    _targetCurrentDestinationName = null;
 
                     try {
-                        if (_logger.isLoggable(Level.FINE)) {
-                            _logger.log(Level.FINE, "Sending message " + mid + " to target in transaction " + transaction + " in " + this);
+                        sm = handleMessageTransformer(m, srcmhs);
+                    } catch (Throwable t) {
+                        _logger.log(Level.WARNING, _jbr.getString(_jbr.W_STOP_LINK_BECAUSE_OF, this, t.getMessage()), t);
+                        throw t;
+                    }
+                    if (sm == null) {
+                        _logger.log(Level.WARNING, _jbr.getString(_jbr.W_CONSUME_NO_TRANSFER, mid, this));
+                        if (!isTransactionActive(transaction, _tm)) {
+                            continue nextTransaction;
                         }
 
-                        if (_fi.FAULT_INJECTION) {
-                            _fi.setLogger(_logger);
-                            _fi.checkFaultAndThrowException(FaultInjection.FAULT_SEND_1, null, "jakarta.jms.JMSException", true);
-                        }
+                    } else {
 
-                        MessageProducer producer = _producer;
-                        if (_branchProducer != null) {
-                            producer = _branchProducer;
-                        }
-                        if (!getTargetCurrentDestinationName().equals(toDestinationName(producer.getDestination()))) {
-                            throw new BridgeException("Unexpected target producer's destination name " + toDestinationName(producer.getDestination())
-                                    + ": not match current target destination name " + getTargetCurrentDestinationName());
+                        if (_targetCF.isEmbeded() && _sourceCF.isEmbeded()) {
+                            trh.xar = srh.xar;
+                        } else if (trh.xar == null) {
+                            trh.xar = ((XASession) _targetSession).getXAResource();
+                            if (!(_tm instanceof TransactionManagerImpl) && trh.xar.getClass().getName().equals(srh.xar.getClass().getName())) {
+                                trh.xar = new XAResourceImpl(trh.xar);
+                                _logger.log(Level.INFO, "Use XAResource wrapper " + trh.xar + " for target XAResource " + trh.xar.getClass().getName());
+                            }
+                            if (_logger.isLoggable(Level.FINE)) {
+                                _logger.log(Level.FINE, "enlist target in transaction " + transaction + " in " + this);
+                            }
+                            if (!doEnlistAndRollbackOnError(transaction, _tm, trh)) {
+                                currentThrowable = trh.ex;
+                                continue nextTransaction;
+                            }
                         }
 
                         try {
-                            if (_parent.needTagBridgeName()) {
-                                _parent.tagBridgeName(sm, _sourceSession.createMessage());
+                            if (_logger.isLoggable(Level.FINE)) {
+                                _logger.log(Level.FINE, "Sending message " + mid + " to target in transaction " + transaction + " in " + this);
                             }
-                            producer.send(sm, srcmhs.deliverymode, srcmhs.priority, ttl);
-                            midSent = sm.getJMSMessageID();
-                        } finally {
+
+                            if (_fi.FAULT_INJECTION) {
+                                _fi.setLogger(_logger);
+                                _fi.checkFaultAndThrowException(FaultInjection.FAULT_SEND_1, null, "jakarta.jms.JMSException", true);
+                            }
+
+                            MessageProducer producer = _producer;
                             if (_branchProducer != null) {
-                                try {
-                                    _branchProducer.close();
-                                } catch (Throwable t) {
-                                    _logger.log(Level.WARNING, "Closing temporary target producer failed: " + t.getMessage() + " in " + this, t);
-                                } finally {
-                                    _branchProducer = null;
+                                producer = _branchProducer;
+                            }
+                            if (!getTargetCurrentDestinationName().equals(toDestinationName(producer.getDestination()))) {
+                                throw new BridgeException("Unexpected target producer's destination name " + toDestinationName(producer.getDestination())
+                                        + ": not match current target destination name " + getTargetCurrentDestinationName());
+                            }
+
+                            try {
+                                if (_parent.needTagBridgeName()) {
+                                    _parent.tagBridgeName(sm, _sourceSession.createMessage());
+                                }
+                                producer.send(sm, srcmhs.deliverymode, srcmhs.priority, ttl);
+                                midSent = sm.getJMSMessageID();
+                            } finally {
+                                if (_branchProducer != null) {
+                                    try {
+                                        _branchProducer.close();
+                                    } catch (Throwable t) {
+                                        _logger.log(Level.WARNING, "Closing temporary target producer failed: " + t.getMessage() + " in " + this, t);
+                                    } finally {
+                                        _branchProducer = null;
+                                    }
                                 }
+                                MessageHeaders.resetMessageHeaders(m, srcmhs);
                             }
-                            MessageHeaders.resetMessageHeaders(m, srcmhs);
-                        }
 
-                        if (_logger.isLoggable(Level.FINE)) {
-                            _logger.log(Level.FINE, "Sent message " + mid + " to target in transaction " + transaction + " in " + this);
-                        }
-                        if (_fi.FAULT_INJECTION) {
-                            _fi.setLogger(_logger);
-                            _fi.checkFaultAndThrowException(FaultInjection.FAULT_SEND_2, null, "jakarta.jms.JMSException", true);
+                            if (_logger.isLoggable(Level.FINE)) {
+                                _logger.log(Level.FINE, "Sent message " + mid + " to target in transaction " + transaction + " in " + this);
+                            }
+                            if (_fi.FAULT_INJECTION) {
+                                _fi.setLogger(_logger);
+                                _fi.checkFaultAndThrowException(FaultInjection.FAULT_SEND_2, null, "jakarta.jms.JMSException", true);
+                            }
+                        } catch (Throwable t) {
+                            currentThrowable = t;
+                            _logger.log(Level.SEVERE, "Unable to send message " + mid + " to target in " + this, t);
+                            try {
+                                _tm.rollback();
+                            } catch (Throwable t1) {
+                                _logger.log(Level.WARNING,
+                                        "Unable to rollback transaction " + transaction + " on send failure for message " + mid + " in " + this, t1);
+                            }
+                            continue nextTransaction;
                         }
-                    } catch (Throwable t) {
-                        currentThrowable = t;
-                        _logger.log(Level.SEVERE, "Unable to send message " + mid + " to target in " + this, t);
-                        try {
-                            _tm.rollback();
-                        } catch (Throwable t1) {
-                            _logger.log(Level.WARNING, "Unable to rollback transaction " + transaction + " on send failure for message " + mid + " in " + this,
-                                    t1);
+
+                        if (!isTransactionActive(transaction, _tm)) {
+                            continue nextTransaction;
                         }
-                        continue;
-                    }
 
-                    if (!isTransactionActive(transaction, _tm)) {
-                        continue;
-                    }
+                    } // sm != null
+
+                    transfers.add(new String[] { mid, midSent });
+                    batch.add(m);
+                }
 
+                if (trh.xar != null && trh.xar != srh.xar) {
                     if (_logger.isLoggable(Level.FINE)) {
                         _logger.log(Level.FINE, "delist " + trh + " in transaction " + transaction + " in " + this);
                     }
-                    if (trh.xar != srh.xar) {
-                        if (!doDelistAndRollbackOnError(transaction, _tm, trh)) {
-                            currentThrowable = trh.ex;
-                            continue;
-                        }
+                    if (!doDelistAndRollbackOnError(transaction, _tm, trh)) {
+                        currentThrowable = trh.ex;
+                        continue;
                     }
-
-                } // sm != null
+                }
 
                 if (!isTransactionActive(transaction, _tm)) {
                     continue;
@@ -1285,33 +1409,40 @@ public class Link implements Runnable {
                     continue;
                 }
 
+                int count = transfers.size();
+                String what = (count == 1 ? "message " + mid : count + " messages");
                 if (_logger.isLoggable(Level.FINE)) {
-                    _logger.log(Level.FINE, "COMMIT transaction " + transaction + " for message " + mid + " in " + this);
+                    _logger.log(Level.FINE, "COMMIT transaction " + transaction + " for " + what + " in " + this);
                 }
                 try {
                     _tm.commit();
-                    String[] param = { mid, midSent, this.toString() };
-                    if (_parent.logMessageTransfer()) {
-                        _logger.log(Level.INFO, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
-                    } else if (_logger.isLoggable(Level.FINE)) {
-                        _logger.log(Level.FINE, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
+                    singleMessage = false;
+                    _msgCount.add(count);
+                    _batchCount.increment();
+                    for (String[] transfer : transfers) {
+                        String[] param = { transfer[0], transfer[1], this.toString() };
+                        if (_parent.logMessageTransfer()) {
+                            _logger.log(Level.INFO, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
+                        } else if (_logger.isLoggable(Level.FINE)) {
+                            _logger.log(Level.FINE, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
+                        }
                     }
                 } catch (RollbackException e) {
-                    _logger.log(Level.WARNING, "RollbackException on commit transaction " + transaction + " for message " + mid + " in " + this, e);
-                    sendToDMQ(m, mid, DMQ.DMQReason.COMMIT_FAILURE, e);
+                    _logger.log(Level.WARNING, "RollbackException on commit transaction " + transaction + " for " + what + " in " + this, e);
+                    singleMessage = handleCommitFailure(batch, transfers, e);
                     continue;
                 } catch (HeuristicMixedException e) {
-                    _logger.log(Level.WARNING, "HeuristicMixedException on commit transaction " + transaction + " for message " + mid + " in " + this, e);
-                    sendToDMQ(m, mid, DMQ.DMQReason.COMMIT_FAILURE, e);
+                    _logger.log(Level.WARNING, "HeuristicMixedException on commit transaction " + transaction + " for " + what + " in " + this, e);
+                    singleMessage = handleCommitFailure(batch, transfers, e);
                     continue;
                 } catch (HeuristicRollbackException e) {
-                    _logger.log(Level.WARNING, "HeuristicRollbackException on commit transaction " + transaction + " for message " + mid + " in " + this, e);
-                    sendToDMQ(m, mid, DMQ.DMQReason.COMMIT_FAILURE, e);
+                    _logger.log(Level.WARNING, "HeuristicRollbackException on commit transaction " + transaction + " for " + what + " in " + this, e);
+                    singleMessage = handleCommitFailure(batch, transfers, e);
                     continue;
                 } catch (Throwable t) {
                     currentThrowable = t;
-                    _logger.log(Level.SEVERE, "Failed to commit transaction " + transaction + " for message " + mid + " in " + this, t);
-                    sendToDMQ(m, mid, DMQ.DMQReason.COMMIT_FAILURE, t);
+                    _logger.log(Level.SEVERE, "Failed to commit transaction " + transaction + " for " + what + " in " + this, t);
+                    singleMessage = handleCommitFailure(batch, transfers, t);
                     continue;
                 }
 
@@ -1330,6 +1461,26 @@ public class Link implements Runnable {
         }
     }
 
+    /**
+     * A failed commit of a single message sends the message to DMQ. A failed batch is not sent to DMQ, its messages are
+     * retried one per transaction so that only the message that can't be committed ends up in DMQ. The exception is a
+     * HeuristicMixedException: part of the batch may have been committed, so a retry could forward a message twice and
+     * every message of the batch is sent to DMQ instead
+     *
+     * @return true if the caller should forward one message per transaction
+     */
+    boolean handleCommitFailure(List<Message> batch, List<String[]> transfers, Throwable t) throws Throwable {
+        int count = batch.size();
+        if (count > 1 && !(t instanceof HeuristicMixedException)) {
+            _logger.log(Level.WARNING, "Retry " + count + " messages one per transaction after commit failure in " + this);
+            return true;
+        }
+        for (int i = 0; i < count; i++) {
+            sendToDMQ(batch.get(i), transfers.get(i)[0], DMQ.DMQReason.COMMIT_FAILURE, t);
+        }
+        return false;
+    }
+
     private void logWarning(String msg, Throwable t) {
         if (_state == LinkState.STOPPING || _state == LinkState.STOPPED) {
             _logger.log(Level.WARNING, msg + ": " + t.getMessage());
@@ -1541,10 +1692,24 @@ public class Link implements Runnable {
     }
 
     private void runNonTransacted() throws Throwable {
+        try {
+            forwardNonTransacted();
+        } finally {
+            setTransfersPending(false);
+        }
+    }
+
+    private void forwardNonTransacted() throws Throwable {
         long msgCount = 0;
 
         int consecutiveThrowables = 0;
 
+        // forwarded but not yet acknowledged messages
+        List<String[]> transfers = new ArrayList<>();
+        Message lastm = null;
+        String lastmid = null;
+        long batchEnd = 0L;
+
         while (_state != LinkState.STOPPING && _state != LinkState.STOPPED) {
 
             if (Thread.currentThread().isInterrupted()) {
@@ -1560,6 +1725,7 @@ public class Link implements Runnable {
             try {
 
                 if (_sourceConnException) {
+                    transfers.clear();
                     closeSource();
                     initSource();
                     resume(false);
@@ -1580,7 +1746,18 @@ public class Link implements Runnable {
                         _fi.setLogger(_logger);
                         _fi.checkFaultAndThrowException(FaultInjection.FAULT_RECEIVE_1, null, "jakarta.jms.JMSException", true);
                     }
-                    m = _consumer.receive();
+                    if (transfers.isEmpty()) {
+                        m = _consumer.receive();
+                    } else if (_batchTime == 0L) {
+                        m = _consumer.receiveNoWait();
+                    } else {
+                        long timeout = batchEnd - System.currentTimeMillis();
+                        m = (timeout > 0L ? _consumer.receive(timeout) : null);
+                    }
+                    if (m == null && !transfers.isEmpty()) {
+                        currentThrowable = acknowledgeTransfers(lastm, lastmid, transfers);
+                        continue;
+                    }
                     if (m == null) {
                         try {
                             _logger.log(Level.WARNING, "receive() returned null,  source connection may have closed in " + this);
@@ -1618,6 +1795,9 @@ public class Link implements Runnable {
                 }
                 if (ttl < 0) {
                     _logger.log(Level.INFO, _jbr.getString(_jbr.I_NONTXN_MESSAGE_EXPIRED, mid, this.toString()));
+                    if (!transfers.isEmpty()) {
+                        acknowledgeTransfers(lastm, lastmid, transfers);
+                    }
                     try {
                         sendToDMQ(m, mid, DMQ.DMQReason.MESSAGE_EXPIRED, (Throwable) null);
                     } finally {
@@ -1700,6 +1880,9 @@ public class Link implements Runnable {
                     } catch (Throwable t) {
                         currentThrowable = t;
                         _logger.log(Level.SEVERE, "Unable to send message " + mid + " to target in " + this, t);
+                        if (!transfers.isEmpty()) {
+                            acknowledgeTransfers(lastm, lastmid, transfers);
+                        }
                         try {
                             sendToDMQ(m, mid, DMQ.DMQReason.SEND_FAILURE, t);
                         } finally {
@@ -1718,30 +1901,14 @@ public class Link implements Runnable {
 
                 } // sm != null
 
-                try {
-                    if (_fi.FAULT_INJECTION) {
-                        _fi.setLogger(_logger);
-                        _fi.checkFaultAndThrowException(FaultInjection.FAULT_ACK_1, null, "jakarta.jms.JMSException", true);
-                    }
-                    if (_sourceCF.getRefed() instanceof com.sun.messaging.ConnectionFactory) {
-                        ((com.sun.messaging.jmq.jmsclient.MessageImpl) m).acknowledgeThisMessage();
-                    } else {
-                        m.acknowledge();
-                    }
-                    String[] param = { mid, midSent, this.toString() };
-                    if (_parent.logMessageTransfer()) {
-                        _logger.log(Level.INFO, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
-                    } else if (_logger.isLoggable(Level.FINE)) {
-                        _logger.log(Level.FINE, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
-                    }
-                    if (_fi.FAULT_INJECTION) {
-                        _fi.setLogger(_logger);
-                        _fi.checkFaultAndThrowException(FaultInjection.FAULT_ACK_2, null, "jakarta.jms.JMSException", true);
-                    }
-                } catch (Throwable t) {
-                    currentThrowable = t;
-                    _logger.log(Level.SEVERE, "Failed to acknowledge message " + mid + " in " + this, t);
-                    sendToDMQ(m, mid, DMQ.DMQReason.ACK_FAILURE, t);
+                if (transfers.isEmpty()) {
+                    batchEnd = System.currentTimeMillis() + _batchTime;
+                }
+                transfers.add(new String[] { mid, midSent });
+                lastm = m;
+                lastmid = mid;
+                if (transfers.size() >= _batchSize || (_batchTime > 0L && System.currentTimeMillis() >= batchEnd)) {
+                    currentThrowable = acknowledgeTransfers(lastm, lastmid, transfers);
                 }
                 continue;
 
@@ -1750,6 +1917,7 @@ public class Link implements Runnable {
                 if (!_targetStayConnected) {
                     closeTarget();
                 }
+                setTransfersPending(!transfers.isEmpty());
                 if (currentThrowable == null) {
                     consecutiveThrowables = 0;
                 } else {
@@ -1760,6 +1928,417 @@ public class Link implements Runnable {
                 }
             }
         }
+        acknowledgeOnStop(lastm, lastmid, transfers);
+    }
+
+    /**
+     * Acknowledge the messages forwarded before the link was asked to stop, stop() waits for this before it closes the
+     * source connection. Otherwise they would be forwarded again when the link restarts
+     */
+    void acknowledgeOnStop(Message m, String mid, List<String[]> transfers) throws Throwable {
+        if (!transfers.isEmpty()) {
+            _logger.log(Level.INFO, "Acknowledge " + transfers.size() + " forwarded messages up through " + mid + " on stop of " + this);
+            acknowledgeTransfers(m, mid, transfers);
+        }
+        setTransfersPending(false);
+    }
+
+    synchronized void setTransfersPending(boolean pending) {
+        if (_transfersPending != pending) {
+            _transfersPending = pending;
+            if (!pending) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return true if no forwarded message is waiting to be acknowledged
+     */
+    synchronized boolean awaitTransfersAcknowledged(long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        long wait = timeout;
+        while (_transfersPending && wait > 0L) {
+            wait(wait);
+            wait = end - System.currentTimeMillis();
+        }
+        return !_transfersPending;
+    }
+
+    private static final int MAX_WORKER_INFLIGHT = 64;
+    private static final long PARTITIONED_ACK_WAIT = 100L; // msec
+
+    /**
+     * Non-transacted link with more than one worker. This thread receives and transforms each message and hands it to
+     * the worker its ordering key hashes to. Messages sent by the workers are acknowledged by this thread. If the source
+     * is not MQ, acknowledge() acknowledges all messages consumed by the session, so it is only called when no message
+     * is with the workers
+     */
+    private void runPartitioned() throws Throwable {
+        long msgCount = 0;
+
+        int consecutiveThrowables = 0;
+
+        BlockingQueue<LinkWorker.Task> done = new LinkedBlockingQueue<>();
+        LinkWorker[] workers = new LinkWorker[_workerCount];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new LinkWorker(this, i, _parent, _targetCF, _targetDest, _logger, done);
+        }
+        _workers = workers;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].start();
+        }
+
+        boolean ackEach = (_sourceCF.getRefed() instanceof com.sun.messaging.ConnectionFactory);
+        boolean needTarget = (_msgTransformer != null || JMSBridgeXMLConstant.Target.DESTINATIONREF_AS_SOURCE.equals(_targetDest));
+        int maxInflight = workers.length * MAX_WORKER_INFLIGHT;
+        int generation = 0;
+        List<LinkWorker.Task> unacked = new ArrayList<>();
+        _inflight = 0;
+
+        try {
+            while (_state != LinkState.STOPPING && _state != LinkState.STOPPED) {
+
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException(_jbr.getKString(_jbr.X_LINK_INTERRUPTED, this.toString()));
+                }
+
+                Throwable currentThrowable = null;
+                Message m = null;
+                MessageHeaders srcmhs = null;
+                String mid = null;
+                try {
+
+                    if (_sourceConnException) {
+                        // messages with the workers are redelivered on the new session
+                        generation++;
+                        unacked.clear();
+                        closeSource();
+                        initSource();
+                        resume(false);
+                    }
+
+                    currentThrowable = collectTasks(done, unacked, maxInflight, generation, ackEach);
+                    LinkWorker.Task task = null;
+
+                    try {
+                        if (_fi.FAULT_INJECTION) {
+                            _fi.setLogger(_logger);
+                            _fi.checkFaultAndThrowException(FaultInjection.FAULT_RECEIVE_1, null, "jakarta.jms.JMSException", true);
+                        }
+                        if (_inflight > 0 || !unacked.isEmpty()) {
+                            m = _consumer.receive(PARTITIONED_ACK_WAIT);
+                            if (m == null) {
+                                continue;
+                            }
+                        } else {
+                            m = _consumer.receive();
+                        }
+                        if (m == null) {
+                            try {
+                                _logger.log(Level.WARNING, "receive() returned null,  source connection may have closed in " + this);
+                            } catch (Throwable e) {
+                            }
+                            continue;
+                        }
+
+                        msgCount++;
+                        if (_logger.isLoggable(Level.FINE)) {
+                            _logger.log(Level.FINE, "Received message " + m + " from source in " + this + ", msgCount=" + msgCount);
+                        }
+                        if (_fi.FAULT_INJECTION) {
+                            _fi.setLogger(_logger);
+                            _fi.checkFaultAndThrowException(FaultInjection.FAULT_RECEIVE_2, null, "jakarta.jms.JMSException", true);
+                        }
+                    } catch (Throwable t) {
+                        currentThrowable = t;
+                        logWarning("Exception in receiving message: " + t.getMessage() + " in " + this, t);
+
+                        if (_state == LinkState.STOPPING || _state == LinkState.STOPPED) {
+                            return;
+                        }
+
+                        closeSource();
+                        _sourceConnException = true;
+                        continue;
+                    }
+
+                    srcmhs = MessageHeaders.getMessageHeaders(m);
+                    mid = srcmhs.mid;
+                    task = new LinkWorker.Task(m, srcmhs);
+                    task.generation = generation;
+                    long ttl = srcmhs.expiration;
+                    if (ttl != 0L) {
+                        ttl = ttl - System.currentTimeMillis();
+                    }
+                    if (ttl < 0) {
+                        _logger.log(Level.INFO, _jbr.getString(_jbr.I_NONTXN_MESSAGE_EXPIRED, mid, this.toString()));
+                        sendToDMQ(m, mid, DMQ.DMQReason.MESSAGE_EXPIRED, (Throwable) null);
+                        unacked.add(task);
+                        if (ackEach) {
+                            acknowledgeTasks(unacked, true);
+                        }
+                        continue;
+                    }
+                    task.ttl = ttl;
+
+                    if (needTarget && (_targetConnException || _targetConn == null)) {
+                        closeTarget();
+                        try {
+                            initTarget();
+                        } catch (Exception e) {
+                            _logger.log(Level.SEVERE, "Unable to connect to target for message " + mid + " in " + this);
+                            throw e;
+                        }
+                    }
+
+                    _branchProducer = null;
+                    _targetCurrentDestinationName = null;
+                    try {
+                        task.sm = handleMessageTransformer(m, srcmhs);
+                    } catch (Throwable t) {
+                        _logger.log(Level.WARNING, _jbr.getString(_jbr.W_STOP_LINK_BECAUSE_OF, this, t.getMessage()), t);
+                        throw t;
+                    }
+                    if (task.sm == null) {
+                        _logger.log(Level.WARNING, _jbr.getString(_jbr.W_CONSUME_NO_TRANSFER, mid, this));
+                        unacked.add(task);
+                        if (ackEach) {
+                            acknowledgeTasks(unacked, true);
+                        }
+                        continue;
+                    }
+
+                    int worker = 0;
+                    try {
+                        if (_branchProducer != null) {
+                            task.dest = _branchProducer.getDestination();
+                        }
+                        if (_parent.needTagBridgeName()) {
+                            _parent.tagBridgeName(task.sm, _sourceSession.createMessage());
+                        }
+                        worker = selectWorker(m, workers.length);
+                    } catch (Throwable t) {
+                        currentThrowable = t;
+                        _logger.log(Level.SEVERE, "Unable to send message " + mid + " to target in " + this, t);
+                        sendToDMQ(m, mid, DMQ.DMQReason.SEND_FAILURE, t);
+                        unacked.add(task);
+                        if (ackEach) {
+                            acknowledgeTasks(unacked, true);
+                        }
+                        continue;
+                    } finally {
+                        if (_branchProducer != null) {
+                            try {
+                                _branchProducer.close();
+                            } catch (Throwable t) {
+                                _logger.log(Level.WARNING, "Closing temporary target producer failed: " + t.getMessage() + " in " + this, t);
+                            } finally {
+                                _branchProducer = null;
+                            }
+                        }
+                    }
+                    if (_logger.isLoggable(Level.FINE)) {
+                        _logger.log(Level.FINE, "Dispatching message " + mid + " to " + workers[worker]);
+                    }
+                    dispatch(workers[worker], task);
+
+                } finally {
+                    if (currentThrowable == null) {
+                        consecutiveThrowables = 0;
+                    } else {
+                        consecutiveThrowables++;
+                        if (consecutiveThrowables > MAX_CONSECUTIVE_THROWABLES) {
+                            throw new RuntimeException("Maximum consecutive exceptions exceeded", currentThrowable);
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < workers.length; i++) {
+                workers[i].stop();
+            }
+        }
+    }
+
+    /**
+     * Take the tasks the workers are done with, waiting for one if too many messages are not acknowledged yet. Tasks of an
+     * earlier source session are dropped, their messages are redelivered. If the source is not MQ, the tasks are held in
+     * unacked until no message is with the workers
+     *
+     * @param ackEach true if each message can be acknowledged by acknowledgeThisMessage() of MQ
+     * @return the send failure of the last failed task or null
+     */
+    Throwable collectTasks(BlockingQueue<LinkWorker.Task> done, List<LinkWorker.Task> unacked, int maxInflight, int generation, boolean ackEach)
+            throws Throwable {
+        Throwable failure = null;
+        while (true) {
+            LinkWorker.Task task = null;
+            if (_inflight > 0 && _inflight + unacked.size() >= maxInflight) {
+                task = done.take();
+            } else {
+                task = done.poll();
+            }
+            if (task == null) {
+                break;
+            }
+            _inflight--;
+            if (task.generation != generation) {
+                continue;
+            }
+            if (task.ex != null) {
+                failure = task.ex;
+                sendToDMQ(task.m, task.srcmhs.mid, DMQ.DMQReason.SEND_FAILURE, task.ex);
+            }
+            unacked.add(task);
+            if (ackEach) {
+                acknowledgeTasks(unacked, true);
+            }
+        }
+        if (!ackEach && _inflight == 0 && !unacked.isEmpty()) {
+            acknowledgeTasks(unacked, false);
+        }
+        return failure;
+    }
+
+    /**
+     * Messages with the same ordering key go to the same worker, messages without one are spread over the workers
+     */
+    int selectWorker(Message m, int count) throws JMSException {
+        String key = m.getStringProperty(_orderingKey);
+        if (key == null) {
+            return (int) (_nokey++ % count);
+        }
+        return (key.hashCode() & Integer.MAX_VALUE) % count;
+    }
+
+    void dispatch(LinkWorker worker, LinkWorker.Task task) {
+        worker.dispatch(task);
+        _inflight++;
+    }
+
+    /**
+     * Acknowledge messages that have been sent by the workers, sent to DMQ or consumed without transfer
+     *
+     * @param each true to acknowledge each message by acknowledgeThisMessage() of MQ
+     */
+    private void acknowledgeTasks(List<LinkWorker.Task> tasks, boolean each) throws Throwable {
+        try {
+            if (each) {
+                for (LinkWorker.Task task : tasks) {
+                    if (acknowledgeTask(task, true)) {
+                        logTaskTransfer(task);
+                    }
+                }
+            } else if (acknowledgeTask(tasks.get(tasks.size() - 1), false)) {
+                for (LinkWorker.Task task : tasks) {
+                    logTaskTransfer(task);
+                }
+            }
+        } finally {
+            tasks.clear();
+        }
+    }
+
+    /**
+     * @return true if acknowledged
+     */
+    private boolean acknowledgeTask(LinkWorker.Task task, boolean each) throws Throwable {
+        String mid = task.srcmhs.mid;
+        try {
+            if (_fi.FAULT_INJECTION) {
+                _fi.setLogger(_logger);
+                _fi.checkFaultAndThrowException(FaultInjection.FAULT_ACK_1, null, "jakarta.jms.JMSException", true);
+            }
+            if (each) {
+                ((com.sun.messaging.jmq.jmsclient.MessageImpl) task.m).acknowledgeThisMessage();
+            } else {
+                task.m.acknowledge();
+            }
+            _batchCount.increment();
+            if (_fi.FAULT_INJECTION) {
+                _fi.setLogger(_logger);
+                _fi.checkFaultAndThrowException(FaultInjection.FAULT_ACK_2, null, "jakarta.jms.JMSException", true);
+            }
+        } catch (Throwable t) {
+            _logger.log(Level.SEVERE, "Failed to acknowledge message " + mid + " in " + this, t);
+            if (each) {
+                sendToDMQ(task.m, mid, DMQ.DMQReason.ACK_FAILURE, t);
+            } else {
+                closeSource();
+                _sourceConnException = true;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void logTaskTransfer(LinkWorker.Task task) {
+        if (task.ex != null) {
+            return;
+        }
+        _msgCount.increment();
+        if (task.sm == null) {
+            return;
+        }
+        String[] param = { task.srcmhs.mid, task.midSent, this.toString() };
+        if (_parent.logMessageTransfer()) {
+            _logger.log(Level.INFO, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
+        } else if (_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
+        }
+    }
+
+    /**
+     * Acknowledge the forwarded messages up through m. A failed acknowledge of a single message sends the message to
+     * DMQ, a failed acknowledge of a batch closes the source so that the batch is redelivered
+     *
+     * @return the acknowledge failure or null
+     */
+    private Throwable acknowledgeTransfers(Message m, String mid, List<String[]> transfers) throws Throwable {
+        int count = transfers.size();
+        try {
+            if (_fi.FAULT_INJECTION) {
+                _fi.setLogger(_logger);
+                _fi.checkFaultAndThrowException(FaultInjection.FAULT_ACK_1, null, "jakarta.jms.JMSException", true);
+            }
+            if (_sourceCF.getRefed() instanceof com.sun.messaging.ConnectionFactory) {
+                if (count == 1) {
+                    ((com.sun.messaging.jmq.jmsclient.MessageImpl) m).acknowledgeThisMessage();
+                } else {
+                    ((com.sun.messaging.jmq.jmsclient.MessageImpl) m).acknowledgeUpThroughThisMessage();
+                }
+            } else {
+                m.acknowledge();
+            }
+            _msgCount.add(count);
+            _batchCount.increment();
+            for (String[] transfer : transfers) {
+                String[] param = { transfer[0], transfer[1], this.toString() };
+                if (_parent.logMessageTransfer()) {
+                    _logger.log(Level.INFO, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
+                } else if (_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE, _jbr.getString(_jbr.I_MESSAGE_TRANSFER_SUCCESS, param));
+                }
+            }
+            if (_fi.FAULT_INJECTION) {
+                _fi.setLogger(_logger);
+                _fi.checkFaultAndThrowException(FaultInjection.FAULT_ACK_2, null, "jakarta.jms.JMSException", true);
+            }
+        } catch (Throwable t) {
+            if (count == 1) {
+                _logger.log(Level.SEVERE, "Failed to acknowledge message " + mid + " in " + this, t);
+                sendToDMQ(m, mid, DMQ.DMQReason.ACK_FAILURE, t);
+            } else {
+                _logger.log(Level.SEVERE, "Failed to acknowledge " + count + " messages up through " + mid + " in " + this, t);
+                closeSource();
+                _sourceConnException = true;
+            }
+            return t;
+        } finally {
+            transfers.clear();
+        }
+        return null;
     }
 
     /**
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.bridge.service.jms;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.jms.Connection;
+import jakarta.jms.Destination;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import com.sun.messaging.bridge.api.BridgeException;
+import com.sun.messaging.bridge.service.jms.resources.JMSBridgeResources;
+
+/**
+ * A sender of a partitioned link. The link thread receives from the source and hands each message to the worker its
+ * ordering key hashes to, the worker sends it on its own target session and hands it back to the link thread to be
+ * acknowledged. Messages of one key are sent by one worker in the order received
+ */
+class LinkWorker implements Runnable {
+
+    private static JMSBridgeResources _jbr = JMSBridge.getJMSBridgeResources();
+
+    static class Task {
+        Message m = null;
+        Message sm = null;
+        MessageHeaders srcmhs = null;
+        long ttl = 0L;
+        Destination dest = null; // null for the link's target destination
+        String midSent = null;
+        Throwable ex = null;
+        int generation = 0;
+
+        Task(Message m, MessageHeaders srcmhs) {
+            this.m = m;
+            this.srcmhs = srcmhs;
+        }
+    }
+
+    private final Link _link;
+    private final int _id;
+    private final JMSBridge _parent;
+    private final Refable _targetCF;
+    private final Object _targetDest;
+    private final Logger _logger;
+    private final BlockingQueue<Task> _done;
+
+    private final BlockingQueue<Task> _tasks = new LinkedBlockingQueue<>();
+    private final LongAdder _msgCount = new LongAdder();
+    private final LongAdder _failureCount = new LongAdder();
+
+    private Connection _conn = null;
+    private Session _session = null;
+    private MessageProducer _producer = null;
+    private Thread _thread = null;
+    private volatile boolean _stopped = false;
+
+    LinkWorker(Link link, int id, JMSBridge parent, Refable targetCF, Object targetDest, Logger logger, BlockingQueue<Task> done) {
+        _link = link;
+        _id = id;
+        _parent = parent;
+        _targetCF = targetCF;
+        _targetDest = targetDest;
+        _logger = logger;
+        _done = done;
+    }
+
+    synchronized void start() {
+        _thread = new Thread(this);
+        _thread.setDaemon(true);
+        _thread.setName(toString());
+        _thread.start();
+    }
+
+    void stop() {
+        _stopped = true;
+        Thread thr = null;
+        synchronized (this) {
+            thr = _thread;
+        }
+        if (thr != null && thr != Thread.currentThread()) {
+            thr.interrupt();
+            try {
+                thr.join(30000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    void dispatch(Task task) {
+        _tasks.add(task);
+    }
+
+    int getId() {
+        return _id;
+    }
+
+    long getMessageCount() {
+        return _msgCount.sum();
+    }
+
+    long getFailureCount() {
+        return _failureCount.sum();
+    }
+
+    int getQueuedCount() {
+        return _tasks.size();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!_stopped) {
+                Task task = _tasks.take();
+                try {
+                    send(task);
+                    _msgCount.increment();
+                } catch (Throwable t) {
+                    _failureCount.increment();
+                    task.ex = t;
+                    if (_stopped) {
+                        _logger.log(Level.WARNING, "Unable to send message " + task.srcmhs.mid + " to target in " + this + ": " + t.getMessage());
+                    } else {
+                        _logger.log(Level.SEVERE, "Unable to send message " + task.srcmhs.mid + " to target in " + this, t);
+                    }
+                    closeTarget(true);
+                }
+                _done.add(task);
+            }
+        } catch (InterruptedException e) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Worker thread is interrupted in " + this);
+            }
+        } finally {
+            closeTarget(false);
+        }
+    }
+
+    private void send(Task task) throws Exception {
+        if (_session == null) {
+            initTarget();
+        }
+        MessageProducer producer = _producer;
+        if (task.dest != null) {
+            producer = _session.createProducer(task.dest);
+            if (producer instanceof com.sun.messaging.jmq.jmsclient.MessageProducerImpl) {
+                ((com.sun.messaging.jmq.jmsclient.MessageProducerImpl) producer)._setForJMSBridge();
+            }
+        } else if (producer == null) {
+            throw new BridgeException("No target destination for message " + task.srcmhs.mid + " in " + this);
+        }
+        try {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Sending message " + task.srcmhs.mid + " to target in " + this);
+            }
+            producer.send(task.sm, task.srcmhs.deliverymode, task.srcmhs.priority, task.ttl);
+            task.midSent = task.sm.getJMSMessageID();
+        } finally {
+            if (producer != _producer) {
+                try {
+                    producer.close();
+                } catch (Throwable t) {
+                    _logger.log(Level.WARNING, "Closing temporary target producer failed: " + t.getMessage() + " in " + this, t);
+                }
+            }
+            MessageHeaders.resetMessageHeaders(task.m, task.srcmhs);
+        }
+    }
+
+    private void initTarget() throws Exception {
+        _conn = _parent.obtainConnection(_targetCF, _jbr.getString(_jbr.M_TARGET), this);
+        _session = _conn.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        if (_targetDest instanceof Destination) {
+            _producer = _session.createProducer((Destination) _targetDest);
+        } else if (_targetDest instanceof AutoDestination) {
+            AutoDestination ad = (AutoDestination) _targetDest;
+            if (ad.isQueue()) {
+                _producer = _session.createProducer(_session.createQueue(ad.getName()));
+            } else {
+                _producer = _session.createProducer(_session.createTopic(ad.getName()));
+            }
+        } else {
+            _producer = null;
+        }
+        if (_producer instanceof com.sun.messaging.jmq.jmsclient.MessageProducerImpl) {
+            ((com.sun.messaging.jmq.jmsclient.MessageProducerImpl) _producer)._setForJMSBridge();
+        }
+    }
+
+    private void closeTarget(boolean invalid) {
+        Connection conn = _conn;
+        _conn = null;
+        _producer = null;
+        if (conn == null) {
+            return;
+        }
+        try {
+            _session.close();
+        } catch (Throwable t) {
+            _logger.log(Level.WARNING, "Unable to close target Session in " + this, t);
+        } finally {
+            _session = null;
+            if (invalid) {
+                if (conn instanceof PooledConnection) {
+                    ((PooledConnection) conn).invalid();
+                } else if (conn instanceof SharedConnection) {
+                    ((SharedConnection) conn).invalid();
+                }
+            }
+            try {
+                _parent.returnConnection(conn, _targetCF);
+            } catch (Throwable t) {
+                _logger.log(Level.WARNING, "Unable to return target connection " + conn + " in " + this, t);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return _link.toString() + "#" + _id;
+    }
+}
@@ -65,9 +65,17 @@ public class JMSBridgeXMLConstant {
         public static final String NAME = "name";
         public static final String ENABLED = "enabled";
         public static final String TRANSACTED = "transacted";
+        public static final String BATCHSIZE = "batch-size";
+        public static final String BATCHTIME = "batch-time";
+        public static final String WORKERS = "workers";
+        public static final String ORDERINGKEY = "ordering-key";
 
         public static final String ENABLED_DEFAULT = "true";
         public static final String TRANSACTED_DEFAULT = "true";
+        public static final String BATCHSIZE_DEFAULT = "1";
+        public static final String BATCHTIME_DEFAULT = "0";
+        public static final String WORKERS_DEFAULT = "1";
+        public static final String ORDERINGKEY_DEFAULT = "JMSXGroupID";
     }
 
     public enum Source {
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.bridge.service.jms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.jms.Message;
+import jakarta.transaction.HeuristicMixedException;
+import jakarta.transaction.RollbackException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.sun.messaging.bridge.api.BridgeBaseContext;
+import com.sun.messaging.bridge.api.FaultInjection;
+import com.sun.messaging.bridge.service.jms.xml.JMSBridgeXMLConstant;
+
+@ExtendWith(MockitoExtension.class)
+class LinkTest {
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private JMSBridge parent;
+
+    @Mock
+    private Refable sourceCF;
+
+    @Mock
+    private Refable targetCF;
+
+    private Link link;
+
+    @BeforeAll
+    static void initFaultInjection() {
+        FaultInjection.setBridgeBaseContext(Mockito.mock(BridgeBaseContext.class));
+    }
+
+    @BeforeEach
+    void init() throws Exception {
+        Mockito.when(parent.getCFAttributes(Mockito.any())).thenReturn(new Properties());
+        Mockito.when(parent.getBridgeName()).thenReturn("bridge");
+        link = new Link();
+        link.setName("link");
+        link.setLogger(logger);
+        link.setSourceConnectionFactory(sourceCF);
+        link.setTargetConnectionFactory(targetCF);
+        link.setSourceDestination("source");
+        link.setTargetDestination("target");
+        Properties linkAttrs = new Properties();
+        linkAttrs.setProperty(JMSBridgeXMLConstant.Link.TRANSACTED, "false");
+        link.init(linkAttrs, new Properties(), new Properties(), null, parent);
+    }
+
+    private static List<String[]> transfers(int count) {
+        List<String[]> transfers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transfers.add(new String[] { "ID:" + i, "ID:sent" + i });
+        }
+        return transfers;
+    }
+
+    private static List<Message> batch(int count) {
+        List<Message> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(Mockito.mock(Message.class));
+        }
+        return batch;
+    }
+
+    @Test
+    void retriesFailedBatchOneMessageAtATime() throws Throwable {
+        List<Message> batch = batch(3);
+        RollbackException e = new RollbackException();
+
+        assertTrue(link.handleCommitFailure(batch, transfers(3), e));
+
+        Mockito.verify(parent, Mockito.never()).toDMQ(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void sendsSingleMessageCommitFailureToDMQ() throws Throwable {
+        List<Message> batch = batch(1);
+        RollbackException e = new RollbackException();
+
+        assertFalse(link.handleCommitFailure(batch, transfers(1), e));
+
+        Mockito.verify(parent).toDMQ(batch.get(0), "ID:0", DMQ.DMQReason.COMMIT_FAILURE, e, link);
+    }
+
+    @Test
+    void sendsHeuristicMixedBatchToDMQ() throws Throwable {
+        List<Message> batch = batch(3);
+        HeuristicMixedException e = new HeuristicMixedException();
+
+        assertFalse(link.handleCommitFailure(batch, transfers(3), e));
+
+        for (int i = 0; i < 3; i++) {
+            Mockito.verify(parent).toDMQ(batch.get(i), "ID:" + i, DMQ.DMQReason.COMMIT_FAILURE, e, link);
+        }
+    }
+
+    @Test
+    void acknowledgesForwardedMessagesOnStop() throws Throwable {
+        Mockito.when(sourceCF.getRefed()).thenReturn(new Object());
+        Message last = Mockito.mock(Message.class);
+        List<String[]> transfers = transfers(3);
+        link.setTransfersPending(true);
+
+        link.acknowledgeOnStop(last, "ID:2", transfers);
+
+        Mockito.verify(last).acknowledge();
+        assertTrue(transfers.isEmpty());
+        assertTrue(link.awaitTransfersAcknowledged(0L));
+    }
+
+    @Test
+    void stopWaitsForForwardedMessagesToBeAcknowledged() throws Exception {
+        Mockito.when(sourceCF.getRefed()).thenReturn(new Object());
+        Message last = Mockito.mock(Message.class);
+        link.setTransfersPending(true);
+        assertFalse(link.awaitTransfersAcknowledged(10L));
+
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(100L);
+                link.acknowledgeOnStop(last, "ID:2", transfers(3));
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        });
+        thread.start();
+
+        assertTrue(link.awaitTransfersAcknowledged(30000L));
+        thread.join();
+        Mockito.verify(last).acknowledge();
+    }
+}
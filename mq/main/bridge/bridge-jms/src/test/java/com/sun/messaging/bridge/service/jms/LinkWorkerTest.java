@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.bridge.service.jms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.sun.messaging.bridge.api.BridgeBaseContext;
+import com.sun.messaging.bridge.api.FaultInjection;
+import com.sun.messaging.bridge.service.jms.xml.JMSBridgeXMLConstant;
+
+@ExtendWith(MockitoExtension.class)
+class LinkWorkerTest {
+    private static final int WORKERS = 4;
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private JMSBridge parent;
+
+    @Mock
+    private Refable sourceCF;
+
+    @Mock
+    private Refable targetCF;
+
+    @Mock
+    private Queue targetDest;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private MessageProducer producer;
+
+    private Link link;
+    private LinkWorker[] workers;
+    private final BlockingQueue<LinkWorker.Task> done = new LinkedBlockingQueue<>();
+
+    @BeforeAll
+    static void initFaultInjection() {
+        FaultInjection.setBridgeBaseContext(Mockito.mock(BridgeBaseContext.class));
+    }
+
+    @BeforeEach
+    void init() throws Exception {
+        Mockito.when(parent.getCFAttributes(Mockito.any())).thenReturn(new Properties());
+        Mockito.when(parent.getBridgeName()).thenReturn("bridge");
+        // not all tests send
+        Mockito.lenient().when(parent.obtainConnection(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(connection);
+        Mockito.lenient().when(connection.createSession(false, Session.AUTO_ACKNOWLEDGE)).thenReturn(session);
+        Mockito.lenient().when(session.createProducer(targetDest)).thenReturn(producer);
+
+        link = new Link();
+        link.setName("link");
+        link.setLogger(logger);
+        link.setSourceConnectionFactory(sourceCF);
+        link.setTargetConnectionFactory(targetCF);
+        link.setSourceDestination("source");
+        link.setTargetDestination(targetDest);
+        Properties linkAttrs = new Properties();
+        linkAttrs.setProperty(JMSBridgeXMLConstant.Link.TRANSACTED, "false");
+        linkAttrs.setProperty(JMSBridgeXMLConstant.Link.WORKERS, String.valueOf(WORKERS));
+        linkAttrs.setProperty(JMSBridgeXMLConstant.Link.ORDERINGKEY, "key");
+        link.init(linkAttrs, new Properties(), new Properties(), null, parent);
+
+        workers = new LinkWorker[WORKERS];
+        for (int i = 0; i < WORKERS; i++) {
+            workers[i] = new LinkWorker(link, i, parent, targetCF, targetDest, logger, done);
+            workers[i].start();
+        }
+    }
+
+    @AfterEach
+    void stopWorkers() {
+        for (LinkWorker worker : workers) {
+            worker.stop();
+        }
+    }
+
+    private static Message message(int n, String key) throws Exception {
+        Message m = Mockito.mock(Message.class);
+        Mockito.lenient().when(m.getJMSMessageID()).thenReturn("ID:" + n);
+        Mockito.lenient().when(m.getStringProperty("key")).thenReturn(key);
+        return m;
+    }
+
+    private static LinkWorker.Task task(Message m) throws Exception {
+        LinkWorker.Task task = new LinkWorker.Task(m, MessageHeaders.getMessageHeaders(m));
+        task.sm = m;
+        return task;
+    }
+
+    private void collectUntil(List<LinkWorker.Task> unacked, int count) throws Throwable {
+        long end = System.currentTimeMillis() + 30000;
+        while (unacked.size() < count) {
+            assertTrue(System.currentTimeMillis() < end);
+            link.collectTasks(done, unacked, Integer.MAX_VALUE, 0, false);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void sendsMessagesOfOneKeyInOrder() throws Throwable {
+        Map<Message, Integer> numbers = new HashMap<>();
+        Map<String, List<Integer>> sent = new HashMap<>();
+        Map<String, Set<String>> threads = new HashMap<>();
+        Mockito.doAnswer(invocation -> {
+            Message m = invocation.getArgument(0);
+            String key = m.getStringProperty("key");
+            synchronized (sent) {
+                sent.computeIfAbsent(key, k -> new ArrayList<>()).add(numbers.get(m));
+                threads.computeIfAbsent(key, k -> new HashSet<>()).add(Thread.currentThread().getName());
+            }
+            Thread.yield();
+            return null;
+        }).when(producer).send(Mockito.any(Message.class), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyLong());
+
+        for (int n = 0; n < 200; n++) {
+            Message m = message(n, "k" + (n % 5));
+            numbers.put(m, n);
+            link.dispatch(workers[link.selectWorker(m, WORKERS)], task(m));
+        }
+        for (int n = 0; n < 200; n++) {
+            LinkWorker.Task task = done.poll(30, TimeUnit.SECONDS);
+            assertNotNull(task);
+            assertNull(task.ex);
+        }
+
+        for (int k = 0; k < 5; k++) {
+            List<Integer> expected = new ArrayList<>();
+            for (int n = k; n < 200; n += 5) {
+                expected.add(n);
+            }
+            assertEquals(expected, sent.get("k" + k));
+            assertEquals(1, threads.get("k" + k).size());
+        }
+    }
+
+    @Test
+    void spreadsMessagesWithoutKey() throws Exception {
+        Set<Integer> selected = new HashSet<>();
+        for (int n = 0; n < WORKERS; n++) {
+            selected.add(link.selectWorker(message(n, null), WORKERS));
+        }
+        assertEquals(WORKERS, selected.size());
+    }
+
+    @Test
+    void holdsAcknowledgeUntilWorkersAreIdle() throws Throwable {
+        Message slow = message(0, "slow");
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            if (invocation.getArgument(0) == slow) {
+                release.await();
+            }
+            return null;
+        }).when(producer).send(Mockito.any(Message.class), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyLong());
+
+        List<Message> fast = new ArrayList<>();
+        link.dispatch(workers[0], task(slow));
+        for (int n = 1; n <= 3; n++) {
+            Message m = message(n, "fast");
+            fast.add(m);
+            link.dispatch(workers[n], task(m));
+        }
+
+        // the source is not MQ, acknowledge() would also acknowledge the message with worker 0
+        List<LinkWorker.Task> unacked = new ArrayList<>();
+        collectUntil(unacked, 3);
+        link.collectTasks(done, unacked, Integer.MAX_VALUE, 0, false);
+        assertEquals(3, unacked.size());
+        for (Message m : fast) {
+            Mockito.verify(m, Mockito.never()).acknowledge();
+        }
+
+        release.countDown();
+        long end = System.currentTimeMillis() + 30000;
+        while (!unacked.isEmpty()) {
+            assertTrue(System.currentTimeMillis() < end);
+            link.collectTasks(done, unacked, Integer.MAX_VALUE, 0, false);
+            Thread.sleep(5);
+        }
+        Mockito.verify(slow).acknowledge();
+        for (Message m : fast) {
+            Mockito.verify(m, Mockito.never()).acknowledge();
+        }
+    }
+
+    @Test
+    void dropsTasksOfEarlierSourceSession() throws Throwable {
+        Message m = message(0, "key");
+        link.dispatch(workers[0], task(m));
+        assertNotNull(done.poll(30, TimeUnit.SECONDS));
+        done.add(task(m));
+
+        List<LinkWorker.Task> unacked = new ArrayList<>();
+        assertNull(link.collectTasks(done, unacked, Integer.MAX_VALUE, 1, false));
+
+        assertTrue(unacked.isEmpty());
+        assertTrue(done.isEmpty());
+        Mockito.verify(m, Mockito.never()).acknowledge();
+    }
+
+    @Test
+    void sendsFailedMessageToDMQ() throws Throwable {
+        Message m = message(0, "key");
+        JMSException e = new JMSException("send failed");
+        Mockito.doThrow(e).when(producer).send(Mockito.any(Message.class), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyLong());
+
+        link.dispatch(workers[0], task(m));
+        List<LinkWorker.Task> unacked = new ArrayList<>();
+        Throwable failure = null;
+        long end = System.currentTimeMillis() + 30000;
+        while (failure == null) {
+            assertTrue(System.currentTimeMillis() < end);
+            failure = link.collectTasks(done, unacked, Integer.MAX_VALUE, 0, false);
+            Thread.sleep(5);
+        }
+
+        assertSame(e, failure);
+        Mockito.verify(parent).toDMQ(m, "ID:0", DMQ.DMQReason.SEND_FAILURE, e, link);
+        Mockito.verify(m).acknowledge();
+    }
+}
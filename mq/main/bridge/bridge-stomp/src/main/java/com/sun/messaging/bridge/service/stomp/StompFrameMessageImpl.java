@@ -67,6 +67,11 @@ public class StompFrameMessageImpl extends StompFrameMessage {
         super.readNULL(new ByteBufferWrapperImpl(buf));
     }
 
+    @Override
+    protected ByteBufferWrapper allocateBuffer(Object obj, int size) throws IOException {
+        return new ByteBufferWrapperImpl(((MemoryManager) obj).allocate(size));
+    }
+
     @Override
     protected OutputStream newBufferOutputStream(Object obj) throws IOException {
         MemoryManager mm = (MemoryManager) obj;
@@ -167,5 +172,28 @@ public class StompFrameMessageImpl extends StompFrameMessage {
         public byte get() {
             return buf.get();
         }
+
+        @Override
+        public byte get(int index) {
+            return buf.get(index);
+        }
+
+        @Override
+        public ByteBufferWrapper get(byte[] dst, int offset, int length) {
+            buf.get(dst, offset, length);
+            return this;
+        }
+
+        @Override
+        public ByteBufferWrapper put(byte b) {
+            buf.put(b);
+            return this;
+        }
+
+        @Override
+        public ByteBufferWrapper put(byte[] src, int offset, int length) {
+            buf.put(src, offset, length);
+            return this;
+        }
     }
 }
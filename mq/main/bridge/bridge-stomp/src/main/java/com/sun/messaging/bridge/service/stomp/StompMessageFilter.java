@@ -19,6 +19,7 @@ package com.sun.messaging.bridge.service.stomp;
 
 import java.io.IOException;
 import java.util.Properties;
+import java.net.SocketAddress;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
@@ -110,6 +111,9 @@ public class StompMessageFilter extends BaseFilter {
 
         final Connection c = ctx.getConnection();
         StompProtocolHandler sph = sphAttr.get(c);
+        if (sph.getRemoteAddress() == null) {
+            ((StompProtocolHandlerImpl) sph).setRemoteAddress((SocketAddress) c.getPeerAddress());
+        }
 
         if (logger.isFinestLoggable()) {
             logger.logFinest(this + ", conn=@" + c.hashCode() + ", sph=@" + (sph == null ? "null" : sph.hashCode()), null);
@@ -18,6 +18,9 @@ package com.sun.messaging.bridge.service.stomp;
 
 import java.util.*;
 import java.util.logging.Logger;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.net.InetSocketAddress;
 import com.sun.messaging.bridge.api.BridgeContext;
 import com.sun.messaging.jmq.Version;
 import com.sun.messaging.jmq.ClientConstants;
@@ -37,12 +40,31 @@ public class StompProtocolHandlerImpl extends StompProtocolHandler {
 
     private StompBridgeResources sbr = null;
     private StompServer server = null;
+    private volatile InetAddress remoteAddress = null;
+    private volatile int remotePort = 0;
 
     public StompProtocolHandlerImpl(StompServer server) {
         super(new LoggerWrapperImpl(server.getLogger()));
         this.server = server;
         sbr = server.getStompBridgeResources();
-        stompConnection = new StompConnectionImpl(this);
+        stompConnection = server.createStompConnection(this);
+    }
+
+    void setRemoteAddress(SocketAddress addr) {
+        if (addr instanceof InetSocketAddress) {
+            remoteAddress = ((InetSocketAddress) addr).getAddress();
+            remotePort = ((InetSocketAddress) addr).getPort();
+        }
+    }
+
+    @Override
+    public InetAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return remotePort;
     }
 
     BridgeContext getBridgeContext() {
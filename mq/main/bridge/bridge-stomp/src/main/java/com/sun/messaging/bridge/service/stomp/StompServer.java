@@ -40,6 +40,7 @@ import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
 import com.sun.messaging.portunif.PUService;
 import com.sun.messaging.portunif.StompProtocolFinder;
 import com.sun.messaging.bridge.api.BridgeContext;
+import com.sun.messaging.bridge.api.StompConnection;
 import com.sun.messaging.bridge.api.MessageTransformer;
 import com.sun.messaging.bridge.api.LogSimpleFormatter;
 import com.sun.messaging.bridge.service.stomp.resources.StompBridgeResources;
@@ -57,6 +58,7 @@ public class StompServer {
     private final static String PROP_SSL_REQUIRE_CLIENTAUTH_SUFFIX = ".tls.requireClientAuth";
     private final static String PROP_FLOWLIMIT_SUFFIX = ".consumerFlowLimit";
     private final static String PROP_MSGTRANSFORM_SUFFIX = ".messageTransformer";
+    private final static String PROP_DIRECT_SERVICE_SUFFIX = ".direct.service";
 
     private final static String PROP_LOGFILE_LIMIT_SUFFIX = ".logfile.limit";
     private final static String PROP_LOGFILE_COUNT_SUFFIX = ".logfile.count";
@@ -75,6 +77,7 @@ public class StompServer {
     private String SSLHOSTNAMEPORT = null;
 
     private MessageTransformer<Message, Message> _msgTransformer = null;
+    private String _directService = null;
 
     private BridgeContext _bc = null;
     private Properties jmsprop = null;
@@ -98,6 +101,11 @@ public class StompServer {
             _msgTransformer = (MessageTransformer<Message, Message>) Class.forName(cn).getDeclaredConstructor().newInstance();
         }
 
+        String ds = props.getProperty(domain + PROP_DIRECT_SERVICE_SUFFIX);
+        if (ds != null && ds.trim().length() > 0) {
+            _directService = ds.trim();
+        }
+
         jmsprop = new Properties();
         String flowlimit = props.getProperty(domain + PROP_FLOWLIMIT_SUFFIX);
         if (flowlimit != null) {
@@ -135,6 +143,16 @@ public class StompServer {
         _logger.log(Level.INFO, getStompBridgeResources().getString(StompBridgeResources.I_LOG_DOMAIN, domain));
         _logger.log(Level.INFO, getStompBridgeResources().getString(StompBridgeResources.I_LOG_FILE, logfile) + "[" + limit + "," + count + "]");
 
+        if (_directService != null) {
+            if (_msgTransformer != null) {
+                _logger.log(Level.WARNING, getStompBridgeResources().getString(StompBridgeResources.W_DIRECT_SERVICE_IGNORED,
+                        domain + PROP_DIRECT_SERVICE_SUFFIX + "=" + _directService, domain + PROP_MSGTRANSFORM_SUFFIX));
+                _directService = null;
+            } else {
+                _logger.log(Level.INFO, getStompBridgeResources().getString(StompBridgeResources.I_USE_DIRECT_SERVICE, _directService));
+            }
+        }
+
         String v = props.getProperty(domain + PROP_TCPENABLED_SUFFIX, "true");
         if (v != null && Boolean.parseBoolean(v)) {
             String p = props.getProperty(domain + PROP_TCPPORT_SUFFIX, String.valueOf(DEFAULT_TCPPORT));
@@ -255,6 +273,22 @@ public class StompServer {
         return jmsprop;
     }
 
+    /**
+     * Each STOMP client otherwise gets its own JMS client connection to the broker. With a direct mode connection
+     * service configured, the broker serves the STOMP client through its in-process JMSService instead, without the
+     * client runtime connection and its reader thread.
+     */
+    StompConnection createStompConnection(StompProtocolHandlerImpl sph) {
+        if (_directService != null) {
+            try {
+                return _bc.createDirectStompConnection(_directService, sph);
+            } catch (Exception e) {
+                _logger.log(Level.WARNING, getStompBridgeResources().getString(StompBridgeResources.W_DIRECT_SERVICE_UNAVAILABLE, _directService, e.getMessage()));
+            }
+        }
+        return new StompConnectionImpl(sph);
+    }
+
     private static SSLEngineConfigurator initializeSSL(BridgeContext bc, String domain, Properties props, Logger logger) throws Exception {
 
         logger.log(Level.INFO, getStompBridgeResources().getString(StompBridgeResources.I_INIT_SSL));
@@ -94,6 +94,7 @@ public class StompBridgeResources extends MQResourceBundle {
     final public static String I_TXNSESSION_THREAD_EXIT = "BSS1023";
     final public static String I_INIT_GRIZZLY = "BSS1024";
     final public static String I_USE_HEADER_IGNORE_OBSOLETE_HEADER_FOR = "BSS1025";
+    final public static String I_USE_DIRECT_SERVICE = "BSS1026";
 
     // 2000-2999 Warning Messages
     final public static String W_SEND_MSG_TO_CLIENT_FAILED = "BSS2000";
@@ -113,6 +114,8 @@ public class StompBridgeResources extends MQResourceBundle {
     final public static String W_TXNSESSION_ROLLBACK_FAIL = "BSS2014";
     final public static String W_UNABLE_DELIVER_MSG_TO_TXNSUB = "BSS2015";
     final public static String W_PROPERTY_SETTING_OVERRIDE_BY_BROKER = "BSS2016";
+    final public static String W_DIRECT_SERVICE_IGNORED = "BSS2017";
+    final public static String W_DIRECT_SERVICE_UNAVAILABLE = "BSS2018";
 
     // 3000-3999 Error Messages
     final public static String E_ONEXCEPTION_JMS_CONN = "BSS3000";
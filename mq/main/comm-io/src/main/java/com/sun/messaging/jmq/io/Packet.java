@@ -19,6 +19,7 @@ package com.sun.messaging.jmq.io;
 
 import java.util.Hashtable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.io.*;
 import java.nio.ByteBuffer;
@@ -203,6 +204,21 @@ public class Packet implements JMSPacket {
         this.reset();
     }
 
+    /**
+     * Share the parsed property hashtable of sourcePacket with this packet, so that this packet does not parse its property
+     * bytes again. This packet must have been filled from sourcePacket with a shallow fill(). Neither packet may modify the
+     * shared hashtable afterwards: call setProperties() with a new hashtable instead.
+     */
+    public synchronized void shareProperties(Packet sourcePacket) {
+        Hashtable props;
+        synchronized (sourcePacket) {
+            props = sourcePacket.getPacketPayload().getParsedProperties();
+        }
+        if (props != null) {
+            packetPayload.setParsedProperties(props);
+        }
+    }
+
     /**
      * Fill this packet with the contents of sourcePacket. The fixed and variable headers are copied. The payload
      * (properties and body) are shared. This method turns off timestamp and sequence number generation since we assume you
@@ -585,7 +601,8 @@ public class Packet implements JMSPacket {
      *
      * WARNING! This method emphasizes performance over safety. The HashTable object returned is a reference to the
      * HashTable object in the object -- it is NOT a copy. Modifying the contents of the HashTable will have
-     * non-deterministic results so don't do it!
+     * non-deterministic results so don't do it! In particular the marshalled property bytes are kept once the packet has
+     * been written, so a change made in place afterwards is not sent. Use setProperties() with a modified copy instead.
      */
     public synchronized Hashtable getProperties() throws IOException, ClassNotFoundException {
 
@@ -1988,6 +2005,38 @@ public class Packet implements JMSPacket {
         return b;
     }
 
+    /**
+     * Retrieves the packet as an InputStream, so that a large packet can be written out without first being copied into a
+     * single byte array. The headers and properties are copied, the body is read directly from the packet's body buffer.
+     * The stream holds <code>getPacketSize()</code> bytes.
+     */
+    public synchronized InputStream getInputStream() throws IOException {
+
+        if (genSequenceNumber) {
+            updateSequenceNumber();
+        }
+
+        if (genTimestamp) {
+            updateTimestamp();
+        }
+
+        updateBuffers();
+        initializeWriteBufs();
+
+        ByteBuffer body = packetPayload.getBodyBytes();
+        ArrayList<InputStream> streams = new ArrayList<>(nBufs);
+        for (int i = 0; i < nBufs; i++) {
+            if (writeBufs[i] == body) {
+                streams.add(new JMQByteBufferInputStream(writeBufs[i].duplicate()));
+            } else {
+                byte[] b = new byte[writeBufs[i].remaining()];
+                writeBufs[i].get(b);
+                streams.add(new ByteArrayInputStream(b));
+            }
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
     /**
      * Prepare this Packet for the sendMessage method of the jmq.jmsservice.JMSService interface.
      */
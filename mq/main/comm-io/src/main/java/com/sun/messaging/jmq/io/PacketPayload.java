@@ -101,7 +101,11 @@ public class PacketPayload {
     }
 
     /**
-     * Get the payload properties as a java.util.Hashtable. The hashtable is NOT a copy
+     * Get the payload properties as a java.util.Hashtable. The hashtable is NOT a copy.
+     *
+     * The marshalled property bytes are kept once getPropertiesBytes() has produced them, and later writes send those bytes
+     * without looking at the hashtable again. Do not modify the returned hashtable in place: a change made after the first
+     * write is not sent. Pass a modified copy to setProperties() instead, which discards the kept bytes
      */
     public synchronized Hashtable getProperties() throws IOException, ClassNotFoundException {
 
@@ -180,6 +184,13 @@ public class PacketPayload {
                 e.printStackTrace();
             }
             propBuf = ByteBuffer.wrap(bos.getBuf(), 0, bos.getCount());
+
+            // keep the marshalled form; setProperties() discards it
+            if (version >= Packet.VERSION3) {
+                propBuf_v2 = propBuf;
+            } else {
+                propBuf_v1 = propBuf;
+            }
         }
         propBuf.rewind();
         return propBuf;
@@ -225,6 +236,24 @@ public class PacketPayload {
         return;
     }
 
+    /**
+     * Get the payload properties as a java.util.Hashtable only if they have already been set or parsed. Unlike
+     * getProperties() this never parses the property bytes. The hashtable is NOT a copy
+     */
+    synchronized Hashtable getParsedProperties() {
+        return properties;
+    }
+
+    /**
+     * Set the parsed form of the property bytes already held by this payload. The property bytes are kept. The hashtable
+     * is NOT copied and must hold the same properties as the property bytes
+     */
+    synchronized void setParsedProperties(Hashtable props) {
+        if (propBuf_v1 != null || propBuf_v2 != null) {
+            properties = props;
+        }
+    }
+
     /**
      * Set the payload properties as raw bytes (i.e. a serialized java.util.Hashtable bytes). WARNING! The passed buffer is
      * NOT copied or duplicated
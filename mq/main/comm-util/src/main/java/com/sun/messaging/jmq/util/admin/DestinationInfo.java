@@ -276,6 +276,11 @@ public class DestinationInfo extends AdminInfo {
      */
     public long nRemoteMessageBytes;
 
+    /**
+     * Name of the dispatch policy of a queue, null for the default policy
+     */
+    public String dispatchPolicy;
+
     public static final int NAME = 0x00000001;
     public static final int TYPE = 0x00000002;
     public static final int MAX_MESSAGES = 0x00000004;
@@ -336,6 +341,8 @@ public class DestinationInfo extends AdminInfo {
      */
     public static final int RELOAD_XML_SCHEMA_ON_FAILURE = 0x00020000;
 
+    public static final int DISPATCH_POLICY = 0x00040000;
+
     /**
      * Constructor for Destination.
      *
@@ -377,6 +384,7 @@ public class DestinationInfo extends AdminInfo {
         reloadXMLSchemaOnFailure = false;
         nRemoteMessages = 0;
         nRemoteMessageBytes = 0;
+        dispatchPolicy = null;
 
     }
 
@@ -598,6 +606,11 @@ public class DestinationInfo extends AdminInfo {
         return (this.reloadXMLSchemaOnFailure);
     }
 
+    public void setDispatchPolicy(String s) {
+        this.dispatchPolicy = s;
+        setModified(DISPATCH_POLICY);
+    }
+
     /**
      * handles translating old packets when class is deserialized
      */
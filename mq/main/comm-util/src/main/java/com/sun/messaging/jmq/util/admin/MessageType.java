@@ -162,6 +162,43 @@ public class MessageType {
     public static final String JMQ_NUM_PARTITIONS = "JMQNumPartitions";
     public static final String JMQ_MQ_ADDRESS = "JMQMQAddress";
 
+    /**
+     * Boolean on PURGE_DESTINATION: purge in the background and reply immediately with the progress of the purge. Sending
+     * the request again while the purge runs returns its current progress, once it has finished a new purge is started.
+     *
+     * @since 6.3
+     */
+    public static final String JMQ_PURGE_IN_BACKGROUND = "JMQPurgeInBackground";
+
+    /**
+     * Boolean on PURGE_DESTINATION: do not purge, reply with the progress or the result of the last background purge of
+     * the destination. The result of a finished purge is kept until a new background purge is started.
+     *
+     * @since 6.3
+     */
+    public static final String JMQ_PURGE_PROGRESS = "JMQPurgeProgress";
+
+    /**
+     * Long on PURGE_DESTINATION_REPLY: number of messages the background purge started with
+     *
+     * @since 6.3
+     */
+    public static final String JMQ_PURGE_TOTAL = "JMQPurgeTotal";
+
+    /**
+     * Long on PURGE_DESTINATION_REPLY: number of messages removed by the background purge so far
+     *
+     * @since 6.3
+     */
+    public static final String JMQ_PURGE_REMOVED = "JMQPurgeRemoved";
+
+    /**
+     * Boolean on PURGE_DESTINATION_REPLY: true once the background purge has finished
+     *
+     * @since 6.3
+     */
+    public static final String JMQ_PURGE_DONE = "JMQPurgeDone";
+
     public static final int OK = 200;
     public static final int ERROR = 500;
 
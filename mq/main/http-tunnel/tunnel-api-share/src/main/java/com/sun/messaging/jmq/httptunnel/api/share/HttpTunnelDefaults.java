@@ -63,6 +63,23 @@ public interface HttpTunnelDefaults {
      */
     int MAX_PULL_BLOCK_PERIOD = 60 * 1000;
 
+    /**
+     * Maximum lifetime of a streaming response in streaming mode. The client opens a new stream when a response ends.
+     */
+    int MAX_STREAM_PERIOD = 5 * 60 * 1000;
+
+    /**
+     * Idle period after which the servlet writes a no-op packet to a streaming response, so that intermediaries do not
+     * drop an idle stream.
+     */
+    int STREAM_KEEPALIVE_PERIOD = 20 * 1000;
+
+    /**
+     * HTTP response header set by the servlet on a streaming response. A client that does not find this header falls back
+     * to pull requests.
+     */
+    String STREAM_RESPONSE_HEADER = "X-HttpTunnel-Stream";
+
     /**
      * Default listen queue backlog.
      */
@@ -39,14 +39,21 @@ import java.util.logging.Logger;
 /**
  * This class provides unreliable packet delivery mechanism on the client side. It also uses a dedicated thread to
  * continuously send HTTP pull requests to fetch packets sent by the server.
+ *
+ * If the <code>httptunnel.stream</code> system property is set to true, the dedicated thread instead opens long-lived
+ * streaming requests, and the servlet writes packets to the streaming response as they arrive. The driver falls back
+ * to pull requests if the servlet does not support streaming.
  */
 public class HttpTunnelClientDriver extends Thread implements HttpTunnelDefaults, HttpTunnelDriver {
     private static boolean DEBUG = Boolean.getBoolean("httptunnel.debug");
+    private static boolean STREAM = Boolean.getBoolean("httptunnel.stream");
     private boolean stopThread = false;
     private String urlString = null;
     private String urlParam = null;
     private URL pushUrl = null;
     private URL pullUrl = null;
+    private URL streamUrl = null;
+    private boolean streaming = STREAM;
     private URLConnection uc = null;
     private HttpTunnelPush pushWorker = null;
     private int connId;
@@ -152,6 +159,7 @@ public class HttpTunnelClientDriver extends Thread implements HttpTunnelDefaults
 
             pushUrl = new URL(urlString + "?Type=push" + urlParam);
             pullUrl = new URL(urlString + "?Type=pull&ConnId=" + connId + urlParam);
+            streamUrl = new URL(urlString + "?Type=stream&ConnId=" + connId + urlParam);
 
             while (conn == null) {
                 Vector v = pullPackets();
@@ -323,6 +331,88 @@ public class HttpTunnelClientDriver extends Thread implements HttpTunnelDefaults
         return v;
     }
 
+    /**
+     * Open a streaming request and handle the packets written by the servlet until the streaming response ends.
+     * Packets that are already available are handled together, so that data packets received in a burst are acknowledged
+     * once.
+     */
+    private void streamPackets() throws Exception {
+        int responseCode = HttpURLConnection.HTTP_OK;
+
+        try {
+            uc = streamUrl.openConnection();
+            uc.setDoInput(true);
+            uc.setDoOutput(false);
+            uc.setUseCaches(false);
+            uc.connect();
+
+            if (uc instanceof HttpURLConnection) {
+                responseCode = ((HttpURLConnection) uc).getResponseCode();
+            }
+        } catch (IOException e) {
+            handleHTTPConnectError();
+            throw e;
+        }
+
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            handleHTTPConnectError();
+            uc = null;
+
+            return;
+        }
+
+        InputStream is = uc.getInputStream();
+
+        try {
+            if (!"true".equals(uc.getHeaderField(STREAM_RESPONSE_HEADER))) {
+                // The servlet does not support streaming.
+                log("HTTP tunnel servlet does not support streaming, using pull requests");
+                streaming = false;
+
+                return;
+            }
+
+            lastConnectTime = System.currentTimeMillis();
+
+            boolean received = false;
+
+            while (!stopThread) {
+                Vector v = new Vector();
+
+                try {
+                    HttpTunnelPacket p = new HttpTunnelPacket();
+                    p.readPacket(is);
+                    v.addElement(p);
+
+                    while (is.available() > 0) {
+                        p = new HttpTunnelPacket();
+                        p.readPacket(is);
+                        v.addElement(p);
+                    }
+                } catch (EOFException e) {
+                    // End of this streaming response.
+                    if (!v.isEmpty()) {
+                        handlePackets(v);
+                    } else if (!received) {
+                        // The stream came back empty handed, e.g. the
+                        // server is not available. Don't spin...
+                        throw e;
+                    }
+
+                    break;
+                }
+
+                received = true;
+                lastConnectTime = System.currentTimeMillis();
+
+                handlePackets(v);
+            }
+        } finally {
+            is.close();
+            uc = null;
+        }
+    }
+
     private void handleHTTPConnectError() {
         if (conn.getConnectionTimeout() <= 0) {
             return;
@@ -353,6 +443,12 @@ public class HttpTunnelClientDriver extends Thread implements HttpTunnelDefaults
     public void run() {
         while (!stopThread) {
             try {
+                if (streaming) {
+                    streamPackets();
+
+                    continue;
+                }
+
                 Vector v = pullPackets();
 
                 if (v == null || v.isEmpty()) {
@@ -361,71 +457,78 @@ public class HttpTunnelClientDriver extends Thread implements HttpTunnelDefaults
                     continue;
                 }
 
-                int i;
-                int j;
+                handlePackets(v);
+            } catch (Exception e) {
+                try {
+                    Thread.sleep(1000);
+                } catch (Exception se) {
+                }
 
-                for (j = v.size() - 1; j >= 0; j--) {
-                    HttpTunnelPacket p = (HttpTunnelPacket) v.elementAt(j);
+                handleHttpPullError();
+            }
+        }
+    }
 
-                    if (p.getPacketType() == DATA_PACKET) {
-                        break;
-                    }
-                }
+    /**
+     * Dispatch the packets received with a pull request or read from a streaming response.
+     */
+    private void handlePackets(Vector v) {
+        int i;
+        int j;
 
-                // Now j points to the last data packet in v
-                for (i = 0; i < v.size(); i++) {
-                    HttpTunnelPacket p = (HttpTunnelPacket) v.elementAt(i);
+        for (j = v.size() - 1; j >= 0; j--) {
+            HttpTunnelPacket p = (HttpTunnelPacket) v.elementAt(j);
 
-                    if (p.getPacketType() == CONN_SHUTDOWN) {
-                        // TBD: Connection aborted...
-                    }
+            if (p.getPacketType() == DATA_PACKET) {
+                break;
+            }
+        }
 
-                    if (DEBUG) {
-                        log("Received packet:" + p);
-                    }
+        // Now j points to the last data packet in v
+        for (i = 0; i < v.size(); i++) {
+            HttpTunnelPacket p = (HttpTunnelPacket) v.elementAt(i);
 
-                    switch (p.getPacketType()) {
-                    case CONN_CLOSE_PACKET:
-                        handleConnClose(p);
+            if (p.getPacketType() == CONN_SHUTDOWN) {
+                // TBD: Connection aborted...
+            }
 
-                        break;
+            if (DEBUG) {
+                log("Received packet:" + p);
+            }
 
-                    case CONN_ABORT_PACKET:
-                        handleConnAbort(p);
+            switch (p.getPacketType()) {
+            case CONN_CLOSE_PACKET:
+                handleConnClose(p);
 
-                        break;
+                break;
 
-                    case CONN_OPTION_PACKET:
-                        handleConnOption(p);
+            case CONN_ABORT_PACKET:
+                handleConnAbort(p);
 
-                        break;
+                break;
 
-                    case DATA_PACKET:
-                    case ACK:
-                        handlePacket(p, (i != j));
+            case CONN_OPTION_PACKET:
+                handleConnOption(p);
 
-                        // i == j is true for the last data packet in v
-                        break;
+                break;
 
-                    case DUMMY_PACKET:
-                        handleDummyPacket(p);
+            case DATA_PACKET:
+            case ACK:
+                handlePacket(p, (i != j));
 
-                        break;
+                // i == j is true for the last data packet in v
+                break;
 
-                    default:
-                        break;
-                    }
+            case DUMMY_PACKET:
+                handleDummyPacket(p);
 
-                    // receivePacket(p);
-                }
-            } catch (Exception e) {
-                try {
-                    Thread.sleep(1000);
-                } catch (Exception se) {
-                }
+                break;
 
-                handleHttpPullError();
+            default:
+                break;
             }
+
+            // receivePacket(p);
         }
     }
 
@@ -27,7 +27,12 @@ import java.io.DataOutputStream;
 
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletInputStream;
@@ -41,13 +46,15 @@ public class HttpTunnelServlet extends HttpServlet implements HttpTunnelDefaults
     private static final long serialVersionUID = 4398262071227918600L;
     private int serviceCounter = 0;
     private Object serviceLock = new Object();
-    private boolean servletShuttingDown = false;
+    private volatile boolean servletShuttingDown = false;
     protected String servletName = null;
     protected boolean inService = false;
     protected ServletContext servletContext;
     protected java.util.Date startTime = null;
     protected ServerLinkTable linkTable = null;
     protected Throwable initException = null;
+    private ExecutorService streamWriters = null;
+    private ScheduledExecutorService streamTimer = null;
 
     @Override
     public void init() throws ServletException {
@@ -118,6 +125,11 @@ public class HttpTunnelServlet extends HttpServlet implements HttpTunnelDefaults
 
             String connIdStr = tmp2[0];
             handlePull(request, response, connIdStr, serverName);
+        } else if (requestType.equals("stream")) {
+            tmp2 = (String[]) ht.get("ConnId");
+
+            String connIdStr = tmp2[0];
+            handleStream(request, response, connIdStr, serverName);
         } else if (requestType.equals("connect")) {
             handleConnect(request, response, serverName);
         } else {
@@ -170,21 +182,28 @@ public class HttpTunnelServlet extends HttpServlet implements HttpTunnelDefaults
         }
     }
 
-    private void sendNoOp(HttpServletResponse response) {
+    static HttpTunnelPacket genNoOpPacket() {
+        HttpTunnelPacket p = new HttpTunnelPacket();
+        p.setPacketType(NO_OP_PACKET);
+        p.setConnId(0);
+        p.setSequence(0);
+        p.setWinsize(0);
+        p.setChecksum(0);
+        p.setPacketBody(null);
+
+        return p;
+    }
+
+    private boolean sendNoOp(HttpServletResponse response) {
         try {
             ServletOutputStream sos = response.getOutputStream();
 
-            HttpTunnelPacket p = new HttpTunnelPacket();
-            p.setPacketType(NO_OP_PACKET);
-            p.setConnId(0);
-            p.setSequence(0);
-            p.setWinsize(0);
-            p.setChecksum(0);
-            p.setPacketBody(null);
-
-            p.writePacket(sos);
+            genNoOpPacket().writePacket(sos);
         } catch (Exception e) { /* Ignore */
+            return false;
         }
+
+        return true;
     }
 
     /**
@@ -230,6 +249,97 @@ public class HttpTunnelServlet extends HttpServlet implements HttpTunnelDefaults
         }
     }
 
+    /**
+     * Stream data from server to client. Unlike a pull request, the response is kept open and packets are written to it
+     * as they arrive from the server, until MAX_STREAM_PERIOD expires or the connection goes away. A no-op packet is
+     * written when the stream has been idle for STREAM_KEEPALIVE_PERIOD. The client opens a new stream when the response
+     * ends.
+     *
+     * If the request supports async processing the stream is written by a StreamWriter and the servlet thread returns
+     * right away, otherwise the servlet thread waits for the packets until the stream ends.
+     */
+    public void handleStream(HttpServletRequest request, HttpServletResponse response, String connIdStr, String serverName) {
+        long endTime = System.currentTimeMillis() + MAX_STREAM_PERIOD;
+
+        ServletOutputStream sos = null;
+
+        try {
+            response.setHeader(STREAM_RESPONSE_HEADER, "true");
+            sos = response.getOutputStream();
+
+            // commit the response headers so that the client starts reading
+            response.flushBuffer();
+        } catch (Exception e) {
+            return;
+        }
+
+        if (request.isAsyncSupported()) {
+            AsyncContext ac = request.startAsync(request, response);
+            StreamWriter writer = new StreamWriter(ac, sos, linkTable, connIdStr, serverName, endTime);
+
+            synchronized (serviceLock) {
+                if (!servletShuttingDown) {
+                    writer.start(getStreamWriters(), getStreamTimer());
+
+                    return;
+                }
+            }
+
+            ac.complete();
+
+            return;
+        }
+
+        while (!servletShuttingDown && System.currentTimeMillis() < endTime) {
+            Vector v = linkTable.waitForPackets(connIdStr, serverName, true);
+
+            if (v == null) {
+                return;
+            }
+
+            if (v.isEmpty()) {
+                // keep the stream alive, and find out if the client is gone
+                if (!sendNoOp(response)) {
+                    return;
+                }
+
+                continue;
+            }
+
+            try {
+                for (int i = 0; i < v.size(); i++) {
+                    HttpTunnelPacket p = (HttpTunnelPacket) v.elementAt(i);
+                    p.writePacket(sos);
+                }
+            } catch (Exception e) {
+                // Obvious failure - resend the packets.
+                linkTable.retrySendPackets(v, connIdStr, serverName);
+
+                return;
+            }
+
+            if (((HttpTunnelPacket) v.lastElement()).getPacketType() == CONN_ABORT_PACKET) {
+                return;
+            }
+        }
+    }
+
+    private ExecutorService getStreamWriters() {
+        if (streamWriters == null) {
+            streamWriters = Executors.newCachedThreadPool(new StreamThreadFactory("imqHttpTunnelStreamWriter"));
+        }
+
+        return streamWriters;
+    }
+
+    private ScheduledExecutorService getStreamTimer() {
+        if (streamTimer == null) {
+            streamTimer = Executors.newSingleThreadScheduledExecutor(new StreamThreadFactory("imqHttpTunnelStreamTimer"));
+        }
+
+        return streamTimer;
+    }
+
     /**
      * Send data from client to server.
      */
@@ -370,9 +480,19 @@ public class HttpTunnelServlet extends HttpServlet implements HttpTunnelDefaults
                 return;
             }
 
-            // cleanup here
+            // cleanup here, this also ends the streams of StreamWriters
             linkTable.shuttingDown();
 
+            synchronized (serviceLock) {
+                if (streamTimer != null) {
+                    streamTimer.shutdownNow();
+                }
+
+                if (streamWriters != null) {
+                    streamWriters.shutdown();
+                }
+            }
+
             synchronized (serviceLock) {
                 while (numServices() > 0) {
                     try {
@@ -389,5 +509,20 @@ public class HttpTunnelServlet extends HttpServlet implements HttpTunnelDefaults
             super.destroy();
         }
     }
-}
 
+    private static class StreamThreadFactory implements ThreadFactory {
+        private final String name;
+
+        StreamThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+
+            return t;
+        }
+    }
+}
@@ -35,9 +35,12 @@ import java.net.SocketException;
 import java.security.KeyStore;
 import java.security.SecureRandom;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.*;
 
@@ -48,15 +51,15 @@ public class ServerLinkTable implements HttpTunnelDefaults {
     private static final int RUNNING = 0;
     private static final int SHUTTINGDOWN = 1;
     private static final int DESTROYED = 2;
-    private int linkTableState = RUNNING;
+    private volatile int linkTableState = RUNNING;
     private int servletPort;
     private int rxBufSize;
     private String servletHost = null;
     private HelperThread helperThread;
-    private Hashtable linkTable; // Maps serverName <--> ServerLink
-    private Hashtable connTable; // Maps (serverName, connId) <--> Connection
-    private Vector tmpList;
-    private int nextConnId = 0;
+    private Map<String, ServerLink> linkTable; // Maps serverName <--> ServerLink
+    private Map<ConnKey, Connection> connTable; // Maps (serverName, connId) <--> Connection
+    private Set<ServerLink> tmpList;
+    private AtomicInteger nextConnId;
     private long lastCheck = 0;
     protected ServletContext servletContext;
 
@@ -67,12 +70,12 @@ public class ServerLinkTable implements HttpTunnelDefaults {
     public ServerLinkTable(ServletConfig cfg, boolean useSSL) throws Exception {
         servletContext = cfg.getServletContext();
         linkTableState = RUNNING;
-        nextConnId = (int) System.currentTimeMillis();
+        nextConnId = new AtomicInteger((int) System.currentTimeMillis());
         lastCheck = 0;
 
-        linkTable = new Hashtable();
-        connTable = new Hashtable();
-        tmpList = new Vector();
+        linkTable = new ConcurrentHashMap<>();
+        connTable = new ConcurrentHashMap<>();
+        tmpList = ConcurrentHashMap.newKeySet();
 
         rxBufSize = 0;
 
@@ -141,46 +144,34 @@ public class ServerLinkTable implements HttpTunnelDefaults {
         // stop listen thread, no more server link
         helperThread.close();
 
+        // the state change is serialized with updateServerName() so
+        // that no new server link is registered after this point
         synchronized (linkTable) {
             linkTableState = SHUTTINGDOWN;
-        }
 
-        synchronized (linkTable) {
-            String serverName;
-            ServerLink link;
-            Enumeration servers = linkTable.keys();
-
-            while (servers.hasMoreElements()) {
-                serverName = (String) servers.nextElement();
-                link = (ServerLink) linkTable.get(serverName);
-                linkTable.remove(serverName);
+            Iterator<ServerLink> links = linkTable.values().iterator();
+
+            while (links.hasNext()) {
+                ServerLink link = links.next();
+                links.remove();
                 link.shutdown(); // stop link reading thread
                 link.linkDown(); // close link io/socket
             }
         }
 
-        synchronized (tmpList) {
-            ServerLink link;
-
-            for (int i = tmpList.size() - 1; i >= 0; i--) {
-                link = (ServerLink) tmpList.elementAt(i);
-                link.shutdown();
-                link.linkDown();
-            }
+        for (ServerLink link : tmpList) {
+            link.shutdown();
+            link.linkDown();
         }
 
-        synchronized (connTable) {
-            Enumeration conns = connTable.keys();
-
-            while (conns.hasMoreElements()) {
-                ConnKey s = (ConnKey) conns.nextElement();
-                Connection conn = (Connection) connTable.get(s);
-                Vector pullQ = conn.getPullQ();
+        for (Connection conn : connTable.values()) {
+            Vector pullQ = conn.getPullQ();
 
-                synchronized (pullQ) {
-                    pullQ.notifyAll();
-                }
+            synchronized (pullQ) {
+                pullQ.notifyAll();
             }
+
+            conn.packetsQueued();
         }
     }
 
@@ -188,17 +179,9 @@ public class ServerLinkTable implements HttpTunnelDefaults {
     public void destroy() {
         linkTableState = DESTROYED;
 
-        synchronized (linkTable) {
-            linkTable.clear();
-        }
-
-        synchronized (connTable) {
-            connTable.clear();
-        }
-
-        synchronized (tmpList) {
-            tmpList.removeAllElements();
-        }
+        linkTable.clear();
+        connTable.clear();
+        tmpList.clear();
     }
 
     /**
@@ -216,9 +199,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
         try {
             ServerLink link = new ServerLink(s, this);
 
-            synchronized (tmpList) {
-                tmpList.addElement(link);
-            }
+            tmpList.add(link);
         } catch (Exception e) {
         }
     }
@@ -231,7 +212,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
                 throw new IllegalStateException("HttpTunnelServlet: in destory");
             }
 
-            ServerLink oldlink = (ServerLink) linkTable.get(serverName);
+            ServerLink oldlink = linkTable.get(serverName);
 
             if ((oldlink != null) && !oldlink.isDone()) {
                 throw new IllegalStateException("HttpTunnelServlet: ServerName " + serverName + " conflict");
@@ -240,26 +221,18 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             linkTable.put(serverName, link);
         }
 
-        synchronized (tmpList) {
-            int i = tmpList.indexOf(link);
-
-            if (i > -1) {
-                tmpList.removeElementAt(i);
-            }
-        }
+        tmpList.remove(link);
     }
 
     public void updateConnection(int connId, int pullPeriod, ServerLink link) throws IllegalStateException {
         Connection conn = new Connection(link);
         conn.setPullPeriod(pullPeriod);
 
-        synchronized (connTable) {
-            if (linkTableState >= SHUTTINGDOWN) {
-                throw new IllegalStateException("HttpTunnelServlet: in destory");
-            }
-
-            connTable.put(new ConnKey(link.getServerName(), connId), conn);
+        if (linkTableState >= SHUTTINGDOWN) {
+            throw new IllegalStateException("HttpTunnelServlet: in destory");
         }
+
+        connTable.put(new ConnKey(link.getServerName(), connId), conn);
     }
 
     private boolean sameServerName(String serverName, Connection conn) {
@@ -276,34 +249,20 @@ public class ServerLinkTable implements HttpTunnelDefaults {
         String serverName = link.getServerName();
 
         if (serverName != null) {
-            ServerLink curlink = null;
-
-            synchronized (linkTable) {
-                curlink = (ServerLink) linkTable.get(serverName);
-
-                if (curlink == link) {
-                    linkTable.remove(serverName);
-                } else {
-                    return;
-                }
+            if (!linkTable.remove(serverName, link)) {
+                return;
             }
         }
 
         link.shutdown();
 
-        synchronized (connTable) {
-            Enumeration conns = connTable.keys();
-
-            while (conns.hasMoreElements()) {
-                ConnKey s = (ConnKey) conns.nextElement();
-                Connection conn = (Connection) connTable.get(s);
+        for (Map.Entry<ConnKey, Connection> entry : connTable.entrySet()) {
+            Connection conn = entry.getValue();
 
-                if (conn.getServerLink() == link) {
-                    int connId = s.getConnId();
+            if (conn.getServerLink() == link) {
+                int connId = entry.getKey().getConnId();
 
-                    Vector pullQ = conn.getPullQ();
-                    abortClientConnection(connId, pullQ);
-                }
+                abortClientConnection(connId, conn);
             }
         }
     }
@@ -320,13 +279,16 @@ public class ServerLinkTable implements HttpTunnelDefaults {
         return p;
     }
 
-    private void abortClientConnection(int connId, Vector pullQ) {
+    private void abortClientConnection(int connId, Connection conn) {
         HttpTunnelPacket p = genAbortPacket(connId);
+        Vector pullQ = conn.getPullQ();
 
         synchronized (pullQ) {
             pullQ.addElement(p);
             pullQ.notifyAll();
         }
+
+        conn.packetsQueued();
     }
 
     private void abortServerConnection(int connId, Connection conn) {
@@ -339,7 +301,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
         String serverName = null;
 
         try {
-            ServerLink link = (ServerLink) linkTable.elements().nextElement();
+            ServerLink link = linkTable.values().iterator().next();
 
             if (link != null) {
                 serverName = link.getServerName();
@@ -355,19 +317,15 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             return false;
         }
 
-        // First find the ServerLink.
-        ServerLink link = null;
-
-        synchronized (linkTable) {
-            if (linkTableState >= SHUTTINGDOWN) {
-                return false;
-            }
+        if (linkTableState >= SHUTTINGDOWN) {
+            return false;
+        }
 
-            link = (ServerLink) linkTable.get(serverName);
+        // First find the ServerLink.
+        ServerLink link = linkTable.get(serverName);
 
-            if (link == null) {
-                return false;
-            }
+        if (link == null) {
+            return false;
         }
 
         return link.getListenState();
@@ -378,28 +336,22 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             return -1;
         }
 
-        // First find the ServerLink.
-        ServerLink link = null;
-
-        synchronized (linkTable) {
-            if (linkTableState >= SHUTTINGDOWN) {
-                return -1;
-            }
+        if (linkTableState >= SHUTTINGDOWN) {
+            return -1;
+        }
 
-            link = (ServerLink) linkTable.get(serverName);
+        // First find the ServerLink.
+        ServerLink link = linkTable.get(serverName);
 
-            if (link == null) {
-                return -1;
-            }
+        if (link == null) {
+            return -1;
         }
 
-        synchronized (connTable) {
-            int connId = nextConnId++;
-            ConnKey connKey = new ConnKey(link.getServerName(), connId);
-            connTable.put(connKey, new Connection(link));
+        int connId = nextConnId.getAndIncrement();
+        ConnKey connKey = new ConnKey(link.getServerName(), connId);
+        connTable.put(connKey, new Connection(link));
 
-            return connId;
-        }
+        return connId;
     }
 
     public void destroyConn(int connId, String serverName) {
@@ -407,9 +359,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             return;
         }
 
-        synchronized (connTable) {
-            connTable.remove(new ConnKey(serverName, connId));
-        }
+        connTable.remove(new ConnKey(serverName, connId));
     }
 
     /**
@@ -422,7 +372,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
 
         ConnKey connKey = new ConnKey(serverName, p.getConnId());
 
-        Connection conn = (Connection) connTable.get(connKey);
+        Connection conn = connTable.get(connKey);
 
         if (conn == null) {
             return;
@@ -440,23 +390,21 @@ public class ServerLinkTable implements HttpTunnelDefaults {
     }
 
     protected void receivePacket(HttpTunnelPacket p, ServerLink link) {
-        Vector pullQ = null;
-
-        synchronized (connTable) {
-            ConnKey connKey = new ConnKey(link.getServerName(), p.getConnId());
-            Connection conn = (Connection) connTable.get(connKey);
-
-            if (conn == null) {
-                return;
-            }
+        ConnKey connKey = new ConnKey(link.getServerName(), p.getConnId());
+        Connection conn = connTable.get(connKey);
 
-            pullQ = conn.getPullQ();
+        if (conn == null) {
+            return;
         }
 
+        Vector pullQ = conn.getPullQ();
+
         synchronized (pullQ) {
             pullQ.addElement(p);
             pullQ.notifyAll();
         }
+
+        conn.packetsQueued();
     }
 
     private void interceptConnOption(Connection conn, HttpTunnelPacket p) {
@@ -494,11 +442,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
 
         ConnKey connKey = new ConnKey(serverName, connId);
 
-        Connection conn = null;
-
-        synchronized (connTable) {
-            conn = (Connection) connTable.get(connKey);
-        }
+        Connection conn = connTable.get(connKey);
 
         if (conn == null) {
             if (linkTable.get(serverName) != null) {
@@ -581,17 +525,37 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             }
         }
 
-        // lock connTable outside pullQ lock
         if (removeConn) {
-            synchronized (connTable) {
-                connTable.remove(connKey);
-            }
+            connTable.remove(connKey);
         }
 
         return p;
     }
 
     public Vector waitForPackets(String connIdStr, String serverName) {
+        return waitForPackets(connIdStr, serverName, false);
+    }
+
+    /**
+     * Wait for packets to be sent to the client.
+     *
+     * In streaming mode the wait is bounded by STREAM_KEEPALIVE_PERIOD regardless of the connection pull period, and an
+     * empty <code>Vector</code> is returned if no packet arrived in that period. <code>null</code> is returned if the
+     * connection is gone or the servlet is shutting down, which ends the stream.
+     */
+    public Vector waitForPackets(String connIdStr, String serverName, boolean stream) {
+        return getPackets(connIdStr, serverName, stream, false);
+    }
+
+    /**
+     * Get the packets queued for a streaming client without waiting. An empty <code>Vector</code> is returned if no packet
+     * is queued, <code>null</code> if the connection is gone or the servlet is shutting down.
+     */
+    public Vector pollPackets(String connIdStr, String serverName) {
+        return getPackets(connIdStr, serverName, true, true);
+    }
+
+    private Vector getPackets(String connIdStr, String serverName, boolean stream, boolean poll) {
         int connId = -1;
 
         try {
@@ -609,11 +573,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
 
         ConnKey connKey = new ConnKey(serverName, connId);
 
-        Connection conn = null;
-
-        synchronized (connTable) {
-            conn = (Connection) connTable.get(connKey);
-        }
+        Connection conn = connTable.get(connKey);
 
         if (conn == null) {
             if (linkTable.get(serverName) != null) {
@@ -633,16 +593,21 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             return v3;
         }
 
+        // a polled connection is kept in use by its stream listener
+        if (poll) {
+            return waitForPackets(connKey, conn, stream, true);
+        }
+
         conn.setInUse(true);
 
-        Vector v = waitForPackets(connKey, conn);
+        Vector v = waitForPackets(connKey, conn, stream, false);
 
         conn.setInUse(false);
 
         return v;
     }
 
-    private Vector waitForPackets(ConnKey connKey, Connection conn) {
+    private Vector waitForPackets(ConnKey connKey, Connection conn, boolean stream, boolean poll) {
         Vector pullQ = conn.getPullQ();
         int pullPeriod = conn.getPullPeriod();
 
@@ -650,16 +615,16 @@ public class ServerLinkTable implements HttpTunnelDefaults {
         boolean removeConn = false;
 
         synchronized (pullQ) {
-            if (pullPeriod > 0) {
+            if (pullPeriod > 0 && !stream) {
                 if (pullQ.isEmpty()) {
                     return null; // Don't tie-up web server resources...
                 }
             }
 
             long startTime = System.currentTimeMillis();
-            long maxwait = MAX_PULL_BLOCK_PERIOD;
+            long maxwait = (stream ? STREAM_KEEPALIVE_PERIOD : MAX_PULL_BLOCK_PERIOD);
 
-            while (pullQ.isEmpty() && (linkTableState == RUNNING)) {
+            while (!poll && pullQ.isEmpty() && (linkTableState == RUNNING)) {
                 try {
                     pullQ.wait(maxwait);
                 } catch (Exception e) {
@@ -668,10 +633,14 @@ public class ServerLinkTable implements HttpTunnelDefaults {
                 maxwait -= (System.currentTimeMillis() - startTime);
 
                 if (maxwait <= 0) {
-                    return null;
+                    return (stream ? v : null);
                 }
             }
 
+            if (stream && (linkTableState != RUNNING)) {
+                return null;
+            }
+
             if (pullQ.isEmpty()) {
                 return v;
             }
@@ -729,14 +698,58 @@ public class ServerLinkTable implements HttpTunnelDefaults {
         }
 
         if (removeConn) {
-            synchronized (connTable) {
-                connTable.remove(connKey);
-            }
+            connTable.remove(connKey);
         }
 
         return v;
     }
 
+    /**
+     * Set the listener of a streaming request. The listener is run whenever packets are queued for the client, and the
+     * connection does not time out while it is set.
+     *
+     * @return false if the connection is gone
+     */
+    public boolean setStreamListener(String connIdStr, String serverName, Runnable listener) {
+        Connection conn = getConnection(connIdStr, serverName);
+
+        if (conn == null || linkTableState != RUNNING) {
+            return false;
+        }
+
+        conn.setStreamListener(listener);
+
+        return true;
+    }
+
+    public void removeStreamListener(String connIdStr, String serverName, Runnable listener) {
+        Connection conn = getConnection(connIdStr, serverName);
+
+        if (conn != null) {
+            conn.removeStreamListener(listener);
+        }
+    }
+
+    private Connection getConnection(String connIdStr, String serverName) {
+        if (serverName == null) {
+            return null;
+        }
+
+        Connection conn = null;
+
+        try {
+            conn = connTable.get(new ConnKey(serverName, connIdStr));
+        } catch (Exception e) {
+            return null;
+        }
+
+        if (conn == null || !sameServerName(serverName, conn)) {
+            return null;
+        }
+
+        return conn;
+    }
+
     public void retrySendPacket(HttpTunnelPacket p, String connIdStr, String serverName) {
         if (serverName == null) {
             return;
@@ -752,11 +765,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             return;
         }
 
-        Connection conn = null;
-
-        synchronized (connTable) {
-            conn = (Connection) connTable.get(connKey);
-        }
+        Connection conn = connTable.get(connKey);
 
         if (conn == null) {
             return;
@@ -772,6 +781,8 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             pullQ.insertElementAt(p, 0);
             pullQ.notifyAll();
         }
+
+        conn.packetsQueued();
     }
 
     public void retrySendPackets(Vector v, String connIdStr, String serverName) {
@@ -789,11 +800,7 @@ public class ServerLinkTable implements HttpTunnelDefaults {
             return;
         }
 
-        Connection conn = null;
-
-        synchronized (connTable) {
-            conn = (Connection) connTable.get(connKey);
-        }
+        Connection conn = connTable.get(connKey);
 
         if (conn == null) {
             return;
@@ -812,6 +819,8 @@ public class ServerLinkTable implements HttpTunnelDefaults {
 
             pullQ.notifyAll();
         }
+
+        conn.packetsQueued();
     }
 
     protected void checkConnectionTimeouts() {
@@ -823,48 +832,17 @@ public class ServerLinkTable implements HttpTunnelDefaults {
 
         lastCheck = now;
 
-        Vector removeList = new Vector();
-
-        synchronized (connTable) {
-            Enumeration conns = connTable.keys();
-
-            while (conns.hasMoreElements()) {
-                ConnKey s = (ConnKey) conns.nextElement();
-                Connection conn = (Connection) connTable.get(s);
-
-                if (conn.checkConnectionTimeout(now)) {
-                    removeList.addElement(s);
-                }
-            }
-        }
-
-        for (int i = 0; i < removeList.size(); i++) {
-            ConnKey s = (ConnKey) removeList.elementAt(i);
-            Connection conn = null;
-
-            synchronized (connTable) {
-                conn = (Connection) connTable.get(s);
-            }
-
-            int connId = s.getConnId();
-            abortServerConnection(connId, conn);
+        for (Map.Entry<ConnKey, Connection> entry : connTable.entrySet()) {
+            Connection conn = entry.getValue();
 
-            synchronized (connTable) {
-                connTable.remove(removeList.elementAt(i));
+            if (conn.checkConnectionTimeout(now) && connTable.remove(entry.getKey(), conn)) {
+                abortServerConnection(entry.getKey().getConnId(), conn);
             }
         }
     }
 
     public Vector getServerList() {
-        Vector list = new Vector();
-
-        synchronized (linkTable) {
-            for (Enumeration e = linkTable.keys(); e.hasMoreElements();) {
-                list.addElement(e.nextElement());
-            }
-        }
-
-        return list;
+        return new Vector(linkTable.keySet());
     }
 
     public int getServletPort() {
@@ -1170,10 +1148,11 @@ class HelperThread extends Thread {
 
 class Connection {
     private Vector pullQ = new Vector();
-    private int pullPeriod = -1;
+    private volatile int pullPeriod = -1;
     private ServerLink link = null;
     private boolean inUse = false;
     private long lastRequestTime = 0;
+    private Runnable streamListener = null;
 
     Connection(ServerLink link) {
         this.link = link;
@@ -1218,6 +1197,33 @@ class Connection {
         return link;
     }
 
+    public synchronized void setStreamListener(Runnable listener) {
+        this.streamListener = listener;
+        this.inUse = true;
+    }
+
+    public synchronized void removeStreamListener(Runnable listener) {
+        if (streamListener == listener) {
+            streamListener = null;
+            setInUse(false);
+        }
+    }
+
+    /**
+     * Called after packets are added to the pullQ
+     */
+    public void packetsQueued() {
+        Runnable listener;
+
+        synchronized (this) {
+            listener = streamListener;
+        }
+
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
     public void setPullPeriod(int pullPeriod) {
         this.pullPeriod = pullPeriod;
     }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.httptunnel.tunnel.servlet;
+
+import com.sun.messaging.jmq.httptunnel.tunnel.HttpTunnelPacket;
+import com.sun.messaging.jmq.httptunnel.api.share.HttpTunnelDefaults;
+
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+
+/**
+ * Writes a stream response of an async request. The ServerLinkTable signals the writer when packets are queued for the
+ * connection and a pool thread writes them, so that an open stream does not hold a thread while it is idle. A timer
+ * writes a no-op packet when the stream has been idle for STREAM_KEEPALIVE_PERIOD and ends the stream at its end time.
+ */
+class StreamWriter implements AsyncListener, HttpTunnelDefaults {
+    private static final long KEEPALIVE_CHECK_PERIOD = STREAM_KEEPALIVE_PERIOD / 4;
+
+    private final AsyncContext ac;
+    private final ServletOutputStream sos;
+    private final ServerLinkTable linkTable;
+    private final String connIdStr;
+    private final String serverName;
+    private final long endTime;
+    private final Runnable listener = this::signal;
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private ExecutorService writers = null;
+    private ScheduledFuture<?> keepAlive = null;
+    private boolean registered = false;
+    private boolean done = false;
+    private long lastWriteTime = 0;
+
+    StreamWriter(AsyncContext ac, ServletOutputStream sos, ServerLinkTable linkTable, String connIdStr, String serverName, long endTime) {
+        this.ac = ac;
+        this.sos = sos;
+        this.linkTable = linkTable;
+        this.connIdStr = connIdStr;
+        this.serverName = serverName;
+        this.endTime = endTime;
+    }
+
+    synchronized void start(ExecutorService writers, ScheduledExecutorService timer) {
+        this.writers = writers;
+        lastWriteTime = System.currentTimeMillis();
+
+        // the container ends the request if the timer does not
+        ac.setTimeout(endTime - lastWriteTime + STREAM_KEEPALIVE_PERIOD);
+        ac.addListener(this);
+
+        // if the connection is gone, write whatever the table has for the client and end the stream
+        registered = linkTable.setStreamListener(connIdStr, serverName, listener);
+
+        if (registered) {
+            keepAlive = timer.scheduleWithFixedDelay(this::checkKeepAlive, KEEPALIVE_CHECK_PERIOD, KEEPALIVE_CHECK_PERIOD, TimeUnit.MILLISECONDS);
+        }
+
+        signal();
+    }
+
+    /**
+     * Called when packets are queued for the client
+     */
+    void signal() {
+        if (pending.compareAndSet(false, true)) {
+            execute(this::writePackets);
+        }
+    }
+
+    private void checkKeepAlive() {
+        execute(this::keepAlive);
+    }
+
+    private void execute(Runnable task) {
+        try {
+            writers.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the servlet is shutting down
+            finish(true);
+        }
+    }
+
+    private synchronized void writePackets() {
+        pending.set(false);
+
+        while (!done) {
+            Vector v = linkTable.pollPackets(connIdStr, serverName);
+
+            if (v == null) {
+                finish(true);
+
+                return;
+            }
+
+            if (v.isEmpty()) {
+                if (!registered) {
+                    finish(true);
+                }
+
+                return;
+            }
+
+            try {
+                for (int i = 0; i < v.size(); i++) {
+                    HttpTunnelPacket p = (HttpTunnelPacket) v.elementAt(i);
+                    p.writePacket(sos);
+                }
+            } catch (Exception e) {
+                // Obvious failure - resend the packets.
+                linkTable.retrySendPackets(v, connIdStr, serverName);
+                finish(true);
+
+                return;
+            }
+
+            lastWriteTime = System.currentTimeMillis();
+
+            if (((HttpTunnelPacket) v.lastElement()).getPacketType() == CONN_ABORT_PACKET) {
+                finish(true);
+
+                return;
+            }
+        }
+    }
+
+    private synchronized void keepAlive() {
+        if (done) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now >= endTime) {
+            finish(true);
+
+            return;
+        }
+
+        if (now - lastWriteTime < STREAM_KEEPALIVE_PERIOD) {
+            return;
+        }
+
+        // keep the stream alive, and find out if the client is gone
+        try {
+            HttpTunnelServlet.genNoOpPacket().writePacket(sos);
+        } catch (Exception e) {
+            finish(true);
+
+            return;
+        }
+
+        lastWriteTime = now;
+    }
+
+    private synchronized void finish(boolean complete) {
+        if (done) {
+            return;
+        }
+
+        done = true;
+
+        if (keepAlive != null) {
+            keepAlive.cancel(false);
+        }
+
+        if (registered) {
+            linkTable.removeStreamListener(connIdStr, serverName, listener);
+        }
+
+        if (complete) {
+            try {
+                ac.complete();
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        finish(false);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        finish(true);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        finish(true);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.httptunnel.tunnel.servlet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.httptunnel.api.share.HttpTunnelDefaults;
+import com.sun.messaging.jmq.httptunnel.tunnel.HttpTunnelPacket;
+
+class HttpTunnelServletTest implements HttpTunnelDefaults {
+    private static final String SERVER = "broker";
+    private static final int CONN_ID = 10;
+    private static final String CONN_ID_STR = String.valueOf(CONN_ID);
+
+    private ServerLinkTable table;
+    private ServerLink link;
+    private HttpTunnelServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private PacketOutputStream out;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ServletConfig cfg = mock(ServletConfig.class);
+        when(cfg.getServletContext()).thenReturn(mock(ServletContext.class));
+        when(cfg.getInitParameter("servletPort")).thenReturn("0");
+        table = new ServerLinkTable(cfg);
+
+        link = mock(ServerLink.class);
+        when(link.getServerName()).thenReturn(SERVER);
+        table.updateConnection(CONN_ID, -1, link);
+
+        servlet = new HttpTunnelServlet();
+        servlet.linkTable = table;
+        servlet.servletContext = mock(ServletContext.class);
+        servlet.inService = true;
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        out = new PacketOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
+    }
+
+    @AfterEach
+    void tearDown() {
+        servlet.destroy();
+    }
+
+    static HttpTunnelPacket packet(int type, int connId, int sequence) {
+        HttpTunnelPacket p = new HttpTunnelPacket();
+        p.setPacketType(type);
+        p.setConnId(connId);
+        p.setSequence(sequence);
+        p.setWinsize(0);
+        p.setChecksum(0);
+        p.setPacketBody(type == DATA_PACKET ? ("data" + sequence).getBytes() : null);
+
+        return p;
+    }
+
+    private AsyncContext startAsync() {
+        AsyncContext ac = mock(AsyncContext.class);
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(request, response)).thenReturn(ac);
+
+        return ac;
+    }
+
+    private static void assertPacket(HttpTunnelPacket p, int type, int sequence) {
+        assertEquals(type, p.getPacketType());
+        assertEquals(sequence, p.getSequence());
+    }
+
+    @Test
+    void streamsPacketsFromAsyncContext() throws Exception {
+        AsyncContext ac = startAsync();
+
+        // returns without waiting for packets
+        servlet.handleStream(request, response, CONN_ID_STR, SERVER);
+
+        verify(response).setHeader(STREAM_RESPONSE_HEADER, "true");
+        verify(ac, never()).complete();
+
+        table.receivePacket(packet(DATA_PACKET, CONN_ID, 1), link);
+        table.receivePacket(packet(DATA_PACKET, CONN_ID, 2), link);
+        table.receivePacket(packet(CONN_ABORT_PACKET, CONN_ID, 0), link);
+
+        verify(ac, timeout(10000)).complete();
+
+        List<HttpTunnelPacket> packets = out.getPackets();
+        assertEquals(3, packets.size());
+        assertPacket(packets.get(0), DATA_PACKET, 1);
+        assertPacket(packets.get(1), DATA_PACKET, 2);
+        assertPacket(packets.get(2), CONN_ABORT_PACKET, 0);
+        assertNull(table.pollPackets(CONN_ID_STR, SERVER));
+    }
+
+    @Test
+    void streamWritesPacketsQueuedBeforeItStarted() throws Exception {
+        AsyncContext ac = startAsync();
+        table.receivePacket(packet(DATA_PACKET, CONN_ID, 1), link);
+
+        servlet.handleStream(request, response, CONN_ID_STR, SERVER);
+
+        assertTrue(waitForPackets(1));
+        assertPacket(out.getPackets().get(0), DATA_PACKET, 1);
+        verify(ac, never()).complete();
+    }
+
+    @Test
+    void endsStreamOfGoneConnection() throws Exception {
+        AsyncContext ac = startAsync();
+
+        servlet.handleStream(request, response, "11", SERVER);
+
+        verify(ac, timeout(10000)).complete();
+        assertTrue(out.getPackets().isEmpty());
+    }
+
+    @Test
+    void endsStreamWhenServletIsDestroyed() throws Exception {
+        AsyncContext ac = startAsync();
+
+        servlet.handleStream(request, response, CONN_ID_STR, SERVER);
+        servlet.destroy();
+
+        verify(ac, timeout(10000)).complete();
+    }
+
+    @Test
+    void streamsFromServletThreadWithoutAsync() throws Exception {
+        when(request.isAsyncSupported()).thenReturn(false);
+        table.receivePacket(packet(DATA_PACKET, CONN_ID, 1), link);
+        table.receivePacket(packet(CONN_ABORT_PACKET, CONN_ID, 0), link);
+
+        servlet.handleStream(request, response, CONN_ID_STR, SERVER);
+
+        verify(request, never()).startAsync(any(), any());
+        verify(response).setHeader(STREAM_RESPONSE_HEADER, "true");
+        List<HttpTunnelPacket> packets = out.getPackets();
+        assertEquals(2, packets.size());
+        assertPacket(packets.get(0), DATA_PACKET, 1);
+        assertPacket(packets.get(1), CONN_ABORT_PACKET, 0);
+    }
+
+    @Test
+    void pullReturnsQueuedPackets() throws Exception {
+        table.receivePacket(packet(DATA_PACKET, CONN_ID, 1), link);
+        table.receivePacket(packet(DATA_PACKET, CONN_ID, 2), link);
+
+        servlet.handlePull(request, response, CONN_ID_STR, SERVER);
+
+        List<HttpTunnelPacket> packets = out.getPackets();
+        assertEquals(2, packets.size());
+        assertPacket(packets.get(0), DATA_PACKET, 1);
+        assertPacket(packets.get(1), DATA_PACKET, 2);
+        verify(response, never()).setHeader(eq(STREAM_RESPONSE_HEADER), any());
+    }
+
+    @Test
+    void pullWithPullPeriodDoesNotWait() throws Exception {
+        table.updateConnection(CONN_ID, 5, link);
+
+        servlet.handlePull(request, response, CONN_ID_STR, SERVER);
+
+        List<HttpTunnelPacket> packets = out.getPackets();
+        assertEquals(1, packets.size());
+        assertEquals(NO_OP_PACKET, packets.get(0).getPacketType());
+    }
+
+    private boolean waitForPackets(int count) throws Exception {
+        long end = System.currentTimeMillis() + 10000;
+
+        while (out.getPackets().size() < count) {
+            if (System.currentTimeMillis() > end) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+
+        return true;
+    }
+
+    static class PacketOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void write(int b) {
+            bos.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            bos.write(b, off, len);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        synchronized List<HttpTunnelPacket> getPackets() throws IOException {
+            ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
+            List<HttpTunnelPacket> packets = new ArrayList<>();
+
+            while (bis.available() > 0) {
+                HttpTunnelPacket p = new HttpTunnelPacket();
+                p.readPacket(bis);
+                packets.add(p);
+            }
+
+            return packets;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.httptunnel.tunnel.servlet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.httptunnel.api.share.HttpTunnelDefaults;
+import com.sun.messaging.jmq.httptunnel.tunnel.HttpTunnelPacket;
+
+class ServerLinkTableTest implements HttpTunnelDefaults {
+    private ServerLinkTable table;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ServletConfig cfg = mock(ServletConfig.class);
+        when(cfg.getServletContext()).thenReturn(mock(ServletContext.class));
+        when(cfg.getInitParameter("servletPort")).thenReturn("0");
+        table = new ServerLinkTable(cfg);
+    }
+
+    @AfterEach
+    void tearDown() {
+        table.shuttingDown();
+        table.destroy();
+    }
+
+    private ServerLink addServer(String serverName) {
+        ServerLink link = mock(ServerLink.class);
+        when(link.getServerName()).thenReturn(serverName);
+        when(link.getListenState()).thenReturn(true);
+        table.updateServerName(link);
+
+        return link;
+    }
+
+    private static HttpTunnelPacket packet(int connId, int sequence) {
+        return HttpTunnelServletTest.packet(DATA_PACKET, connId, sequence);
+    }
+
+    @Test
+    void createsConnectionsConcurrently() throws Exception {
+        ServerLink link = addServer("broker");
+        Set<Integer> connIds = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        int connId = table.createNewConn("broker");
+                        assertTrue(connIds.add(connId));
+                        table.receivePacket(packet(connId, i), link);
+
+                        Vector v = table.pollPackets(String.valueOf(connId), "broker");
+                        assertEquals(1, v.size());
+                        assertEquals(i, ((HttpTunnelPacket) v.elementAt(0)).getSequence());
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1600, connIds.size());
+    }
+
+    @Test
+    void rejectsConflictingServerName() {
+        addServer("broker");
+        ServerLink other = mock(ServerLink.class);
+        when(other.getServerName()).thenReturn("broker");
+
+        assertThrows(IllegalStateException.class, () -> table.updateServerName(other));
+        assertEquals(List.of("broker"), table.getServerList());
+    }
+
+    @Test
+    void serverDownAbortsItsConnectionsOnly() {
+        ServerLink a = addServer("a");
+        addServer("b");
+        int connA = table.createNewConn("a");
+        int connB = table.createNewConn("b");
+
+        table.serverDown(a);
+
+        verify(a).shutdown();
+        Vector v = table.pollPackets(String.valueOf(connA), "a");
+        assertEquals(1, v.size());
+        assertEquals(CONN_ABORT_PACKET, ((HttpTunnelPacket) v.elementAt(0)).getPacketType());
+        assertTrue(table.pollPackets(String.valueOf(connB), "b").isEmpty());
+        assertEquals(List.of("b"), table.getServerList());
+    }
+
+    @Test
+    void runsStreamListenerWhenPacketsAreQueued() {
+        ServerLink link = addServer("broker");
+        int connId = table.createNewConn("broker");
+        String connIdStr = String.valueOf(connId);
+        AtomicInteger signals = new AtomicInteger();
+        Runnable listener = signals::incrementAndGet;
+
+        assertTrue(table.setStreamListener(connIdStr, "broker", listener));
+        table.receivePacket(packet(connId, 1), link);
+        table.retrySendPackets(table.pollPackets(connIdStr, "broker"), connIdStr, "broker");
+        assertEquals(2, signals.get());
+
+        table.removeStreamListener(connIdStr, "broker", listener);
+        table.receivePacket(packet(connId, 2), link);
+        assertEquals(2, signals.get());
+
+        assertFalse(table.setStreamListener("1", "broker", listener));
+        assertFalse(table.setStreamListener(connIdStr, "other", listener));
+    }
+
+    @Test
+    void shuttingDownEndsWaitingStreams() throws Exception {
+        addServer("broker");
+        int connId = table.createNewConn("broker");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Vector> f = executor.submit(() -> table.waitForPackets(String.valueOf(connId), "broker", true));
+            Thread.sleep(100);
+
+            table.shuttingDown();
+
+            assertNull(f.get(10, TimeUnit.SECONDS));
+            assertThrows(IllegalStateException.class, () -> addServer("other"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
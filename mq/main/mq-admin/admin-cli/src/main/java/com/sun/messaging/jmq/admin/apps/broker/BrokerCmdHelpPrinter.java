@@ -289,6 +289,10 @@ public class BrokerCmdHelpPrinter implements CommonHelpPrinter, BrokerCmdOptions
         row[1] = ar.getString(ar.I_JMQCMD_DST_RELOAD_XML_SCHEMA_ON_FAILURE);
         bcp.add(row);
 
+        row[0] = indent + PROP_NAME_DISPATCH_POLICY;
+        row[1] = ar.getString(ar.I_JMQCMD_DST_DISPATCH_POLICY);
+        bcp.add(row);
+
         bcp.print();
 
         Globals.stdOutPrintln("");
@@ -334,6 +334,11 @@ public interface BrokerCmdOptions {
     String PROP_NAME_XML_SCHEMA_URI_LIST = "XMLSchemaURIList";
     String PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE = "reloadXMLSchemaOnFailure";
 
+    /*
+     * Property name for the queue dispatch policy
+     */
+    String PROP_NAME_DISPATCH_POLICY = "dispatchPolicy";
+
     /*
      * Queue flavour property values
      */
@@ -520,7 +525,7 @@ public interface BrokerCmdOptions {
     String[] CREATE_DST_QUEUE_VALID_ATTRS = { PROP_NAME_OPTION_MAX_MESG_BYTE, PROP_NAME_OPTION_MAX_PER_MESG_SIZE, PROP_NAME_OPTION_MAX_MESG,
             PROP_NAME_MAX_FAILOVER_CONSUMER_COUNT, PROP_NAME_MAX_ACTIVE_CONSUMER_COUNT, PROP_NAME_IS_LOCAL_DEST, PROP_NAME_LIMIT_BEHAVIOUR,
             PROP_NAME_LOCAL_DELIVERY_PREF, PROP_NAME_CONSUMER_FLOW_LIMIT, PROP_NAME_MAX_PRODUCERS, PROP_NAME_USE_DMQ, PROP_NAME_VALIDATE_XML_SCHEMA_ENABLED,
-            PROP_NAME_XML_SCHEMA_URI_LIST, PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE };
+            PROP_NAME_XML_SCHEMA_URI_LIST, PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE, PROP_NAME_DISPATCH_POLICY };
 
     String[] CREATE_DST_QUEUE_DEPRECATED_ATTRS = { PROP_NAME_QUEUE_FLAVOUR };
 
@@ -554,7 +559,7 @@ public interface BrokerCmdOptions {
     String[] UPDATE_DST_QUEUE_VALID_ATTRS = { PROP_NAME_OPTION_MAX_MESG_BYTE, PROP_NAME_OPTION_MAX_PER_MESG_SIZE, PROP_NAME_OPTION_MAX_MESG,
             PROP_NAME_MAX_FAILOVER_CONSUMER_COUNT, PROP_NAME_MAX_ACTIVE_CONSUMER_COUNT, PROP_NAME_LIMIT_BEHAVIOUR, PROP_NAME_LOCAL_DELIVERY_PREF,
             PROP_NAME_CONSUMER_FLOW_LIMIT, PROP_NAME_MAX_PRODUCERS, PROP_NAME_USE_DMQ, PROP_NAME_VALIDATE_XML_SCHEMA_ENABLED, PROP_NAME_XML_SCHEMA_URI_LIST,
-            PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE };
+            PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE, PROP_NAME_DISPATCH_POLICY };
 
     String[] UPDATE_DST_TOPIC_VALID_ATTRS = { PROP_NAME_OPTION_MAX_MESG_BYTE, PROP_NAME_OPTION_MAX_PER_MESG_SIZE, PROP_NAME_OPTION_MAX_MESG,
             PROP_NAME_LIMIT_BEHAVIOUR, PROP_NAME_CONSUMER_FLOW_LIMIT, PROP_NAME_MAX_PRODUCERS, PROP_NAME_USE_DMQ, PROP_NAME_VALIDATE_XML_SCHEMA_ENABLED,
@@ -584,7 +589,7 @@ public interface BrokerCmdOptions {
             PROP_NAME_MAX_ACTIVE_CONSUMER_COUNT, PROP_NAME_IS_LOCAL_DEST, PROP_NAME_LIMIT_BEHAVIOUR, PROP_NAME_LOCAL_DELIVERY_PREF,
             PROP_NAME_CONSUMER_FLOW_LIMIT, PROP_NAME_MAX_PRODUCERS, PROP_NAME_OPTION_CUR_MESG_BYTE, PROP_NAME_OPTION_CUR_MESG, PROP_NAME_OPTION_CUR_UNACK_MESG,
             PROP_NAME_OPTION_CUR_PRODUCERS, PROP_NAME_OPTION_CUR_A_CONSUMERS, PROP_NAME_OPTION_CUR_B_CONSUMERS, PROP_NAME_USE_DMQ,
-            PROP_NAME_VALIDATE_XML_SCHEMA_ENABLED, PROP_NAME_XML_SCHEMA_URI_LIST, PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE };
+            PROP_NAME_VALIDATE_XML_SCHEMA_ENABLED, PROP_NAME_XML_SCHEMA_URI_LIST, PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE, PROP_NAME_DISPATCH_POLICY };
 
     String[] GETATTR_DST_TOPIC_VALID_ATTRS = {
             /*
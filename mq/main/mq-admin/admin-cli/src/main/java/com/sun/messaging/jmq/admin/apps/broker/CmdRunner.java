@@ -2249,6 +2249,11 @@ public class CmdRunner implements BrokerCmdOptions, BrokerConstants, AdminEventL
             row[1] = prop;
             bcp.add(row);
         }
+        if ((prop = destAttrs.getProperty(PROP_NAME_DISPATCH_POLICY)) != null) {
+            row[0] = ar.getString(ar.I_JMQCMD_DST_DISPATCH_POLICY);
+            row[1] = prop;
+            bcp.add(row);
+        }
         bcp.println();
 
         Globals.stdOutPrintln(ar.getString(ar.I_JMQCMD_SPECIFY_BKR));
@@ -2324,6 +2329,9 @@ public class CmdRunner implements BrokerCmdOptions, BrokerConstants, AdminEventL
             if ((prop = destAttrs.getProperty(PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE)) != null) {
                 destInfo.setReloadXMLSchemaOnFailure(Boolean.parseBoolean(prop));
             }
+            if ((prop = destAttrs.getProperty(PROP_NAME_DISPATCH_POLICY)) != null) {
+                destInfo.setDispatchPolicy(prop);
+            }
 
             connectToBroker(broker);
 
@@ -3481,6 +3489,10 @@ public class CmdRunner implements BrokerCmdOptions, BrokerConstants, AdminEventL
             if (propName.equals(PROP_NAME_RELOAD_XML_SCHEMA_ON_FAILURE)) {
                 di.setReloadXMLSchemaOnFailure(Boolean.parseBoolean(value));
             }
+
+            if (propName.equals(PROP_NAME_DISPATCH_POLICY)) {
+                di.setDispatchPolicy(value);
+            }
         }
 
         return (di);
@@ -3762,6 +3774,12 @@ public class CmdRunner implements BrokerCmdOptions, BrokerConstants, AdminEventL
                     }
                     bcp.add(row);
 
+                    if (DestType.isQueue(destTypeMask)) {
+                        row[0] = ar.getString(ar.I_JMQCMD_DST_DISPATCH_POLICY);
+                        row[1] = dInfo.dispatchPolicy;
+                        bcp.add(row);
+                    }
+
                     bcp.println();
 
                     Globals.stdOutPrintln(ar.getString(ar.I_JMQCMD_QUERY_DST_SUC));
@@ -6210,6 +6228,10 @@ public class CmdRunner implements BrokerCmdOptions, BrokerConstants, AdminEventL
                             Globals.stdOutPrintln(Boolean.toString(dInfo.reloadXMLSchemaOnFailure()));
                             retValue = 0;
 
+                        } else if (PROP_NAME_DISPATCH_POLICY.equals(attrName)) {
+                            Globals.stdOutPrintln(dInfo.dispatchPolicy);
+                            retValue = 0;
+
                         } else {
                             // Should not get here since we check for valid attribute
                             // names in BrokerCmd.checkGetAttr().
@@ -884,6 +884,7 @@ public class AdminResources extends MQResourceBundle {
     final public static String I_JMQCMD_MIGRATE_PARTITION_FAIL = "A1820";
     final public static String I_JMQCMD_MIGRATE_PARTITION_FAIL_STATUS = "A1821";
     final public static String I_JMQCMD_MIGRATE_PARTITION_NOOP = "A1822";
+    final public static String I_JMQCMD_DST_DISPATCH_POLICY = "A1823";
 
     // 2000-2999 Warning Messages
     final public static String W_OBJ_ALREADY_EXISTS = "A2000";
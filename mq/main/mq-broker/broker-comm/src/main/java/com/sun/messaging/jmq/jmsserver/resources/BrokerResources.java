@@ -673,6 +673,16 @@ public class BrokerResources extends MQResourceBundle {
     final public static String I_CREATED_DB_CONNECTIONS = "B1520";
     final public static String I_UPDATE_BROKER_PROPS = "B1521";
     final public static String I_CREATE_THREADPOOL_FOR_SERVICE = "B1522";
+    final public static String I_PURGE_DEST_IN_BACKGROUND = "B1523";
+    final public static String I_PURGE_DEST_PROGRESS = "B1524";
+    final public static String I_DMQ_RATE_LIMITED = "B1525";
+    final public static String I_MSGLOG_LOADED = "B1526";
+    final public static String I_MIGRATED_TXNACK_STORE = "B1527";
+    final public static String I_LAZY_LOAD_DEST = "B1528";
+    final public static String I_LAZY_LOAD_DEST_COMPLETE = "B1529";
+    final public static String I_TAKEOVER_PARALLEL_LOAD = "B1530";
+    final public static String I_FILE_STORE_PARTITION = "B1531";
+    final public static String I_MSGSTORE_MIGRATED = "B1532";
 
     // 2000-2999 Warning Messages
     final public static String W_AUTH_FAILED = "B2000";
@@ -989,6 +999,9 @@ public class BrokerResources extends MQResourceBundle {
     final public static String W_STORE_TXN_ACK_EXIST = "B2296";
     final public static String W_CLUSTER_INVALID_PACKET_SIZE_READ = "B2297";
     final public static String W_BROKER_IS_SHUTDOWN = "B2298";
+    final public static String W_DMQ_SYNC_FAILED = "B2299";
+    final public static String W_MSGLOG_TRUNCATED = "B2300";
+    final public static String W_FILE_PARTITION_MODE_IGNORED = "B2301";
 
     // 3000-3999 Error Messages
     final public static String E_PERSISTENT_OPEN = "B3000";
@@ -1794,6 +1807,7 @@ public class BrokerResources extends MQResourceBundle {
     final public static String X_MAX_ROLLBACKS_MSG_NO_ROLLBACK = "B4485";
     final public static String X_NOTIFY_RELEASE_REMOTE_MSG_ACTIVE_CONSUMER = "B4486";
     final public static String X_BAD_SELECTOR = "B4487";
+    final public static String X_LOAD_PARTITION_ID_FAILED = "B4488";
 
     /***************** End of message key constants *******************/
 
@@ -30,7 +30,14 @@ import com.sun.messaging.jmq.jmsserver.config.BrokerConfig;
 import com.sun.messaging.jmq.jmsserver.tlsutil.KeystoreUtil;
 import com.sun.messaging.jmq.jmsserver.tlsutil.SSLPropertyMap;
 import com.sun.messaging.jmq.jmsserver.persist.api.Store;
+import com.sun.messaging.jmq.jmsserver.service.Service;
+import com.sun.messaging.jmq.jmsserver.service.ServiceManager;
+import com.sun.messaging.jmq.jmsserver.service.imq.IMQDirectService;
+import com.sun.messaging.jmq.jmsserver.service.imq.websocket.stomp.StompConnectionImpl;
+import com.sun.messaging.jmq.util.ServiceState;
 import com.sun.messaging.bridge.api.BridgeBaseContext;
+import com.sun.messaging.bridge.api.StompConnection;
+import com.sun.messaging.bridge.api.StompProtocolHandler;
 
 /**
  *
@@ -96,6 +103,19 @@ public class BridgeBaseContextAdapter implements BridgeBaseContext, SSLPropertyM
         return Globals.getPUService();
     }
 
+    @Override
+    public StompConnection createDirectStompConnection(String serviceName, StompProtocolHandler sph) throws Exception {
+        ServiceManager sm = Globals.getServiceManager();
+        Service svc = (sm == null ? null : sm.getService(serviceName));
+        if (!(svc instanceof IMQDirectService) || !((IMQDirectService) svc).isDirect()) {
+            throw new Exception("No direct mode connection service " + serviceName + " available");
+        }
+        if (sm.getServiceState(serviceName) != ServiceState.RUNNING) {
+            throw new Exception("Direct mode connection service " + serviceName + " is not running");
+        }
+        return new StompConnectionImpl(sph, ((IMQDirectService) svc).getJMSService());
+    }
+
     /**
      *
      * @return the runtime configuration for Bridge Services Manager
@@ -40,4 +40,9 @@ public interface ConnToPartitionStrategyContext {
      * @return the number persistent messages in this context
      */
     long getPersistMessageCount();
+
+    /**
+     * @return the recent number of persistent message bytes per second produced in this context
+     */
+    long getPersistByteRate();
 }
@@ -129,6 +129,11 @@ public class Consumer implements ConsumerSpi, EventBroadcaster, Serializable {
 
     private transient Object mlistener = null;
 
+    /**
+     * bounds how many messages are pulled from the parent list at a time, null pulls greedily
+     */
+    private transient DispatchPolicy dispatchPolicy = null;
+
     private transient boolean localConsumerCreationReady = false;
 
     private static final int DEFAULT_MSG_MAX_CONSECUTIVE_ROLLBACKS = 0;
@@ -702,6 +707,17 @@ public class Consumer implements ConsumerSpi, EventBroadcaster, Serializable {
         checkState(null);
     }
 
+    /**
+     * the policy (if any) that shares the parent list with the other consumers
+     */
+    public void setDispatchPolicy(DispatchPolicy policy) {
+        dispatchPolicy = policy;
+    }
+
+    public DispatchPolicy getDispatchPolicy() {
+        return dispatchPolicy;
+    }
+
     protected void getMoreMessages(int num) {
         final Map<PartitionedStore, SubSet> ss = new LinkedHashMap<>();
         synchronized (parentListMap) {
@@ -718,6 +734,10 @@ public class Consumer implements ConsumerSpi, EventBroadcaster, Serializable {
             }
             SubSet pl = null;
             assert ss != null;
+            DispatchPolicy policy = dispatchPolicy;
+            if (policy != null) {
+                num = policy.getDispatchLimit(this, num);
+            }
             while (!isFailover && isActive() && !isPaused() && isValid() && (pl = getNonEmptyParentList(ss, pl)) != null && count < num
                     && (parent == null || !parent.isPaused())) {
 
@@ -729,6 +749,9 @@ public class Consumer implements ConsumerSpi, EventBroadcaster, Serializable {
                 count++;
                 busy = true;
             }
+            if (policy != null && count > 0) {
+                policy.messagesDispatched(this, count);
+            }
         }
 
     }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimerTask;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+import com.sun.messaging.jmq.jmsserver.resources.BrokerResources;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * Bounds the store work done for messages moved to the Dead Message Queue.
+ * <P>
+ *
+ * Batching is off by default. When it is enabled with a <code>batchSize</code> above 1 and the store syncs on every
+ * write, moves to the DMQ are written without a sync and synced together once <code>batchSize</code> moves are pending
+ * or <code>batchInterval</code> milliseconds have passed, so a burst of dead messages costs one sync per batch instead
+ * of one per message. A move then returns before it is synced, and moves not yet synced are lost if the broker
+ * crashes.
+ * <P>
+ *
+ * An optional rate limit caps the number of messages per second moved to the DMQ. Messages over the limit are handled
+ * by the overflow policy: <code>truncateBody</code> still moves the message but without its body,
+ * <code>dropNewest</code> discards the message as if the DMQ was not used for it.
+ */
+class DMQWriter {
+
+    private static boolean DEBUG = false;
+
+    private static final String PREFIX = Globals.IMQ + ".destination.DMQ";
+
+    public static final String BATCH_SIZE_PROP = PREFIX + ".batchSize";
+    public static final String BATCH_INTERVAL_PROP = PREFIX + ".batchInterval";
+    public static final String RATE_LIMIT_PROP = PREFIX + ".rateLimit";
+    public static final String OVERFLOW_POLICY_PROP = PREFIX + ".overflowPolicy";
+
+    public static final String OVERFLOW_TRUNCATE_BODY = "truncateBody";
+    public static final String OVERFLOW_DROP_NEWEST = "dropNewest";
+
+    /**
+     * number of moves synced together, 1 or less syncs every move
+     */
+    private static final int BATCH_SIZE = Globals.getConfig().getIntProperty(BATCH_SIZE_PROP, 1);
+
+    /**
+     * time in milliseconds after which pending moves are synced
+     */
+    private static final long BATCH_INTERVAL = Math.max(1L, Globals.getConfig().getLongProperty(BATCH_INTERVAL_PROP, 100L));
+
+    /**
+     * messages per second moved to the DMQ, 0 for no limit
+     */
+    private static final int RATE_LIMIT = Math.max(0, Globals.getConfig().getIntProperty(RATE_LIMIT_PROP, 0));
+
+    private final Logger logger = Globals.getLogger();
+
+    private final PartitionedStore pstore;
+
+    private final boolean dropNewest;
+
+    /**
+     * destinations with moves not yet synced
+     */
+    private Set<DestinationUID> unsynced = new HashSet<>();
+
+    private int pending = 0;
+
+    private TimerTask syncTask = null;
+
+    private boolean closed = false;
+
+    /**
+     * rate limit state, the limit is enforced as a token bucket holding up to one second of messages
+     */
+    private double tokens = RATE_LIMIT;
+    private long lastRefill = System.currentTimeMillis();
+    private boolean limited = false;
+
+    DMQWriter(PartitionedStore pstore) {
+        this.pstore = pstore;
+
+        String policy = Globals.getConfig().getProperty(OVERFLOW_POLICY_PROP, OVERFLOW_TRUNCATE_BODY);
+        if (policy.equalsIgnoreCase(OVERFLOW_DROP_NEWEST)) {
+            dropNewest = true;
+        } else {
+            if (!policy.equalsIgnoreCase(OVERFLOW_TRUNCATE_BODY)) {
+                logger.log(Logger.WARNING, BrokerResources.E_INTERNAL_BROKER_ERROR, "Unknown " + OVERFLOW_POLICY_PROP + " " + policy + ", using "
+                        + OVERFLOW_TRUNCATE_BODY);
+            }
+            dropNewest = false;
+        }
+    }
+
+    /**
+     * @return true if moves to the DMQ are written without a sync and synced by this writer
+     */
+    boolean isBatching() {
+        return BATCH_SIZE > 1 && Destination.PERSIST_SYNC;
+    }
+
+    /**
+     * @return true if messages over the rate limit are discarded rather than moved with their body truncated
+     */
+    boolean isDropNewest() {
+        return dropNewest;
+    }
+
+    /**
+     * Take a slot for one message to be moved to the DMQ.
+     *
+     * @return false if the rate limit is reached and the overflow policy applies to the message
+     */
+    synchronized boolean acquire() {
+        if (RATE_LIMIT == 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now > lastRefill) {
+            tokens = Math.min(RATE_LIMIT, tokens + (now - lastRefill) * RATE_LIMIT / 1000.0);
+            lastRefill = now;
+        }
+        if (tokens >= 1) {
+            tokens--;
+            limited = false;
+            return true;
+        }
+        if (!limited) {
+            limited = true;
+            logger.log(Logger.INFO, BrokerResources.I_DMQ_RATE_LIMITED, String.valueOf(RATE_LIMIT), (dropNewest ? OVERFLOW_DROP_NEWEST : OVERFLOW_TRUNCATE_BODY));
+        }
+        return false;
+    }
+
+    /**
+     * Record a message moved to the DMQ without a sync. The moves are synced in the calling thread once a batch is full,
+     * otherwise by a timer.
+     *
+     * @param from the destination the message was moved from
+     * @param to the DMQ
+     */
+    void moved(DestinationUID from, DestinationUID to) throws BrokerException {
+        if (!isBatching()) {
+            return;
+        }
+        synchronized (this) {
+            unsynced.add(from);
+            unsynced.add(to);
+            pending++;
+            if (pending < BATCH_SIZE) {
+                if (syncTask == null && !closed) {
+                    syncTask = new SyncTask();
+                    try {
+                        Globals.getTimer().schedule(syncTask, BATCH_INTERVAL);
+                    } catch (IllegalStateException e) {
+                        // timer canceled, the broker is shutting down
+                        syncTask = null;
+                    }
+                }
+                if (syncTask != null) {
+                    return;
+                }
+            }
+        }
+        sync();
+    }
+
+    /**
+     * Sync all pending moves.
+     */
+    void sync() throws BrokerException {
+        Set<DestinationUID> dsts = null;
+        synchronized (this) {
+            if (syncTask != null) {
+                syncTask.cancel();
+                syncTask = null;
+            }
+            if (pending == 0) {
+                return;
+            }
+            dsts = unsynced;
+            unsynced = new HashSet<>();
+            pending = 0;
+        }
+        if (DEBUG) {
+            logger.log(Logger.INFO, "DMQWriter.sync: " + dsts);
+        }
+        for (DestinationUID uid : dsts) {
+            pstore.syncMessages(uid);
+        }
+    }
+
+    /**
+     * Sync pending moves and stop the timer.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            sync();
+        } catch (BrokerException e) {
+            logger.logStack(Logger.WARNING, BrokerResources.W_DMQ_SYNC_FAILED, e);
+        }
+    }
+
+    class SyncTask extends TimerTask {
+        @Override
+        public void run() {
+            synchronized (DMQWriter.this) {
+                if (syncTask != this) {
+                    return;
+                }
+                syncTask = null;
+            }
+            try {
+                sync();
+            } catch (Exception e) {
+                logger.logStack(Logger.WARNING, BrokerResources.W_DMQ_SYNC_FAILED, e);
+            }
+        }
+    }
+}
@@ -54,6 +54,7 @@ import com.sun.messaging.jmq.jmsserver.cluster.api.ClusterBroadcast;
 import com.sun.messaging.jmq.jmsserver.cluster.api.ha.HAMonitorService;
 import com.sun.messaging.jmq.util.log.Logger;
 import com.sun.messaging.jmq.util.SizeString;
+import com.sun.messaging.jmq.util.MQThread;
 import com.sun.messaging.jmq.util.admin.DestinationInfo;
 import com.sun.messaging.jmq.io.Status;
 import com.sun.messaging.jmq.jmsserver.resources.BrokerResources;
@@ -63,6 +64,7 @@ import com.sun.messaging.jmq.jmsserver.management.agent.Agent;
 import com.sun.messaging.jmq.util.lists.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.io.*;
 
 /**
@@ -92,6 +94,7 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
     protected transient SimpleNFLHashMap<SysMessageID, PacketReference> destMessages = null;
     private transient HashMap destMessagesInRemoving = null;
     private transient Object _removeMessageLock = null;
+    private transient DestinationPurger purger = null;
     private boolean dest_inited = false;
 
     private transient int refCount = 0;
@@ -121,6 +124,25 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
     transient long remoteBytes = 0;
 
     transient boolean loaded = false;
+
+    /**
+     * stored messages of a lazily loaded destination that are not in destMessages yet, null if there are none. The
+     * index, the count of messages taken from it that are still being loaded and the new messages held back behind it are
+     * guarded by lazyLock. Loaders are serialized on lazyLoadLock so that batches are routed in index order; they read the
+     * store without the destination locked.
+     */
+    private transient volatile LazyMessageIndex lazyIndex = null;
+    private transient AtomicBoolean lazyLoadRunning = new AtomicBoolean(false);
+    private transient Object lazyLock = new Object();
+    private transient Object lazyLoadLock = new Object();
+    private transient int lazyInFlight = 0;
+    private transient long lazyInFlightBytes = 0L;
+    // highest priority taken from the index since nothing was in flight
+    private transient int lazyInFlightTop = 0;
+    private transient List<PacketReference> lazyHeld = new ArrayList<>();
+    // set while the index is scanned for consumers that it can not serve in order, e.g. ones with a selector
+    private transient volatile boolean lazyScan = false;
+
     protected transient SimpleNFLHashMap consumers = new SimpleNFLHashMap();
     protected transient SimpleNFLHashMap producers = new SimpleNFLHashMap();
 
@@ -179,6 +201,24 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
 
     private static final boolean PURGE_DELIVERED_MSG = Globals.getConfig().getBooleanProperty(Globals.IMQ + ".destination.purgeDeliveredMessages", false);
 
+    private static final boolean LAZY_LOAD = Globals.getConfig().getBooleanProperty(Globals.IMQ + ".destination.lazyLoad.enabled", false);
+
+    /**
+     * number of messages of a lazily loaded queue kept in memory, more are loaded when it falls below half of it
+     */
+    private static final int LAZY_LOAD_WINDOW = Math.max(2, Globals.getConfig().getIntProperty(Globals.IMQ + ".destination.lazyLoad.window", 10000));
+
+    /**
+     * number of messages taken from the lazy load index at a time
+     */
+    private static final int LAZY_LOAD_BATCH = Math.max(1, Math.min(1000, LAZY_LOAD_WINDOW / 2));
+
+    /**
+     * number of messages of a lazily loaded queue kept in memory while the index is scanned for consumers with a selector,
+     * the matches come on top of the window
+     */
+    private static final int LAZY_SCAN_WINDOW = 2 * LAZY_LOAD_WINDOW;
+
     public static final boolean PERSIST_SYNC = DestinationList.PERSIST_SYNC;
 
     protected static final int NONE = 0;
@@ -451,6 +491,22 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
 
         }
 
+        Queue dmq = DL.getDMQ();
+        DMQWriter dmqWriter = dmq.dmqWriter;
+        if (dmqWriter != null && !dmqWriter.acquire()) {
+            // over the DMQ rate limit, apply the overflow policy
+            if (dmqWriter.isDropNewest()) {
+                if (getDEBUG() || useVerbose) {
+                    String args[] = { pr.getSysMessageID().toString(), pr.getDestinationUID().toString(),
+                            lookupReasonString(reason, receivedTime, expiredTime, senderTime) };
+                    logger.log(Logger.INFO, BrokerResources.I_DMQ_REMOVING_MSG, args);
+                }
+                return;
+            }
+            truncateBody = true;
+            props.put(DMQ.BODY_TRUNCATED, Boolean.TRUE);
+        }
+
         // OK ... now create the packet
         Packet newp = new Packet();
 
@@ -467,7 +523,6 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             if (truncateBody) {
                 newp.setMessageBody(new byte[0]);
             }
-            Queue dmq = DL.getDMQ();
             ref = PacketReference.createReference(pstore, newp, dmq.getDestinationUID(), null);
             ref.overrideExpireTime(0);
             ref.clearExpireInfo();
@@ -477,6 +532,9 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
                 ref.setSequence(dmq.seqCnt++);
             }
             DL.routeMoveAndForwardMessage(pr, ref, dmq);
+            if (dmqWriter != null) {
+                dmqWriter.moved(pr.getDestinationUID(), dmq.getDestinationUID());
+            }
         } catch (Exception ex) {
             // depending on the type, we either ignore or throw out
             if (reason == RemoveReason.UNDELIVERABLE || reason == RemoveReason.ERROR) {
@@ -1001,6 +1059,15 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
         destMessages = new SimpleNFLHashMap<>();
         destMessagesInRemoving = new HashMap();
         _removeMessageLock = new Object();
+        lazyIndex = null;
+        lazyLoadRunning = new AtomicBoolean(false);
+        lazyLock = new Object();
+        lazyLoadLock = new Object();
+        lazyInFlight = 0;
+        lazyInFlightBytes = 0L;
+        lazyInFlightTop = 0;
+        lazyHeld = new ArrayList<>();
+        lazyScan = false;
         consumers = new SimpleNFLHashMap();
         producers = new SimpleNFLHashMap();
         if (maxConsumerLimit > DestinationList.UNLIMITED) {
@@ -1365,6 +1432,13 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
         }
     }
 
+    /**
+     * @return the pager for this destination's messages, null if its messages are not explicitly paged
+     */
+    public MessagePager getMessagePager() {
+        return null;
+    }
+
     public DestMetricsCounters getMetrics() {
         synchronized (dmc) {
 
@@ -1617,6 +1691,17 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
         return ClusterDeliveryPolicy.NA;
     }
 
+    public void setDispatchPolicy(String name) throws BrokerException {
+        throw new UnsupportedOperationException("dispatch policy not supported for this type of destination");
+    }
+
+    /**
+     * @return the name of the dispatch policy or null if the destination type has none
+     */
+    public String getDispatchPolicyName() {
+        return null;
+    }
+
     public boolean isStored() {
         return !neverStore || stored;
     }
@@ -2039,93 +2124,112 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             load(noerrnotfound);
         }
 
-        try {
+        DestinationPurger p = new DestinationPurger(this, null);
+        p.run();
+        if (p.getException() != null) {
+            throw p.getException();
+        }
+    }
 
-            MemoryManager mm = Globals.getMemManager();
-            int maxpurge = destMessages.size();
-
-            long removedCount = 0L;
-            long indeliveryCount = 0L;
-            boolean do1 = false;
-            boolean oomed = false;
-            List<SysMessageID> list = null;
-            int count = 0;
-            while (maxpurge > 0 && count < maxpurge) {
-                do1 = false;
-                if (oomed) {
-                    do1 = true;
-                    oomed = false;
-                } else if (mm != null && mm.getCurrentLevel() > 0) {
-                    do1 = true;
-                }
-                if (!do1) {
-                    try {
-                        list = new ArrayList<>(destMessages.getAllKeys());
-                        count = maxpurge;
-                    } catch (OutOfMemoryError oom) {
-                        oomed = true;
-                        continue;
-                    }
-                } else {
-                    list = destMessages.getFirstKeys(1);
-                }
-                if (list.isEmpty()) {
-                    break;
-                }
-                count += list.size();
-                RemoveMessageReturnInfo ret = null;
-                SysMessageID sysid = null;
-                Iterator<SysMessageID> itr = list.iterator();
-                while (itr.hasNext()) {
-                    sysid = itr.next();
-                    ret = _removeMessage(sysid, RemoveReason.PURGED, null, null, true);
-                    if (ret.removed) {
-                        removedCount++;
-                    } else if (ret.indelivery) {
-                        indeliveryCount++;
-                    }
-                }
-            } // while maxpurge
-            logger.log(logger.INFO, br.getKString(br.I_NUM_MSGS_PURGED_FROM_DEST, removedCount, uid.getLocalizedName()));
-            if (indeliveryCount > 0) {
-                logger.log(logger.INFO, br.getKString(br.I_NUM_MSGS_INDELIVERY_NOT_PURGED_FROM_DEST, indeliveryCount, uid.getLocalizedName()));
-            }
-            Agent agent = Globals.getAgent();
-            if (agent != null) {
-                agent.notifyDestinationPurge(this);
-            }
+    public void purgeDestination(Filter criteria) throws BrokerException {
+        if (!loaded) {
+            load();
+        }
 
-        } catch (Exception ex) {
-            if (BrokerStateHandler.isShuttingDown()) {
-                logger.log(Logger.INFO, BrokerResources.E_PURGE_DST_FAILED, getName(), ex);
-            } else {
-                logger.logStack(Logger.WARNING, BrokerResources.E_PURGE_DST_FAILED, getName(), ex);
-            }
+        // failures are logged by the purger
+        new DestinationPurger(this, criteria).run();
+    }
 
-            if (ex instanceof BrokerException) {
-                throw (BrokerException) ex;
+    /**
+     * Start purging all messages of the destination in a background thread. If a background purge is already running,
+     * it is returned instead of starting another one. A finished purger is kept, see {@link #getPurger()}, until this
+     * method is called again.
+     *
+     * @return the purger, for its progress
+     */
+    public DestinationPurger purgeDestinationInBackground() throws BrokerException {
+        if (!loaded) {
+            load();
+        }
+        DestinationPurger p = null;
+        synchronized (this) {
+            if (purger != null && !purger.isDone()) {
+                return purger;
             }
-
-            throw new BrokerException(br.getKString(BrokerResources.E_PURGE_DST_FAILED, getName()), ex);
+            p = new DestinationPurger(this, null);
+            p.setBackground(true);
+            purger = p;
         }
+        logger.log(Logger.INFO, br.getKString(BrokerResources.I_PURGE_DEST_IN_BACKGROUND, uid.getLocalizedName(), p.getTotal()));
+        Thread thr = new MQThread(p, "Purge " + getUniqueName());
+        thr.setDaemon(true);
+        thr.start();
+        return p;
     }
 
-    public void purgeDestination(Filter criteria) throws BrokerException {
-        if (!loaded) {
-            load();
+    /**
+     * @return the running or the last finished background purger of this destination, or null
+     */
+    public synchronized DestinationPurger getPurger() {
+        return purger;
+    }
+
+    /**
+     * used by DestinationPurger
+     */
+    List<SysMessageID> getFirstMessageIDs(int count) {
+        if (lazyIndex != null && destMessages.size() < count) {
+            loadLazyMessages(count - destMessages.size());
         }
+        return destMessages.getFirstKeys(count);
+    }
 
-        Map<SysMessageID, PacketReference> m = destMessages.getAll(criteria);
-        Iterator<SysMessageID> itr = m.keySet().iterator();
-        while (itr.hasNext()) {
-            try {
-                removeMessage(itr.next(), RemoveReason.PURGED);
-            } catch (Exception ex) {
-                logger.logStack(Logger.INFO, BrokerResources.E_PURGE_DST_FAILED, getName(), ex);
+    /**
+     * Purge a batch of messages. The messages are removed from memory one by one and then from the store all at once,
+     * with a single sync for the batch.
+     */
+    void purgeMessages(List<SysMessageID> ids, DestinationPurger p) throws BrokerException {
+        List<SysMessageID> storeRemovals = new ArrayList<>(ids.size());
+        try {
+            for (SysMessageID sysid : ids) {
+                RemoveMessageReturnInfo ret = null;
+                try {
+                    ret = _removeMessage(sysid, RemoveReason.PURGED, null, null, true, storeRemovals);
+                } catch (BrokerException | RuntimeException ex) {
+                    if (!p.isContinueOnError()) {
+                        throw ex;
+                    }
+                    logger.logStack(Logger.INFO, BrokerResources.E_PURGE_DST_FAILED, getName(), ex);
+                    p.messageFailed(sysid);
+                    continue;
+                }
+                p.messageProcessed(sysid, ret);
+            }
+        } finally {
+            if (!storeRemovals.isEmpty()) {
+                try {
+                    pstore.removeMessages(uid, storeRemovals, true);
+                } catch (IOException e) {
+                    throw new BrokerException(br.getKString(BrokerResources.E_PURGE_DST_FAILED, getName()), e);
+                }
             }
         }
     }
 
+    /**
+     * called by the DestinationPurger once all messages have been purged
+     */
+    void purgeCompleted(DestinationPurger p) {
+        logger.log(logger.INFO, br.getKString(br.I_NUM_MSGS_PURGED_FROM_DEST, p.getRemovedCount(), uid.getLocalizedName()));
+        if (p.getInDeliveryCount() > 0) {
+            logger.log(logger.INFO, br.getKString(br.I_NUM_MSGS_INDELIVERY_NOT_PURGED_FROM_DEST, p.getInDeliveryCount(), uid.getLocalizedName()));
+        }
+        Agent agent = Globals.getAgent();
+        if (agent != null) {
+            agent.notifyDestinationPurge(this);
+        }
+    }
+
     public Map<SysMessageID, PacketReference> getAll(Filter f) {
         if (!loaded) {
             try {
@@ -2133,6 +2237,14 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             } catch (Exception ex) {
             }
         }
+        // browsers and filtered purges see every match, only those are loaded from the index
+        if (lazyIndex != null) {
+            if (f == null) {
+                loadLazyMessages(Integer.MAX_VALUE);
+            } else {
+                scanLazyMessages(f, Integer.MAX_VALUE, true);
+            }
+        }
 
         return destMessages.getAll(f);
     }
@@ -2159,6 +2271,12 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             dinfo.nMessages += destMessages.size();
             dinfo.nMessageBytes += destMessages.byteSize();
         }
+        if (lazyIndex != null) {
+            synchronized (lazyLock) {
+                dinfo.nMessages += getLazySize();
+                dinfo.nMessageBytes += getLazyByteSize();
+            }
+        }
         if (isQueue()) {
             dinfo.nUnackMessages += getUnackSize();
         } else {
@@ -2179,14 +2297,24 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
         if (!loaded) {
             return size;
         }
-        return destMessages.size();
+        if (lazyIndex == null) {
+            return destMessages.size();
+        }
+        synchronized (lazyLock) {
+            return destMessages.size() + getLazySize();
+        }
     }
 
     public long byteSize() throws UnsupportedOperationException {
         if (!loaded) {
             return bytes;
         }
-        return destMessages.byteSize();
+        if (lazyIndex == null) {
+            return destMessages.byteSize();
+        }
+        synchronized (lazyLock) {
+            return destMessages.byteSize() + getLazyByteSize();
+        }
     }
 
     public int getRemoteSize() {
@@ -2608,6 +2736,9 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             msgsIn += 1;
             msgBytesIn += pkt.byteSize();
             msgsInInternal += 1;
+            if (pkt.isPersistent()) {
+                DL.persistBytesIn(pkt.byteSize());
+            }
             if (msgsInInternal >= Long.MAX_VALUE) {
                 msgsInOutLastResetTime = System.currentTimeMillis();
                 msgsInInternal = 0;
@@ -2879,6 +3010,14 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
 
     private RemoveMessageReturnInfo _removeMessage(SysMessageID id, Reason r, Hashtable dmqProps, PacketReference remoteRef, boolean wait)
             throws BrokerException {
+        return _removeMessage(id, r, dmqProps, remoteRef, wait, null);
+    }
+
+    /**
+     * @param storeRemovals if not null, the store removal of the message is not done here but its id is added to the list
+     */
+    private RemoveMessageReturnInfo _removeMessage(SysMessageID id, Reason r, Hashtable dmqProps, PacketReference remoteRef, boolean wait,
+            List<SysMessageID> storeRemovals) throws BrokerException {
         RemoveMessageReturnInfo ret = new RemoveMessageReturnInfo();
 
         PacketReference ref = null;
@@ -2893,6 +3032,9 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
         // specifically .. we cant remove it IF the Lbit
         // is set
         ref = destMessages.get(id);
+        if (ref == null && lazyIndex != null && r == RemoveReason.REMOVE_ADMIN && loadLazyMessage(id)) {
+            ref = destMessages.get(id);
+        }
         if (ref == null) {
             // message already gone
             DL.removePacketList(id, getDestinationUID(), null/* ref */);
@@ -2999,7 +3141,7 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             // long l = ref.byteSize();
 
             // clears out packet, must happen after DMQ
-            ret.storermerror = !_messageRemoved(ref, ref.byteSize(), r, true);
+            ret.storermerror = !_messageRemoved(ref, ref.byteSize(), r, true, storeRemovals);
 
             ref.destroy();
 
@@ -3301,6 +3443,7 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
         LinkedHashMap preparedTrans = null;
         boolean enforceLimit = true;
         Set deadMsgs = new HashSet();
+        LazyMessageIndex index = null;
 
         int maxloadcnt = size;
         int curcnt = 0;
@@ -3340,9 +3483,22 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
                     throw new BrokerException(emsg);
                 }
 
+                // only plain queue messages are indexed, transacted, delayed and
+                // in-process messages are always loaded
+                if (LAZY_LOAD && isQueue() && !isDMQ() && !neverExpire && takeoverMsgs == null && !takingoverCheck && size > LAZY_LOAD_WINDOW) {
+                    index = new LazyMessageIndex();
+                }
+
                 s = new TreeSet(new RefCompare());
                 while (msgs.hasMoreElements()) {
                     Packet p = (Packet) msgs.nextElement();
+                    if (index != null && p.getTransactionID() == 0L && p.getDeliveryTime() == 0L
+                            && (preparedAcks == null || !preparedAcks.containsKey(p.getSysMessageID()))) {
+                        index.add(p);
+                        curcnt++;
+                        logLoadProgress(curcnt, maxloadcnt);
+                        continue;
+                    }
                     PacketReference pr = PacketReference.createReference(pstore, p, uid, null);
                     if (isDMQ()) {
                         pr.clearDeliveryTimeInfo();
@@ -3382,11 +3538,7 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
                     DL.packetlistAdd(pr.getSysMessageID(), pr.getDestinationUID(), null);
 
                     curcnt++;
-                    if (curcnt > 0 && (curcnt % LOAD_COUNT == 0 || (curcnt > LOAD_COUNT && curcnt == size))) {
-                        String args[] = { toString(), String.valueOf(curcnt), String.valueOf(maxloadcnt), String.valueOf((curcnt * 100) / maxloadcnt) };
-                        logger.log(Logger.INFO, BrokerResources.I_LOADING_DEST_IN_PROCESS, args);
-                    }
-
+                    logLoadProgress(curcnt, maxloadcnt);
                 }
 
             } finally {
@@ -3605,6 +3757,19 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
                     di.setDeliveryReady();
                 }
             }
+
+            if (index != null && !index.isEmpty()) {
+                index.sort();
+                synchronized (lazyLock) {
+                    lazyIndex = index;
+                }
+                loaded = true; // dont recurse
+                loadLazyMessages(LAZY_LOAD_WINDOW);
+                if (lazyIndex == index) {
+                    logger.log(Logger.INFO, br.getKString(BrokerResources.I_LAZY_LOAD_DEST,
+                            new Object[] { String.valueOf(destMessages.size()), toString(), String.valueOf(index.size()) }) + logsuffix);
+                }
+            }
         } catch (Throwable ex) {
             String emsg = Globals.getBrokerResources().getKString(BrokerResources.W_LOAD_DST_FAIL, getName());
             logger.logStack(Logger.ERROR, emsg, ex);
@@ -3634,6 +3799,481 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
 
     }
 
+    private void logLoadProgress(int curcnt, int maxloadcnt) {
+        if (curcnt > 0 && (curcnt % LOAD_COUNT == 0 || (curcnt > LOAD_COUNT && curcnt == size))) {
+            String args[] = { toString(), String.valueOf(curcnt), String.valueOf(maxloadcnt), String.valueOf((curcnt * 100) / maxloadcnt) };
+            logger.log(Logger.INFO, BrokerResources.I_LOADING_DEST_IN_PROCESS, args);
+        }
+    }
+
+    /**
+     * Start loading more messages from the lazy load index in the background if the destination is running low on
+     * messages waiting for delivery, or if the index is being scanned and the matches loaded so far have been consumed.
+     */
+    private void checkLazyLoad() {
+        if (lazyIndex == null || getLazyLoadBacklog() >= (lazyScan ? LAZY_SCAN_WINDOW - LAZY_LOAD_WINDOW / 2 : LAZY_LOAD_WINDOW / 2)
+                || !lazyLoadRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thr = new MQThread(() -> {
+            try {
+                if (lazyScan) {
+                    Filter f = getLazyScanFilter();
+                    if (f == null) {
+                        lazyScan = false;
+                    } else {
+                        scanLazyMessages(f, LAZY_SCAN_WINDOW - getLazyLoadBacklog(), false);
+                    }
+                }
+                if (getLazyLoadBacklog() < LAZY_LOAD_WINDOW / 2) {
+                    loadLazyMessages(LAZY_LOAD_WINDOW - getLazyLoadBacklog());
+                }
+            } finally {
+                lazyLoadRunning.set(false);
+            }
+            // a request that came in while this thread was loading
+            checkLazyLoad();
+        }, "LazyLoad " + getUniqueName());
+        thr.setDaemon(true);
+        thr.start();
+    }
+
+    /**
+     * @return the number of loaded messages still waiting for delivery; more are loaded from the lazy load index when it
+     * falls below half of the window
+     */
+    protected int getLazyLoadBacklog() {
+        return destMessages.size();
+    }
+
+    /**
+     * Scan the lazy load index from the start in the background, called when a consumer that the index can not serve in
+     * order, such as one with a selector, is added. The messages {@link #getLazyScanFilter} accepts are loaded a window
+     * at a time, the others stay in the index.
+     */
+    protected void scanLazyIndex() {
+        if (lazyIndex == null) {
+            return;
+        }
+        synchronized (lazyLock) {
+            if (lazyIndex == null) {
+                return;
+            }
+            lazyIndex.startScan();
+            lazyScan = true;
+        }
+        checkLazyLoad();
+    }
+
+    /**
+     * @return the filter for the messages in the lazy load index that the scan started with {@link #scanLazyIndex} loads,
+     * or null to end the scan
+     */
+    protected Filter getLazyScanFilter() {
+        return null;
+    }
+
+    /**
+     * Called by a queue for a message routed while older stored messages are still in the lazy load index. The message
+     * is held back until the index has been loaded so that it is not delivered ahead of them, unless it has a higher
+     * priority than all of them.
+     *
+     * @return true if the message is held
+     */
+    protected boolean holdBehindLazyIndex(PacketReference ref) {
+        if (lazyIndex == null) {
+            return false;
+        }
+        synchronized (lazyLock) {
+            LazyMessageIndex index = lazyIndex;
+            if (index == null) {
+                return false;
+            }
+            int pos = index.first();
+            int top = (pos < 0 ? -1 : index.getPriority(pos));
+            if (lazyInFlight > 0) {
+                top = Math.max(top, lazyInFlightTop);
+            }
+            if (ref.getPriority() > top) {
+                return false;
+            }
+            lazyHeld.add(ref);
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of messages held back behind the lazy load index
+     */
+    protected int getLazyHeldCount() {
+        if (lazyIndex == null) {
+            return 0;
+        }
+        synchronized (lazyLock) {
+            return lazyHeld.size();
+        }
+    }
+
+    /**
+     * Called with lazyLock held once the lazy load index has been loaded, with the messages held back behind it in the
+     * order they were routed.
+     */
+    protected void lazyIndexLoaded(List<PacketReference> held) {
+    }
+
+    /**
+     * Route a message loaded from the lazy load index
+     */
+    protected void routeIndexedMessage(PacketReference ref, List consumerids) throws BrokerException, SelectorFormatException {
+        routeLoadedMessage(ref, consumerids);
+    }
+
+    // called with lazyLock held
+    private int getLazySize() {
+        LazyMessageIndex index = lazyIndex;
+        return (index == null ? 0 : index.size()) + lazyInFlight;
+    }
+
+    // called with lazyLock held
+    private long getLazyByteSize() {
+        LazyMessageIndex index = lazyIndex;
+        return (index == null ? 0L : index.byteSize()) + lazyInFlightBytes;
+    }
+
+    private void clearLazyIndex() {
+        synchronized (lazyLock) {
+            lazyIndex = null;
+            lazyInFlight = 0;
+            lazyInFlightBytes = 0L;
+            lazyHeld.clear();
+            lazyScan = false;
+        }
+    }
+
+    /**
+     * Load count messages from the lazy load index, or fewer if the index runs out. Expired messages are removed and not
+     * counted.
+     */
+    private void loadLazyMessages(int count) {
+        List<SysMessageID> expired = new ArrayList<>();
+        synchronized (lazyLoadLock) {
+            loadIndexedMessages(count, expired);
+        }
+        removeExpiredIndexedMessages(expired);
+    }
+
+    /**
+     * Scan the lazy load index for messages that match the filter and load up to count of them, the others stay in the
+     * index.
+     *
+     * @param restart start from the head of the index instead of where the last scan stopped
+     */
+    private void scanLazyMessages(Filter f, int count, boolean restart) {
+        List<SysMessageID> expired = new ArrayList<>();
+        synchronized (lazyLoadLock) {
+            if (restart) {
+                synchronized (lazyLock) {
+                    if (lazyIndex != null) {
+                        lazyIndex.startScan();
+                    }
+                }
+            }
+            scanIndexedMessages(f, count, !restart, expired);
+        }
+        removeExpiredIndexedMessages(expired);
+    }
+
+    /**
+     * Read the messages of the lazy load index from the store a batch at a time, with only lazyLoadLock held, and load the
+     * ones that match the filter. The packets of the others are dropped again.
+     *
+     * @param background the scan started with scanLazyIndex(), which ends when the end of the index is reached
+     */
+    private void scanIndexedMessages(Filter f, int count, boolean background, List<SysMessageID> expired) {
+        while (count > 0) {
+            LazyMessageIndex index = null;
+            List<Integer> positions = new ArrayList<>();
+            List<SysMessageID> ids = new ArrayList<>();
+            synchronized (lazyLock) {
+                index = lazyIndex;
+                if (!loaded || index == null) {
+                    return;
+                }
+                int pos;
+                while (positions.size() < LAZY_LOAD_BATCH && (pos = index.nextScan()) >= 0) {
+                    positions.add(Integer.valueOf(pos));
+                    ids.add(index.getID(pos));
+                }
+                if (positions.isEmpty()) {
+                    if (background) {
+                        lazyScan = false;
+                    }
+                    return;
+                }
+            }
+            List<Packet> matches = new ArrayList<>();
+            List<SysMessageID> matchIds = new ArrayList<>();
+            List<Integer> matchPositions = new ArrayList<>();
+            for (int i = 0; i < ids.size() && matches.size() < count; i++) {
+                Packet p = null;
+                try {
+                    p = pstore.getMessage(uid, ids.get(i));
+                    if (p != null && !f.matches(PacketReference.createReference(pstore, p, uid, null))) {
+                        continue;
+                    }
+                } catch (Exception ex) {
+                    // loading it reports the error and accounts for it
+                    p = null;
+                }
+                matches.add(p);
+                matchIds.add(ids.get(i));
+                matchPositions.add(positions.get(i));
+            }
+            count -= matches.size();
+
+            // positions do not move while lazyLoadLock is held, until a message is taken from the index
+            int[] sizes = new int[matches.size()];
+            synchronized (lazyLock) {
+                if (index != lazyIndex) {
+                    return;
+                }
+                for (int i = matches.size() - 1; i >= 0; i--) {
+                    sizes[i] = takeFromIndex(index, matchPositions.get(i).intValue());
+                }
+            }
+            boolean enforceLimit = destMessages.getEnforceLimits();
+            destMessages.enforceLimits(false);
+            try {
+                for (int i = 0; i < matches.size(); i++) {
+                    SysMessageID sysid = matchIds.get(i);
+                    try {
+                        loadIndexedMessage(sysid, matches.get(i), sizes[i], expired);
+                    } catch (Exception ex) {
+                        String args[] = { sysid.toString(), uid.toString(), ex.getMessage() };
+                        logger.logStack(Logger.WARNING, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
+                    } finally {
+                        loadedFromIndex(index, sizes[i]);
+                    }
+                }
+            } finally {
+                destMessages.enforceLimits(enforceLimit);
+            }
+        }
+    }
+
+    /**
+     * Load a specific message from the lazy load index
+     *
+     * @return true if the message is in memory now
+     */
+    private boolean loadLazyMessage(SysMessageID sysid) {
+        List<SysMessageID> expired = new ArrayList<>();
+        synchronized (lazyLoadLock) {
+            LazyMessageIndex index = null;
+            int objsize = -1;
+            synchronized (lazyLock) {
+                index = lazyIndex;
+                if (loaded && index != null) {
+                    int pos = index.indexOf(sysid);
+                    if (pos >= 0) {
+                        objsize = takeFromIndex(index, pos);
+                    }
+                }
+            }
+            if (objsize >= 0) {
+                try {
+                    loadIndexedMessage(sysid, objsize, expired);
+                } catch (Exception ex) {
+                    String args[] = { sysid.toString(), uid.toString(), ex.getMessage() };
+                    logger.logStack(Logger.WARNING, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
+                } finally {
+                    loadedFromIndex(index, objsize);
+                }
+            }
+        }
+        removeExpiredIndexedMessages(expired);
+        return destMessages.get(sysid) != null;
+    }
+
+    /**
+     * Take up to count messages from the lazy load index a batch at a time, in index order, and load them with only
+     * lazyLoadLock held. A message that fails to load is logged and skipped.
+     */
+    private void loadIndexedMessages(int count, List<SysMessageID> expired) {
+        while (count > 0) {
+            LazyMessageIndex index = null;
+            List<SysMessageID> ids = new ArrayList<>();
+            List<Integer> sizes = new ArrayList<>();
+            synchronized (lazyLock) {
+                index = lazyIndex;
+                if (!loaded || index == null) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                int pos;
+                while (ids.size() < LAZY_LOAD_BATCH && count > 0 && (pos = index.first()) >= 0) {
+                    if (!index.isExpired(pos, now)) {
+                        count--;
+                    }
+                    ids.add(index.getID(pos));
+                    sizes.add(Integer.valueOf(takeFromIndex(index, pos)));
+                }
+            }
+            if (ids.isEmpty()) {
+                loadedFromIndex(index, -1);
+                return;
+            }
+            boolean enforceLimit = destMessages.getEnforceLimits();
+            destMessages.enforceLimits(false);
+            try {
+                for (int i = 0; i < ids.size(); i++) {
+                    try {
+                        loadIndexedMessage(ids.get(i), sizes.get(i).intValue(), expired);
+                    } catch (Exception ex) {
+                        String args[] = { ids.get(i).toString(), uid.toString(), ex.getMessage() };
+                        logger.logStack(Logger.WARNING, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
+                    } finally {
+                        loadedFromIndex(index, sizes.get(i).intValue());
+                    }
+                }
+            } finally {
+                destMessages.enforceLimits(enforceLimit);
+            }
+        }
+    }
+
+    // called with lazyLock held, the message counts in the destination size until it is loaded
+    private int takeFromIndex(LazyMessageIndex index, int pos) {
+        int objsize = index.getSize(pos);
+        if (lazyInFlight == 0 || index.getPriority(pos) > lazyInFlightTop) {
+            lazyInFlightTop = index.getPriority(pos);
+        }
+        index.remove(pos);
+        lazyInFlight++;
+        lazyInFlightBytes += objsize;
+        return objsize;
+    }
+
+    /**
+     * Account a message taken from the index as loaded, a negative size for none. Once the index is empty and nothing
+     * taken from it is still being loaded, the messages held back behind it are released.
+     */
+    private void loadedFromIndex(LazyMessageIndex index, int objsize) {
+        synchronized (lazyLock) {
+            if (index != lazyIndex) {
+                // unloaded meanwhile
+                return;
+            }
+            if (objsize >= 0) {
+                lazyInFlight--;
+                lazyInFlightBytes -= objsize;
+            }
+            if (index.isEmpty() && lazyInFlight == 0) {
+                lazyIndex = null;
+                lazyScan = false;
+                List<PacketReference> held = lazyHeld;
+                lazyHeld = new ArrayList<>();
+                lazyIndexLoaded(held);
+                logger.log(Logger.INFO, br.getKString(BrokerResources.I_LAZY_LOAD_DEST_COMPLETE, toString()) + logsuffix);
+            }
+        }
+    }
+
+    private void removeExpiredIndexedMessages(List<SysMessageID> expired) {
+        Iterator<SysMessageID> itr = expired.iterator();
+        while (itr.hasNext()) {
+            SysMessageID sysid = itr.next();
+            try {
+                removeMessage(sysid, RemoveReason.EXPIRED);
+            } catch (Exception ex) {
+                logger.logStack(Logger.INFO, BrokerResources.E_INTERNAL_BROKER_ERROR, "Processing " + sysid + " while loading destination " + this, ex);
+            }
+        }
+    }
+
+    /**
+     * Same as what load() does for a stored queue message that is not part of a transaction and has no delivery delay
+     */
+    private void loadIndexedMessage(SysMessageID sysid, long objsize, List<SysMessageID> expired) throws BrokerException {
+        loadIndexedMessage(sysid, null, objsize, expired);
+    }
+
+    /**
+     * @param p the packet if it has been read from the store already, or null
+     */
+    private void loadIndexedMessage(SysMessageID sysid, Packet p, long objsize, List<SysMessageID> expired) throws BrokerException {
+        if (p == null) {
+            try {
+                p = pstore.getMessage(uid, sysid);
+            } catch (BrokerException ex) {
+                String args[] = { sysid.toString(), uid.toString(), ex.getMessage() };
+                logger.logStack(Logger.WARNING, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
+            }
+        }
+        if (p == null) {
+            // no longer counted, as decrementDestinationSize() does for a local persistent message
+            synchronized (sizeLock) {
+                size--;
+                bytes -= objsize;
+                if (!isAdmin() && (getIsDMQ() || !isInternal())) {
+                    DL.decrementTotals(objsize, false);
+                }
+            }
+            return;
+        }
+
+        PacketReference pr = PacketReference.createReference(pstore, p, uid, null);
+        pr.setLoaded();
+        boolean isExpired = false;
+        try {
+            isExpired = !DL.addNewMessage(false, pr).getReturn();
+        } catch (Exception ex) {
+            String args[] = { sysid.toString(), uid.toString(), ex.getMessage() };
+            logger.logStack(Logger.WARNING, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
+            return;
+        }
+        DL.packetlistAdd(sysid, uid, null);
+
+        ConsumerUID[] consumers = pstore.getConsumerUIDs(uid, sysid);
+        if (consumers == null || consumers.length == 0) {
+            // acknowledged or never routed
+            if (getDEBUG()) {
+                logger.log(Logger.INFO, "Message " + sysid + "[" + this + "] has no stored consumers, destroy..");
+            }
+            decrementDestinationSize(pr);
+            DL.removePacketList(sysid, uid, pr);
+            pr.destroy();
+            return;
+        }
+        pr.setStoredWithInterest(true);
+
+        int states[] = new int[consumers.length];
+        for (int i = 0; i < consumers.length; i++) {
+            states[i] = pstore.getInterestState(uid, sysid, consumers[i]);
+        }
+        pr.update(consumers, states);
+        try {
+            putMessage(pr, AddReason.LOADED);
+        } catch (IllegalStateException | OutOfLimitsException ex) {
+            String args[] = { sysid.toString(), uid.toString(), ex.getMessage() };
+            logger.logStack(Logger.WARNING, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
+            return;
+        }
+        ExpirationInfo ei = pr.getExpireInfo();
+        if (ei != null && expireReaper != null) {
+            expireReaper.addExpiringMessage(ei);
+        }
+        if (isExpired) {
+            expired.add(sysid);
+            return;
+        }
+        try {
+            routeIndexedMessage(pr, Arrays.asList(consumers));
+        } catch (Exception ex) {
+            logger.logStack(Logger.WARNING, br.getKString(br.W_EXCEPTION_ROUTE_LOADED_MSG, sysid, ex.getMessage()), ex);
+        }
+    }
+
     protected void routeLoadedMessage(PacketReference ref, List consumerids) throws BrokerException, SelectorFormatException {
         if (consumerids == null || consumerids.size() == 0) {
             return;
@@ -3675,6 +4315,10 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
         }
         bytes = destMessages.byteSize();
         size = destMessages.size();
+        synchronized (lazyLock) {
+            bytes += getLazyByteSize();
+            size += getLazySize();
+        }
 
         // get all the persistent messages
         Map<SysMessageID, PacketReference> m = destMessages.getAll((closePartition ? null : unloadfilter));
@@ -3692,6 +4336,7 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
                 destMessages = new SimpleNFLHashMap<>();
                 remoteSize = 0;
                 remoteBytes = 0;
+                clearLazyIndex();
                 loaded = false;
                 if (!closePartition) {
                     initialize();
@@ -3710,6 +4355,7 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             destMessages = new SimpleNFLHashMap<>();
             remoteSize = 0;
             remoteBytes = 0;
+            clearLazyIndex();
             loaded = false;
             if (!closePartition) {
                 initialize();
@@ -3821,6 +4467,10 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
      * @return false if persist store msg removal exception
      */
     protected boolean _messageRemoved(PacketReference ref, long objsize, Reason r, boolean doCount) {
+        return _messageRemoved(ref, objsize, r, doCount, null);
+    }
+
+    private boolean _messageRemoved(PacketReference ref, long objsize, Reason r, boolean doCount, List<SysMessageID> storeRemovals) {
 
         if (ref == null) {
             return true; // did nothing
@@ -3851,11 +4501,18 @@ public abstract class Destination implements DestinationSpi, Serializable, com.s
             }
             decrementDestinationSize(ref);
         }
-        boolean ret = ref.remove(onRollback);
+        boolean ret = true;
+        if (storeRemovals == null || onRollback) {
+            ret = ref.remove(onRollback);
+        } else if (ref.removeDeferred()) {
+            storeRemovals.add(ref.getSysMessageID());
+        }
 
         // see if we need to pause/resume any consumers
         producerFlow.checkResumeFlow(null, true);
 
+        checkLazyLoad();
+
         return ret;
     }
 
@@ -20,7 +20,11 @@ package com.sun.messaging.jmq.jmsserver.core;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import com.sun.messaging.jmq.jmsserver.DMQ;
@@ -32,6 +36,7 @@ import com.sun.messaging.jmq.util.DestLimitBehavior;
 import com.sun.messaging.jmq.util.DestScope;
 import com.sun.messaging.jmq.util.UID;
 import com.sun.messaging.jmq.util.GoodbyeReason;
+import com.sun.messaging.jmq.util.MQThread;
 import com.sun.messaging.jmq.io.Packet;
 import com.sun.messaging.jmq.io.PacketType;
 import com.sun.messaging.jmq.io.SysMessageID;
@@ -203,10 +208,12 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
 
     public static final String MIN_CONN_STRATEGY = "MIN_CONN";
     public static final String RR_CONN_STRATEGY = "ROUND_ROBIN";
+    public static final String LOAD_CONN_STRATEGY = "LOAD";
     public static final String CONN_STRATEGY_PROP = Globals.IMQ + ".connection.loadBalanceToPartitionStrategy";
     public static final String CONN_STRATEGY_DEFAULT = MIN_CONN_STRATEGY;
     public static final String MIN_CONN_STRATEGY_CLASS = "com.sun.messaging.jmq.jmsserver.core.MinConnToPartitionStrategy";
     public static final String RR_CONN_STRATEGY_CLASS = "com.sun.messaging.jmq.jmsserver.core.RRConnToPartitionStrategy";
+    public static final String LOAD_CONN_STRATEGY_CLASS = "com.sun.messaging.jmq.jmsserver.core.LoadConnToPartitionStrategy";
 
     private static ConnToPartitionStrategy partitionStrategy = null;
 
@@ -251,6 +258,16 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
 
     private ArrayList<ConnectionUID> connections = new ArrayList<>();
 
+    /**
+     * persistent message bytes produced to this partition, sampled into persistByteRate at most every
+     * PERSIST_RATE_INTERVAL when a connection is assigned a partition
+     */
+    private static final long PERSIST_RATE_INTERVAL = 5000L;
+    private final LongAdder persistBytes = new LongAdder();
+    private long persistRateTime = System.currentTimeMillis();
+    private long persistRateBytes = 0L;
+    private long persistByteRate = 0L;
+
     private Object destinationListLock = new Object();
     private boolean valid = true;
     private boolean destsLoaded = false;
@@ -784,6 +801,18 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
         }
     }
 
+    /**
+     * number of threads reading the messages of a taken over broker, the same setting as for the JDBC store's takeover
+     * reads
+     */
+    private static final String TAKEOVER_LOAD_THREADS_PROP = Globals.IMQ + ".persist.jdbc.takeover.loadThreads";
+    private static final int TAKEOVER_LOAD_THREADS_DEFAULT = 4;
+
+    /**
+     * number of messages of a destination read at once on takeover
+     */
+    private static final int TAKEOVER_LOAD_CHUNK = 500;
+
     public synchronized static void loadTakeoverMsgs(PartitionedStore storep, Map<String, String> msgs, List txns, Map txacks) throws BrokerException {
 
         DestinationList dl = destinationListList.get(storep);
@@ -818,27 +847,86 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
         // - requeue all messages
         // - resort (w/ load comparator)
         //
-        //
-        // OK, first get msgs and sort by destination
-        HashMap openMessages = new HashMap();
-        Iterator itr = msgs.entrySet().iterator();
-        while (itr.hasNext()) {
-            Map.Entry me = (Map.Entry) itr.next();
-            String msgID = (String) me.getKey();
-            String dst = (String) me.getValue();
-            DestinationUID dUID = new DestinationUID(dst);
-            Packet p = null;
-            try {
-                p = storep.getMessage(dUID, msgID);
-            } catch (BrokerException ex) {
-                Throwable cause = ex.getCause();
-                if (cause instanceof InvalidPacketException) {
-                    String[] args = { msgID, dst, cause.toString() };
+        // the messages of a destination are read in chunks on a pool of
+        // threads; a destination is processed as soon as all its chunks
+        // are read, while at most a few chunks are read ahead
+        Map<String, List<String>> dstMsgs = new LinkedHashMap<>();
+        for (Map.Entry<String, String> me : msgs.entrySet()) {
+            dstMsgs.computeIfAbsent(me.getValue(), k -> new ArrayList<>()).add(me.getKey());
+        }
+        List<String> chunkDsts = new ArrayList<>();
+        List<List<String>> chunks = new ArrayList<>();
+        for (Map.Entry<String, List<String>> me : dstMsgs.entrySet()) {
+            List<String> ids = me.getValue();
+            for (int i = 0; i < ids.size(); i += TAKEOVER_LOAD_CHUNK) {
+                chunkDsts.add(me.getKey());
+                chunks.add(ids.subList(i, Math.min(ids.size(), i + TAKEOVER_LOAD_CHUNK)));
+            }
+        }
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        int nthreads = Math.min(chunks.size(), Math.max(1, Globals.getConfig().getIntProperty(TAKEOVER_LOAD_THREADS_PROP, TAKEOVER_LOAD_THREADS_DEFAULT)));
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads, r -> {
+            MQThread t = new MQThread(r, "imqTakeoverMsgLoader-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Object[]>> reads = new ArrayList<>(chunks.size());
+            List<Packet> packets = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                while (reads.size() < chunks.size() && reads.size() <= i + 2 * nthreads) {
+                    String dst = chunkDsts.get(reads.size());
+                    List<String> ids = chunks.get(reads.size());
+                    reads.add(executor.submit(() -> readTakeoverMsgs(storep, dst, ids)));
+                }
+                Object[] read = awaitTakeoverRead(reads.get(i));
+                reads.set(i, null);
+
+                String dst = chunkDsts.get(i);
+                List<String> ids = chunks.get(i);
+                for (int j = 0; j < read.length; j++) {
+                    if (read[j] instanceof Packet) {
+                        packets.add((Packet) read[j]);
+                        continue;
+                    }
+                    String msgID = ids.get(j);
+                    BrokerException ex = (BrokerException) read[j];
+                    String[] args = { msgID, dst, ex.getCause().toString() };
                     String emsg = Globals.getBrokerResources().getKString(BrokerResources.X_MSG_CORRUPTED_IN_STORE, args);
                     logger.logStack(Logger.ERROR, emsg, ex);
 
-                    handleInvalidPacket(msgID, dst, emsg, (InvalidPacketException) cause, storep);
-                    itr.remove();
+                    handleInvalidPacket(msgID, dst, emsg, (InvalidPacketException) ex.getCause(), storep);
+                    msgs.remove(msgID);
+                }
+                if (i + 1 == chunks.size() || !chunkDsts.get(i + 1).equals(dst)) {
+                    loadTakeoverDstMsgs(dl, storep, packets, txns, ackLookup);
+                    packets = new ArrayList<>();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the messages of one destination of a taken over broker
+     *
+     * @return the packet read for each message id, or the BrokerException if the message is corrupted in the store
+     */
+    private static Object[] readTakeoverMsgs(PartitionedStore storep, String dst, List<String> msgIDs) throws BrokerException {
+        Object[] read = new Object[msgIDs.size()];
+        DestinationUID dUID = new DestinationUID(dst);
+        for (int i = 0; i < read.length; i++) {
+            String msgID = msgIDs.get(i);
+            try {
+                read[i] = storep.getMessage(dUID, msgID);
+            } catch (BrokerException ex) {
+                if (ex.getCause() instanceof InvalidPacketException) {
+                    read[i] = ex;
                     continue;
                 }
 
@@ -848,13 +936,42 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
                     Destination d = ds[0];
                     if (d == null) {
                         String args[] = { msgID, dst, Globals.getBrokerResources().getString(BrokerResources.E_DESTINATION_NOT_FOUND_IN_STORE, dst) };
-                        logger.log(Logger.ERROR, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
+                        Globals.getLogger().log(Logger.ERROR, BrokerResources.W_CAN_NOT_LOAD_MSG, args, ex);
                     }
                 }
                 throw ex;
             }
+        }
+        return read;
+    }
+
+    private static Object[] awaitTakeoverRead(Future<Object[]> f) throws BrokerException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BrokerException(e.toString(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BrokerException) {
+                throw (BrokerException) cause;
+            }
+            throw new BrokerException(cause.toString(), cause);
+        }
+    }
+
+    /**
+     * Queue and route the messages of a destination of a taken over broker
+     */
+    private static void loadTakeoverDstMsgs(DestinationList dl, PartitionedStore storep, List<Packet> packets, List txns, Map ackLookup) throws BrokerException {
 
-            dUID = DestinationUID.getUID(p.getDestination(), p.getIsQueue());
+        Logger logger = Globals.getLogger();
+
+        // the messages are all of one destination, keep them in delivery order
+        Map m = new HashMap();
+        HashMap openMessages = new HashMap();
+        for (Packet p : packets) {
+            DestinationUID dUID = DestinationUID.getUID(p.getDestination(), p.getIsQueue());
             PacketReference pr = PacketReference.createReference(storep, p, dUID, null);
 
             // mark already stored and make packet a SoftReference to
@@ -1366,6 +1483,9 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
     }
 
     private void clearDestinations() {
+        if (deadMessageQueue != null && deadMessageQueue.dmqWriter != null) {
+            deadMessageQueue.dmqWriter.close();
+        }
         destsLoaded = false;
         destinationList.clear();
         packetlist.clear();
@@ -1579,6 +1699,7 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
             }
 
             deadMessageQueue = createDMQ();
+            deadMessageQueue.dmqWriter = new DMQWriter(pstore);
 
             // iterate through and deal with monitors
             Iterator itr = destinationList.values().iterator();
@@ -1918,7 +2039,11 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
         synchronized (destinationListList) {
             Iterator<DestinationList> itr = destinationListList.values().iterator();
             while (itr.hasNext()) {
-                itr.next().valid = false;
+                DestinationList dl = itr.next();
+                dl.valid = false;
+                if (dl.deadMessageQueue != null && dl.deadMessageQueue.dmqWriter != null) {
+                    dl.deadMessageQueue.dmqWriter.close();
+                }
             }
         }
         try {
@@ -2470,6 +2595,8 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
                     cl = MIN_CONN_STRATEGY_CLASS;
                 } else if (typ.equalsIgnoreCase(RR_CONN_STRATEGY)) {
                     cl = RR_CONN_STRATEGY_CLASS;
+                } else if (typ.equalsIgnoreCase(LOAD_CONN_STRATEGY)) {
+                    cl = LOAD_CONN_STRATEGY_CLASS;
                 } else {
                     Globals.getLogger().log(Logger.WARNING, "XXXIngore unknown " + typ + " for " + CONN_STRATEGY_PROP);
                     cl = MIN_CONN_STRATEGY_CLASS;
@@ -2840,6 +2967,29 @@ public final class DestinationList implements ConnToPartitionStrategyContext {
         return 0L;
     }
 
+    void persistBytesIn(long bytes) {
+        if (partitionMode) {
+            persistBytes.add(bytes);
+        }
+    }
+
+    @Override
+    public long getPersistByteRate() {
+        synchronized (persistBytes) {
+            long now = System.currentTimeMillis();
+            long elapsed = now - persistRateTime;
+            if (elapsed >= PERSIST_RATE_INTERVAL) {
+                long total = persistBytes.sum();
+                long rate = (total - persistRateBytes) * 1000L / elapsed;
+                // average with the previous sample so a short lull does not make a busy partition look idle
+                persistByteRate = (persistByteRate + rate) / 2;
+                persistRateBytes = total;
+                persistRateTime = now;
+            }
+            return persistByteRate;
+        }
+    }
+
     /**
      * sets the maximum size of an individual message
      *
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.BrokerStateHandler;
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.core.Destination.RemoveMessageReturnInfo;
+import com.sun.messaging.jmq.jmsserver.resources.BrokerResources;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+import com.sun.messaging.jmq.util.lists.Filter;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * Purges the messages of a destination in batches.
+ * <P>
+ *
+ * Each batch is removed from memory first and then from the store with a single
+ * {@link com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore#removeMessages} call, so the store syncs once per
+ * batch instead of once per message. The purger only looks at the messages that were on the destination when it
+ * started, messages produced while it runs are left alone. Messages in delivery to a consumer are skipped.
+ * <P>
+ *
+ * A purger either runs in the caller's thread or in its own thread for a background purge, in which case it pauses
+ * between batches so that live traffic on the destination keeps going. Progress can be read from any thread.
+ */
+public class DestinationPurger implements Runnable {
+
+    private static final String PREFIX = Globals.IMQ + ".destination.purge";
+
+    public static final String BATCH_PROP = PREFIX + ".batchSize";
+    public static final String DELAY_PROP = PREFIX + ".batchDelay";
+
+    /**
+     * number of messages removed per batch
+     */
+    private static final int BATCH = Math.max(1, Globals.getConfig().getIntProperty(BATCH_PROP, 1000));
+
+    /**
+     * time in milliseconds a background purge pauses between batches
+     */
+    private static final long DELAY = Globals.getConfig().getLongProperty(DELAY_PROP, 10L);
+
+    /**
+     * time in milliseconds between progress log messages of a background purge
+     */
+    private static final long PROGRESS_INTERVAL = 30000L;
+
+    private final Logger logger = Globals.getLogger();
+
+    private final BrokerResources br = Globals.getBrokerResources();
+
+    private final Destination destination;
+
+    /**
+     * the messages to purge when purging with a filter, null when purging all messages
+     */
+    private final List<SysMessageID> selected;
+
+    private final long total;
+
+    private boolean background = false;
+
+    /**
+     * a purge with a filter goes on with the next message when one can not be removed
+     */
+    private final boolean continueOnError;
+
+    /**
+     * messages left on the destination, only touched by the purging thread
+     */
+    private final Set<SysMessageID> skipped = new HashSet<>();
+
+    private long examined = 0L;
+
+    private volatile long removed = 0L;
+    private volatile long indelivery = 0L;
+    private volatile boolean done = false;
+    private volatile BrokerException exception = null;
+
+    DestinationPurger(Destination destination, Filter criteria) {
+        this.destination = destination;
+        this.continueOnError = (criteria != null);
+        if (criteria == null) {
+            selected = null;
+            total = destination.size();
+        } else {
+            Map<SysMessageID, PacketReference> m = destination.getAll(criteria);
+            selected = new ArrayList<>(m.keySet());
+            total = selected.size();
+        }
+    }
+
+    void setBackground(boolean b) {
+        background = b;
+    }
+
+    boolean isContinueOnError() {
+        return continueOnError;
+    }
+
+    public Destination getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return the number of messages on the destination when the purge started
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public long getRemovedCount() {
+        return removed;
+    }
+
+    /**
+     * @return the number of messages not purged because they were in delivery
+     */
+    public long getInDeliveryCount() {
+        return indelivery;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return the exception the purge stopped with, or null
+     */
+    public BrokerException getException() {
+        return exception;
+    }
+
+    @Override
+    public void run() {
+        long lastProgress = System.currentTimeMillis();
+        try {
+            List<SysMessageID> ids = null;
+            while ((ids = nextBatch()) != null) {
+                try {
+                    destination.purgeMessages(ids, this);
+                } catch (BrokerException ex) {
+                    if (!continueOnError || !destination.isValid()) {
+                        throw ex;
+                    }
+                    // only the store removal of the batch can fail here, go on with the next batch
+                    logger.logStack(Logger.INFO, BrokerResources.E_PURGE_DST_FAILED, destination.getName(), ex);
+                }
+
+                if (background) {
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgress >= PROGRESS_INTERVAL) {
+                        lastProgress = now;
+                        Object[] args = { destination.getDestinationUID().getLocalizedName(), removed, total };
+                        logger.log(Logger.INFO, br.getKString(BrokerResources.I_PURGE_DEST_PROGRESS, args));
+                    }
+                    if (DELAY > 0L) {
+                        Thread.sleep(DELAY);
+                    }
+                }
+            }
+            if (selected == null) {
+                destination.purgeCompleted(this);
+            }
+        } catch (Exception ex) {
+            if (BrokerStateHandler.isShuttingDown()) {
+                logger.log(Logger.INFO, BrokerResources.E_PURGE_DST_FAILED, destination.getName(), ex);
+            } else {
+                logger.logStack(Logger.WARNING, BrokerResources.E_PURGE_DST_FAILED, destination.getName(), ex);
+            }
+            if (ex instanceof BrokerException) {
+                exception = (BrokerException) ex;
+            } else {
+                exception = new BrokerException(br.getKString(BrokerResources.E_PURGE_DST_FAILED, destination.getName()), ex);
+            }
+        } finally {
+            done = true;
+        }
+    }
+
+    private List<SysMessageID> nextBatch() {
+        if (examined >= total || !destination.isValid()) {
+            return null;
+        }
+        int count = (int) Math.min(BATCH, total - examined);
+        List<SysMessageID> ids = null;
+        if (selected != null) {
+            int from = (int) examined;
+            ids = new ArrayList<>(selected.subList(from, from + count));
+        } else {
+            ids = destination.getFirstMessageIDs(skipped.size() + count);
+            if (!skipped.isEmpty()) {
+                ids.removeAll(skipped);
+            }
+            if (ids.size() > count) {
+                ids = ids.subList(0, count);
+            }
+        }
+        return (ids.isEmpty() ? null : ids);
+    }
+
+    /**
+     * called by the destination for a message of a batch that could not be removed
+     */
+    void messageFailed(SysMessageID id) {
+        examined++;
+        skipped.add(id);
+    }
+
+    /**
+     * called by the destination for every message of a batch
+     */
+    void messageProcessed(SysMessageID id, RemoveMessageReturnInfo ret) {
+        examined++;
+        if (ret.removed) {
+            removed++;
+            return;
+        }
+        if (ret.indelivery) {
+            indelivery++;
+        }
+        skipped.add(id);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+/**
+ * Decides how many messages a queue consumer may pull from the queue's pending list at a time.
+ * <P>
+ *
+ * Queue consumers pull messages into their own delivery list when their session has room. Without a policy a
+ * consumer takes up to its full prefetch in one pull, so whichever consumer becomes ready first can drain the queue
+ * while other consumers with credit sit idle. A policy bounds each pull so that the pending messages are shared out.
+ * <P>
+ *
+ * Implementations are called concurrently by the session threads of all consumers on the queue and must not block.
+ */
+public interface DispatchPolicy {
+
+    /**
+     * greedy pull up to the consumer's prefetch, this is the behavior without a policy
+     */
+    String DEFAULT = "default";
+
+    String WEIGHTED_ROUND_ROBIN = "weightedRoundRobin";
+
+    String LEAST_OUTSTANDING = "leastOutstanding";
+
+    String getName();
+
+    void consumerAdded(Consumer consumer);
+
+    void consumerRemoved(Consumer consumer);
+
+    /**
+     * @param requested the number of messages the consumer wants
+     * @return the number of messages the consumer may pull now, between 1 and requested
+     */
+    int getDispatchLimit(Consumer consumer, int requested);
+
+    /**
+     * called after the consumer pulled count messages
+     */
+    void messagesDispatched(Consumer consumer, int count);
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.SysMessageID;
+
+/**
+ * Compact, ordered index of the stored messages of a destination that have not been loaded into memory yet.
+ * <P>
+ *
+ * Only what is needed to order the messages and to find them in the store again is kept, in parallel primitive
+ * arrays: the message id (timestamp, sequence, port and an index into a small table of the distinct producing broker
+ * addresses), priority, expiration and size. That is about 40 bytes per message, compared to a PacketReference with
+ * its packet. Entries are taken from the head in the order of {@link com.sun.messaging.jmq.jmsserver.data.handlers.RefCompare}
+ * once {@link #sort} has been called. A taken entry keeps its slot, with the priority complemented, so that the index
+ * stays sorted and {@link #indexOf} can binary search it.
+ * <P>
+ *
+ * Not thread safe, the destination accesses it with its lock held.
+ */
+class LazyMessageIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // the consumed slots before head are compacted away once there are this many
+    private static final int COMPACT_THRESHOLD = 64 * 1024;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int[] sequences = new int[INITIAL_CAPACITY];
+    private int[] ports = new int[INITIAL_CAPACITY];
+    private int[] addrs = new int[INITIAL_CAPACITY];
+    private byte[] priorities = new byte[INITIAL_CAPACITY];
+    private long[] expirations = new long[INITIAL_CAPACITY];
+    private int[] sizes = new int[INITIAL_CAPACITY];
+
+    // a cloned id per distinct producing broker address, new ids are cloned from it
+    private final List<SysMessageID> templates = new ArrayList<>();
+    private final Map<ByteBuffer, Integer> templateIndex = new HashMap<>();
+
+    private int head = 0;
+    private int tail = 0;
+    private int count = 0;
+    private long bytes = 0L;
+    private boolean sorted = false;
+
+    // position of the next message for nextScan()
+    private int scan = 0;
+
+    void add(Packet p) {
+        if (tail == timestamps.length) {
+            grow();
+        }
+        SysMessageID sysid = p.getSysMessageID();
+        timestamps[tail] = sysid.getTimestamp();
+        sequences[tail] = sysid.getSequence();
+        ports[tail] = sysid.getPort();
+        addrs[tail] = templateFor(sysid);
+        priorities[tail] = (byte) p.getPriority();
+        expirations[tail] = p.getExpiration();
+        sizes[tail] = p.getPacketSize();
+        tail++;
+        count++;
+        bytes += p.getPacketSize();
+        sorted = false;
+    }
+
+    private int templateFor(SysMessageID sysid) {
+        ByteBuffer key = ByteBuffer.wrap(sysid.getIPAddress().clone());
+        Integer i = templateIndex.get(key);
+        if (i == null) {
+            i = Integer.valueOf(templates.size());
+            templates.add((SysMessageID) sysid.clone());
+            templateIndex.put(key, i);
+        }
+        return i.intValue();
+    }
+
+    private void grow() {
+        int live = tail - head;
+        int cap = Math.max(INITIAL_CAPACITY, (live < timestamps.length / 2 ? timestamps.length : timestamps.length * 2));
+        timestamps = copy(timestamps, cap);
+        sequences = copy(sequences, cap);
+        ports = copy(ports, cap);
+        addrs = copy(addrs, cap);
+        expirations = copy(expirations, cap);
+        sizes = copy(sizes, cap);
+        byte[] b = new byte[cap];
+        System.arraycopy(priorities, head, b, 0, live);
+        priorities = b;
+        scan = Math.max(0, scan - head);
+        tail = live;
+        head = 0;
+    }
+
+    private long[] copy(long[] a, int cap) {
+        long[] n = new long[cap];
+        System.arraycopy(a, head, n, 0, tail - head);
+        return n;
+    }
+
+    private int[] copy(int[] a, int cap) {
+        int[] n = new int[cap];
+        System.arraycopy(a, head, n, 0, tail - head);
+        return n;
+    }
+
+    /**
+     * @return the number of messages not taken from the index yet
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return the total packet size of the messages not taken from the index yet
+     */
+    long byteSize() {
+        return bytes;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the position of the first message, or -1 if empty
+     */
+    int first() {
+        while (head < tail && priorities[head] < 0) {
+            head++;
+        }
+        return (head < tail ? head : -1);
+    }
+
+    /**
+     * @return the position of the message, or -1 if it is not in the index
+     */
+    int indexOf(SysMessageID sysid) {
+        if (count == 0) {
+            return -1;
+        }
+        if (!sorted) {
+            return indexOf(sysid, head, tail);
+        }
+        // the id does not tell the priority, binary search the run of each priority in the index
+        for (int p = getPriority(head); p >= getPriority(tail - 1); p--) {
+            int lo = head;
+            int hi = tail;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(mid, p, sysid.getTimestamp(), sysid.getSequence()) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int end = lo;
+            while (end < tail && compare(end, p, sysid.getTimestamp(), sysid.getSequence()) == 0) {
+                end++;
+            }
+            int pos = indexOf(sysid, lo, end);
+            if (pos >= 0) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(SysMessageID sysid, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (priorities[i] >= 0 && timestamps[i] == sysid.getTimestamp() && sequences[i] == sysid.getSequence() && ports[i] == sysid.getPort()
+                    && getID(i).equals(sysid)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Start a scan over the messages in the index, in index order
+     */
+    void startScan() {
+        scan = head;
+    }
+
+    /**
+     * @return the position of the next message of the scan, or -1 at the end of the index. Messages taken meanwhile are
+     * skipped, the positions returned before are only valid until the next {@link #remove}.
+     */
+    int nextScan() {
+        scan = Math.max(scan, head);
+        while (scan < tail && priorities[scan] < 0) {
+            scan++;
+        }
+        return (scan < tail ? scan++ : -1);
+    }
+
+    SysMessageID getID(int pos) {
+        SysMessageID sysid = (SysMessageID) templates.get(addrs[pos]).clone();
+        sysid.setTimestamp(timestamps[pos]);
+        sysid.setSequence(sequences[pos]);
+        sysid.setPort(ports[pos]);
+        return sysid;
+    }
+
+    long getExpiration(int pos) {
+        return expirations[pos];
+    }
+
+    boolean isExpired(int pos, long now) {
+        return expirations[pos] != 0L && expirations[pos] <= now;
+    }
+
+    int getSize(int pos) {
+        return sizes[pos];
+    }
+
+    int getPriority(int pos) {
+        int p = priorities[pos];
+        return (p >= 0 ? p : ~p);
+    }
+
+    /**
+     * Take the message at the position out of the index
+     */
+    void remove(int pos) {
+        if (priorities[pos] < 0) {
+            return;
+        }
+        priorities[pos] = (byte) ~priorities[pos];
+        count--;
+        bytes -= sizes[pos];
+        first();
+        if (head >= COMPACT_THRESHOLD && head * 2 >= tail) {
+            grow();
+        }
+    }
+
+    /**
+     * Sort the index: highest priority first, then oldest timestamp, then lowest sequence.
+     */
+    void sort() {
+        sort(head, tail - 1);
+        sorted = true;
+    }
+
+    private int compare(int i, int j) {
+        return compare(i, getPriority(j), timestamps[j], sequences[j]);
+    }
+
+    private int compare(int i, int priority, long timestamp, int sequence) {
+        int dif = priority - getPriority(i);
+        if (dif != 0) {
+            return dif;
+        }
+        int c = Long.compare(timestamps[i], timestamp);
+        return (c != 0 ? c : Integer.compare(sequences[i], sequence));
+    }
+
+    private void swap(int i, int j) {
+        long l = timestamps[i];
+        timestamps[i] = timestamps[j];
+        timestamps[j] = l;
+        l = expirations[i];
+        expirations[i] = expirations[j];
+        expirations[j] = l;
+        int n = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = n;
+        n = ports[i];
+        ports[i] = ports[j];
+        ports[j] = n;
+        n = addrs[i];
+        addrs[i] = addrs[j];
+        addrs[j] = n;
+        n = sizes[i];
+        sizes[i] = sizes[j];
+        sizes[j] = n;
+        byte b = priorities[i];
+        priorities[i] = priorities[j];
+        priorities[j] = b;
+    }
+
+    // quicksort recursing into the smaller part only, so the stack depth stays logarithmic
+    private void sort(int lo, int hi) {
+        while (hi - lo > 16) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, lo) < 0) {
+                swap(mid, lo);
+            }
+            if (compare(hi, lo) < 0) {
+                swap(hi, lo);
+            }
+            if (compare(hi, mid) < 0) {
+                swap(hi, mid);
+            }
+            swap(mid, hi - 1);
+            int pivot = hi - 1;
+            int i = lo;
+            int j = hi - 1;
+            while (true) {
+                while (compare(++i, pivot) < 0) {
+                }
+                while (compare(--j, pivot) > 0) {
+                }
+                if (i >= j) {
+                    break;
+                }
+                swap(i, j);
+            }
+            swap(i, hi - 1);
+            if (i - lo < hi - i) {
+                sort(lo, i - 1);
+                lo = i + 1;
+            } else {
+                sort(i + 1, hi);
+                hi = i - 1;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && compare(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches to the queue consumer with the least outstanding work, that is the fewest messages buffered for delivery
+ * or waiting for acknowledgement. A consumer may pull up to {@link WeightedRoundRobinDispatchPolicy#QUANTUM} messages
+ * beyond the least loaded of the other consumers.
+ * <P>
+ *
+ * Each consumer publishes its outstanding count in an atomic when it pulls, other consumers only read it, so no lock
+ * is shared between consumers.
+ */
+class LeastOutstandingDispatchPolicy implements DispatchPolicy {
+
+    private final Map<ConsumerUID, Slot> slots = new ConcurrentHashMap<>();
+
+    static final class Slot {
+        final Consumer consumer;
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        Slot(Consumer consumer) {
+            this.consumer = consumer;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return LEAST_OUTSTANDING;
+    }
+
+    @Override
+    public void consumerAdded(Consumer consumer) {
+        slots.put(consumer.getConsumerUID(), new Slot(consumer));
+    }
+
+    @Override
+    public void consumerRemoved(Consumer consumer) {
+        slots.remove(consumer.getConsumerUID());
+    }
+
+    @Override
+    public int getDispatchLimit(Consumer consumer, int requested) {
+        Slot slot = slots.get(consumer.getConsumerUID());
+        if (slot == null) {
+            return requested;
+        }
+        int mine = consumer.numInProcessMsgs();
+        slot.outstanding.set(mine);
+
+        int min = Integer.MAX_VALUE;
+        for (Slot s : slots.values()) {
+            if (s != slot && WeightedRoundRobinDispatchPolicy.isReady(s.consumer)) {
+                min = Math.min(min, s.outstanding.get());
+            }
+        }
+        if (min == Integer.MAX_VALUE) {
+            // no other consumer can take messages
+            return requested;
+        }
+        long limit = (long) min + WeightedRoundRobinDispatchPolicy.QUANTUM - mine;
+        return (int) Math.max(1L, Math.min(limit, requested));
+    }
+
+    @Override
+    public void messagesDispatched(Consumer consumer, int count) {
+        Slot slot = slots.get(consumer.getConsumerUID());
+        if (slot != null) {
+            slot.outstanding.addAndGet(count);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import java.util.List;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+import org.jvnet.hk2.annotations.Service;
+import org.glassfish.hk2.api.PerLookup;
+
+/**
+ * Assigns a connection to the partition with the least recent persistent message traffic.
+ * <P>
+ *
+ * The load of a partition is the larger of its measured bytes per second and its connection count times the average
+ * rate of a connection across all partitions. The second term covers connections assigned since the rates were last
+ * sampled, so a burst of new connections is spread out instead of all going to the partition that was idle. Ties,
+ * including the idle broker where all rates are 0, go to the partition with the fewest connections.
+ */
+@Service(name = "com.sun.messaging.jmq.jmsserver.core.LoadConnToPartitionStrategy")
+@PerLookup
+public class LoadConnToPartitionStrategy implements ConnToPartitionStrategy {
+
+    @Override
+    public PartitionedStore chooseStorePartition(List<ConnToPartitionStrategyContext> pscs) throws BrokerException {
+        if (pscs == null || pscs.size() == 0) {
+            return null;
+        }
+        int n = pscs.size();
+        long[] rates = new long[n];
+        int[] conns = new int[n];
+        long totalRate = 0L;
+        long totalConns = 0L;
+        for (int i = 0; i < n; i++) {
+            rates[i] = pscs.get(i).getPersistByteRate();
+            conns[i] = pscs.get(i).getConnectionCount();
+            totalRate += rates[i];
+            totalConns += conns[i];
+        }
+        long connRate = (totalConns == 0L ? 0L : totalRate / totalConns);
+
+        int min = 0;
+        long minLoad = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            long load = Math.max(rates[i], connRate * conns[i]);
+            if (load < minLoad || (load == minLoad && conns[i] < conns[min])) {
+                min = i;
+                minLoad = load;
+            }
+        }
+        return pscs.get(min).getPartitionedStore();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.memory.MemoryManager;
+import com.sun.messaging.jmq.util.MQThread;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * Explicit paging of the persistent messages of a queue.
+ * <P>
+ *
+ * Instead of leaving eviction to the garbage collector through the SoftReference in PacketReference, the pager holds a
+ * bounded window of messages at the head of the pending list in memory and drops the packets of stored messages
+ * behind it. Messages that enter the window are read back from the store in sequential batches before a consumer
+ * reaches them. The window shrinks as the broker moves into higher memory levels.
+ * <P>
+ *
+ * Only persistent messages which are already in the store are paged, non-persistent messages always stay in memory.
+ * The pagers of all queues share one scheduler thread of their own, so store reads never hold up the broker timer. Each
+ * run works on a copy of the head of the pending list and does not hold the pending list lock while it reads from the
+ * store.
+ */
+public class MessagePager {
+
+    private static final String PREFIX = Globals.IMQ + ".destination.paging";
+
+    public static final String ENABLED_PROP = PREFIX + ".enabled";
+    public static final String WINDOW_PROP = PREFIX + ".window";
+    public static final String BATCH_PROP = PREFIX + ".batch";
+    public static final String INTERVAL_PROP = PREFIX + ".interval";
+
+    private static final boolean ENABLED = Globals.getConfig().getBooleanProperty(ENABLED_PROP, false);
+
+    /**
+     * number of messages at the head of a queue held in memory in the green memory level
+     */
+    private static final int WINDOW = Globals.getConfig().getIntProperty(WINDOW_PROP, 1000);
+
+    /**
+     * maximum number of messages read back from the store per paging run
+     */
+    private static final int BATCH = Globals.getConfig().getIntProperty(BATCH_PROP, 100);
+
+    /**
+     * time in milliseconds between paging runs
+     */
+    private static final long INTERVAL = Globals.getConfig().getLongProperty(INTERVAL_PROP, 1000L);
+
+    private static boolean DEBUG = false;
+
+    private static ScheduledThreadPoolExecutor scheduler = null;
+
+    private final Logger logger = Globals.getLogger();
+
+    private final Queue queue;
+
+    private ScheduledFuture<?> task = null;
+
+    private volatile boolean started = false;
+
+    /**
+     * messages paged in by the last run
+     */
+    private Set<PacketReference> pinned = new HashSet<>();
+
+    private volatile long pagedIn = 0;
+    private volatile long pagedOut = 0;
+    private volatile long pageInRate = 0;
+    private volatile long pageOutRate = 0;
+
+    private long lastRunTime = 0;
+
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    MessagePager(Queue queue) {
+        this.queue = queue;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                MQThread t = new MQThread(r, "imqMessagePager");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+
+    synchronized void start() {
+        if (task != null) {
+            return;
+        }
+        lastRunTime = System.currentTimeMillis();
+        try {
+            task = getScheduler().scheduleWithFixedDelay(this::run, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+            started = true;
+        } catch (RejectedExecutionException ex) {
+            logger.log(Logger.DEBUG, "Unable to start message pager for " + queue, ex);
+            task = null;
+        }
+    }
+
+    boolean isStarted() {
+        return started;
+    }
+
+    void stop() {
+        ScheduledFuture<?> t;
+        synchronized (this) {
+            t = task;
+            task = null;
+        }
+        if (t != null) {
+            t.cancel(false);
+            release();
+        }
+    }
+
+    /**
+     * @return total number of messages read back from the store
+     */
+    public long getNumPagedIn() {
+        return pagedIn;
+    }
+
+    /**
+     * @return total number of messages dropped from memory
+     */
+    public long getNumPagedOut() {
+        return pagedOut;
+    }
+
+    /**
+     * @return messages per second read back from the store during the last paging run
+     */
+    public long getPageInRate() {
+        return pageInRate;
+    }
+
+    /**
+     * @return messages per second dropped from memory during the last paging run
+     */
+    public long getPageOutRate() {
+        return pageOutRate;
+    }
+
+    private static int getMemoryLevel() {
+        MemoryManager mm = Globals.getMemManager();
+        return mm == null ? 0 : mm.getCurrentLevel();
+    }
+
+    synchronized void page() {
+        int level = getMemoryLevel();
+        int window = (level <= 0 ? WINDOW : WINDOW >> (2 * level));
+
+        long in = 0;
+        long out = 0;
+        int read = 0;
+        boolean scannedWindow = true;
+        Set<PacketReference> head = new HashSet<>();
+
+        // under memory pressure the messages behind the window are paged out as well
+        List<PacketReference> refs = queue.getPendingSnapshot(level > 0 ? Integer.MAX_VALUE : window);
+        int cnt = 0;
+        while (cnt < window && cnt < refs.size()) {
+            PacketReference ref = refs.get(cnt);
+            boolean loaded = ref.isPacketLoaded();
+            if (!loaded && read >= BATCH) {
+                // rest of the window is prefetched on the next run
+                scannedWindow = false;
+                break;
+            }
+            cnt++;
+            if (ref.pageIn()) {
+                head.add(ref);
+                if (!loaded) {
+                    read++;
+                    in++;
+                }
+            }
+        }
+
+        for (PacketReference ref : pinned) {
+            if (head.contains(ref)) {
+                continue;
+            }
+            if (level > 0) {
+                if (ref.pageOut()) {
+                    out++;
+                }
+            } else {
+                ref.unpin();
+            }
+        }
+        pinned = head;
+
+        if (level > 0 && scannedWindow) {
+            // drop everything behind the window in one pass
+            // rather than waiting for the garbage collector to pick messages
+            for (int i = cnt; i < refs.size(); i++) {
+                if (refs.get(i).pageOut()) {
+                    out++;
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long elapsed = Math.max(1L, now - lastRunTime);
+        lastRunTime = now;
+        pagedIn += in;
+        pagedOut += out;
+        pageInRate = in * 1000L / elapsed;
+        pageOutRate = out * 1000L / elapsed;
+
+        if (DEBUG && (in > 0 || out > 0)) {
+            logger.log(Logger.DEBUG, "MessagePager " + queue + ": level=" + level + ", window=" + window + ", pagedIn=" + in + ", pagedOut=" + out);
+        }
+    }
+
+    /**
+     * releases every message held by the pager back to the garbage collector
+     */
+    synchronized void release() {
+        for (PacketReference ref : pinned) {
+            ref.unpin();
+        }
+        pinned = new HashSet<>();
+    }
+
+    private void run() {
+        if (!queue.isValid()) {
+            stop();
+            return;
+        }
+        try {
+            page();
+        } catch (Throwable t) {
+            logger.logStack(Logger.WARNING, "Message paging failed for " + queue, t);
+        }
+    }
+}
@@ -402,7 +402,11 @@ public class PacketReference implements Sized, Ordered {
         return createReference(ps, p, (DestinationUID) null, con);
     }
 
-    public static void moveMessage(PartitionedStore storep, PacketReference oldLoc, PacketReference newLoc, Set targets) throws BrokerException, IOException {
+    /**
+     * @param sync if false, the store is not synced and the caller is responsible for syncing it
+     */
+    public static void moveMessage(PartitionedStore storep, PacketReference oldLoc, PacketReference newLoc, Set targets, boolean sync)
+            throws BrokerException, IOException {
 
         if (targets == null) {
             // get from the original message
@@ -424,13 +428,13 @@ public class PacketReference implements Sized, Ordered {
             return;
         }
         if (oldLoc.isStored && oldLoc.persist && !oldLoc.neverStore) {
-            storep.moveMessage(newLoc.getPacket(), oldLoc.getDestinationUID(), newLoc.getDestinationUID(), info.uids, info.states, Destination.PERSIST_SYNC);
+            storep.moveMessage(newLoc.getPacket(), oldLoc.getDestinationUID(), newLoc.getDestinationUID(), info.uids, info.states, sync);
             newLoc.isStored = true;
             newLoc.isStoredWithInterest = true;
             oldLoc.isStored = false;
             oldLoc.isStoredWithInterest = false;
         } else if (oldLoc.persist) {
-            storep.storeMessage(newLoc.getDestinationUID(), newLoc.getPacket(), info.uids, info.states, Destination.PERSIST_SYNC);
+            storep.storeMessage(newLoc.getDestinationUID(), newLoc.getPacket(), info.uids, info.states, sync);
             newLoc.isStored = true;
             newLoc.isStoredWithInterest = true;
             newLoc.neverStore = false;
@@ -1622,10 +1626,9 @@ public class PacketReference implements Sized, Ordered {
         headers = null;
         Hashtable oldprops = null;
         try {
-            oldprops = getProperties();
-            if (oldprops == null) {
-                oldprops = new Hashtable();
-            }
+            // copy, the Hashtable may be shared with the packet of an in-VM sender
+            Hashtable currentprops = getProperties();
+            oldprops = (currentprops == null) ? new Hashtable() : new Hashtable(currentprops);
             if (props != null) {
                 Globals.getLogger().log(Logger.DEBUG, "Warning although properties have been changed on the message it will not be rerouted");
                 oldprops.putAll(props);
@@ -2245,6 +2248,20 @@ public class PacketReference implements Sized, Ordered {
         return ret;
     }
 
+    /**
+     * Same as remove(false) except that the store removal is left to the caller, who removes many messages from the store
+     * in one call.
+     *
+     * @return true if the caller must remove the message from the store
+     */
+    boolean removeDeferred() {
+        if (isStored && !neverStore && persist) {
+            isStored = false;
+            return true;
+        }
+        return false;
+    }
+
     /**
      * This method must called after
      *
@@ -2401,6 +2418,63 @@ public class PacketReference implements Sized, Ordered {
         }
     }
 
+    /**
+     * used by MessagePager, true if the packet is currently in memory
+     */
+    synchronized boolean isPacketLoaded() {
+        return getPacketObject() != null;
+    }
+
+    /**
+     * used by MessagePager to hold the packet of a stored persistent message in memory, reading it back from the store
+     * if it has been paged out
+     *
+     * @return false if the message can not be paged
+     */
+    synchronized boolean pageIn() {
+        if (destroyed || invalid || !persist || !isStored) {
+            return false;
+        }
+        Packet pkt = getPacketObject();
+        if (pkt == null) {
+            pkt = recoverPacket();
+            if (pkt == null) {
+                return false;
+            }
+        }
+        setPacketObject(false, pkt);
+        return true;
+    }
+
+    /**
+     * used by MessagePager to release a paged in packet back to the garbage collector
+     */
+    synchronized void unpin() {
+        if (!destroyed && persist && isStored) {
+            makePacketSoftRef();
+        }
+    }
+
+    /**
+     * used by MessagePager to drop the packet of a stored persistent message from memory, it is read back from the
+     * store on next access
+     *
+     * @return true if a packet was released
+     */
+    synchronized boolean pageOut() {
+        if (destroyed || !persist || !isStored) {
+            return false;
+        }
+        boolean loaded = getPacketObject() != null;
+        // keep a cleared reference rather than null, a null pktPtr means the message has been destroyed
+        if (pktPtr instanceof SoftReference) {
+            ((SoftReference) pktPtr).clear();
+        } else {
+            pktPtr = new SoftReference(null);
+        }
+        return loaded;
+    }
+
 //------------------------------------------------------------------
 //
 //          DMQ methods
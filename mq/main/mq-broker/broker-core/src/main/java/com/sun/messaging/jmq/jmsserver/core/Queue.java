@@ -52,10 +52,18 @@ public class Queue extends Destination {
     private transient NFLPriorityFifoSet<PacketReference> pending = null;
     private transient SubSet pendingSubset = null;
     private transient HashSet delivered = null;
+    private transient MessagePager pager = null;
+    private transient DispatchPolicy dispatchPolicy = null;
+
+    /**
+     * set on the DMQ only, syncs the messages moved to it
+     */
+    transient DMQWriter dmqWriter = null;
 
     protected transient Map<String, SubSet> views = null;
 
     private boolean localDeliveryPreferred = false;
+    private String dispatchPolicyName = null;
     private int maxActiveCount = 1;
     private int maxFailoverCount = 0;
     private int maxSize = (maxActiveCount < 0 || maxFailoverCount < 0) ? -1 : maxActiveCount + maxFailoverCount;
@@ -82,6 +90,7 @@ public class Queue extends Destination {
     public static final String MAX_ACTIVE = "max_active";
     public static final String MAX_FAILOVER = "max_failover";
     public static final String LOCAL_DELIVERY = "local_delivery_preferred";
+    public static final String DISPATCH_POLICY = "dispatch_policy";
 
     public static final int DEFAULT_MAX_ACTIVE_CONSUMERS = -1;
 
@@ -98,8 +107,14 @@ public class Queue extends Destination {
 
     private static boolean QUEUE_LDP = Globals.getConfig().getBooleanProperty(Globals.IMQ + ".autocreate.queue.localDeliveryPreferred", false);
 
+    private static String QUEUE_DISPATCH_POLICY = Globals.getConfig().getProperty(Globals.IMQ + ".autocreate.queue.dispatchPolicy",
+            DispatchPolicy.DEFAULT);
+
     @Override
     public void unload(boolean refs) {
+        if (pager != null) {
+            pager.release();
+        }
         super.unload(refs);
         if (refs) {
             pending.clear();
@@ -107,6 +122,97 @@ public class Queue extends Destination {
         }
     }
 
+    @Override
+    protected void destroy(String destroyReason, boolean noerrnotfound) throws IOException, BrokerException {
+        if (pager != null) {
+            pager.stop();
+        }
+        super.destroy(destroyReason, noerrnotfound);
+    }
+
+    @Override
+    public MessagePager getMessagePager() {
+        return pager;
+    }
+
+    /**
+     * used by MessagePager, copies up to max messages from the head of the pending list in delivery order. The copy is
+     * taken under the pending list lock so the pager can read from the store without holding it.
+     */
+    List<PacketReference> getPendingSnapshot(int max) {
+        synchronized (pending) {
+            List<PacketReference> refs = new ArrayList<>(Math.min(max, pending.size()));
+            Iterator<PacketReference> itr = pending.iterator();
+            while (refs.size() < max && itr.hasNext()) {
+                refs.add(itr.next());
+            }
+            return refs;
+        }
+    }
+
+    private static DispatchPolicy createDispatchPolicy(String name) {
+        if (name == null || name.equalsIgnoreCase(DispatchPolicy.DEFAULT)) {
+            return null;
+        }
+        if (name.equalsIgnoreCase(DispatchPolicy.WEIGHTED_ROUND_ROBIN)) {
+            return new WeightedRoundRobinDispatchPolicy();
+        }
+        if (name.equalsIgnoreCase(DispatchPolicy.LEAST_OUTSTANDING)) {
+            return new LeastOutstandingDispatchPolicy();
+        }
+        throw new IllegalArgumentException("Unknown queue dispatch policy " + name);
+    }
+
+    @Override
+    public String getDispatchPolicyName() {
+        return (dispatchPolicyName == null ? DispatchPolicy.DEFAULT : dispatchPolicyName);
+    }
+
+    /**
+     * sets how the pending messages are shared between the active consumers of the queue
+     *
+     * @param name one of {@link DispatchPolicy#DEFAULT}, {@link DispatchPolicy#WEIGHTED_ROUND_ROBIN} or
+     * {@link DispatchPolicy#LEAST_OUTSTANDING}
+     */
+    @Override
+    public void setDispatchPolicy(String name) throws BrokerException {
+        DispatchPolicy policy = null;
+        try {
+            policy = createDispatchPolicy(name);
+        } catch (IllegalArgumentException e) {
+            throw new BrokerException(e.getMessage(), e, Status.BAD_REQUEST);
+        }
+        String oldVal = getDispatchPolicyName();
+        synchronized (allConsumers) {
+            dispatchPolicyName = (policy == null ? null : policy.getName());
+            dispatchPolicy = policy;
+            Iterator itr = allConsumers.values().iterator();
+            while (itr.hasNext()) {
+                Consumer c = ((QueueInfo) itr.next()).consumer;
+                if (policy != null) {
+                    policy.consumerAdded(c);
+                }
+                c.setDispatchPolicy(policy);
+            }
+        }
+        notifyAttrUpdated(DestinationInfo.DISPATCH_POLICY, oldVal, getDispatchPolicyName());
+    }
+
+    private void initDispatchPolicy() {
+        try {
+            dispatchPolicy = createDispatchPolicy(dispatchPolicyName);
+        } catch (IllegalArgumentException e) {
+            logger.log(Logger.WARNING, e.getMessage() + ", using " + DispatchPolicy.DEFAULT + " for " + this);
+            dispatchPolicyName = null;
+        }
+    }
+
+    private void initMessagePager() {
+        if (MessagePager.isEnabled() && !isTemporary()) {
+            pager = new MessagePager(this);
+        }
+    }
+
     @Override
     public void sort(Comparator c) {
         // sort pending delivery list
@@ -132,7 +238,7 @@ public class Queue extends Destination {
 
     @Override
     public int getUnackSize() {
-        int size = destMessages.size() - pending.size();
+        int size = destMessages.size() - pending.size() - getLazyHeldCount();
         if (size < 0) {
             logger.log(Logger.DEBUG, "Unexpected size for destination " + this + " [size,pending]=[" + destMessages.size() + "," + pending.size() + "]");
             size = 0;
@@ -146,6 +252,7 @@ public class Queue extends Destination {
         ht.put("maxNumBackupConsumers", String.valueOf(defaultMaxFailoverCount));
         ht.put("consumerFlowLimit", String.valueOf(QUEUE_DEFAULT_PREFETCH));
         ht.put("localDeliveryPreferred", String.valueOf(QUEUE_LDP));
+        ht.put("dispatchPolicy", QUEUE_DISPATCH_POLICY);
         return ht;
     }
 
@@ -180,6 +287,7 @@ public class Queue extends Destination {
         }
         ht.put("deliveredCnt", String.valueOf(delivered.size()));
         ht.put("localDeliveryPreferred", String.valueOf(localDeliveryPreferred));
+        ht.put("dispatchPolicy", getDispatchPolicyName());
         ht.put("maxActiveCount", String.valueOf(maxActiveCount));
         ht.put("maxFailoverCount", String.valueOf(maxFailoverCount));
         ht.put("maxSize", String.valueOf(maxSize));
@@ -257,6 +365,7 @@ public class Queue extends Destination {
         pending = new NFLPriorityFifoSet<>(11, false);
         delivered = new HashSet();
         localDeliveryPreferred = QUEUE_LDP;
+        dispatchPolicyName = (QUEUE_DISPATCH_POLICY.equalsIgnoreCase(DispatchPolicy.DEFAULT) ? null : QUEUE_DISPATCH_POLICY);
 
         // compatibility w/ 3.5
         consumerPositions = new Vector();
@@ -265,6 +374,8 @@ public class Queue extends Destination {
 
         destMessages.addEventListener(this, EventType.SET_CHANGED, this);
         setDefaultCounts(type);
+        initDispatchPolicy();
+        initMessagePager();
     }
 
     @Override
@@ -300,6 +411,7 @@ public class Queue extends Destination {
         m.put(MAX_ACTIVE, Integer.valueOf(maxActiveCount));
         m.put(MAX_FAILOVER, Integer.valueOf(maxFailoverCount));
         m.put(LOCAL_DELIVERY, Boolean.valueOf(localDeliveryPreferred));
+        m.put(DISPATCH_POLICY, getDispatchPolicyName());
     }
 
     @Override
@@ -325,6 +437,13 @@ public class Queue extends Destination {
             boolean local = ((Boolean) m.get(LOCAL_DELIVERY)).booleanValue();
             setClusterDeliveryPolicy(local ? ClusterDeliveryPolicy.LOCAL_PREFERRED : ClusterDeliveryPolicy.DISTRIBUTED);
         }
+        if (m.get(DISPATCH_POLICY) != null) {
+            try {
+                setDispatchPolicy((String) m.get(DISPATCH_POLICY));
+            } catch (BrokerException ex) {
+                logger.logStack(Logger.WARNING, "setDispatchPolicy()", ex);
+            }
+        }
         super.setDestinationProperties(m);
     }
 
@@ -379,13 +498,16 @@ public class Queue extends Destination {
                 logger.logStack(Logger.WARNING, "setDefaultCounts()", ex);
             }
         }
+        initDispatchPolicy();
+        initMessagePager();
     }
 
     @Override
     public Set routeAndMoveMessage(PacketReference oldRef, PacketReference newRef) throws IOException, BrokerException {
         // store w/ the new value
         try {
-            newRef.moveMessage(pstore, oldRef, newRef, queueConsumer);
+            boolean sync = PERSIST_SYNC && (dmqWriter == null || !dmqWriter.isBatching());
+            PacketReference.moveMessage(pstore, oldRef, newRef, queueConsumer, sync);
         } catch (BrokerException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -395,7 +517,9 @@ public class Queue extends Destination {
         if (odest instanceof Queue) {
             ((Queue) odest).pending.remove(oldRef);
         }
-        pending.add(10 - newRef.getPriority(), newRef);
+        if (!holdBehindLazyIndex(newRef)) {
+            pending.add(10 - newRef.getPriority(), newRef);
+        }
         return null; // not an explicit set
     }
 
@@ -409,7 +533,9 @@ public class Queue extends Destination {
         } catch (RuntimeException ex) {
             throw new BrokerException(ex.toString(), ex);
         }
-        pending.add(10 - ref.getPriority(), ref);
+        if (!holdBehindLazyIndex(ref)) {
+            pending.add(10 - ref.getPriority(), ref);
+        }
         return null; // not an explicit set
     }
 
@@ -468,6 +594,50 @@ public class Queue extends Destination {
         // does nothing
     }
 
+    @Override
+    protected int getLazyLoadBacklog() {
+        return pending.size();
+    }
+
+    @Override
+    protected void routeIndexedMessage(PacketReference ref, List consumerids) {
+        // already stored, and never held behind the index it comes from
+        pending.add(10 - ref.getPriority(), ref);
+    }
+
+    @Override
+    protected Filter getLazyScanFilter() {
+        List<SelectorFilter> filters = new ArrayList<>();
+        Iterator itr = consumers.getAll(null).values().iterator();
+        while (itr.hasNext()) {
+            Consumer c = (Consumer) itr.next();
+            if (c.getSelector() != null) {
+                filters.add(new SelectorFilter(c.getSelectorStr(), c.getSelector()));
+            }
+        }
+        if (filters.isEmpty()) {
+            return null;
+        }
+        return o -> {
+            for (SelectorFilter sf : filters) {
+                if (sf.matches(o)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @Override
+    protected void lazyIndexLoaded(List<PacketReference> held) {
+        for (PacketReference ref : held) {
+            // skip messages removed while they were held
+            if (destMessages.get(ref.getSysMessageID()) == ref) {
+                pending.add(10 - ref.getPriority(), ref);
+            }
+        }
+    }
+
     @Override
     public void forwardDeliveryDelayedMessage(Set<ConsumerUID> consumers, PacketReference ref) throws BrokerException {
         pending.add(10 - ref.getPriority(), ref);
@@ -492,6 +662,9 @@ public class Queue extends Destination {
 
                 pending.remove(me.getValue());
                 delivered.remove(me.getValue());
+            } else if (pager != null && !pager.isStarted()) {
+                // the pager timer is started with the first message
+                pager.start();
             }
         }
         super.eventOccured(type, r, target, oldval, newval, userdata);
@@ -699,6 +872,10 @@ public class Queue extends Destination {
 
         consumer.setStoredConsumerUID(PacketReference.getQueueUID());
         super.addConsumer(consumer, local, conn, loadIfActive);
+        if (consumer.getSelector() != null) {
+            // the lazy load index can not evaluate selectors, scan it for the consumer's matches
+            scanLazyIndex();
+        }
         // make sure we dont have anything weird going on
         if (!local && getIsLocal()) {
             // weird, non-local consumer w/ local destination
@@ -729,6 +906,10 @@ public class Queue extends Destination {
 
         synchronized (allConsumers) {
             allConsumers.put(consumer.getConsumerUID(), qinfo);
+            if (dispatchPolicy != null) {
+                dispatchPolicy.consumerAdded(consumer);
+            }
+            consumer.setDispatchPolicy(dispatchPolicy);
         }
         synchronized (this) {
             // update counters
@@ -783,6 +964,9 @@ public class Queue extends Destination {
         QueueInfo c = null;
         synchronized (allConsumers) {
             c = (QueueInfo) allConsumers.remove(cid);
+            if (c != null && dispatchPolicy != null) {
+                dispatchPolicy.consumerRemoved(c.consumer);
+            }
         }
         if (c == null) {
             notifyConsumerRemoved();
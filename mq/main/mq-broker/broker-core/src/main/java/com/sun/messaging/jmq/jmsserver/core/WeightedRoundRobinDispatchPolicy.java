@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+
+/**
+ * Weighted round robin over the consumers of a queue, implemented as stride scheduling.
+ * <P>
+ *
+ * Each consumer has a pass value that advances by count / weight as it pulls messages. A consumer may run at most
+ * {@link #QUANTUM} messages ahead of the consumer with the lowest pass, so over time each consumer receives messages
+ * in proportion to its weight. The weight of a consumer is its prefetch (consumer flow limit).
+ * <P>
+ *
+ * State is kept in atomics per consumer, no lock is shared between consumers.
+ */
+class WeightedRoundRobinDispatchPolicy implements DispatchPolicy {
+
+    static final int QUANTUM = Globals.getConfig().getIntProperty(Globals.IMQ + ".destination.dispatch.quantum", 10);
+
+    private static final int DEFAULT_WEIGHT = 1000;
+
+    /**
+     * pass values are scaled so that the pass step of a weight of 1 message is SCALE
+     */
+    private static final long SCALE = 1L << 20;
+
+    private final Map<ConsumerUID, Slot> slots = new ConcurrentHashMap<>();
+
+    static final class Slot {
+        final Consumer consumer;
+        final int weight;
+        final AtomicLong pass;
+        /**
+         * set when another consumer saw this one unable to take messages
+         */
+        volatile boolean idle;
+
+        Slot(Consumer consumer, long pass) {
+            this.consumer = consumer;
+            int prefetch = consumer.getPrefetch();
+            this.weight = (prefetch <= 0 ? DEFAULT_WEIGHT : prefetch);
+            this.pass = new AtomicLong(pass);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return WEIGHTED_ROUND_ROBIN;
+    }
+
+    static boolean isReady(Consumer c) {
+        return c.isActive() && c.getIsActiveConsumer() && !c.isPaused() && !c.getIsFlowPaused();
+    }
+
+    /**
+     * lowest pass of the consumers that are able to take messages, or Long.MAX_VALUE if none
+     */
+    private long minPass(Slot self) {
+        long min = Long.MAX_VALUE;
+        for (Slot s : slots.values()) {
+            if (s == self || isReady(s.consumer)) {
+                min = Math.min(min, s.pass.get());
+            } else {
+                s.idle = true;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * lowest pass of the other consumers that are able to take messages, or Long.MIN_VALUE if none
+     */
+    private long minOtherPass(Slot self) {
+        long min = Long.MAX_VALUE;
+        for (Slot s : slots.values()) {
+            if (s != self && isReady(s.consumer)) {
+                min = Math.min(min, s.pass.get());
+            }
+        }
+        return (min == Long.MAX_VALUE ? Long.MIN_VALUE : min);
+    }
+
+    @Override
+    public void consumerAdded(Consumer consumer) {
+        long min = minPass(null);
+        // start level with the others instead of catching up from 0
+        slots.put(consumer.getConsumerUID(), new Slot(consumer, min == Long.MAX_VALUE ? 0 : min));
+    }
+
+    @Override
+    public void consumerRemoved(Consumer consumer) {
+        slots.remove(consumer.getConsumerUID());
+    }
+
+    @Override
+    public int getDispatchLimit(Consumer consumer, int requested) {
+        Slot slot = slots.get(consumer.getConsumerUID());
+        if (slot == null) {
+            return requested;
+        }
+        if (slot.idle) {
+            // consumer was idle (paused or out of credit), do not let it make up for lost time
+            slot.idle = false;
+            long others = minOtherPass(slot);
+            long pass = slot.pass.get();
+            while (pass < others && !slot.pass.compareAndSet(pass, others)) {
+                pass = slot.pass.get();
+            }
+        }
+        long min = minPass(slot);
+        long pass = slot.pass.get();
+        long limit = QUANTUM - ((pass - min) * slot.weight / SCALE);
+        return (int) Math.max(1L, Math.min(limit, requested));
+    }
+
+    @Override
+    public void messagesDispatched(Consumer consumer, int count) {
+        Slot slot = slots.get(consumer.getConsumerUID());
+        if (slot != null) {
+            slot.pass.addAndGet(count * SCALE / slot.weight);
+        }
+    }
+}
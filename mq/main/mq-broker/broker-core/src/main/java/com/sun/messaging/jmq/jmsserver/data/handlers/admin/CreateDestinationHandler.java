@@ -188,6 +188,9 @@ public class CreateDestinationHandler extends AdminCmdHandler {
                 if (info.isModified(info.RELOAD_XML_SCHEMA_ON_FAILURE)) {
                     d.setReloadXMLSchemaOnFailure(info.reloadXMLSchemaOnFailure);
                 }
+                if (info.isModified(info.DISPATCH_POLICY)) {
+                    d.setDispatchPolicy(info.dispatchPolicy);
+                }
                 d.update();
 
                 // audit logging for create destination
@@ -225,6 +225,7 @@ public class GetDestinationsHandler extends AdminCmdHandler {
             di.validateXMLSchemaEnabled = d.validateXMLSchemaEnabled();
             di.XMLSchemaUriList = d.getXMLSchemaUriList();
             di.reloadXMLSchemaOnFailure = d.reloadXMLSchemaOnFailure();
+            di.dispatchPolicy = d.getDispatchPolicyName();
         }
 
         if (!d.isQueue()) {
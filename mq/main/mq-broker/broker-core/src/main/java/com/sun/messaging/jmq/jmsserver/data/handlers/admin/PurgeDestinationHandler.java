@@ -25,6 +25,7 @@ import java.util.Hashtable;
 import com.sun.messaging.jmq.jmsserver.cluster.api.ha.HAMonitorService;
 import com.sun.messaging.jmq.jmsserver.service.imq.IMQConnection;
 import com.sun.messaging.jmq.jmsserver.core.Destination;
+import com.sun.messaging.jmq.jmsserver.core.DestinationPurger;
 import com.sun.messaging.jmq.io.*;
 import com.sun.messaging.jmq.util.admin.MessageType;
 import com.sun.messaging.jmq.util.log.Logger;
@@ -61,8 +62,16 @@ public class PurgeDestinationHandler extends AdminCmdHandler {
         Integer destType = (Integer) cmd_props.get(MessageType.JMQ_DEST_TYPE);
         assert destination != null;
         assert destType != null;
+        Boolean inBackground = (Boolean) cmd_props.get(MessageType.JMQ_PURGE_IN_BACKGROUND);
+        boolean background = (inBackground != null && inBackground.booleanValue());
+        Boolean progress = (Boolean) cmd_props.get(MessageType.JMQ_PURGE_PROGRESS);
+        boolean progressOnly = (progress != null && progress.booleanValue());
+        if (progressOnly) {
+            background = true;
+        }
         int status = Status.OK;
         String errMsg = null;
+        Hashtable replyProps = null;
 
         HAMonitorService hamonitor = Globals.getHAMonitorService();
         if (hamonitor != null && hamonitor.inTakeover()) {
@@ -79,23 +88,57 @@ public class PurgeDestinationHandler extends AdminCmdHandler {
 // dont use filter for now
 //        Filter f = deleteAll;
 
-            logger.log(Logger.INFO, BrokerResources.I_PURGING_DESTINATION, destination, criteria_str);
+            if (!background) {
+                logger.log(Logger.INFO, BrokerResources.I_PURGING_DESTINATION, destination, criteria_str);
+            }
 
             try {
                 // for now .. just delete all
                 Destination[] ds = DL.getDestination(null, destination, DestType.isQueue(destType.intValue()));
                 Destination d = null;
+                long total = 0L;
+                long removed = 0L;
+                boolean done = true;
                 for (int i = 0; i < ds.length; i++) {
                     d = ds[i];
                     if (d == null) {
                         continue;
                     }
+                    if (progressOnly) {
+                        DestinationPurger p = d.getPurger();
+                        if (p != null) {
+                            if (p.getException() != null) {
+                                throw p.getException();
+                            }
+                            total += p.getTotal();
+                            removed += p.getRemovedCount();
+                            done = done && p.isDone();
+                        }
+                        continue;
+                    }
                     // audit logging for purge destination
                     if (i == 0) {
                         Globals.getAuditSession().destinationOperation(con.getUserName(), con.remoteHostString(), MQAuditSession.PURGE_DESTINATION,
                                 d.isQueue() ? MQAuditSession.QUEUE : MQAuditSession.TOPIC, d.getDestinationName());
                     }
-                    d.purgeDestination();
+                    if (!background) {
+                        d.purgeDestination();
+                        continue;
+                    }
+                    // starts a purge, or reports on the one running
+                    DestinationPurger p = d.purgeDestinationInBackground();
+                    if (p.getException() != null) {
+                        throw p.getException();
+                    }
+                    total += p.getTotal();
+                    removed += p.getRemovedCount();
+                    done = done && p.isDone();
+                }
+                if (background && d != null) {
+                    replyProps = new Hashtable();
+                    replyProps.put(MessageType.JMQ_PURGE_TOTAL, Long.valueOf(total));
+                    replyProps.put(MessageType.JMQ_PURGE_REMOVED, Long.valueOf(removed));
+                    replyProps.put(MessageType.JMQ_PURGE_DONE, Boolean.valueOf(done));
                 }
                 if (d == null) {
                     errMsg = Globals.getBrokerResources().getKString(BrokerResources.E_NO_SUCH_DESTINATION, getDestinationType(destType.intValue()),
@@ -123,7 +166,7 @@ public class PurgeDestinationHandler extends AdminCmdHandler {
         Packet reply = new Packet(con.useDirectBuffers());
         reply.setPacketType(PacketType.OBJECT_MESSAGE);
 
-        setProperties(reply, MessageType.PURGE_DESTINATION_REPLY, status, errMsg);
+        setProperties(reply, MessageType.PURGE_DESTINATION_REPLY, status, errMsg, replyProps);
 
         parent.sendReply(con, cmd_msg, reply);
         return true;
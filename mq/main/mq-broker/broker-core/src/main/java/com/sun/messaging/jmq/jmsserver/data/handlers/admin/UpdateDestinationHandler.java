@@ -139,6 +139,9 @@ public class UpdateDestinationHandler extends AdminCmdHandler {
                     if (info.isModified(info.RELOAD_XML_SCHEMA_ON_FAILURE)) {
                         d.setReloadXMLSchemaOnFailure(info.reloadXMLSchemaOnFailure);
                     }
+                    if (info.isModified(info.DISPATCH_POLICY)) {
+                        d.setDispatchPolicy(info.dispatchPolicy);
+                    }
                     d.update();
                 }
 
@@ -87,7 +87,10 @@ public class DestinationConfig extends MQMBeanReadWrite {
                     true, false),
 
             new MBeanAttributeInfo(DestinationAttributes.RELOAD_XML_SCHEMA_ON_FAILURE, Boolean.class.getName(),
-                    mbr.getString(mbr.I_DST_ATTR_RELOAD_XML_SCHEMA_ON_FAILURE), true, true, false) };
+                    mbr.getString(mbr.I_DST_ATTR_RELOAD_XML_SCHEMA_ON_FAILURE), true, true, false),
+
+            new MBeanAttributeInfo(DestinationAttributes.DISPATCH_POLICY, String.class.getName(), mbr.getString(mbr.I_DST_ATTR_DISPATCH_POLICY), true,
+                    true, false) };
 
     private static MBeanParameterInfo[] pauseSignature = {
             new MBeanParameterInfo("pauseType", String.class.getName(), mbr.getString(mbr.I_DST_OP_PAUSE_PARAM_PAUSE_TYPE)) };
@@ -364,6 +367,19 @@ public class DestinationConfig extends MQMBeanReadWrite {
         return (Boolean.valueOf(d.reloadXMLSchemaOnFailure()));
     }
 
+    public void setDispatchPolicy(String s) throws MBeanException {
+        try {
+            d.setDispatchPolicy(s);
+            d.update();
+        } catch (Exception e) {
+            handleSetterException(DestinationAttributes.DISPATCH_POLICY, e);
+        }
+    }
+
+    public String getDispatchPolicy() {
+        return (d.getDispatchPolicyName());
+    }
+
     public void compact() throws MBeanException {
         try {
             if (!d.isPaused()) {
@@ -38,6 +38,7 @@ import com.sun.messaging.jmq.jmsserver.core.PacketReference;
 import com.sun.messaging.jmq.jmsserver.plugin.spi.ProducerSpi;
 import com.sun.messaging.jmq.jmsserver.core.Consumer;
 import com.sun.messaging.jmq.jmsserver.core.DestinationUID;
+import com.sun.messaging.jmq.jmsserver.core.MessagePager;
 import com.sun.messaging.jmq.jmsserver.service.ConnectionUID;
 import com.sun.messaging.jmq.util.admin.DestinationInfo;
 
@@ -116,6 +117,18 @@ public class DestinationMonitor extends MQMBeanReadOnly {
             new MBeanAttributeInfo(DestinationAttributes.NUM_MSGS_IN_DELAY_DELIVERY, Long.class.getName(),
                     mbr.getString(mbr.I_DST_ATTR_NUM_MSGS_IN_DELAY_DELIVERY), true, false, false),
 
+            new MBeanAttributeInfo(DestinationAttributes.NUM_MSGS_PAGED_IN, Long.class.getName(), mbr.getString(mbr.I_DST_ATTR_NUM_MSGS_PAGED_IN), true,
+                    false, false),
+
+            new MBeanAttributeInfo(DestinationAttributes.NUM_MSGS_PAGED_OUT, Long.class.getName(), mbr.getString(mbr.I_DST_ATTR_NUM_MSGS_PAGED_OUT), true,
+                    false, false),
+
+            new MBeanAttributeInfo(DestinationAttributes.MSGS_PAGED_IN_RATE, Long.class.getName(), mbr.getString(mbr.I_DST_ATTR_MSGS_PAGED_IN_RATE), true,
+                    false, false),
+
+            new MBeanAttributeInfo(DestinationAttributes.MSGS_PAGED_OUT_RATE, Long.class.getName(), mbr.getString(mbr.I_DST_ATTR_MSGS_PAGED_OUT_RATE), true,
+                    false, false),
+
             new MBeanAttributeInfo(DestinationAttributes.NUM_PRODUCERS, Integer.class.getName(), mbr.getString(mbr.I_DST_ATTR_NUM_PRODUCERS), true, false,
                     false),
 
@@ -562,6 +575,26 @@ public class DestinationMonitor extends MQMBeanReadOnly {
         return (Long.valueOf(di.nTxnMessages));
     }
 
+    public Long getNumMsgsPagedIn() {
+        MessagePager pager = d.getMessagePager();
+        return (Long.valueOf(pager == null ? 0 : pager.getNumPagedIn()));
+    }
+
+    public Long getNumMsgsPagedOut() {
+        MessagePager pager = d.getMessagePager();
+        return (Long.valueOf(pager == null ? 0 : pager.getNumPagedOut()));
+    }
+
+    public Long getMsgsPagedInRate() {
+        MessagePager pager = d.getMessagePager();
+        return (Long.valueOf(pager == null ? 0 : pager.getPageInRate()));
+    }
+
+    public Long getMsgsPagedOutRate() {
+        MessagePager pager = d.getMessagePager();
+        return (Long.valueOf(pager == null ? 0 : pager.getPageOutRate()));
+    }
+
     public Long getNumMsgsIn() {
         DestMetricsCounters dmc = d.getMetrics();
         return (Long.valueOf(dmc.getMessagesIn()));
@@ -376,6 +376,11 @@ public class MBeanResources extends MQResourceBundle {
 
     final public static String I_LOG_ATTR_LOG_DIRECTORY = "MB1274";
     final public static String I_LOG_ATTR_LOG_FILE_NAME = "MB1275";
+    final public static String I_DST_ATTR_NUM_MSGS_PAGED_IN = "MB1276";
+    final public static String I_DST_ATTR_NUM_MSGS_PAGED_OUT = "MB1277";
+    final public static String I_DST_ATTR_MSGS_PAGED_IN_RATE = "MB1278";
+    final public static String I_DST_ATTR_MSGS_PAGED_OUT_RATE = "MB1279";
+    final public static String I_DST_ATTR_DISPATCH_POLICY = "MB1280";
 
     // 2000-2999 Warning Messages
     final public static String W_DUMMY = "MB2000";
@@ -52,7 +52,8 @@ public class DestinationUtil {
             DestinationAttributes.LIMIT_BEHAVIOR, DestinationAttributes.LOCAL_DELIVERY_PREFERRED, DestinationAttributes.MAX_BYTES_PER_MSG,
             DestinationAttributes.MAX_NUM_ACTIVE_CONSUMERS, DestinationAttributes.MAX_NUM_BACKUP_CONSUMERS, DestinationAttributes.MAX_NUM_MSGS,
             DestinationAttributes.MAX_NUM_PRODUCERS, DestinationAttributes.MAX_TOTAL_MSG_BYTES, DestinationAttributes.USE_DMQ,
-            DestinationAttributes.VALIDATE_XML_SCHEMA_ENABLED, DestinationAttributes.XML_SCHEMA_URI_LIST, DestinationAttributes.NEXT_MESSAGE_ID };
+            DestinationAttributes.VALIDATE_XML_SCHEMA_ENABLED, DestinationAttributes.XML_SCHEMA_URI_LIST, DestinationAttributes.NEXT_MESSAGE_ID,
+            DestinationAttributes.DISPATCH_POLICY };
 
     private static String[] topicCreateAttrs = { DestinationAttributes.CONSUMER_FLOW_LIMIT, DestinationAttributes.LOCAL_ONLY,
             DestinationAttributes.LIMIT_BEHAVIOR, DestinationAttributes.MAX_BYTES_PER_MSG, DestinationAttributes.MAX_NUM_MSGS,
@@ -491,6 +492,9 @@ public class DestinationUtil {
                     boolean dmq = info.useDMQ;
                     d.setUseDMQ(dmq);
                 }
+                if (info.isModified(info.DISPATCH_POLICY)) {
+                    d.setDispatchPolicy(info.dispatchPolicy);
+                }
                 d.update();
 
                 /*
@@ -619,6 +623,10 @@ public class DestinationUtil {
             if (name.equals(DestinationAttributes.USE_DMQ)) {
                 info.setUseDMQ(((Boolean) value).booleanValue());
             }
+
+            if (name.equals(DestinationAttributes.DISPATCH_POLICY)) {
+                info.setDispatchPolicy((String) value);
+            }
         }
 
         return (info);
@@ -698,6 +706,9 @@ public class DestinationUtil {
         case DestinationInfo.USE_DMQ:
             return (DestinationAttributes.USE_DMQ);
 
+        case DestinationInfo.DISPATCH_POLICY:
+            return (DestinationAttributes.DISPATCH_POLICY);
+
         /*
          * The following from DestinationInfo is not used/supported:
          *
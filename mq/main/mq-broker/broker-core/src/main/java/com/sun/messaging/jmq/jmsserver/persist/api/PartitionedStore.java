@@ -23,7 +23,9 @@ import java.io.IOException;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.Status;
 import com.sun.messaging.jmq.io.SysMessageID;
 import com.sun.messaging.jmq.util.UID;
 import com.sun.messaging.jmq.jmsserver.core.BrokerAddress;
@@ -135,6 +137,43 @@ public interface PartitionedStore {
      */
     void removeMessage(DestinationUID dID, SysMessageID mID, boolean sync, boolean onRollback) throws IOException, BrokerException;
 
+    /**
+     * Remove a batch of messages of a destination from the persistent store. The interest lists of the messages are removed
+     * as well. Messages not found in the store are skipped. Store types that can remove many messages at once override
+     * this; the default removes the messages one at a time.
+     *
+     * @param dID the destination the messages are associated with
+     * @param mIDs the system message ids of the messages to be removed
+     * @param sync if true, will synchronize data to disk once all messages are removed
+     * @return the number of messages removed
+     * @exception IOException if an error occurs while removing the messages
+     * @exception BrokerException if an error occurs while removing the messages
+     */
+    default int removeMessages(DestinationUID dID, List<SysMessageID> mIDs, boolean sync) throws IOException, BrokerException {
+        int removed = 0;
+        boolean synced = false;
+        int last = mIDs.size() - 1;
+        try {
+            for (int i = 0; i <= last; i++) {
+                try {
+                    removeMessage(dID, mIDs.get(i), (sync && i == last));
+                    removed++;
+                    synced = (sync && i == last);
+                } catch (BrokerException e) {
+                    if (e.getStatusCode() != Status.NOT_FOUND) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            // the last message was not there, or a removal failed: sync the ones removed before
+            if (sync && removed > 0 && !synced) {
+                syncMessages(dID);
+            }
+        }
+        return removed;
+    }
+
     /**
      * Move the message from one destination to another. The message will be stored in the target destination with the
      * passed in consumers and their corresponding states. After the message is persisted successfully, the message in the
@@ -154,6 +193,16 @@ public interface PartitionedStore {
     void moveMessage(Packet message, DestinationUID fromDID, DestinationUID toDID, ConsumerUID[] iIDs, int[] states, boolean sync)
             throws IOException, BrokerException;
 
+    /**
+     * Synchronize to disk the message data of a destination that was written with <code>sync</code> set to false. Store
+     * types that commit every operation have nothing to do; the default does nothing.
+     *
+     * @param dID the destination whose message data is to be synchronized
+     * @exception BrokerException if an error occurs while synchronizing the data
+     */
+    default void syncMessages(DestinationUID dID) throws BrokerException {
+    }
+
     /**
      * This method is for special case where ID column is found corrupted for a message after loaded from the database table
      * however the packet in MESSAGE column is found intact
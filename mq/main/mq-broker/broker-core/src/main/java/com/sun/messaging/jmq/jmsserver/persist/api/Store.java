@@ -75,6 +75,8 @@ public abstract class Store implements JMSBridgeStore {
     public static final boolean CREATE_STORE_PROP_DEFAULT = false;
 
     public static final String FILE_STORE_TYPE = "file";
+    // file store with messages kept in an append-only segmented log
+    public static final String FILELOG_STORE_TYPE = "filelog";
     public static final String JDBC_STORE_TYPE = "jdbc";
     public static final String INMEMORY_STORE_TYPE = "inmemory";
     public static final String COHERENCE_STORE_TYPE = "coherence";
@@ -40,7 +40,7 @@ public class StoreManager {
     static private final String CLASS_PROP = ".class";
     public static final String STORE_TYPE_PROP = Globals.IMQ + ".persist.store";
 
-    static private final String TXNLOG_ENABLED_PROP = Globals.IMQ + ".persist.file.txnLog.enabled";
+    static public final String TXNLOG_ENABLED_PROP = Globals.IMQ + ".persist.file.txnLog.enabled";
 
     static public final String NEW_TXNLOG_ENABLED_PROP = Globals.IMQ + ".persist.file.newTxnLog.enabled";
 
@@ -127,7 +127,7 @@ public class StoreManager {
             isConfiguredJDBCStore = Boolean.FALSE;
             isConfiguredBDBStore = Boolean.FALSE;
             if (classname == null || classname.equals("")) {
-                if (type.equals(Store.FILE_STORE_TYPE)) {
+                if (type.equals(Store.FILE_STORE_TYPE) || type.equals(Store.FILELOG_STORE_TYPE)) {
                     classname = DEFAULT_FILESTORE_CLASS;
                     isConfiguredFileStore = Boolean.TRUE;
                 } else if (type.equals(Store.JDBC_STORE_TYPE)) {
@@ -224,7 +224,7 @@ public class StoreManager {
         }
 
         String type = Globals.getConfig().getProperty(STORE_TYPE_PROP, DEFAULT_STORE_TYPE);
-        return ((type.equals(Store.FILE_STORE_TYPE)));
+        return ((type.equals(Store.FILE_STORE_TYPE) || type.equals(Store.FILELOG_STORE_TYPE)));
     }
 
     public static boolean isConfiguredJDBCStore() {
@@ -1626,6 +1626,8 @@ public class JMSServiceImpl implements JMSService {
         try {
             Packet p = new Packet();
             p.fill(message.getPacket());
+            // in-VM sender: reuse its property Hashtable instead of parsing the property bytes again
+            p.shareProperties(message.getPacket());
             protocol.processMessage(cxn, p);
         } catch (Exception e) {
             String errStr = "sendMessage: Sending message failed. Connection ID: " + connectionId;
@@ -19,13 +19,18 @@ package com.sun.messaging.jmq.jmsserver.service.imq.websocket;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.GrizzlyFuture;
 import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.websockets.DataFrame;
 import org.glassfish.grizzly.websockets.ProtocolHandler;
 import org.glassfish.grizzly.websockets.WebSocketListener;
 import com.sun.messaging.jmq.io.Packet;
-import com.sun.messaging.jmq.io.ByteBufferOutput;
 import com.sun.messaging.jmq.io.BigPacketException;
 import com.sun.messaging.jmq.util.log.Logger;
 import com.sun.messaging.jmq.jmsserver.Globals;
@@ -33,6 +38,15 @@ import com.sun.messaging.jmq.jmsserver.util.BrokerException;
 import com.sun.messaging.jmq.jmsserver.resources.BrokerResources;
 
 /**
+ * Carries MQ packets in binary frames.
+ *
+ * Without a subprotocol each frame carries one packet. If the client negotiated the batch subprotocol, packets written
+ * while the connection has more packets queued are collected and sent together in one frame of up to maxFrameBytes.
+ * For batching clients the bytes handed to the transport but not yet written to the network are also limited to
+ * maxPendingWriteBytes. Beyond that the connection stops writing until the client has read some of them, instead of
+ * queuing without bound. Frames are never held up while the write lock is held, so control messages are not blocked
+ * behind a slow client.
+ *
  * @author amyk
  */
 public class JMSWebSocket extends MQWebSocket {
@@ -40,35 +54,143 @@ public class JMSWebSocket extends MQWebSocket {
     private Object packetLock = new Object();
     private Packet packetPending = null;
 
-    public JMSWebSocket(MQWebSocketServiceApp app, ProtocolHandler protocolHandler, HttpRequestPacket request, WebSocketListener... listeners) {
+    private final boolean batching;
+    private final int maxFrameBytes;
+    private final long maxPendingWriteBytes;
+
+    // frame buffer capacity kept between frames when not batching
+    private static final int SINGLE_PACKET_BUFFER_SIZE = 8 * 1024;
+
+    private final Object writeLock = new Object();
+    private final PacketFrameBuffer frameBuffer;
+
+    private final Object flowLock = new Object();
+    private final AtomicLong pendingWriteBytes = new AtomicLong(0);
+    private final AtomicReference<Runnable> onWriteSpace = new AtomicReference<>();
+
+    public JMSWebSocket(MQWebSocketServiceApp app, ProtocolHandler protocolHandler, HttpRequestPacket request, boolean batching,
+            WebSocketListener... listeners) {
         super(app, protocolHandler, request, listeners);
+        WebSocketIPService svc = (WebSocketIPService) app.getMQService();
+        this.batching = batching;
+        this.maxFrameBytes = svc.getJMSMaxFrameBytes();
+        this.maxPendingWriteBytes = (batching ? svc.getJMSMaxPendingWriteBytes() : 0);
+        this.frameBuffer = new PacketFrameBuffer(batching ? maxFrameBytes : SINGLE_PACKET_BUFFER_SIZE);
+    }
+
+    public boolean isBatching() {
+        return batching;
     }
 
     @Override
     protected void writePacket(Packet pkt) throws IOException {
+        writePacket(pkt, false);
+    }
+
+    @Override
+    protected void writePacket(Packet pkt, boolean more) throws IOException {
         if (!isConnected()) {
             throw new IOException("JMSWebSocket@" + hashCode() + " is not connected");
         }
         if (DEBUG) {
-            logger.log(logger.INFO, Thread.currentThread() + "JMSWebSocket@" + hashCode() + ": WRITE PACKET=" + pkt);
+            logger.log(logger.INFO, Thread.currentThread() + "JMSWebSocket@" + hashCode() + ": WRITE PACKET=" + pkt + ", more=" + more);
+        }
+
+        synchronized (writeLock) {
+            frameBuffer.addPacket(pkt);
+            if (!batching || !more || frameBuffer.size() >= maxFrameBytes) {
+                sendFrame();
+            }
+        }
+        if (DEBUG) {
+            logger.log(logger.INFO, Thread.currentThread() + "JMSWebSocket@" + hashCode() + ": SENT PACKET=" + pkt);
+        }
+    }
+
+    @Override
+    protected void flushPackets() throws IOException {
+        synchronized (writeLock) {
+            if (frameBuffer.getPacketCount() > 0) {
+                sendFrame();
+            }
+        }
+    }
+
+    private void sendFrame() throws IOException {
+        int npkts = frameBuffer.getPacketCount();
+        byte[] data = frameBuffer.takeFrame();
+
+        final int len = data.length;
+        pendingWriteBytes.addAndGet(len);
+        GrizzlyFuture<DataFrame> future = null;
+        try {
+            future = send(data);
+        } catch (RuntimeException e) {
+            writeDone(len);
+            throw new IOException(e.getMessage(), e);
         }
+        future.addCompletionHandler(new EmptyCompletionHandler<DataFrame>() {
+            @Override
+            public void completed(DataFrame frame) {
+                writeDone(len);
+            }
 
-        pkt.writePacket(new ByteBufferOutput() {
             @Override
-            public void writeByteBuffer(ByteBuffer data) throws IOException {
-                throw new IOException("Unexpected call", new UnsupportedOperationException("writeByteBuffer(ByteBuffer)"));
+            public void failed(Throwable t) {
+                writeDone(len);
             }
 
             @Override
-            public void writeBytes(byte[] data) throws IOException {
-                if (DEBUG) {
-                    logger.log(logger.INFO, Thread.currentThread() + "JMSWebSocket@" + hashCode() + ": writeBytes(data.len=" + data.length + ")");
-                }
-                send(data);
+            public void cancelled() {
+                writeDone(len);
             }
-        }, false);
+        });
         if (DEBUG) {
-            logger.log(logger.INFO, Thread.currentThread() + "JMSWebSocket@" + hashCode() + ": SENT PACKET=" + pkt);
+            logger.log(logger.INFO, Thread.currentThread() + "JMSWebSocket@" + hashCode() + ": sendFrame(len=" + len + ", packets=" + npkts + ")");
+        }
+    }
+
+    private boolean hasWriteSpace() {
+        return maxPendingWriteBytes <= 0 || pendingWriteBytes.get() <= maxPendingWriteBytes;
+    }
+
+    @Override
+    protected boolean isWriteBlocked(Runnable r) {
+        if (hasWriteSpace() || !isConnected()) {
+            return false;
+        }
+        onWriteSpace.set(r);
+        // the writes may have completed before the callback was set
+        if (hasWriteSpace() && onWriteSpace.compareAndSet(r, null)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void waitForWriteSpace() throws IOException {
+        synchronized (flowLock) {
+            while (!hasWriteSpace() && isConnected()) {
+                try {
+                    flowLock.wait(1000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("JMSWebSocket@" + hashCode() + " interrupted waiting to write");
+                }
+            }
+        }
+    }
+
+    private void writeDone(int len) {
+        pendingWriteBytes.addAndGet(-len);
+        if (hasWriteSpace()) {
+            synchronized (flowLock) {
+                flowLock.notifyAll();
+            }
+            Runnable r = onWriteSpace.getAndSet(null);
+            if (r != null) {
+                r.run();
+            }
         }
     }
 
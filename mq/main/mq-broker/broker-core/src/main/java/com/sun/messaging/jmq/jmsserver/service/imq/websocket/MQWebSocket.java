@@ -73,6 +73,36 @@ public abstract class MQWebSocket extends DefaultWebSocket {
 
     protected abstract void writePacket(Packet pkt) throws IOException;
 
+    /**
+     * Write a packet, telling whether more packets are about to be written. A subclass may hold the packet back and send
+     * it with the following ones until flushPackets() is called.
+     */
+    protected void writePacket(Packet pkt, boolean more) throws IOException {
+        writePacket(pkt);
+    }
+
+    /**
+     * Send any packets held back by writePacket(Packet, boolean).
+     */
+    protected void flushPackets() throws IOException {
+    }
+
+    /**
+     * Check whether writes should pause until the client has read some of the data already sent. If so, onWriteSpace
+     * is run once there is room again.
+     *
+     * @return true if writes should pause
+     */
+    protected boolean isWriteBlocked(Runnable onWriteSpace) {
+        return false;
+    }
+
+    /**
+     * Wait until writes need not pause, for a writer thread dedicated to this connection.
+     */
+    protected void waitForWriteSpace() throws IOException {
+    }
+
     protected abstract void processData(String text) throws Exception;
 
     protected abstract void processData(byte[] data) throws Exception;
@@ -50,6 +50,7 @@ import com.sun.messaging.jmq.jmsserver.service.imq.websocket.json.JSONWebSocket;
 public class MQWebSocketServiceApp extends WebSocketApplication {
 
     private static final String SUBPROTOCOL_V12STOMP = "v12.stomp";
+    protected static final String SUBPROTOCOL_JMS_BATCH = "mqjms.batch";
 
     protected static final String JMS = "mqjms";
     protected static final String STOMP = "mqstomp";
@@ -167,11 +168,31 @@ public class MQWebSocketServiceApp extends WebSocketApplication {
             List<String> l = new ArrayList<>();
             l.add(SUBPROTOCOL_V12STOMP);
             return l;
+        } else if (subProtocol.contains(SUBPROTOCOL_JMS_BATCH)) {
+            List<String> l = new ArrayList<>();
+            l.add(SUBPROTOCOL_JMS_BATCH);
+            return l;
         } else {
             return super.getSupportedProtocols(subProtocol);
         }
     }
 
+    /**
+     * @return true if the handshake for request accepts subProtocol, that is, getSupportedProtocols returns it for the
+     * subprotocols the client requested
+     */
+    protected boolean isSubProtocolNegotiated(HttpRequestPacket request, String subProtocol) {
+        String header = request.getHeader(Constants.SEC_WS_PROTOCOL_HEADER);
+        if (header == null) {
+            return false;
+        }
+        List<String> requested = new ArrayList<>();
+        for (String p : header.split(",")) {
+            requested.add(p.trim());
+        }
+        return getSupportedProtocols(requested).contains(subProtocol);
+    }
+
     private boolean isJMSRequest(HttpRequestPacket request) {
         return ("/" + service.getName() + JMS_REQUEST_PATH).equals(request.getRequestURI());
     }
@@ -187,7 +208,7 @@ public class MQWebSocketServiceApp extends WebSocketApplication {
     @Override
     public WebSocket createSocket(ProtocolHandler handler, HttpRequestPacket request, WebSocketListener... listeners) {
         if (isJMSRequest(request)) {
-            return new JMSWebSocket(this, handler, request, listeners);
+            return new JMSWebSocket(this, handler, request, isSubProtocolNegotiated(request, SUBPROTOCOL_JMS_BATCH), listeners);
         }
         if (isJSONRequest(request)) {
             synchronized (java8checkLock) {
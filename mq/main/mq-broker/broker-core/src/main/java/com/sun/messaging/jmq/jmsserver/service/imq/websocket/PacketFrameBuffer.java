@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.service.imq.websocket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import com.sun.messaging.jmq.io.Packet;
+
+/**
+ * Collects the packets to be sent in one binary WebSocket frame. Packets are written back to back in their wire format,
+ * so the receiver splits the frame using the packet size in each header.
+ *
+ * The buffer is reused from frame to frame. takeFrame() returns a copy of the frame content, so every frame costs one
+ * array copy whatever the number of packets in it. A buffer grown for a large packet is released after the frame is
+ * taken so that idle connections do not keep large arrays. Not thread safe.
+ */
+public class PacketFrameBuffer extends OutputStream {
+
+    private byte[] buf;
+    private int count = 0;
+    private int packetCount = 0;
+    private final int retainSize;
+
+    /**
+     * @param retainSize the buffer capacity kept between frames
+     */
+    public PacketFrameBuffer(int retainSize) {
+        this.retainSize = retainSize;
+        this.buf = new byte[retainSize];
+    }
+
+    /**
+     * Append a packet to the frame.
+     */
+    public void addPacket(Packet pkt) throws IOException {
+        ensureCapacity(count + pkt.getPacketSize());
+        pkt.writePacket(this);
+        packetCount++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getPacketCount() {
+        return packetCount;
+    }
+
+    /**
+     * Take the frame content and make the buffer ready for the next frame.
+     */
+    public byte[] takeFrame() {
+        byte[] frame = Arrays.copyOf(buf, count);
+        count = 0;
+        packetCount = 0;
+        if (buf.length > retainSize) {
+            buf = new byte[retainSize];
+        }
+        return frame;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(minCapacity, buf.length << 1));
+        }
+    }
+}
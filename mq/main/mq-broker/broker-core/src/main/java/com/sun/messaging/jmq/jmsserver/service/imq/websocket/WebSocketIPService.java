@@ -86,6 +86,8 @@ public class WebSocketIPService extends IMQService implements GrizzlyService, No
     private LinkedHashMap<ConnectionUID, WebSocketMQIPConnection> pendingWrites = new LinkedHashMap<>();
 
     private boolean dedicatedWriter = Globals.getConfig().getBooleanProperty("imq.websocketIPService.dedicatedWriterThread", false);
+    private int jmsMaxFrameBytes = Globals.getConfig().getIntProperty("imq.websocketIPService.jms.maxFrameBytes", 64 * 1024);
+    private int jmsMaxPendingWriteBytes = Globals.getConfig().getIntProperty("imq.websocketIPService.jms.maxPendingWriteBytes", 1024 * 1024);
     private AtomicInteger readerPoolThreadCnt = new AtomicInteger(0);
     private AtomicInteger writerPoolThreadCnt = new AtomicInteger(0);
     private NetworkListener networkListener = null;
@@ -261,6 +263,14 @@ public class WebSocketIPService extends IMQService implements GrizzlyService, No
         return dedicatedWriter;
     }
 
+    protected int getJMSMaxFrameBytes() {
+        return jmsMaxFrameBytes;
+    }
+
+    protected int getJMSMaxPendingWriteBytes() {
+        return jmsMaxPendingWriteBytes;
+    }
+
     private void unbindTransport() throws Exception {
         if (DEBUG) {
             logger.log(Logger.INFO, "WebSocketIPService.unbindTransport() for service " + name);
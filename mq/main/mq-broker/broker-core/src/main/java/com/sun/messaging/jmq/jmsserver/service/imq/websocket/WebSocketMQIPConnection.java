@@ -28,6 +28,7 @@ import com.sun.messaging.jmq.util.MQThread;
 import com.sun.messaging.jmq.util.log.Logger;
 import com.sun.messaging.jmq.jmsserver.service.imq.IMQIPConnection;
 import com.sun.messaging.jmq.jmsserver.data.PacketRouter;
+import com.sun.messaging.jmq.jmsserver.service.imq.Operation;
 import com.sun.messaging.jmq.jmsserver.service.imq.OperationRunnable;
 import com.sun.messaging.jmq.jmsserver.util.BrokerException;
 
@@ -42,6 +43,7 @@ public final class WebSocketMQIPConnection extends IMQIPConnection implements Ru
     private Thread writerThread = null;
     private Object assignWriteLock = new Object();
     private boolean writeThreadAssigned = false;
+    private boolean packetWritten = false;
 
     public WebSocketMQIPConnection(WebSocketIPService svc, PacketRouter router, MQWebSocket ws) throws IOException, BrokerException {
 
@@ -130,10 +132,34 @@ public final class WebSocketMQIPConnection extends IMQIPConnection implements Ru
         if (DEBUG) {
             logger.log(Logger.INFO, "GrizzlyMQIPConnection:writeOutPacket(" + p + ") to " + websocket);
         }
-        websocket.writePacket(p);
+        websocket.writePacket(p, true);
+        packetWritten = true;
         return true; // XXX
     }
 
+    @Override
+    public int writeData(boolean wait) throws IOException {
+        if (wait) {
+            websocket.waitForWriteSpace();
+        } else if (websocket.isWriteBlocked(() -> ((WebSocketIPService) service).setReadyToWrite(this, true))) {
+            // resubmitted once the client has read enough
+            return Operation.PROCESS_WRITE_INCOMPLETE;
+        }
+        packetWritten = false;
+        int ret = super.writeData(wait);
+        if (shouldFlush(packetWritten, ret, isBusy())) {
+            websocket.flushPackets();
+        }
+        return ret;
+    }
+
+    /**
+     * The packets held back for batching are sent once nothing more can be written right away.
+     */
+    static boolean shouldFlush(boolean packetWritten, int ret, boolean busy) {
+        return !packetWritten || ret != Operation.PROCESS_PACKETS_REMAINING || !busy;
+    }
+
     @Override
     protected void handleWriteException(Throwable e) throws IOException, OutOfMemoryError {
         super.handleWriteException(e);
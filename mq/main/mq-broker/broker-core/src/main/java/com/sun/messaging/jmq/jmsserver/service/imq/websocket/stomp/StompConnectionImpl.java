@@ -46,7 +46,7 @@ public class StompConnectionImpl implements StompConnection, ConnectionClosedLis
     private static final Logger logger = Globals.getLogger();
     private static final BrokerResources br = Globals.getBrokerResources();
 
-    private StompProtocolHandlerImpl sph = null;
+    private StompProtocolHandler sph = null;
     private JMSService jmsservice = null;
     private String clientID = null;
     private Long connectionID = null;
@@ -62,8 +62,15 @@ public class StompConnectionImpl implements StompConnection, ConnectionClosedLis
     private boolean closing = false, closed = true;
 
     public StompConnectionImpl(StompProtocolHandlerImpl h) {
+        this(h, h.getJMSService());
+    }
+
+    /**
+     * A STOMP connection served by the given in-broker JMSService, used by the STOMP bridge service in direct mode
+     */
+    public StompConnectionImpl(StompProtocolHandler h, JMSService jmss) {
         sph = h;
-        jmsservice = sph.getJMSService();
+        jmsservice = jmss;
     }
 
     protected boolean getDEBUG() {
@@ -59,10 +59,12 @@ public class StompProtocolHandlerImpl extends StompProtocolHandler {
         return jmsservice;
     }
 
+    @Override
     public InetAddress getRemoteAddress() {
         return wsocket.getRemoteAddress();
     }
 
+    @Override
     public int getRemotePort() {
         return wsocket.getRemotePort();
     }
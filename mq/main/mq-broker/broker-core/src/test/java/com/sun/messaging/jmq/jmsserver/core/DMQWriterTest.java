@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+
+class DMQWriterTest {
+
+    @Test
+    void batchingIsOffByDefault() throws Exception {
+        PartitionedStore pstore = mock(PartitionedStore.class);
+        DMQWriter writer = new DMQWriter(pstore);
+
+        assertFalse(writer.isBatching());
+
+        // moves are synced by the caller, the writer has nothing to sync
+        writer.moved(new DestinationUID("src", true), new DestinationUID("mq.sys.dmq", true));
+        writer.sync();
+        verifyNoInteractions(pstore);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+import com.sun.messaging.jmq.io.SysMessageID;
+
+class LazyMessageIndexTest {
+
+    private static Packet newMessage(int priority, long timestamp) throws Exception {
+        Packet pkt = new Packet(false);
+        pkt.setPacketType(PacketType.TEXT_MESSAGE);
+        pkt.setPersistent(true);
+        pkt.setIsQueue(true);
+        pkt.setDestination("lazyTestQueue");
+        pkt.setPriority(priority);
+        pkt.setMessageBody("lazy".getBytes("UTF-8"));
+        pkt.updateSequenceNumber();
+        pkt.updateTimestamp();
+        pkt.getSysMessageID().setTimestamp(timestamp);
+        return pkt;
+    }
+
+    private static List<SysMessageID> drain(LazyMessageIndex index) {
+        List<SysMessageID> ids = new ArrayList<>();
+        int pos;
+        while ((pos = index.first()) >= 0) {
+            ids.add(index.getID(pos));
+            index.remove(pos);
+        }
+        return ids;
+    }
+
+    @Test
+    void takesHighestPriorityThenOldestFirst() throws Exception {
+        LazyMessageIndex index = new LazyMessageIndex();
+        Packet low = newMessage(1, 1000);
+        Packet newer = newMessage(4, 3000);
+        Packet older = newMessage(4, 2000);
+        Packet high = newMessage(9, 4000);
+        index.add(low);
+        index.add(newer);
+        index.add(older);
+        index.add(high);
+
+        index.sort();
+
+        List<SysMessageID> expected = List.of(high.getSysMessageID(), older.getSysMessageID(), newer.getSysMessageID(), low.getSysMessageID());
+        assertEquals(expected, drain(index));
+        assertTrue(index.isEmpty());
+    }
+
+    @Test
+    void keepsStoreOrderOfEqualMessages() throws Exception {
+        LazyMessageIndex index = new LazyMessageIndex();
+        List<SysMessageID> expected = new ArrayList<>();
+        // more than the insertion sort cut-off and the initial capacity
+        for (int i = 0; i < 5000; i++) {
+            Packet p = newMessage(4, 1000 + i / 3);
+            index.add(p);
+            expected.add(p.getSysMessageID());
+        }
+
+        index.sort();
+
+        assertEquals(5000, index.size());
+        assertEquals(expected, drain(index));
+    }
+
+    @Test
+    void removeByIdKeepsCounts() throws Exception {
+        LazyMessageIndex index = new LazyMessageIndex();
+        Packet a = newMessage(4, 1000);
+        Packet b = newMessage(4, 2000);
+        index.add(a);
+        index.add(b);
+        index.sort();
+        long bytes = index.byteSize();
+
+        int pos = index.indexOf(b.getSysMessageID());
+        assertTrue(pos >= 0);
+        index.remove(pos);
+        // removing twice is a no-op
+        index.remove(pos);
+
+        assertEquals(1, index.size());
+        assertEquals(bytes - b.getPacketSize(), index.byteSize());
+        assertEquals(-1, index.indexOf(b.getSysMessageID()));
+        assertEquals(List.of(a.getSysMessageID()), drain(index));
+    }
+
+    @Test
+    void findsMessagesOfEveryPriority() throws Exception {
+        LazyMessageIndex index = new LazyMessageIndex();
+        List<Packet> packets = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Packet p = newMessage(i % 10, 1000 + i / 7);
+            index.add(p);
+            packets.add(p);
+        }
+        index.sort();
+
+        // taken messages keep their place, so the search still finds the others around them
+        for (int i = 0; i < packets.size(); i += 3) {
+            index.remove(index.indexOf(packets.get(i).getSysMessageID()));
+        }
+        for (int i = 0; i < packets.size(); i++) {
+            SysMessageID sysid = packets.get(i).getSysMessageID();
+            int pos = index.indexOf(sysid);
+            if (i % 3 == 0) {
+                assertEquals(-1, pos, sysid.toString());
+            } else {
+                assertEquals(sysid, index.getID(pos));
+                assertEquals(i % 10, index.getPriority(pos));
+            }
+        }
+    }
+
+    @Test
+    void scanSkipsTakenMessagesAcrossCompaction() throws Exception {
+        LazyMessageIndex index = new LazyMessageIndex();
+        List<SysMessageID> ids = new ArrayList<>();
+        // enough to compact the index while it is scanned
+        for (int i = 0; i < 70000; i++) {
+            Packet p = newMessage(4, 1000 + i);
+            index.add(p);
+            ids.add(p.getSysMessageID());
+        }
+        index.sort();
+
+        index.startScan();
+        List<SysMessageID> scanned = new ArrayList<>();
+        int pos;
+        while ((pos = index.nextScan()) >= 0) {
+            SysMessageID sysid = index.getID(pos);
+            scanned.add(sysid);
+            // take every other message, as a scan for a selector would
+            if (scanned.size() % 2 == 1) {
+                index.remove(pos);
+            }
+            // and the head as the window is loaded
+            if (scanned.size() % 1000 == 0) {
+                index.remove(index.first());
+            }
+        }
+
+        // the head is always behind the scan, so every message is seen exactly once, in index order
+        assertEquals(ids, scanned);
+        int left = 0;
+        for (SysMessageID sysid : ids) {
+            if (index.indexOf(sysid) >= 0) {
+                left++;
+            }
+        }
+        assertEquals(index.size(), left);
+    }
+}
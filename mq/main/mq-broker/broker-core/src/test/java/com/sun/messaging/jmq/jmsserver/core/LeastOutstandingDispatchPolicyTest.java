@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import static com.sun.messaging.jmq.jmsserver.core.WeightedRoundRobinDispatchPolicyTest.mockConsumer;
+import static com.sun.messaging.jmq.jmsserver.core.WeightedRoundRobinDispatchPolicyTest.setReady;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LeastOutstandingDispatchPolicyTest {
+    private static final int Q = WeightedRoundRobinDispatchPolicy.QUANTUM;
+
+    private LeastOutstandingDispatchPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        policy = new LeastOutstandingDispatchPolicy();
+    }
+
+    private static void setInProcess(Consumer c, int n) {
+        lenient().when(c.numInProcessMsgs()).thenReturn(n);
+    }
+
+    @Test
+    void unknownConsumerGetsWhatItAsks() {
+        Consumer a = mockConsumer(1, 100, true);
+
+        assertEquals(1000, policy.getDispatchLimit(a, 1000));
+    }
+
+    @Test
+    void loneConsumerIsNotLimited() {
+        Consumer a = mockConsumer(1, 100, true);
+        setInProcess(a, 500);
+        policy.consumerAdded(a);
+
+        assertEquals(1000, policy.getDispatchLimit(a, 1000));
+    }
+
+    @Test
+    void busyConsumerTakesLess() {
+        Consumer a = mockConsumer(1, 100, true);
+        Consumer b = mockConsumer(2, 100, true);
+        policy.consumerAdded(a);
+        policy.consumerAdded(b);
+
+        setInProcess(a, Q - 2);
+        setInProcess(b, 0);
+        assertEquals(2, policy.getDispatchLimit(a, 1000));
+        assertEquals(2 * Q - 2, policy.getDispatchLimit(b, 1000), "b may take until it is a quantum ahead of a");
+    }
+
+    @Test
+    void overloadedConsumerStillGetsOne() {
+        Consumer a = mockConsumer(1, 100, true);
+        Consumer b = mockConsumer(2, 100, true);
+        policy.consumerAdded(a);
+        policy.consumerAdded(b);
+
+        setInProcess(a, 10 * Q);
+        setInProcess(b, 0);
+        assertEquals(1, policy.getDispatchLimit(a, 1000));
+    }
+
+    @Test
+    void dispatchedMessagesCountAsOutstanding() {
+        Consumer a = mockConsumer(1, 100, true);
+        Consumer b = mockConsumer(2, 100, true);
+        policy.consumerAdded(a);
+        policy.consumerAdded(b);
+        setInProcess(a, 0);
+        setInProcess(b, 0);
+
+        int n = policy.getDispatchLimit(b, 1000);
+        policy.messagesDispatched(b, n);
+        assertEquals(Q, n);
+        assertEquals(2 * Q, policy.getDispatchLimit(a, 1000), "b now holds Q messages more than a");
+        assertEquals(5, policy.getDispatchLimit(a, 5));
+    }
+
+    @Test
+    void pausedConsumersAreIgnored() {
+        Consumer a = mockConsumer(1, 100, true);
+        Consumer b = mockConsumer(2, 100, false);
+        policy.consumerAdded(a);
+        policy.consumerAdded(b);
+        setInProcess(a, 50);
+
+        assertEquals(1000, policy.getDispatchLimit(a, 1000), "only b could compete and it is paused");
+
+        setReady(b, true);
+        setInProcess(b, 0);
+        policy.getDispatchLimit(b, 1);
+        assertEquals(1, policy.getDispatchLimit(a, 1000));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+
+class LoadConnToPartitionStrategyTest {
+
+    private final LoadConnToPartitionStrategy strategy = new LoadConnToPartitionStrategy();
+
+    private static ConnToPartitionStrategyContext partition(long rate, int conns) {
+        ConnToPartitionStrategyContext ctx = mock(ConnToPartitionStrategyContext.class);
+        PartitionedStore ps = mock(PartitionedStore.class);
+        when(ctx.getPersistByteRate()).thenReturn(rate);
+        when(ctx.getConnectionCount()).thenReturn(conns);
+        when(ctx.getPartitionedStore()).thenReturn(ps);
+        return ctx;
+    }
+
+    private PartitionedStore choose(ConnToPartitionStrategyContext... pscs) throws Exception {
+        return strategy.chooseStorePartition(List.of(pscs));
+    }
+
+    @Test
+    void noPartitions() throws Exception {
+        assertNull(strategy.chooseStorePartition(null));
+        assertNull(strategy.chooseStorePartition(new ArrayList<>()));
+    }
+
+    @Test
+    void idleBrokerGoesByConnectionCount() throws Exception {
+        ConnToPartitionStrategyContext a = partition(0L, 3);
+        ConnToPartitionStrategyContext b = partition(0L, 1);
+        ConnToPartitionStrategyContext c = partition(0L, 2);
+
+        assertSame(b.getPartitionedStore(), choose(a, b, c));
+    }
+
+    @Test
+    void avoidsBusyPartition() throws Exception {
+        // fewer connections, but they produce most of the traffic
+        ConnToPartitionStrategyContext busy = partition(900_000L, 1);
+        ConnToPartitionStrategyContext quiet = partition(100_000L, 4);
+
+        assertSame(quiet.getPartitionedStore(), choose(busy, quiet));
+    }
+
+    @Test
+    void countsConnectionsNotSampledYet() throws Exception {
+        // the idle partition got many connections since the rates were sampled, at the average of 416 bytes/s per
+        // connection it counts as 4160 bytes/s
+        ConnToPartitionStrategyContext fresh = partition(0L, 10);
+        ConnToPartitionStrategyContext other = partition(2000L, 2);
+        ConnToPartitionStrategyContext loaded = partition(3000L, 0);
+
+        assertSame(other.getPartitionedStore(), choose(fresh, other, loaded));
+    }
+
+    @Test
+    void tieGoesToFewestConnections() throws Exception {
+        ConnToPartitionStrategyContext a = partition(1000L, 2);
+        ConnToPartitionStrategyContext b = partition(1000L, 1);
+
+        assertSame(b.getPartitionedStore(), choose(a, b));
+    }
+}
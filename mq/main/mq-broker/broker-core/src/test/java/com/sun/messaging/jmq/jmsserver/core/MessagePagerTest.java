@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+
+class MessagePagerTest {
+    private PartitionedStore pstore;
+    private Queue queue;
+    private MessagePager pager;
+    private Map<SysMessageID, Packet> stored = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Globals.setMemMgrOn(false);
+        pstore = mock(PartitionedStore.class);
+        when(pstore.getMessage(any(), any(SysMessageID.class))).thenAnswer(inv -> stored.get(inv.getArgument(1)));
+        queue = mock(Queue.class);
+        pager = new MessagePager(queue);
+    }
+
+    private List<PacketReference> pagedOutRefs(int n) throws Exception {
+        List<PacketReference> refs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Packet pkt = new Packet(false);
+            pkt.setPacketType(PacketType.TEXT_MESSAGE);
+            pkt.setPersistent(true);
+            pkt.setIsQueue(true);
+            pkt.setDestination("pagerTestQueue");
+            pkt.setMessageBody(("paged" + i).getBytes("UTF-8"));
+            pkt.updateSequenceNumber();
+            pkt.updateTimestamp();
+            PacketReference ref = PacketReference.createReference(pstore, pkt, null);
+            ref.setIsStored();
+            stored.put(ref.getSysMessageID(), pkt);
+            assertTrue(ref.pageOut());
+            refs.add(ref);
+        }
+        return refs;
+    }
+
+    @Test
+    void pagesInHeadOfPendingList() throws Exception {
+        List<PacketReference> refs = pagedOutRefs(3);
+        when(queue.getPendingSnapshot(anyInt())).thenReturn(refs);
+
+        pager.page();
+
+        for (PacketReference ref : refs) {
+            assertTrue(ref.isPacketLoaded());
+        }
+        assertEquals(3, pager.getNumPagedIn());
+        verify(pstore, times(3)).getMessage(any(), any(SysMessageID.class));
+    }
+
+    @Test
+    void limitsStoreReadsPerRun() throws Exception {
+        List<PacketReference> refs = pagedOutRefs(150);
+        when(queue.getPendingSnapshot(anyInt())).thenReturn(refs);
+
+        pager.page();
+        assertEquals(100, pager.getNumPagedIn());
+        assertFalse(refs.get(100).isPacketLoaded());
+
+        pager.page();
+        assertEquals(150, pager.getNumPagedIn());
+        assertTrue(refs.get(149).isPacketLoaded());
+    }
+
+    @Test
+    void doesNotReadPinnedMessagesAgain() throws Exception {
+        List<PacketReference> refs = pagedOutRefs(2);
+        when(queue.getPendingSnapshot(anyInt())).thenReturn(refs);
+
+        pager.page();
+        pager.page();
+
+        assertEquals(2, pager.getNumPagedIn());
+        verify(pstore, times(2)).getMessage(any(), any(SysMessageID.class));
+    }
+
+    @Test
+    void copiesOnlyTheWindowWithoutMemoryPressure() throws Exception {
+        when(queue.getPendingSnapshot(anyInt())).thenReturn(new ArrayList<>());
+
+        pager.page();
+
+        verify(queue).getPendingSnapshot(1000);
+    }
+}
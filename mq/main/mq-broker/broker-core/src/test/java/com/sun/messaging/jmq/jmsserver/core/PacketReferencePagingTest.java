@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+
+@ExtendWith(MockitoExtension.class)
+class PacketReferencePagingTest {
+    @Mock
+    private PartitionedStore pstore;
+
+    private Packet pkt;
+    private PacketReference ref;
+    private ConsumerUID cuid;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pkt = new Packet(false);
+        pkt.setPacketType(PacketType.TEXT_MESSAGE);
+        pkt.setPersistent(true);
+        pkt.setIsQueue(true);
+        pkt.setDestination("pagingTestQueue");
+        pkt.setMessageBody("paged".getBytes("UTF-8"));
+        pkt.updateSequenceNumber();
+        pkt.updateTimestamp();
+
+        ref = PacketReference.createReference(pstore, pkt, null);
+        ref.setIsStored();
+
+        cuid = new ConsumerUID(1);
+        cuid.setShouldStore(true);
+    }
+
+    @Test
+    void pageOutReleasesPacketWithoutDestroyingReference() {
+        assertTrue(ref.isPacketLoaded());
+        assertTrue(ref.pageOut());
+        assertFalse(ref.isPacketLoaded());
+        assertFalse(ref.isDestroyed());
+    }
+
+    @Test
+    void storeAfterPageOutStoresInterests() throws Exception {
+        when(pstore.getMessage(ref.getDestinationUID(), ref.getSysMessageID())).thenReturn(pkt);
+        assertTrue(ref.pageOut());
+
+        ref.store(List.of(cuid));
+
+        verify(pstore).storeInterestStates(eq(ref.getDestinationUID()), eq(ref.getSysMessageID()), eq(new ConsumerUID[] { cuid }),
+                eq(new int[] { PartitionedStore.INTEREST_STATE_ROUTED }), anyBoolean(), same(pkt));
+    }
+
+    @Test
+    void routingForStoreAfterPageOut() throws Exception {
+        assertTrue(ref.pageOut());
+
+        ConsumerUID[] routed = ref.getRoutingForStore(List.of(cuid));
+
+        assertArrayEquals(new ConsumerUID[] { cuid }, routed);
+    }
+
+    @Test
+    void pageInAfterPageOutReadsStore() throws Exception {
+        when(pstore.getMessage(ref.getDestinationUID(), ref.getSysMessageID())).thenReturn(pkt);
+        assertTrue(ref.pageOut());
+
+        assertTrue(ref.pageIn());
+        assertTrue(ref.isPacketLoaded());
+        verify(pstore).getMessage(ref.getDestinationUID(), ref.getSysMessageID());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WeightedRoundRobinDispatchPolicyTest {
+    private static final int Q = WeightedRoundRobinDispatchPolicy.QUANTUM;
+
+    private WeightedRoundRobinDispatchPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        policy = new WeightedRoundRobinDispatchPolicy();
+    }
+
+    static Consumer mockConsumer(long id, int prefetch, boolean ready) {
+        Consumer c = mock(Consumer.class);
+        lenient().when(c.getConsumerUID()).thenReturn(new ConsumerUID(id));
+        lenient().when(c.getPrefetch()).thenReturn(prefetch);
+        setReady(c, ready);
+        return c;
+    }
+
+    static void setReady(Consumer c, boolean ready) {
+        lenient().when(c.isActive()).thenReturn(true);
+        lenient().when(c.getIsActiveConsumer()).thenReturn(true);
+        lenient().when(c.isPaused()).thenReturn(!ready);
+        lenient().when(c.getIsFlowPaused()).thenReturn(false);
+    }
+
+    private int pull(Consumer c, int requested) {
+        int n = policy.getDispatchLimit(c, requested);
+        policy.messagesDispatched(c, n);
+        return n;
+    }
+
+    @Test
+    void unknownConsumerGetsWhatItAsks() {
+        Consumer a = mockConsumer(1, 100, true);
+
+        assertEquals(1000, policy.getDispatchLimit(a, 1000));
+    }
+
+    @Test
+    void limitIsBetweenOneAndRequested() {
+        Consumer a = mockConsumer(1, 100, true);
+        policy.consumerAdded(a);
+
+        assertEquals(3, policy.getDispatchLimit(a, 3));
+        assertEquals(Q, policy.getDispatchLimit(a, 1000));
+        policy.messagesDispatched(a, 1000);
+        assertEquals(Q, policy.getDispatchLimit(a, 1000), "a lone consumer is not held back");
+    }
+
+    @Test
+    void equalWeightsTakeTurns() {
+        Consumer a = mockConsumer(1, 100, true);
+        Consumer b = mockConsumer(2, 100, true);
+        policy.consumerAdded(a);
+        policy.consumerAdded(b);
+
+        assertEquals(Q, pull(a, 1000));
+        assertEquals(1, policy.getDispatchLimit(a, 1000), "a used its quantum, b's turn");
+        assertEquals(Q, pull(b, 1000));
+        assertEquals(Q, policy.getDispatchLimit(a, 1000));
+    }
+
+    @Test
+    void heavierConsumerGetsProportionallyMore() {
+        Consumer heavy = mockConsumer(1, 2000, true);
+        Consumer light = mockConsumer(2, 1000, true);
+        policy.consumerAdded(heavy);
+        policy.consumerAdded(light);
+
+        assertEquals(Q, pull(heavy, 1000));
+        assertEquals(Q, pull(light, 1000));
+
+        // light advanced twice as far per message, it is behind heavy by half a quantum
+        assertEquals(Q, policy.getDispatchLimit(heavy, 1000));
+        assertEquals(Q / 2, policy.getDispatchLimit(light, 1000));
+    }
+
+    @Test
+    void idleConsumerDoesNotCatchUp() {
+        Consumer a = mockConsumer(1, 100, false);
+        Consumer b = mockConsumer(2, 100, true);
+        policy.consumerAdded(a);
+        policy.consumerAdded(b);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Q, pull(b, 1000), "a is paused and does not hold b back");
+        }
+
+        setReady(a, true);
+        assertEquals(Q, pull(a, 1000));
+        assertEquals(Q, policy.getDispatchLimit(b, 1000), "a resumed level with b rather than owing it 10 quanta");
+    }
+
+    @Test
+    void newConsumerStartsLevel() {
+        Consumer a = mockConsumer(1, 100, true);
+        policy.consumerAdded(a);
+        for (int i = 0; i < 10; i++) {
+            pull(a, 1000);
+        }
+
+        Consumer b = mockConsumer(2, 100, true);
+        policy.consumerAdded(b);
+        assertEquals(Q, policy.getDispatchLimit(a, 1000));
+        assertEquals(Q, policy.getDispatchLimit(b, 1000));
+    }
+
+    @Test
+    void removedConsumerNoLongerLimitsOthers() {
+        Consumer a = mockConsumer(1, 100, true);
+        Consumer b = mockConsumer(2, 100, true);
+        policy.consumerAdded(a);
+        policy.consumerAdded(b);
+
+        pull(a, 1000);
+        assertEquals(1, policy.getDispatchLimit(a, 1000));
+        policy.consumerRemoved(b);
+        assertEquals(Q, policy.getDispatchLimit(a, 1000));
+    }
+}
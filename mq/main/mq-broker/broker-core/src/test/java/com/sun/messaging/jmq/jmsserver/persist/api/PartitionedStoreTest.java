@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.io.Status;
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.core.DestinationUID;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+
+class PartitionedStoreTest {
+
+    private PartitionedStore store;
+    private DestinationUID dst;
+    private SysMessageID a;
+    private SysMessageID b;
+
+    private static SysMessageID newID(int seq) {
+        SysMessageID mid = new SysMessageID();
+        mid.setTimestamp(System.currentTimeMillis());
+        mid.setSequence(seq);
+        return mid;
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = mock(PartitionedStore.class);
+        when(store.removeMessages(any(), any(), anyBoolean())).thenCallRealMethod();
+        dst = DestinationUID.getUID("removeTestQueue", true);
+        a = newID(1);
+        b = newID(2);
+    }
+
+    @Test
+    void syncsWithTheLastRemoval() throws Exception {
+        assertEquals(2, store.removeMessages(dst, List.of(a, b), true));
+
+        verify(store).removeMessage(dst, a, false);
+        verify(store).removeMessage(dst, b, true);
+        verify(store, never()).syncMessages(any());
+    }
+
+    @Test
+    void syncsWhenTheLastMessageIsGone() throws Exception {
+        doThrow(new BrokerException("gone", Status.NOT_FOUND)).when(store).removeMessage(dst, b, true);
+
+        assertEquals(1, store.removeMessages(dst, List.of(a, b), true));
+
+        verify(store).removeMessage(dst, a, false);
+        verify(store).syncMessages(dst);
+    }
+
+    @Test
+    void syncsWhatWasRemovedBeforeAFailure() throws Exception {
+        BrokerException failure = new BrokerException("failed", Status.ERROR);
+        doThrow(failure).when(store).removeMessage(dst, b, true);
+
+        assertSame(failure, assertThrows(BrokerException.class, () -> store.removeMessages(dst, List.of(a, b), true)));
+
+        verify(store).syncMessages(dst);
+    }
+
+    @Test
+    void noSyncWithoutRemovals() throws Exception {
+        doThrow(new BrokerException("gone", Status.NOT_FOUND)).when(store).removeMessage(eq(dst), any(SysMessageID.class), anyBoolean());
+
+        assertEquals(0, store.removeMessages(dst, List.of(a, b), true));
+        assertEquals(0, store.removeMessages(dst, List.of(a, b), false));
+
+        verify(store, never()).syncMessages(any());
+    }
+}
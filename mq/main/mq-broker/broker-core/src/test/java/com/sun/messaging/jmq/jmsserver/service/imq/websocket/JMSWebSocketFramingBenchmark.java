@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.service.imq.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import jakarta.json.Json;
+import jakarta.json.JsonBuilderFactory;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+
+/**
+ * Compares the cost of encoding outgoing messages for the JSON WebSocket path with the binary JMS path, one packet per
+ * frame and batched. The JSON encoding is the one JSONWebSocket.doSend produces for a MESSAGE frame.
+ *
+ * <pre>
+ * java -cp ... com.sun.messaging.jmq.jmsserver.service.imq.websocket.JMSWebSocketFramingBenchmark [bodySize] [messages]
+ * </pre>
+ */
+public class JMSWebSocketFramingBenchmark {
+
+    private static final int MAX_FRAME_BYTES = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        String text = new String(chars);
+
+        for (boolean report : new boolean[] { false, true }) {
+            int n = report ? messages : messages / 4;
+            json(text, n, report);
+            binary(text, n, false, report);
+            binary(text, n, true, report);
+        }
+    }
+
+    private static void json(String text, int messages, boolean report) {
+        JsonBuilderFactory factory = Json.createBuilderFactory(null);
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            JsonObjectBuilder hbuilder = factory.createObjectBuilder();
+            hbuilder.add("destination", "/queue/bench");
+            hbuilder.add("message-id", "ID:" + i);
+            hbuilder.add("subscription", "sub-0");
+            JsonObjectBuilder bbuilder = factory.createObjectBuilder();
+            bbuilder.add("type", "text");
+            bbuilder.add("text", text);
+            JsonObject jo = factory.createObjectBuilder().add("command", "MESSAGE").add("headers", hbuilder.build()).add("body", bbuilder.build()).build();
+            bytes += jo.toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+        report(report, "json", messages, messages, bytes, System.nanoTime() - start);
+    }
+
+    private static void binary(String text, int messages, boolean batch, boolean report) throws Exception {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        Packet pkt = new Packet(false);
+        pkt.setPacketType(PacketType.TEXT_MESSAGE);
+        pkt.setDestination("bench");
+        pkt.setMessageBody(body);
+
+        PacketFrameBuffer buffer = new PacketFrameBuffer(batch ? MAX_FRAME_BYTES : 8 * 1024);
+        long bytes = 0;
+        int frames = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            buffer.addPacket(pkt);
+            if (!batch || buffer.size() >= MAX_FRAME_BYTES) {
+                bytes += buffer.takeFrame().length;
+                frames++;
+            }
+        }
+        if (buffer.getPacketCount() > 0) {
+            bytes += buffer.takeFrame().length;
+            frames++;
+        }
+        report(report, batch ? "batched" : "binary", messages, frames, bytes, System.nanoTime() - start);
+    }
+
+    private static void report(boolean report, String name, int messages, int frames, long bytes, long nanos) {
+        if (report) {
+            System.out.printf("%-8s messages=%d frames=%d bytes/msg=%d %.0f msgs/s %.1f MB/s%n", name, messages, frames, bytes / messages,
+                    messages / (nanos / 1e9), bytes / (1024.0 * 1024) / (nanos / 1e9));
+        }
+    }
+}
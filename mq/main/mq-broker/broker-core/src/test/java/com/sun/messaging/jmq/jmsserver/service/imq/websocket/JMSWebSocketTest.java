@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.service.imq.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.websockets.DataFrame;
+import org.glassfish.grizzly.websockets.ProtocolHandler;
+import org.glassfish.grizzly.websockets.WebSocketMappingData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.io.Packet;
+
+class JMSWebSocketTest {
+    private static final int MAX_PENDING = 100;
+
+    private WebSocketIPService svc;
+    private MQWebSocketServiceApp app;
+    private ProtocolHandler handler;
+
+    private List<byte[]> frames = new ArrayList<>();
+    private List<CompletionHandler<DataFrame>> completions = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        svc = mock(WebSocketIPService.class);
+        when(svc.getJMSMaxFrameBytes()).thenReturn(64 * 1024);
+        when(svc.getJMSMaxPendingWriteBytes()).thenReturn(MAX_PENDING);
+        app = mock(MQWebSocketServiceApp.class);
+        when(app.getMQService()).thenReturn(svc);
+        handler = mock(ProtocolHandler.class, RETURNS_DEEP_STUBS);
+        Method getMappingData = ProtocolHandler.class.getDeclaredMethod("getMappingData");
+        getMappingData.setAccessible(true);
+        // DefaultWebSocket builds a servlet view of the upgrade request from the mapped paths
+        WebSocketMappingData mapping = new WebSocketMappingData(false);
+        mapping.contextPath.setString("");
+        mapping.wrapperPath.setString("/jms");
+        mapping.pathInfo.setString("");
+        when(getMappingData.invoke(handler)).thenReturn(mapping);
+        when(handler.send(any(byte[].class))).thenAnswer(inv -> {
+            frames.add(inv.getArgument(0));
+            GrizzlyFuture<DataFrame> future = mock(GrizzlyFuture.class);
+            doAnswer(c -> completions.add(c.getArgument(0))).when(future).addCompletionHandler(any());
+            return future;
+        });
+    }
+
+    private JMSWebSocket connect(boolean batching) throws Exception {
+        // the upgrade request as the websocket handshake leaves it
+        HttpRequestPacket request = HttpRequestPacket.builder().method("GET").uri("/jms").protocol("HTTP/1.1").build();
+        Method setResponse = HttpRequestPacket.class.getDeclaredMethod("setResponse", HttpResponsePacket.class);
+        setResponse.setAccessible(true);
+        setResponse.invoke(request, HttpResponsePacket.builder(request).build());
+        JMSWebSocket ws = new JMSWebSocket(app, handler, request, batching);
+        ws.onConnect();
+        return ws;
+    }
+
+    private static Packet large() throws Exception {
+        Packet pkt = PacketFrameBufferTest.packet("x".repeat(2 * MAX_PENDING));
+        assertTrue(pkt.getPacketSize() > MAX_PENDING);
+        return pkt;
+    }
+
+    @Test
+    void holdsPacketsUntilFlushed() throws Exception {
+        JMSWebSocket ws = connect(true);
+        ws.writePacket(PacketFrameBufferTest.packet("one"), true);
+        ws.writePacket(PacketFrameBufferTest.packet("two"), true);
+        assertTrue(frames.isEmpty());
+
+        ws.flushPackets();
+
+        assertEquals(1, frames.size());
+        ByteBuffer frame = ByteBuffer.wrap(frames.get(0));
+        Packet pkt = new Packet(false);
+        assertTrue(pkt.readPacket(frame));
+        pkt = new Packet(false);
+        assertTrue(pkt.readPacket(frame));
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void sendsEachPacketWithoutBatching() throws Exception {
+        JMSWebSocket ws = connect(false);
+        ws.writePacket(PacketFrameBufferTest.packet("one"), true);
+        ws.writePacket(PacketFrameBufferTest.packet("two"), true);
+
+        assertEquals(2, frames.size());
+    }
+
+    @Test
+    void blocksBatchingWriterUntilClientReads() throws Exception {
+        JMSWebSocket ws = connect(true);
+        ws.writePacket(large(), false);
+
+        Runnable resume = mock(Runnable.class);
+        assertTrue(ws.isWriteBlocked(resume));
+        verify(resume, never()).run();
+
+        completions.get(0).completed(null);
+
+        verify(resume).run();
+        assertFalse(ws.isWriteBlocked(mock(Runnable.class)));
+    }
+
+    @Test
+    void writesDoNotWaitOverTheLimit() throws Exception {
+        JMSWebSocket ws = connect(true);
+        ws.writePacket(large(), false);
+        assertTrue(ws.isWriteBlocked(mock(Runnable.class)));
+
+        // a control message is sent right away rather than waiting for write space under the write lock
+        ws.writePacket(PacketFrameBufferTest.packet("control"));
+
+        assertEquals(2, frames.size());
+    }
+
+    @Test
+    void doesNotLimitClientsWithoutBatching() throws Exception {
+        JMSWebSocket ws = connect(false);
+        ws.writePacket(large());
+
+        assertFalse(ws.isWriteBlocked(mock(Runnable.class)));
+    }
+}
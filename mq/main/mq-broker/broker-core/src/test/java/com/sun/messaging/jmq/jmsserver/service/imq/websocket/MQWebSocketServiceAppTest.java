@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.service.imq.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.websockets.Constants;
+import org.junit.jupiter.api.Test;
+
+class MQWebSocketServiceAppTest {
+
+    private final MQWebSocketServiceApp app = new MQWebSocketServiceApp(mock(WebSocketIPService.class));
+
+    private boolean batchNegotiated(String header) {
+        HttpRequestPacket request = mock(HttpRequestPacket.class);
+        when(request.getHeader(Constants.SEC_WS_PROTOCOL_HEADER)).thenReturn(header);
+        return app.isSubProtocolNegotiated(request, MQWebSocketServiceApp.SUBPROTOCOL_JMS_BATCH);
+    }
+
+    @Test
+    void testBatchNegotiatedOnlyWhenSelected() {
+        assertTrue(batchNegotiated("mqjms.batch"));
+        assertTrue(batchNegotiated("other, mqjms.batch"));
+
+        // v12.stomp is preferred, so the handshake does not accept batching
+        assertFalse(batchNegotiated("v12.stomp, mqjms.batch"));
+        assertFalse(batchNegotiated("mqjms"));
+        assertFalse(batchNegotiated(null));
+    }
+}
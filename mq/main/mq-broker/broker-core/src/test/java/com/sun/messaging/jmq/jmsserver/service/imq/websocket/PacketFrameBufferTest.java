@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.service.imq.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+
+class PacketFrameBufferTest {
+
+    static Packet packet(String text) throws Exception {
+        Packet pkt = new Packet(false);
+        pkt.setPacketType(PacketType.TEXT_MESSAGE);
+        pkt.setDestination("frameTestQueue");
+        pkt.setMessageBody(text.getBytes(StandardCharsets.UTF_8));
+        return pkt;
+    }
+
+    private static String readText(ByteBuffer buf) throws Exception {
+        Packet pkt = new Packet(false);
+        assertTrue(pkt.readPacket(buf));
+        return new String(pkt.getMessageBodyByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void framesPacketsBackToBack() throws Exception {
+        PacketFrameBuffer buffer = new PacketFrameBuffer(1024);
+        Packet one = packet("one");
+        Packet two = packet("two");
+        buffer.addPacket(one);
+        buffer.addPacket(two);
+
+        assertEquals(2, buffer.getPacketCount());
+        assertEquals(one.getPacketSize() + two.getPacketSize(), buffer.size());
+
+        ByteBuffer frame = ByteBuffer.wrap(buffer.takeFrame());
+        assertEquals("one", readText(frame));
+        assertEquals("two", readText(frame));
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void takeFrameResetsBuffer() throws Exception {
+        PacketFrameBuffer buffer = new PacketFrameBuffer(1024);
+        buffer.addPacket(packet("first"));
+        buffer.takeFrame();
+
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getPacketCount());
+
+        buffer.addPacket(packet("second"));
+        ByteBuffer frame = ByteBuffer.wrap(buffer.takeFrame());
+        assertEquals("second", readText(frame));
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void growsForLargePacket() throws Exception {
+        PacketFrameBuffer buffer = new PacketFrameBuffer(64);
+        String large = "x".repeat(10000);
+        buffer.addPacket(packet(large));
+        assertEquals(large, readText(ByteBuffer.wrap(buffer.takeFrame())));
+
+        buffer.addPacket(packet("small"));
+        assertEquals("small", readText(ByteBuffer.wrap(buffer.takeFrame())));
+    }
+}
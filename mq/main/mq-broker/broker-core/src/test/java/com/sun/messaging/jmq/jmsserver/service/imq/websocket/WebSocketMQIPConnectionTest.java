@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.service.imq.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.net.InetAddress;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.sun.messaging.jmq.jmsserver.data.PacketRouter;
+import com.sun.messaging.jmq.jmsserver.service.imq.Operation;
+import com.sun.messaging.jmq.util.ServiceType;
+
+class WebSocketMQIPConnectionTest {
+    private WebSocketIPService svc;
+    private MQWebSocket websocket;
+    private WebSocketMQIPConnection conn;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        svc = mock(WebSocketIPService.class);
+        when(svc.getName()).thenReturn("wsjms");
+        when(svc.getServiceType()).thenReturn(ServiceType.NORMAL);
+        websocket = mock(MQWebSocket.class);
+        when(websocket.getRemoteAddress()).thenReturn(InetAddress.getLoopbackAddress());
+        conn = new WebSocketMQIPConnection(svc, mock(PacketRouter.class), websocket);
+    }
+
+    @Test
+    void flushesHeldPacketsWhenNothingMoreToWrite() throws Exception {
+        assertEquals(Operation.PROCESS_PACKETS_COMPLETE, conn.writeData(false));
+        verify(websocket).flushPackets();
+    }
+
+    @Test
+    void holdsPacketsWhileMoreCanBeWritten() {
+        assertFalse(WebSocketMQIPConnection.shouldFlush(true, Operation.PROCESS_PACKETS_REMAINING, true));
+
+        assertTrue(WebSocketMQIPConnection.shouldFlush(false, Operation.PROCESS_PACKETS_REMAINING, true));
+        assertTrue(WebSocketMQIPConnection.shouldFlush(true, Operation.PROCESS_PACKETS_COMPLETE, true));
+        assertTrue(WebSocketMQIPConnection.shouldFlush(true, Operation.PROCESS_WRITE_INCOMPLETE, true));
+        assertTrue(WebSocketMQIPConnection.shouldFlush(true, Operation.PROCESS_PACKETS_REMAINING, false));
+    }
+
+    @Test
+    void returnsIncompleteAndResubmitsWhenWriteBlocked() throws Exception {
+        ArgumentCaptor<Runnable> resume = ArgumentCaptor.forClass(Runnable.class);
+        when(websocket.isWriteBlocked(resume.capture())).thenReturn(true);
+
+        assertEquals(Operation.PROCESS_WRITE_INCOMPLETE, conn.writeData(false));
+        verify(websocket, never()).flushPackets();
+        verify(svc, never()).setReadyToWrite(any(), anyBoolean());
+
+        resume.getValue().run();
+        verify(svc).setReadyToWrite(conn, true);
+    }
+}
@@ -22,6 +22,7 @@ package com.sun.messaging.jmq.jmsserver.persist.partition.jdbc;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import com.sun.messaging.jmq.io.Packet;
 import com.sun.messaging.jmq.io.SysMessageID;
 import com.sun.messaging.jmq.jmsserver.core.BrokerAddress;
@@ -134,6 +135,16 @@ public class JDBCPartitionedStoreImpl extends AbstractPartitionedStore {
         }
     }
 
+    @Override
+    public int removeMessages(DestinationUID dID, List<SysMessageID> mIDs, boolean sync) throws BrokerException {
+        checkClosedAndSetInProgress();
+        try {
+            return ((JDBCStore) parent).removeMessagesInternal(dID, mIDs);
+        } finally {
+            setInProgress(false);
+        }
+    }
+
     /**
      * Move the message from one destination to another. The message will be stored in the target destination with the
      * passed in consumers and their corresponding states. After the message is persisted successfully, the message in the
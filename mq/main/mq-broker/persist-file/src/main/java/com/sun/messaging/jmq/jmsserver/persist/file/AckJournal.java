@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.persist.api.Store;
+import com.sun.messaging.jmq.util.MQThread;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * Append-only journal of the interest state updates of the messages of a destination.
+ * <p>
+ * Instead of rewriting the state in the message record for every acknowledgement, MessageInfo appends a fixed size
+ * record (crc, message id, position in the interest list, state) to the journal, so that the acknowledgements of many
+ * subscribers turn into sequential writes to one file. The latest states are kept in memory by MessageInfo.
+ * <p>
+ * Once the journal exceeds its maximum size it is checkpointed: it is renamed to ackjournal.1 and a new journal is
+ * started, then the current interest list of every message updated since the previous checkpoint is written back to its
+ * record once and the message file is synced, after which ackjournal.1 is deleted. Messages removed in the meantime are
+ * simply skipped, so a message that is acknowledged by all its interests and removed never has its record rewritten.
+ * The checkpoint runs on a background thread shared by all destinations, acknowledgements keep being appended to the new
+ * journal meanwhile.
+ * <p>
+ * Both files are replayed when the destination is opened. States of messages that have not been loaded yet are kept
+ * until the message is loaded; torn records at the end of the journal are dropped.
+ */
+class AckJournal {
+
+    static final String FILENAME = "ackjournal";
+    static final String OLD_FILENAME = FILENAME + ".1";
+    private static final String TMP_FILENAME = FILENAME + ".tmp";
+
+    // crc (int), message id, position in interest list (int), state (int)
+    private static final int RECORD_SIZE = 4 + SysMessageID.ID_SIZE + 4 + 4;
+
+    private static final Logger logger = Globals.getLogger();
+
+    private final DstMsgStore parent;
+    private final File file;
+    private final File oldFile;
+    private final long maxSize;
+
+    private RandomAccessFile raf = null;
+    private FileChannel channel = null;
+    private long size = 0L;
+
+    // journaled states of messages not loaded yet; message id -> (position -> state)
+    private HashMap<SysMessageID, Map<Integer, Integer>> pending = new HashMap<>();
+
+    // loaded messages whose current states are only in the journal
+    private HashMap<SysMessageID, MessageInfo> dirty = new HashMap<>();
+
+    // held while a checkpoint runs
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    // set while a background checkpoint is queued
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private static ExecutorService checkpointer = null;
+
+    private long checkpoints = 0L;
+
+    static boolean exists(File dir) {
+        return new File(dir, FILENAME).exists() || new File(dir, OLD_FILENAME).exists();
+    }
+
+    AckJournal(DstMsgStore parent, File dir, long maxSize) throws IOException {
+        this.parent = parent;
+        this.file = new File(dir, FILENAME);
+        this.oldFile = new File(dir, OLD_FILENAME);
+        this.maxSize = maxSize;
+
+        boolean hasOld = oldFile.exists();
+        if (hasOld) {
+            replay(oldFile, false);
+        }
+        if (file.exists()) {
+            long valid = replay(file, true);
+            if (valid < file.length()) {
+                logger.log(Logger.WARNING, "Dropped " + (file.length() - valid) + " bytes of incomplete records at the end of " + file);
+            }
+        }
+
+        if (hasOld) {
+            // a checkpoint did not complete, keep everything in one journal
+            File tmp = new File(dir, TMP_FILENAME);
+            tmp.delete();
+            open(tmp);
+            writePending();
+            channel.force(false);
+            closeFile();
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(oldFile.toPath());
+        }
+        open(file);
+
+        if (Store.getDEBUG()) {
+            logger.log(Logger.DEBUG, "AckJournal: opened " + file + ", states of " + pending.size() + " messages to apply");
+        }
+    }
+
+    private void open(File f) throws IOException {
+        raf = new RandomAccessFile(f, "rw");
+        channel = raf.getChannel();
+        size = channel.size();
+        channel.position(size);
+    }
+
+    private void closeFile() throws IOException {
+        if (raf != null) {
+            raf.close();
+            raf = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * Read the records of a journal file into the pending states.
+     *
+     * @param truncate if true, incomplete records at the end are removed from the file
+     * @return the length of the valid part of the file
+     */
+    private long replay(File f, boolean truncate) throws IOException {
+        long valid = 0L;
+        try (RandomAccessFile in = new RandomAccessFile(f, "rw")) {
+            FileChannel ch = in.getChannel();
+            ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            byte[] rec = new byte[RECORD_SIZE - 4];
+            CRC32 crc = new CRC32();
+            boolean done = false;
+            while (!done && ch.read(buf) > 0) {
+                buf.flip();
+                while (buf.remaining() >= RECORD_SIZE) {
+                    int checksum = buf.getInt();
+                    buf.get(rec);
+                    crc.reset();
+                    crc.update(rec, 0, rec.length);
+                    if ((int) crc.getValue() != checksum) {
+                        done = true;
+                        break;
+                    }
+                    DataInputStream dis = new DataInputStream(new ByteArrayInputStream(rec));
+                    SysMessageID mid = new SysMessageID();
+                    mid.readID(dis);
+                    int index = dis.readInt();
+                    int state = dis.readInt();
+                    pending.computeIfAbsent(mid, k -> new HashMap<>()).put(Integer.valueOf(index), Integer.valueOf(state));
+                    valid += RECORD_SIZE;
+                }
+                buf.compact();
+            }
+            if (truncate && valid < ch.size()) {
+                ch.truncate(valid);
+                ch.force(false);
+            }
+        }
+        return valid;
+    }
+
+    private void writeRecord(SysMessageID mid, int index, int state) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+        buf.position(4);
+        buf.put(mid.getRawID());
+        buf.putInt(index);
+        buf.putInt(state);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 4, RECORD_SIZE - 4);
+        buf.putInt(0, (int) crc.getValue());
+        buf.rewind();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        size += RECORD_SIZE;
+    }
+
+    private void writePending() throws IOException {
+        Iterator<Map.Entry<SysMessageID, Map<Integer, Integer>>> itr = pending.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry<SysMessageID, Map<Integer, Integer>> entry = itr.next();
+            Iterator<Map.Entry<Integer, Integer>> sitr = entry.getValue().entrySet().iterator();
+            while (sitr.hasNext()) {
+                Map.Entry<Integer, Integer> s = sitr.next();
+                writeRecord(entry.getKey(), s.getKey().intValue(), s.getValue().intValue());
+            }
+        }
+    }
+
+    /**
+     * @return the journaled states of a message that is being loaded, or null
+     */
+    synchronized Map<Integer, Integer> takePending(SysMessageID mid) {
+        return pending.remove(mid);
+    }
+
+    /**
+     * Called once all messages of the destination are loaded, states left over belong to messages that were removed.
+     */
+    synchronized void dropPending() {
+        if (!pending.isEmpty() && Store.getDEBUG()) {
+            logger.log(Logger.DEBUG, "AckJournal: dropped states of " + pending.size() + " removed messages from " + file);
+        }
+        pending.clear();
+    }
+
+    synchronized void markDirty(SysMessageID mid, MessageInfo info) {
+        dirty.put(mid, info);
+    }
+
+    /**
+     * Append a state update. Called by MessageInfo with its lock held, so the records of a message are in the same order
+     * as its in-memory updates.
+     */
+    synchronized void append(MessageInfo info, int index, int state, boolean sync) throws IOException {
+        SysMessageID mid = info.getID();
+        writeRecord(mid, index, state);
+        dirty.put(mid, info);
+        if (sync) {
+            if (Store.getDEBUG_SYNC()) {
+                logger.log(Logger.INFO, "sync ack journal for msg " + mid);
+            }
+            channel.force(false);
+        }
+    }
+
+    synchronized boolean needsCheckpoint() {
+        return size >= maxSize && !checkpointLock.isLocked();
+    }
+
+    private static synchronized ExecutorService getCheckpointer() {
+        if (checkpointer == null) {
+            checkpointer = Executors.newSingleThreadExecutor(r -> {
+                MQThread t = new MQThread(r, "imqAckJournalCheckpoint");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return checkpointer;
+    }
+
+    /**
+     * Checkpoint the journal in the background if it has grown beyond its maximum size
+     */
+    void checkpointIfNeeded() {
+        if (!needsCheckpoint() || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getCheckpointer().execute(() -> {
+                scheduled.set(false);
+                try {
+                    checkpoint(false);
+                } catch (IOException | RuntimeException e) {
+                    logger.log(Logger.WARNING, "Failed to write back acknowledgement states of " + file, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+        }
+    }
+
+    /**
+     * Write the journaled states back to the message records and start over with an empty journal, waiting for a
+     * checkpoint that is already running. Must not be called with a MessageInfo lock held.
+     */
+    void checkpoint() throws IOException {
+        checkpoint(true);
+    }
+
+    /**
+     * @param wait if false, return at once when a checkpoint is already running
+     */
+    private void checkpoint(boolean wait) throws IOException {
+        if (wait) {
+            checkpointLock.lock();
+        } else if (!checkpointLock.tryLock()) {
+            return;
+        }
+        try {
+            HashMap<SysMessageID, MessageInfo> snapshot = null;
+            synchronized (this) {
+                if (raf == null || (size == 0L && dirty.isEmpty())) {
+                    // closed, or nothing to write back
+                    return;
+                }
+                channel.force(false);
+                closeFile();
+                Files.move(file.toPath(), oldFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                open(file);
+                writePending();
+                snapshot = dirty;
+                dirty = new HashMap<>();
+            }
+
+            try {
+                Iterator<MessageInfo> itr = snapshot.values().iterator();
+                while (itr.hasNext()) {
+                    itr.next().writeBackStates();
+                }
+                parent.syncData();
+            } catch (IOException | RuntimeException e) {
+                // still only in ackjournal.1 and memory; retry with the next checkpoint
+                synchronized (this) {
+                    snapshot.putAll(dirty);
+                    dirty = snapshot;
+                }
+                throw e;
+            }
+            Files.deleteIfExists(oldFile.toPath());
+
+            synchronized (this) {
+                checkpoints++;
+            }
+            if (Store.getDEBUG()) {
+                logger.log(Logger.DEBUG, "AckJournal: wrote back states of " + snapshot.size() + " messages for " + file);
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    synchronized void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Discard all journaled states, e.g. when all messages of the destination are removed. Waits for a running
+     * checkpoint, which may still be writing states back.
+     */
+    void clear() throws IOException {
+        checkpointLock.lock();
+        try {
+            synchronized (this) {
+                pending.clear();
+                dirty.clear();
+                if (channel != null) {
+                    channel.truncate(0);
+                    channel.position(0);
+                }
+                size = 0L;
+                Files.deleteIfExists(oldFile.toPath());
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Checkpoint and close. The journal file is deleted if nothing is left in it.
+     */
+    void close() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            logger.log(Logger.WARNING, "Failed to write back acknowledgement states of " + file, e);
+        }
+        synchronized (this) {
+            try {
+                boolean empty = (size == 0L);
+                closeFile();
+                if (empty) {
+                    file.delete();
+                }
+            } catch (IOException e) {
+                logger.log(Logger.WARNING, "Failed to close " + file, e);
+            }
+        }
+    }
+
+    synchronized Hashtable getDebugState() {
+        Hashtable t = new Hashtable();
+        t.put(parent.myDestination + ":ack journal size", String.valueOf(size));
+        t.put(parent.myDestination + ":ack journal dirty messages", String.valueOf(dirty.size()));
+        t.put(parent.myDestination + ":ack journal pending messages", String.valueOf(pending.size()));
+        t.put(parent.myDestination + ":ack journal checkpoints", String.valueOf(checkpoints));
+        return t;
+    }
+}
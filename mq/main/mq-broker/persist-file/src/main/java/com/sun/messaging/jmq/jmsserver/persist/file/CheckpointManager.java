@@ -17,21 +17,34 @@
 
 package com.sun.messaging.jmq.jmsserver.persist.file;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Hashtable;
 
 import com.sun.messaging.jmq.jmsserver.Globals;
 import com.sun.messaging.jmq.jmsserver.persist.api.Store;
 import com.sun.messaging.jmq.util.log.Logger;
 
+/**
+ * Runs checkpoints requested by the transaction log on a background thread. A request never blocks the caller, which is
+ * the log writer: requests that arrive while one is already pending are coalesced into it, because the pending
+ * checkpoint covers everything logged before it starts.
+ */
 public class CheckpointManager implements Runnable {
 
     TransactionLogManager transactionLogManager;
-    private BlockingQueue<Checkpoint> checkpointQueue = new ArrayBlockingQueue<>(5);
     int numCheckpoints;
     private Thread runner;
     public static final Logger logger = Globals.getLogger();
 
+    // guarded by this
+    private boolean pending = false;
+    private int numCoalesced = 0;
+
+    // checkpoint metrics, in milliseconds
+    private volatile long numCompleted = 0;
+    private volatile long lastDuration = 0;
+    private volatile long maxDuration = 0;
+    private volatile long totalDuration = 0;
+
     CheckpointManager(TransactionLogManager transactionLogManager) {
         this.transactionLogManager = transactionLogManager;
     }
@@ -44,8 +57,25 @@ public class CheckpointManager implements Runnable {
     public void run() {
         while (true) {
             try {
-                checkpointQueue.take();
+                synchronized (this) {
+                    while (!pending) {
+                        wait();
+                    }
+                    pending = false;
+                }
+
+                long start = System.currentTimeMillis();
                 transactionLogManager.doCheckpoint();
+                long duration = System.currentTimeMillis() - start;
+
+                lastDuration = duration;
+                maxDuration = Math.max(maxDuration, duration);
+                totalDuration += duration;
+                numCompleted++;
+
+                if (Store.getDEBUG()) {
+                    logger.log(Logger.DEBUG, getPrefix() + " checkpoint took " + duration + "ms");
+                }
             } catch (Throwable e) {
                 logger.logStack(Logger.ERROR, "exception when doing checkpoint", e);
 
@@ -66,24 +96,28 @@ public class CheckpointManager implements Runnable {
             runner.start();
         }
 
-        Checkpoint checkpoint = new Checkpoint();
-        int queueSize = checkpointQueue.size();
-        if (queueSize > 0) {
-            logger.log(Logger.ERROR, "enqueued checkpoint request " + numCheckpoints + " when there are still " + queueSize + " request(s) in process");
-
-        }
-
-        try {
-            checkpointQueue.put(checkpoint);
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+        if (pending) {
+            numCoalesced++;
+            if (Store.getDEBUG()) {
+                logger.log(Logger.DEBUG, getPrefix() + " checkpoint request " + numCheckpoints + " coalesced with pending request");
+            }
+        } else {
+            pending = true;
+            notifyAll();
         }
 
         numCheckpoints++;
     }
 
-    public static class Checkpoint {
+    synchronized Hashtable getDebugState() {
+        Hashtable t = new Hashtable();
+        t.put("checkpoint.requests", Integer.valueOf(numCheckpoints));
+        t.put("checkpoint.coalesced", Integer.valueOf(numCoalesced));
+        t.put("checkpoint.completed", Long.valueOf(numCompleted));
+        t.put("checkpoint.lastDuration", Long.valueOf(lastDuration));
+        t.put("checkpoint.maxDuration", Long.valueOf(maxDuration));
+        t.put("checkpoint.avgDuration", Long.valueOf(numCompleted == 0 ? 0 : totalDuration / numCompleted));
+        return t;
     }
 
 }
@@ -54,6 +54,12 @@ class DstMsgStore extends RandomAccessStore {
 
     static String VRFILE_NAME = "vrfile";
 
+    static final String ACK_JOURNAL_PROP = FileStore.FILE_PROP_PREFIX + "message.ackJournal.enabled";
+    static final boolean DEFAULT_ACK_JOURNAL = false;
+
+    static final String ACK_JOURNAL_SIZE_PROP = FileStore.FILE_PROP_PREFIX + "message.ackJournal.size";
+    static final long DEFAULT_ACK_JOURNAL_SIZE = 4096; // 4m
+
     /* == variables used for storing/retrieving messages == */
 
     static boolean useFileChannel = Globals.getConfig().getBooleanProperty(USE_FILE_CHANNEL_PROP, DEFAULT_USE_FILE_CHANNEL);
@@ -86,11 +92,11 @@ class DstMsgStore extends RandomAccessStore {
     protected float thresholdFactor = config.getPercentageProperty(Globals.IMQ + ".persist.file.message.vrfile.threshold_factor",
             VRFile.DEFAULT_THRESHOLD_FACTOR);
 
-    // skip 'vrfile'
+    // skip 'vrfile' and the ack journal files
     private static FilenameFilter vrfileFilter = new FilenameFilter() {
         @Override
         public boolean accept(File dir, String name) {
-            return (!name.equals(VRFILE_NAME));
+            return (!name.equals(VRFILE_NAME) && !name.startsWith(AckJournal.FILENAME));
         }
     };
 
@@ -119,6 +125,10 @@ class DstMsgStore extends RandomAccessStore {
 
     int maxRecordSize = 0;
 
+    // journal of interest state updates; also opened to replay a leftover journal when journaling is disabled
+    private AckJournal ackJournal = null;
+    private boolean journalAcks = false;
+
     DstMsgStore(MsgStore p, DestinationUID dst, File dir) throws BrokerException {
         this(p, dst, dir, false);
     }
@@ -183,6 +193,12 @@ class DstMsgStore extends RandomAccessStore {
                 }
             }
 
+            journalAcks = config.getBooleanProperty(ACK_JOURNAL_PROP, DEFAULT_ACK_JOURNAL);
+            if (journalAcks || AckJournal.exists(dir)) {
+                long maxsize = config.getSizeProperty(ACK_JOURNAL_SIZE_PROP, DEFAULT_ACK_JOURNAL_SIZE).getBytes();
+                ackJournal = new AckJournal(this, dir, maxsize);
+            }
+
             // initialize message count and byte count
             initCounts();
         } catch (Throwable t) {
@@ -217,6 +233,15 @@ class DstMsgStore extends RandomAccessStore {
             return;
         }
 
+        if (ackJournal != null) {
+            // records are reloaded below, get the states into them first
+            try {
+                ackJournal.checkpoint();
+            } catch (IOException e) {
+                throw new BrokerException("Failed to write back acknowledgement states to file: " + vrfile.getFile(), e);
+            }
+        }
+
         // synchronize on vrfile to prevent others to access this destination
         synchronized (vrfile) {
             try {
@@ -307,6 +332,43 @@ class DstMsgStore extends RandomAccessStore {
         decrMsgCount(oldmsg.getSize());
     }
 
+    /**
+     * Remove a batch of messages. Records are freed without syncing, the backing file is synced once at the end. When the
+     * batch leaves no message records in the vrfile, the vrfile is truncated back to its initial size instead of keeping
+     * the space on the free list.
+     *
+     * @return the number of messages removed; ids not found are skipped
+     */
+    int removeMessages(List<SysMessageID> ids, boolean sync) throws IOException, BrokerException {
+
+        int removed = 0;
+        for (SysMessageID id : ids) {
+            MessageInfo oldmsg = (MessageInfo) messageMap.remove(id);
+            if (oldmsg == null) {
+                continue;
+            }
+            oldmsg.free(false);
+            decrMsgCount(oldmsg.getSize());
+            removed++;
+        }
+
+        if (vrfile != null && removed > 0) {
+            // allocation is done while holding the vrfile lock, so no
+            // record can show up between the check and the truncate
+            synchronized (vrfile) {
+                if (vrfile.getNRecords() == 0) {
+                    if (Store.getDEBUG()) {
+                        logger.log(logger.DEBUG, "DstMsgStore:truncating emptied vrfile for " + myDestination);
+                    }
+                    vrfile.clear(true); // true->truncate, forces the file
+                } else if (sync) {
+                    vrfile.force();
+                }
+            }
+        }
+        return removed;
+    }
+
     /**
      * Remove all messages associated with this destination.
      *
@@ -318,6 +380,9 @@ class DstMsgStore extends RandomAccessStore {
         if (vrfile != null) {
             vrfile.clear(false); // false->don't truncate
         }
+        if (ackJournal != null) {
+            ackJournal.clear();
+        }
 
         removeAllData(sync);
 
@@ -328,6 +393,11 @@ class DstMsgStore extends RandomAccessStore {
     // will delete the whole directory hierarchy
     void releaseMessageDir(boolean sync) throws IOException {
 
+        if (ackJournal != null) {
+            ackJournal.clear();
+            ackJournal.close();
+            ackJournal = null;
+        }
         if (vrfile != null) {
             // clear backing file
             vrfile.clear(false);
@@ -392,6 +462,11 @@ class DstMsgStore extends RandomAccessStore {
     @Override
     protected void close(boolean cleanup) {
 
+        // write back journaled states before the records are closed
+        if (ackJournal != null) {
+            ackJournal.close();
+        }
+
         // vrfile
         if (vrfile != null) {
             vrfile.close();
@@ -407,6 +482,35 @@ class DstMsgStore extends RandomAccessStore {
         return vrfile;
     }
 
+    boolean isJournalingAcks() {
+        return journalAcks;
+    }
+
+    AckJournal getAckJournal() {
+        return ackJournal;
+    }
+
+    /**
+     * sync the message records, called by the ack journal checkpoint
+     */
+    void syncData() throws IOException {
+        if (vrfile != null) {
+            vrfile.force();
+        }
+    }
+
+    // apply states of a message that is being loaded from the ack journal
+    private void applyJournaledStates(MessageInfo minfo) {
+        if (ackJournal != null) {
+            SysMessageID mid = minfo.getID();
+            Map<Integer, Integer> states = ackJournal.takePending(mid);
+            if (states != null) {
+                minfo.applyStates(states);
+                ackJournal.markDirty(mid, minfo);
+            }
+        }
+    }
+
     /**
      * Load all messages in the backing file.
      *
@@ -445,6 +549,7 @@ class DstMsgStore extends RandomAccessStore {
     Object parseData(byte[] data, byte[] attachment) throws IOException {
 
         MessageInfo minfo = new MessageInfo(this, data, attachment);
+        applyJournaledStates(minfo);
 
         // if everything is ok, we cache it
         // make sure to use the cloned SysMessageID
@@ -462,6 +567,7 @@ class DstMsgStore extends RandomAccessStore {
 
     // synchronized access to messageMap.put()
     private void cacheMessageInfo(MessageInfo minfo) {
+        applyJournaledStates(minfo);
         messageMap.put(minfo.getID(), minfo);
     }
 
@@ -472,6 +578,9 @@ class DstMsgStore extends RandomAccessStore {
 
     private void setLoadedFlag(boolean flag) {
         loaded.set(flag);
+        if (flag && ackJournal != null) {
+            ackJournal.dropPending();
+        }
     }
 
     private void incrMsgCount(int msgSize) throws BrokerException {
@@ -652,6 +761,9 @@ class DstMsgStore extends RandomAccessStore {
         Hashtable t = new Hashtable();
         t.put((myDestination + ":messages in vrfile"), String.valueOf(numInVrfile));
         t.put((myDestination + ":messages in its own file"), String.valueOf(numInFiles));
+        if (ackJournal != null) {
+            t.putAll(ackJournal.getDebugState());
+        }
         return t;
     }
 
@@ -666,6 +778,10 @@ class DstMsgStore extends RandomAccessStore {
     void updateInterestState(SysMessageID mid, ConsumerUID iid, int state, boolean sync) throws IOException, BrokerException {
 
         getMessageInfo(mid).updateState(iid, state, sync);
+
+        if (ackJournal != null) {
+            ackJournal.checkpointIfNeeded();
+        }
     }
 
     boolean containsMsg(SysMessageID mid) {
@@ -688,6 +804,9 @@ class DstMsgStore extends RandomAccessStore {
             if (Store.getDEBUG_SYNC()) {
                 logger.log(Logger.DEBUG, "sync called on " + myDestination);
             }
+            if (ackJournal != null) {
+                ackJournal.force();
+            }
             vrfile.force();
         } catch (IOException e) {
             throw new BrokerException("Failed to synchronize data to disk for file: " + vrfile, e);
@@ -24,6 +24,9 @@ package com.sun.messaging.jmq.jmsserver.persist.file;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.File;
 import java.io.FilenameFilter;
@@ -44,6 +47,7 @@ import java.util.TimerTask;
 import com.sun.messaging.jmq.jmsserver.persist.api.util.MQObjectInputStream;
 import com.sun.messaging.jmq.util.DestMetricsCounters;
 import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.Status;
 import com.sun.messaging.jmq.io.SysMessageID;
 import com.sun.messaging.jmq.io.disk.ObjectInputStreamCallback;
 import com.sun.messaging.jmq.jmsserver.Broker;
@@ -158,6 +162,15 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
     static final String NO_SYNC_FOR_DELIVERY_STATE_UPDATE = FILE_PROP_PREFIX + "noSyncForDeliveryStateUpdate";
     static final boolean noSyncForDeliveryStateUpdate = config.getBooleanProperty(NO_SYNC_FOR_DELIVERY_STATE_UPDATE, false);
 
+    /**
+     * comma separated directories, each holding a store partition in addition to the one under the instance directory;
+     * only used in partition mode
+     */
+    static final String PARTITION_DIRS_PROP = FILE_PROP_PREFIX + "partition.dirs";
+
+    // file under the root directory of a store partition holding its partition id
+    static final String PARTITION_ID_FILE = "partitionid";
+
     /**
      * Instance variables
      */
@@ -187,6 +200,9 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
     // private PreparedTxnStore preparedTxnStore = null;
     private TransactionLogManager txnLogManager = null;
 
+    // background sync of message files written without sync; new txn log only
+    private SyncScheduler syncScheduler = null;
+
     // basename of txn log files
     static final String MSG_LOG_FILENAME = "txnlogmsg";
     static final String ACK_LOG_FILENAME = "txnlogack";
@@ -197,6 +213,14 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
 
     private UID partitionid = PartitionedStore.DEFAULT_UID;
 
+    private boolean partitionMode = false;
+
+    // the store partitions besides this one, in partition mode
+    private final List<FileStore> partitions = new ArrayList<>();
+
+    // the primary store if this is one of its partitions
+    private FileStore primary = null;
+
     /**
      * When instantiated, the object configures itself by reading the properties specified in BrokerConfig.
      */
@@ -236,6 +260,9 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
             try {
                 // remove everything and return
                 FileUtil.removeFiles(rootDir, true);
+                for (File dir : getPartitionDirs()) {
+                    FileUtil.removeFiles(new File(dir, FILESTORE_TOP), true);
+                }
                 return;
             } catch (IOException e) {
                 logger.log(Logger.ERROR, BrokerResources.E_REMOVE_STORE_FAILED, rootDir, e);
@@ -344,7 +371,7 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
             // always load destinations first
             dstList = new DestinationListStore(this, rootDir, resetStore);
 
-            msgStore = new MsgStore(this, rootDir, (resetStore || resetMessage));
+            msgStore = MsgStore.create(this, rootDir, (resetStore || resetMessage));
 
             intStore = new InterestStore(this, rootDir, (resetStore || resetInterest));
 
@@ -364,6 +391,11 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
 
             }
 
+            if (isNewTxnLogEnabled && SyncScheduler.isEnabled()) {
+                syncScheduler = new SyncScheduler(msgStore);
+                msgStore.setSyncScheduler(syncScheduler);
+            }
+
             // configuration change record
             configStore = new ConfigChangeRecord(rootDir, resetStore);
 
@@ -374,6 +406,111 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
                 logger.log(Logger.DEBUG, "FileStore instantiated successfully.");
             }
         }
+
+        if (StoreManager.isConfiguredPartitionMode(false)) {
+            initPartitions();
+        }
+    }
+
+    /**
+     * Open a store partition under dir. It only keeps destinations, messages and transactions; interests, properties,
+     * configuration change records and the transaction logs are kept by the primary store.
+     */
+    private FileStore(FileStore primary, File dir) throws BrokerException {
+
+        this.primary = primary;
+        this.partitionMode = true;
+
+        rootDir = new File(dir, FILESTORE_TOP);
+        if (!rootDir.exists() && !rootDir.mkdirs()) {
+            logger.log(Logger.ERROR, BrokerResources.E_CANNOT_CREATE_STORE_HIERARCHY, rootDir);
+            throw new BrokerException(br.getString(BrokerResources.E_CANNOT_CREATE_STORE_HIERARCHY, rootDir));
+        }
+        partitionid = loadPartitionID(rootDir);
+
+        dstList = new DestinationListStore(this, rootDir, resetStore);
+
+        msgStore = MsgStore.create(this, rootDir, (resetStore || resetMessage));
+
+        tidList = new TidList(this, rootDir, resetStore);
+
+        // no SyncScheduler: partitions require the new transaction log to be disabled, so message files are synced
+        // when they are written and not left to a checkpoint
+
+        logger.log(Logger.INFO, br.getKString(BrokerResources.I_FILE_STORE_PARTITION, partitionid, rootDir));
+    }
+
+    private static List<File> getPartitionDirs() {
+        List<File> dirs = new ArrayList<>();
+        String value = config.getProperty(PARTITION_DIRS_PROP);
+        if (value != null) {
+            for (String dir : value.split(",")) {
+                if (dir.trim().length() > 0) {
+                    dirs.add(new File(dir.trim()));
+                }
+            }
+        }
+        return dirs;
+    }
+
+    private void initPartitions() throws BrokerException {
+        if (Globals.isConfigForCluster()) {
+            // a cluster identifies partitions by store session
+            logger.log(Logger.WARNING, br.getKString(BrokerResources.W_IGNORE_PROP_SETTING, StoreManager.PARTITION_MODE_PROP + "=true"));
+            return;
+        }
+        // partitions can not share a transaction log
+        String reason = null;
+        String setting = null;
+        if (Globals.isNewTxnLogEnabled()) {
+            // the default for the file store
+            reason = StoreManager.NEW_TXNLOG_ENABLED_PROP + "=true";
+            setting = StoreManager.NEW_TXNLOG_ENABLED_PROP + "=false";
+        } else if (StoreManager.txnLogEnabled()) {
+            reason = StoreManager.TXNLOG_ENABLED_PROP + "=true";
+            setting = StoreManager.TXNLOG_ENABLED_PROP + "=false";
+        }
+        if (reason != null) {
+            logger.log(Logger.WARNING, br.getKString(BrokerResources.W_FILE_PARTITION_MODE_IGNORED,
+                    new Object[] { StoreManager.PARTITION_MODE_PROP + "=true", reason, setting }));
+            return;
+        }
+        partitionMode = true;
+        logger.log(Logger.INFO, br.getKString(BrokerResources.I_STORE_USE_PARTITION_MODE, getStoreType()));
+
+        for (File dir : getPartitionDirs()) {
+            partitions.add(new FileStore(this, dir));
+        }
+    }
+
+    /**
+     * @return the id of the store partition under dir, a new one is assigned to a new partition
+     */
+    private static UID loadPartitionID(File dir) throws BrokerException {
+        File f = new File(dir, PARTITION_ID_FILE);
+        try {
+            if (f.exists()) {
+                try (DataInputStream dis = new DataInputStream(new FileInputStream(f))) {
+                    return new UID(dis.readLong());
+                }
+            }
+            UID id = new UID();
+            try (FileOutputStream fos = new FileOutputStream(f); DataOutputStream dos = new DataOutputStream(fos)) {
+                dos.writeLong(id.longValue());
+                dos.flush();
+                fos.getFD().sync();
+            }
+            return id;
+        } catch (IOException e) {
+            throw new BrokerException(br.getKString(BrokerResources.X_LOAD_PARTITION_ID_FAILED, f), e);
+        }
+    }
+
+    /**
+     * File store partitions are configured by the PARTITION_DIRS_PROP, checked after the store is opened
+     */
+    @Override
+    public void checkPartitionMode() throws BrokerException {
     }
 
     @Override
@@ -447,7 +584,7 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
 
         dstList = new DestinationListStore(this, rootDir, false);
 
-        msgStore = new MsgStore(this, rootDir, false);
+        msgStore = MsgStore.create(this, rootDir, false);
 
         intStore = new InterestStore(this, rootDir, false);
 
@@ -514,13 +651,22 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
         // make sure all operations are done before we proceed to close
         super.setClosedAndWait();
 
+        for (FileStore partition : partitions) {
+            partition.close(cleanup);
+        }
+
         dstList.close(cleanup);
         if (tidList != null) {
             tidList.close(cleanup);
         }
-        configStore.close(cleanup);
-        propFile.close(cleanup);
-        intStore.close(cleanup);
+        if (primary == null) {
+            configStore.close(cleanup);
+            propFile.close(cleanup);
+            intStore.close(cleanup);
+        }
+        if (syncScheduler != null) {
+            syncScheduler.close();
+        }
         msgStore.close(cleanup);
 
         try {
@@ -573,15 +719,21 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
         super.checkClosedAndSetInProgress();
 
         try {
+            for (FileStore partition : partitions) {
+                partition.clearAll(sync);
+            }
+
             msgStore.clearAll(sync);
-            intStore.clearAll(sync);
             dstList.clearAll(sync, false);// don't worry about messages since
             // they are removed already
             if (tidList != null) {
                 tidList.clearAll(sync);
             }
-            configStore.clearAll(sync);
-            propFile.clearAll(sync);
+            if (primary == null) {
+                intStore.clearAll(sync);
+                configStore.clearAll(sync);
+                propFile.clearAll(sync);
+            }
 
             try {
                 if (msgLogWriter != null) {
@@ -757,6 +909,48 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
         }
     }
 
+    /**
+     * Remove a batch of messages of a destination from the persistent store. The vrfile of the destination is synced once
+     * for the whole batch and is truncated if the batch leaves it empty.
+     *
+     * @param dst the destination the messages are associated with
+     * @param ids the system message ids of the messages to be removed
+     * @param sync if true, will synchronize data to disk
+     * @return the number of messages removed; ids not found are skipped
+     * @exception IOException if an error occurs while removing the messages
+     * @exception BrokerException if an error occurs while removing the messages
+     */
+    @Override
+    public int removeMessages(DestinationUID dst, List<SysMessageID> ids, boolean sync) throws IOException, BrokerException {
+
+        if (Store.getDEBUG()) {
+            logger.log(Logger.INFO, "FileStore.removeMessages() called for " + dst + ";" + ids.size() + " messages sync=" + sync);
+        }
+
+        // make sure store is not closed then increment in progress count
+        super.checkClosedAndSetInProgress();
+
+        try {
+            if (!Globals.isNewTxnLogEnabled()) {
+                return msgStore.removeMessages(dst, ids, sync);
+            }
+            LoggedMessageHelper helper = txnLogManager.getLoggedMessageHelper();
+            for (SysMessageID id : ids) {
+                helper.preMessageRemoved(dst, id);
+            }
+            try {
+                return msgStore.removeMessages(dst, ids, sync);
+            } finally {
+                for (SysMessageID id : ids) {
+                    helper.postMessageRemoved(dst, id);
+                }
+            }
+        } finally {
+            // decrement in progress count
+            super.setInProgress(false);
+        }
+    }
+
     /**
      * Move the message from one destination to another. The message will be stored in the target destination with the
      * passed in consumers and their corresponding states. After the message is persisted successfully, the message in the
@@ -801,6 +995,30 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
         }
     }
 
+    /**
+     * Synchronize to disk the message data of the specified destination.
+     *
+     * @param dID the destination whose message data is to be synchronized
+     * @exception BrokerException if an error occurs while synchronizing the data
+     */
+    @Override
+    public void syncMessages(DestinationUID dID) throws BrokerException {
+
+        if (Store.getDEBUG()) {
+            logger.log(Logger.INFO, "FileStore.syncMessages() called for " + dID);
+        }
+
+        // make sure store is not closed then increment in progress count
+        super.checkClosedAndSetInProgress();
+
+        try {
+            msgStore.sync(dID);
+        } finally {
+            // decrement in progress count
+            super.setInProgress(false);
+        }
+    }
+
     /**
      * Remove all messages associated with the specified destination from the persistent store.
      *
@@ -2164,12 +2382,25 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
         t.put("Store version", String.valueOf(STORE_VERSION));
         t.putAll(dstList.getDebugState());
         t.putAll(msgStore.getDebugState());
-        t.putAll(intStore.getDebugState());
         if (tidList != null) {
             t.putAll(tidList.getDebugState());
         }
+        if (primary != null) {
+            t.put("Store partition", partitionid.toString());
+            return t;
+        }
+        t.putAll(intStore.getDebugState());
         t.putAll(propFile.getDebugState());
         t.putAll(configStore.getDebugState());
+        for (FileStore partition : partitions) {
+            t.put("Store partition " + partition.getPartitionID(), partition.rootDir.getPath());
+        }
+        if (syncScheduler != null) {
+            t.putAll(syncScheduler.getDebugState());
+        }
+        if (txnLogManager != null) {
+            t.putAll(txnLogManager.checkpointManager.getDebugState());
+        }
         return t;
     }
 
@@ -2202,7 +2433,10 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
      */
     protected void syncDestination(Destination dst) throws BrokerException {
 
-        if (dst == null) {
+        if (dst == null && syncScheduler != null) {
+            // only destinations written since their last background flush
+            syncScheduler.flushAll();
+        } else if (dst == null) {
             // Sync all destination stores
             try {
                 Destination[] dlist = dstList.getAllDestinations();
@@ -2889,6 +3123,9 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
 
     @Override
     public String toString() {
+        if (partitionMode) {
+            return "[" + getStoreType() + ":" + partitionid + "]";
+        }
         return "[" + getStoreType() + "]";
     }
 
@@ -2921,18 +3158,40 @@ public class FileStore extends Store implements PartitionedStore, TxnLoggingStor
 
     @Override
     public boolean isPrimaryPartition() {
-        return true;
+        return primary == null;
+    }
+
+    @Override
+    public boolean getPartitionModeEnabled() {
+        return partitionMode;
     }
 
     @Override
     public List<PartitionedStore> getAllStorePartitions() throws BrokerException {
+        if (primary != null) {
+            return primary.getAllStorePartitions();
+        }
         ArrayList<PartitionedStore> list = new ArrayList<>();
         list.add(this);
+        list.addAll(partitions);
         return list;
     }
 
+    @Override
+    public PartitionedStore getStorePartition(UID id) throws BrokerException {
+        for (PartitionedStore ps : getAllStorePartitions()) {
+            if (ps.getPartitionID().equals(id)) {
+                return ps;
+            }
+        }
+        throw new BrokerException(br.getKString(BrokerResources.X_STORE_PARTITION_NOT_FOUND, id), Status.NOT_FOUND);
+    }
+
     @Override
     public PartitionedStore getPrimaryPartition() throws BrokerException {
+        if (primary != null) {
+            return primary;
+        }
         return this;
     }
 
@@ -0,0 +1,1184 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import com.sun.messaging.jmq.io.JMQByteBufferInputStream;
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.core.ConsumerUID;
+import com.sun.messaging.jmq.jmsserver.core.Destination;
+import com.sun.messaging.jmq.jmsserver.core.DestinationUID;
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+import com.sun.messaging.jmq.jmsserver.persist.api.Store;
+import com.sun.messaging.jmq.jmsserver.resources.BrokerResources;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+import com.sun.messaging.jmq.util.DestMetricsCounters;
+import com.sun.messaging.jmq.util.FileUtil;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * LogMsgStore keeps the messages of all destinations in a single append-only log of memory-mapped segment files. It is
+ * used in place of MsgStore when imq.persist.store=filelog.
+ * <p>
+ * Message stores, interest lists, interest state updates and removals are appended as checksummed records to the
+ * current segment; nothing is ever rewritten in place. An in-memory index per destination maps each live message to the
+ * location of its message record and caches its interest states, so message bodies are only read back from the mapping
+ * on demand. The index is rebuilt by replaying the segments when the store is opened.
+ * <p>
+ * Each segment counts the live messages that have records in it. Segments are retired strictly oldest first, once no
+ * live message refers to them, so a removal record always outlives the message record it cancels. Whenever the log rolls
+ * to a new segment, an oldest segment whose live messages take up less than imq.persist.file.msglog.compactThreshold
+ * percent of it has those messages copied to the end of the log and is retired, so a few long lived messages do not keep
+ * every later segment on disk.
+ */
+class LogMsgStore extends MsgStore {
+
+    // property name and default of the segment size
+    static final String SEGMENT_SIZE_PROP = FileStore.FILE_PROP_PREFIX + "msglog.segmentSize";
+    static final long DEFAULT_SEGMENT_SIZE = 64 * 1024; // 64m
+
+    // property name and default of the occupancy in percent below which the oldest segment is compacted on roll; 0
+    // turns automatic compaction off
+    static final String COMPACT_THRESHOLD_PROP = FileStore.FILE_PROP_PREFIX + "msglog.compactThreshold";
+    static final int DEFAULT_COMPACT_THRESHOLD = 25;
+
+    static final String LOG_DIR = "msglog" + File.separator;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * record format: length of type and payload (int), CRC32 of type and payload (int), type (byte), payload. A length of
+     * 0 marks the end of the records in a segment.
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    // payload: dst, message id, interest list, packet size, packet
+    private static final byte MESSAGE_RECORD = 1;
+    // payload: dst, message id, interest list
+    private static final byte STATES_RECORD = 2;
+    // payload: dst, message id, interest id, state
+    private static final byte STATE_RECORD = 3;
+    // payload: dst, message id
+    private static final byte REMOVE_RECORD = 4;
+    // payload: dst
+    private static final byte REMOVE_ALL_RECORD = 5;
+
+    private static boolean DEBUG = false;
+
+    private Logger logger = Globals.getLogger();
+    private BrokerResources br = Globals.getBrokerResources();
+
+    private File logDir = null;
+    private int segmentSize = 0;
+    private int compactThreshold = DEFAULT_COMPACT_THRESHOLD;
+
+    // segment id -> Segment, oldest first
+    private TreeMap segments = new TreeMap();
+    private Segment active = null;
+    private long nextSegmentId = 1;
+
+    // set when the log rolled, the oldest segment is checked for compaction once the current operation is done
+    private boolean compactPending = false;
+
+    // destination name -> DstIndex
+    private HashMap dstIndexMap = new HashMap();
+
+    LogMsgStore(FileStore p, File top, boolean reset) throws BrokerException {
+        super(p);
+
+        long size = Globals.getConfig().getSizeProperty(SEGMENT_SIZE_PROP, DEFAULT_SEGMENT_SIZE).getBytes();
+        segmentSize = (int) Math.min(Math.max(size, 1024 * 1024), Integer.MAX_VALUE);
+        compactThreshold = Math.min(Globals.getConfig().getIntProperty(COMPACT_THRESHOLD_PROP, DEFAULT_COMPACT_THRESHOLD), 100);
+
+        logDir = new File(top, LOG_DIR);
+        if (!logDir.exists() && !logDir.mkdirs()) {
+            logger.log(logger.ERROR, br.E_CANNOT_CREATE_STORE_HIERARCHY, logDir.toString());
+            throw new BrokerException(br.getString(br.E_CANNOT_CREATE_STORE_HIERARCHY, logDir.toString()));
+        }
+
+        if (reset) {
+            if (Store.getDEBUG()) {
+                logger.log(logger.DEBUGHIGH, "LogMsgStore initialized with reset option");
+            }
+            clearAll(false);
+        } else {
+            load();
+        }
+    }
+
+    @Override
+    synchronized Hashtable getDebugState() {
+        Hashtable t = new Hashtable();
+        int count = 0;
+        long bytes = 0;
+        Iterator itr = dstIndexMap.values().iterator();
+        while (itr.hasNext()) {
+            DstIndex idx = (DstIndex) itr.next();
+            count += idx.messages.size();
+            bytes += idx.bytes;
+        }
+        t.put("msglog.dir", logDir.toString());
+        t.put("msglog.segments", Integer.valueOf(segments.size()));
+        t.put("msglog.activeSegment", (active == null ? "none" : active.file.getName() + "[" + active.end + "]"));
+        t.put("msglog.messages", Integer.valueOf(count));
+        t.put("msglog.bytes", Long.valueOf(bytes));
+        return t;
+    }
+
+    @Override
+    protected synchronized byte[] doStoreMessage(DestinationUID dst, Packet message, ConsumerUID[] iids, int[] states, boolean sync)
+            throws IOException, BrokerException {
+
+        parent.getDstStore().checkDestination(dst.toString());
+
+        SysMessageID mid = message.getSysMessageID();
+        DstIndex idx = getDstIndex(dst, true);
+        if (idx.messages.containsKey(mid)) {
+            logger.log(logger.ERROR, br.E_MSG_EXISTS_IN_STORE, mid, dst);
+            throw new BrokerException(br.getString(br.E_MSG_EXISTS_IN_STORE, mid, dst));
+        }
+
+        byte[] data = message.getBytes();
+        LinkedHashMap statemap = new LinkedHashMap();
+        for (int i = 0; i < iids.length; i++) {
+            statemap.put(iids[i], Integer.valueOf(states[i]));
+        }
+
+        try {
+            Entry entry = new Entry(mid);
+            entry.states = statemap;
+            appendMessage(dst.toString(), entry, data, sync);
+            idx.add(entry);
+        } catch (IOException e) {
+            logger.log(logger.ERROR, br.X_PERSIST_MESSAGE_FAILED, mid.toString(), e);
+            throw e;
+        }
+        compactIfPending();
+        return data;
+    }
+
+    @Override
+    Packet getMessage(DestinationUID dst, SysMessageID mid) throws BrokerException {
+
+        try {
+            return readMessage(getEntry(dst, mid));
+        } catch (IOException e) {
+            logger.log(logger.ERROR, br.X_LOAD_MESSAGE_FAILED, mid.toString(), e);
+            throw new BrokerException(br.getString(br.X_LOAD_MESSAGE_FAILED, mid.toString()), e);
+        }
+    }
+
+    @Override
+    synchronized boolean containsMessage(DestinationUID dst, SysMessageID mid) throws BrokerException {
+
+        parent.getDstStore().checkDestination(dst.toString());
+        DstIndex idx = getDstIndex(dst, false);
+        return (idx != null && idx.messages.containsKey(mid));
+    }
+
+    @Override
+    synchronized void removeMessage(DestinationUID dst, SysMessageID id, boolean sync) throws IOException, BrokerException {
+
+        Entry entry = getEntry(dst, id);
+        appendRemove(dst.toString(), id);
+        getDstIndex(dst, false).remove(entry);
+        if (sync) {
+            force();
+        }
+        compactIfPending();
+        retireSegments();
+        dirty(dst, DIRTY_RECORD_SIZE, sync);
+    }
+
+    @Override
+    synchronized int removeMessages(DestinationUID dst, List<SysMessageID> ids, boolean sync) throws IOException, BrokerException {
+
+        DstIndex idx = getDstIndex(dst, false);
+        if (idx == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (SysMessageID id : ids) {
+            Entry entry = (Entry) idx.messages.get(id);
+            if (entry == null) {
+                continue;
+            }
+            appendRemove(dst.toString(), id);
+            idx.remove(entry);
+            removed++;
+        }
+        if (sync && removed > 0) {
+            force();
+        }
+        compactIfPending();
+        retireSegments();
+        if (removed > 0) {
+            dirty(dst, (long) removed * DIRTY_RECORD_SIZE, sync);
+        }
+        return removed;
+    }
+
+    @Override
+    void moveMessage(Packet message, DestinationUID from, DestinationUID to, ConsumerUID[] ints, int[] states, boolean sync)
+            throws IOException, BrokerException {
+
+        SysMessageID mid = message.getSysMessageID();
+
+        // sanity check
+        if (!containsMessage(from, mid)) {
+            logger.log(logger.ERROR, br.E_MSG_NOT_FOUND_IN_STORE, mid, from);
+            throw new BrokerException(br.getString(br.E_MSG_NOT_FOUND_IN_STORE, mid, from));
+        }
+
+        // first save the message and then remove the message
+        storeMessage(to, message, ints, states, sync);
+
+        try {
+            removeMessage(from, mid, sync);
+        } catch (BrokerException e) {
+            // if we fails to remove the message; undo store
+            removeMessage(to, mid, sync);
+
+            Object[] args = { mid, from, to };
+            logger.log(logger.ERROR, br.X_MOVE_MESSAGE_FAILED, args, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized boolean hasMessageBeenAcked(DestinationUID dst, SysMessageID mid) throws BrokerException {
+
+        Map states = getEntry(dst, mid).states;
+
+        // To be safe, message is considered unrouted if interest list is empty
+        if (states.isEmpty()) {
+            return false;
+        }
+        Iterator itr = states.values().iterator();
+        while (itr.hasNext()) {
+            if (((Integer) itr.next()).intValue() != PartitionedStore.INTEREST_STATE_ACKNOWLEDGED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The log is shared by all destinations: disk used is the destination's share of the live bytes, disk reserved is the
+     * size of all segments.
+     */
+    @Override
+    public synchronized HashMap getStorageInfo(Destination destination) throws BrokerException {
+
+        DstIndex idx = getDstIndex(destination.getDestinationUID(), false);
+        long used = (idx == null ? 0 : idx.bytes);
+        long reserved = 0;
+        Iterator itr = segments.values().iterator();
+        while (itr.hasNext()) {
+            reserved += ((Segment) itr.next()).capacity();
+        }
+
+        HashMap info = new HashMap(3);
+        info.put(DestMetricsCounters.DISK_USED, Long.valueOf(used));
+        info.put(DestMetricsCounters.DISK_RESERVED, Long.valueOf(reserved));
+        info.put(DestMetricsCounters.DISK_UTILIZATION_RATIO, Integer.valueOf(reserved == 0 ? 0 : (int) (used * 100 / reserved)));
+        return info;
+    }
+
+    /**
+     * Copy the live messages of the destination, or of all destinations if null is specified, that still have records in
+     * older segments to the end of the log so that those segments can be retired.
+     */
+    @Override
+    synchronized void compactDestination(Destination destination) throws BrokerException {
+
+        ArrayList dsts = new ArrayList();
+        if (destination != null) {
+            DstIndex idx = getDstIndex(destination.getDestinationUID(), false);
+            if (idx != null) {
+                dsts.add(idx);
+            }
+        } else {
+            dsts.addAll(dstIndexMap.values());
+        }
+
+        try {
+            for (int i = 0; i < dsts.size(); i++) {
+                DstIndex idx = (DstIndex) dsts.get(i);
+                Entry[] entries = (Entry[]) idx.messages.values().toArray(new Entry[0]);
+                for (int j = 0; j < entries.length; j++) {
+                    Entry entry = entries[j];
+                    if (!entry.isPinnedOnly(active)) {
+                        copyForward(idx, entry);
+                    }
+                }
+            }
+            force();
+        } catch (IOException e) {
+            throw new BrokerException("Failed to compact message log: " + logDir, e);
+        }
+        retireSegments();
+    }
+
+    @Override
+    synchronized void removeAllMessages(DestinationUID dst, boolean sync) throws IOException, BrokerException {
+
+        DstIndex idx = getDstIndex(dst, false);
+        if (idx != null) {
+            appendRemoveAll(idx, sync);
+            compactIfPending();
+            retireSegments();
+            dirty(dst, DIRTY_RECORD_SIZE, sync);
+        }
+    }
+
+    @Override
+    synchronized void releaseMessageDir(DestinationUID dst, boolean sync) throws IOException, BrokerException {
+
+        DstIndex idx = (DstIndex) dstIndexMap.remove(dst.toString());
+        if (idx != null) {
+            appendRemoveAll(idx, sync);
+            retireSegments();
+        }
+        releaseDirty(dst);
+    }
+
+    @Override
+    Enumeration messageEnumeration(DestinationUID dst) throws BrokerException {
+
+        SysMessageID[] ids = null;
+        synchronized (this) {
+            parent.getDstStore().checkDestination(dst.toString());
+            DstIndex idx = getDstIndex(dst, false);
+            if (idx == null) {
+                ids = new SysMessageID[0];
+            } else {
+                ids = (SysMessageID[]) idx.messages.keySet().toArray(new SysMessageID[0]);
+            }
+        }
+        return new MsgEnumeration(dst, ids);
+    }
+
+    @Override
+    synchronized int getMessageCount(DestinationUID dst) throws BrokerException {
+
+        parent.getDstStore().checkDestination(dst.toString());
+        DstIndex idx = getDstIndex(dst, false);
+        return (idx == null ? 0 : idx.messages.size());
+    }
+
+    @Override
+    synchronized long getByteCount(DestinationUID dst) throws BrokerException {
+
+        parent.getDstStore().checkDestination(dst.toString());
+        DstIndex idx = getDstIndex(dst, false);
+        return (idx == null ? 0 : idx.bytes);
+    }
+
+    @Override
+    synchronized void storeInterestStates(DestinationUID dst, SysMessageID mid, ConsumerUID[] iids, int[] states, boolean sync) throws BrokerException {
+
+        Entry entry = getEntry(dst, mid);
+        if (!entry.states.isEmpty()) {
+            // the message has a list already
+            logger.log(logger.WARNING, br.E_MSG_INTEREST_LIST_EXISTS, mid.toString());
+            throw new BrokerException(br.getString(br.E_MSG_INTEREST_LIST_EXISTS, mid.toString()));
+        }
+
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream dos = new DataOutputStream(bos);
+            dos.writeUTF(dst.toString());
+            mid.writeID(dos);
+            dos.writeInt(iids.length);
+            for (int i = 0; i < iids.length; i++) {
+                dos.writeLong(iids[i].longValue());
+                dos.writeInt(states[i]);
+            }
+            dos.close();
+
+            append(STATES_RECORD, bos.toByteArray(), null);
+            for (int i = 0; i < iids.length; i++) {
+                entry.states.put(iids[i], Integer.valueOf(states[i]));
+            }
+            entry.pin(active);
+            if (sync) {
+                force();
+            }
+            dirty(dst, DIRTY_RECORD_SIZE, sync);
+        } catch (IOException e) {
+            logger.log(logger.ERROR, br.X_PERSIST_INTEREST_LIST_FAILED, mid.toString());
+            throw new BrokerException(br.getString(br.X_PERSIST_INTEREST_LIST_FAILED, mid.toString()), e);
+        }
+        compactIfPending();
+    }
+
+    @Override
+    synchronized void updateInterestState(DestinationUID dst, SysMessageID mid, ConsumerUID iid, int state, boolean sync) throws BrokerException {
+
+        Entry entry = getEntry(dst, mid);
+        Integer old = (Integer) entry.states.get(iid);
+        if (old == null) {
+            logger.log(logger.ERROR, br.E_INTEREST_STATE_NOT_FOUND_IN_STORE, iid.toString(), mid.toString());
+            throw new BrokerException(br.getString(br.E_INTEREST_STATE_NOT_FOUND_IN_STORE, iid.toString(), mid.toString()));
+        }
+        if (old.intValue() == state) {
+            return;
+        }
+        entry.states.put(iid, Integer.valueOf(state));
+
+        if (state == PartitionedStore.INTEREST_STATE_DELIVERED && Globals.isDeliveryStateNotPersisted()) {
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream dos = new DataOutputStream(bos);
+            dos.writeUTF(dst.toString());
+            mid.writeID(dos);
+            dos.writeLong(iid.longValue());
+            dos.writeInt(state);
+            dos.close();
+
+            append(STATE_RECORD, bos.toByteArray(), null);
+            entry.pin(active);
+            if (sync) {
+                force();
+            }
+            dirty(dst, DIRTY_RECORD_SIZE, sync);
+        } catch (IOException e) {
+            // only this state is affected
+            logger.log(logger.ERROR, br.X_PERSIST_INTEREST_STATE_FAILED, iid.toString(), mid.toString());
+            throw new BrokerException(br.getString(br.X_PERSIST_INTEREST_STATE_FAILED, iid.toString(), mid.toString()), e);
+        }
+        compactIfPending();
+    }
+
+    @Override
+    synchronized int getInterestState(DestinationUID dst, SysMessageID mid, ConsumerUID iid) throws BrokerException {
+
+        Integer state = (Integer) getEntry(dst, mid).states.get(iid);
+        if (state == null) {
+            logger.log(logger.ERROR, br.E_INTEREST_STATE_NOT_FOUND_IN_STORE, iid.toString(), mid.toString());
+            throw new BrokerException(br.getString(br.E_INTEREST_STATE_NOT_FOUND_IN_STORE, iid.toString(), mid.toString()));
+        }
+        return state.intValue();
+    }
+
+    @Override
+    synchronized HashMap getInterestStates(DestinationUID dst, SysMessageID mid) throws BrokerException {
+
+        return new HashMap(getEntry(dst, mid).states);
+    }
+
+    /**
+     * don't return id with state==INTEREST_STATE_ACKNOWLEDGED
+     */
+    @Override
+    synchronized ConsumerUID[] getConsumerUIDs(DestinationUID dst, SysMessageID mid) throws BrokerException {
+
+        ArrayList list = new ArrayList();
+        Iterator itr = getEntry(dst, mid).states.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry me = (Map.Entry) itr.next();
+            if (((Integer) me.getValue()).intValue() != PartitionedStore.INTEREST_STATE_ACKNOWLEDGED) {
+                list.add(me.getKey());
+            }
+        }
+        return (ConsumerUID[]) list.toArray(new ConsumerUID[list.size()]);
+    }
+
+    @Override
+    synchronized void clearAll(boolean sync) throws BrokerException {
+
+        closeSegments();
+        segments.clear();
+        active = null;
+        nextSegmentId = 1;
+        dstIndexMap.clear();
+
+        // delete all files under the log directory
+        try {
+            FileUtil.removeFiles(logDir, false);
+        } catch (IOException e) {
+            logger.log(logger.ERROR, br.X_RESET_MESSAGES_FAILED, logDir, e);
+            throw new BrokerException(br.getString(br.X_RESET_MESSAGES_FAILED, logDir), e);
+        }
+    }
+
+    /**
+     * The log is shared by all destinations so this syncs the records of every destination.
+     */
+    @Override
+    synchronized void sync(DestinationUID dst) throws BrokerException {
+        try {
+            force();
+        } catch (IOException e) {
+            throw new BrokerException("Failed to synchronize data to disk for message log: " + logDir, e);
+        }
+    }
+
+    @Override
+    synchronized void close(boolean cleanup) {
+
+        try {
+            force();
+        } catch (IOException e) {
+            logger.log(logger.WARNING, "Failed to synchronize data to disk for message log: " + logDir, e);
+        }
+        closeSegments();
+        segments.clear();
+        active = null;
+        dstIndexMap.clear();
+    }
+
+    @Override
+    File getDirName(DestinationUID dst) {
+        return logDir;
+    }
+
+    private DstIndex getDstIndex(DestinationUID dst, boolean create) {
+        return getDstIndex(dst.toString(), create);
+    }
+
+    private DstIndex getDstIndex(String dst, boolean create) {
+        DstIndex idx = (DstIndex) dstIndexMap.get(dst);
+        if (idx == null && create) {
+            idx = new DstIndex(dst);
+            dstIndexMap.put(dst, idx);
+        }
+        return idx;
+    }
+
+    private synchronized Entry getEntry(DestinationUID dst, SysMessageID mid) throws BrokerException {
+        DstIndex idx = getDstIndex(dst, false);
+        Entry entry = (idx == null ? null : (Entry) idx.messages.get(mid));
+        if (entry == null) {
+            String emsg = br.getKString(br.E_MSG_NOT_FOUND_IN_STORE, mid, dst);
+            logger.log(logger.ERROR, emsg);
+            throw new BrokerException(emsg);
+        }
+        return entry;
+    }
+
+    /**
+     * Parse the message straight from the mapped segment.
+     */
+    private Packet readMessage(Entry entry) throws IOException {
+
+        ByteBuffer buf = null;
+        synchronized (this) {
+            buf = entry.segment.buf.duplicate();
+            buf.limit(entry.dataOffset + entry.size);
+            buf.position(entry.dataOffset);
+        }
+
+        JMQByteBufferInputStream bis = new JMQByteBufferInputStream(buf.slice());
+        try {
+            Packet msg = new Packet(false);
+            msg.generateTimestamp(false);
+            msg.generateSequenceNumber(false);
+            msg.readPacket(bis);
+            return msg;
+        } finally {
+            bis.close();
+        }
+    }
+
+    private void appendMessage(String dst, Entry entry, byte[] data, boolean sync) throws IOException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeUTF(dst);
+        entry.mid.writeID(dos);
+        dos.writeInt(entry.states.size());
+        Iterator itr = entry.states.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry me = (Map.Entry) itr.next();
+            dos.writeLong(((ConsumerUID) me.getKey()).longValue());
+            dos.writeInt(((Integer) me.getValue()).intValue());
+        }
+        dos.writeInt(data.length);
+        dos.close();
+
+        int offset = append(MESSAGE_RECORD, bos.toByteArray(), data);
+        entry.place(active, offset + RECORD_HEADER_SIZE + 1 + bos.size(), data.length);
+        entry.pin(active);
+        if (sync) {
+            force();
+        }
+    }
+
+    /**
+     * Append a copy of the message record with the current interest states and release the older records of the
+     * message.
+     */
+    private void copyForward(DstIndex idx, Entry entry) throws IOException {
+
+        byte[] data = entry.readData();
+        ArrayList oldPins = entry.pins;
+        entry.pins = new ArrayList(2);
+        try {
+            appendMessage(idx.name, entry, data, false);
+        } catch (IOException e) {
+            entry.pins = oldPins;
+            throw e;
+        }
+        for (int i = 0; i < oldPins.size(); i++) {
+            ((Segment) oldPins.get(i)).live--;
+        }
+    }
+
+    private void appendRemove(String dst, SysMessageID mid) throws IOException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeUTF(dst);
+        mid.writeID(dos);
+        dos.close();
+        append(REMOVE_RECORD, bos.toByteArray(), null);
+    }
+
+    private void appendRemoveAll(DstIndex idx, boolean sync) throws IOException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeUTF(idx.name);
+        dos.close();
+        append(REMOVE_ALL_RECORD, bos.toByteArray(), null);
+        idx.clear();
+        if (sync) {
+            force();
+        }
+    }
+
+    /**
+     * Append a record to the active segment, rolling to a new segment if it does not fit.
+     *
+     * @return the offset of the record in the active segment
+     */
+    private int append(byte type, byte[] head, byte[] body) throws IOException {
+
+        int length = 1 + head.length + (body == null ? 0 : body.length);
+        if (active == null || active.end + RECORD_HEADER_SIZE + length > active.capacity()) {
+            roll(RECORD_HEADER_SIZE + length);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(head);
+        if (body != null) {
+            crc.update(body);
+        }
+
+        int offset = active.end;
+        ByteBuffer buf = active.buf.duplicate();
+        buf.position(offset + RECORD_HEADER_SIZE);
+        buf.put(type);
+        buf.put(head);
+        if (body != null) {
+            buf.put(body);
+        }
+        buf.putInt(offset + 4, (int) crc.getValue());
+        // the length is written last, a record is only visible once it is complete
+        buf.putInt(offset, length);
+
+        active.end = offset + RECORD_HEADER_SIZE + length;
+        return offset;
+    }
+
+    private void roll(int minSize) throws IOException {
+
+        if (active != null) {
+            active.force();
+            compactPending = true;
+        }
+
+        long id = nextSegmentId++;
+        File file = new File(logDir, String.format("%019d", id) + SEGMENT_SUFFIX);
+        active = new Segment(id, file, Math.max(segmentSize, minSize));
+        segments.put(Long.valueOf(id), active);
+
+        if (Store.getDEBUG() || DEBUG) {
+            logger.log(Logger.INFO, "LogMsgStore: rolled to segment " + file.getName());
+        }
+    }
+
+    private void force() throws IOException {
+        Iterator itr = segments.values().iterator();
+        while (itr.hasNext()) {
+            ((Segment) itr.next()).force();
+        }
+    }
+
+    /**
+     * Retire segments from the oldest one until a segment still referenced by a live message or the active segment is
+     * reached.
+     */
+    private void retireSegments() {
+
+        Iterator itr = segments.values().iterator();
+        while (itr.hasNext()) {
+            Segment seg = (Segment) itr.next();
+            if (seg == active || seg.live > 0) {
+                break;
+            }
+            itr.remove();
+            seg.retire();
+
+            if (Store.getDEBUG() || DEBUG) {
+                logger.log(Logger.INFO, "LogMsgStore: retired segment " + seg.file.getName());
+            }
+        }
+    }
+
+    /**
+     * After a roll, copy the live messages of the oldest segment forward and retire it as long as its occupancy is below
+     * the compaction threshold. A failure leaves the messages where they were, it does not fail the operation that
+     * rolled the log.
+     */
+    private void compactIfPending() {
+
+        if (!compactPending) {
+            return;
+        }
+        compactPending = false;
+        if (compactThreshold <= 0) {
+            return;
+        }
+
+        try {
+            while (segments.size() > 1) {
+                Segment oldest = (Segment) segments.get(segments.firstKey());
+                if (oldest == active || oldest.liveBytes * 100 >= (long) oldest.end * compactThreshold) {
+                    break;
+                }
+
+                Iterator itr = dstIndexMap.values().iterator();
+                while (itr.hasNext()) {
+                    DstIndex idx = (DstIndex) itr.next();
+                    Entry[] entries = (Entry[]) idx.messages.values().toArray(new Entry[0]);
+                    for (int i = 0; i < entries.length; i++) {
+                        if (entries[i].pins.contains(oldest)) {
+                            copyForward(idx, entries[i]);
+                        }
+                    }
+                }
+
+                // the copies must be on disk before the segment holding the originals is deleted
+                force();
+                retireSegments();
+                if (segments.containsKey(Long.valueOf(oldest.id))) {
+                    break;
+                }
+
+                if (Store.getDEBUG() || DEBUG) {
+                    logger.log(Logger.INFO, "LogMsgStore: compacted segment " + oldest.file.getName());
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Logger.WARNING, "Failed to compact message log: " + logDir, e);
+        }
+    }
+
+    private void closeSegments() {
+        Iterator itr = segments.values().iterator();
+        while (itr.hasNext()) {
+            ((Segment) itr.next()).close();
+        }
+    }
+
+    /**
+     * Rebuild the indexes by replaying all segments in order.
+     */
+    private void load() throws BrokerException {
+
+        File[] files = logDir.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files);
+
+        try {
+            for (int i = 0; i < files.length; i++) {
+                String name = files[i].getName();
+                long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                Segment seg = new Segment(id, files[i], 0);
+                segments.put(Long.valueOf(id), seg);
+                nextSegmentId = id + 1;
+                active = seg;
+                replay(seg);
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.log(logger.ERROR, br.X_LOAD_MESSAGE_FILE_FAILED, logDir, "*", e);
+            throw new BrokerException(br.getString(br.X_LOAD_MESSAGE_FILE_FAILED, logDir, "*"), e);
+        }
+
+        // drop messages of destinations that were removed without their messages being released
+        int count = 0;
+        Iterator itr = dstIndexMap.values().iterator();
+        while (itr.hasNext()) {
+            DstIndex idx = (DstIndex) itr.next();
+            boolean exists = false;
+            try {
+                exists = (parent.getDstStore().getDestination(new DestinationUID(idx.name)) != null);
+            } catch (Exception e) {
+                exists = false;
+            }
+            if (!exists) {
+                idx.clear();
+                itr.remove();
+            } else {
+                count += idx.messages.size();
+            }
+        }
+        retireSegments();
+
+        logger.log(Logger.INFO, br.getKString(BrokerResources.I_MSGLOG_LOADED,
+                new Object[] { Integer.valueOf(count), Integer.valueOf(segments.size()), logDir }));
+    }
+
+    private void replay(Segment seg) throws IOException {
+
+        MappedByteBuffer buf = seg.buf;
+        int capacity = seg.capacity();
+        int pos = 0;
+        while (pos + RECORD_HEADER_SIZE < capacity) {
+            int length = buf.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+
+            boolean valid = (length > 0 && length <= capacity - pos - RECORD_HEADER_SIZE);
+            byte[] rec = null;
+            if (valid) {
+                rec = new byte[length];
+                ByteBuffer dup = buf.duplicate();
+                dup.position(pos + RECORD_HEADER_SIZE);
+                dup.get(rec);
+                CRC32 crc = new CRC32();
+                crc.update(rec);
+                valid = ((int) crc.getValue() == buf.getInt(pos + 4));
+            }
+            if (!valid) {
+                // incomplete record from a crash, everything after it is ignored
+                logger.log(Logger.WARNING, br.getKString(BrokerResources.W_MSGLOG_TRUNCATED, seg.file, Integer.valueOf(pos)));
+                buf.putInt(pos, 0);
+                break;
+            }
+
+            replayRecord(seg, pos, rec);
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        seg.end = pos;
+        seg.synced = pos;
+    }
+
+    private void replayRecord(Segment seg, int offset, byte[] rec) throws IOException {
+
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(rec, 1, rec.length - 1));
+        byte type = rec[0];
+        DstIndex idx = getDstIndex(dis.readUTF(), true);
+
+        if (type == REMOVE_ALL_RECORD) {
+            idx.clear();
+            return;
+        }
+
+        SysMessageID mid = new SysMessageID();
+        mid.readID(dis);
+
+        if (type == MESSAGE_RECORD) {
+            LinkedHashMap states = readStates(dis);
+            int size = dis.readInt();
+
+            // a message record for a live message is a copy made by compaction
+            Entry entry = (Entry) idx.messages.get(mid);
+            if (entry != null) {
+                idx.remove(entry);
+            }
+            entry = new Entry(mid);
+            entry.states = states;
+            entry.place(seg, offset + RECORD_HEADER_SIZE + rec.length - size, size);
+            entry.pin(seg);
+            idx.add(entry);
+            return;
+        }
+
+        Entry entry = (Entry) idx.messages.get(mid);
+        if (entry == null) {
+            // the message record was in a retired segment
+            return;
+        }
+
+        switch (type) {
+        case STATES_RECORD:
+            entry.states = readStates(dis);
+            entry.pin(seg);
+            break;
+        case STATE_RECORD:
+            entry.states.put(new ConsumerUID(dis.readLong()), Integer.valueOf(dis.readInt()));
+            entry.pin(seg);
+            break;
+        case REMOVE_RECORD:
+            idx.remove(entry);
+            break;
+        default:
+            throw new IOException("Unknown record type " + type + " at offset " + offset + " of " + seg.file);
+        }
+    }
+
+    private static LinkedHashMap readStates(DataInputStream dis) throws IOException {
+        int n = dis.readInt();
+        LinkedHashMap states = new LinkedHashMap(n);
+        for (int i = 0; i < n; i++) {
+            states.put(new ConsumerUID(dis.readLong()), Integer.valueOf(dis.readInt()));
+        }
+        return states;
+    }
+
+    /**
+     * A memory-mapped segment file of the log.
+     */
+    private static class Segment {
+        final long id;
+        final File file;
+        RandomAccessFile raf = null;
+        MappedByteBuffer buf = null;
+
+        // end of the records and end of the records forced to disk
+        int end = 0;
+        int synced = 0;
+
+        // number of live messages with records in this segment, and bytes of the live messages whose packet is in it
+        int live = 0;
+        long liveBytes = 0;
+
+        /**
+         * Map the segment file, extending it to size if it is shorter.
+         */
+        Segment(long id, File file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            raf = new RandomAccessFile(file, "rw");
+            long len = Math.max(raf.length(), size);
+            buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, len);
+        }
+
+        int capacity() {
+            return buf.capacity();
+        }
+
+        void force() {
+            if (synced < end) {
+                buf.force();
+                synced = end;
+            }
+        }
+
+        /**
+         * Mark the segment empty before deleting it, so a file that cannot be deleted while it is still mapped replays as
+         * nothing.
+         */
+        void retire() {
+            buf.putInt(0, 0);
+            buf.force();
+            close();
+            if (!file.delete()) {
+                Globals.getLogger().log(Logger.DEBUG, "LogMsgStore: failed to delete retired segment " + file);
+            }
+        }
+
+        void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                Globals.getLogger().log(Logger.DEBUG, "LogMsgStore: failed to close segment " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Location and interest states of a live message.
+     */
+    private static class Entry {
+        final SysMessageID mid;
+        LinkedHashMap states = null;
+
+        // segment holding the message record and offset of the packet in it; the packet counts in Segment.liveBytes
+        // until the message is removed
+        Segment segment = null;
+        int dataOffset = 0;
+        int size = 0;
+        boolean counted = false;
+
+        // segments holding records of this message, oldest first, each counted once in Segment.live
+        ArrayList pins = new ArrayList(2);
+
+        Entry(SysMessageID mid) {
+            this.mid = mid;
+        }
+
+        void pin(Segment seg) {
+            if (pins.isEmpty() || pins.get(pins.size() - 1) != seg) {
+                pins.add(seg);
+                seg.live++;
+            }
+        }
+
+        void unpin() {
+            for (int i = 0; i < pins.size(); i++) {
+                ((Segment) pins.get(i)).live--;
+            }
+            pins.clear();
+            release();
+        }
+
+        void place(Segment seg, int dataOffset, int size) {
+            release();
+            this.segment = seg;
+            this.dataOffset = dataOffset;
+            this.size = size;
+            seg.liveBytes += size;
+            counted = true;
+        }
+
+        private void release() {
+            if (counted) {
+                segment.liveBytes -= size;
+                counted = false;
+            }
+        }
+
+        boolean isPinnedOnly(Segment seg) {
+            return (pins.size() == 1 && pins.get(0) == seg);
+        }
+
+        byte[] readData() {
+            byte[] data = new byte[size];
+            ByteBuffer dup = segment.buf.duplicate();
+            dup.position(dataOffset);
+            dup.get(data);
+            return data;
+        }
+    }
+
+    /**
+     * The live messages of a destination in the order they were stored.
+     */
+    private static class DstIndex {
+        final String name;
+        LinkedHashMap messages = new LinkedHashMap();
+        long bytes = 0;
+
+        DstIndex(String name) {
+            this.name = name;
+        }
+
+        void add(Entry entry) {
+            messages.put(entry.mid, entry);
+            bytes += entry.size;
+        }
+
+        void remove(Entry entry) {
+            messages.remove(entry.mid);
+            bytes -= entry.size;
+            entry.unpin();
+        }
+
+        void clear() {
+            Iterator itr = messages.values().iterator();
+            while (itr.hasNext()) {
+                ((Entry) itr.next()).unpin();
+            }
+            messages.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Enumerates the messages of a destination, reading each from the log when it is requested. Messages removed since the
+     * enumeration was created are skipped.
+     */
+    private class MsgEnumeration implements Enumeration {
+        final DestinationUID dst;
+        final SysMessageID[] ids;
+        int next = 0;
+        Packet nextToReturn = null;
+
+        MsgEnumeration(DestinationUID dst, SysMessageID[] ids) {
+            this.dst = dst;
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            while (nextToReturn == null && next < ids.length) {
+                SysMessageID mid = ids[next++];
+                Entry entry = null;
+                synchronized (LogMsgStore.this) {
+                    DstIndex idx = getDstIndex(dst, false);
+                    entry = (idx == null ? null : (Entry) idx.messages.get(mid));
+                }
+                if (entry == null) {
+                    continue;
+                }
+                try {
+                    nextToReturn = readMessage(entry);
+                } catch (IOException e) {
+                    logger.log(logger.ERROR, br.X_RETRIEVE_MESSAGE_FAILED, mid, dst, e);
+                }
+            }
+            return (nextToReturn != null);
+        }
+
+        @Override
+        public Object nextElement() {
+            if (!hasMoreElements()) {
+                throw new NoSuchElementException();
+            }
+            Packet tmp = nextToReturn;
+            nextToReturn = null;
+            return tmp;
+        }
+    }
+}
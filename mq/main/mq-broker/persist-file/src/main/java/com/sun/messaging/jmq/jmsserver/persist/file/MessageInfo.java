@@ -450,7 +450,10 @@ class MessageInfo {
                     return;
                 }
 
-                if (vrecord != null) {
+                if (parent.isJournalingAcks()) {
+                    // written back to the record by the next checkpoint
+                    parent.getAckJournal().append(this, index, state, sync);
+                } else if (vrecord != null) {
                     myvrec = vrecord;
 
                     // offset into VRecord
@@ -479,6 +482,58 @@ class MessageInfo {
         }
     }
 
+    /**
+     * Apply interest states replayed from the ack journal; position in interest list -> state
+     */
+    synchronized void applyStates(Map<Integer, Integer> states) {
+        if (statearray == null) {
+            return;
+        }
+        Iterator<Map.Entry<Integer, Integer>> itr = states.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry<Integer, Integer> entry = itr.next();
+            int index = entry.getKey().intValue();
+            if (index >= 0 && index < statearray.length) {
+                statearray[index] = entry.getValue().intValue();
+            }
+        }
+    }
+
+    /**
+     * Write the cached interest list back to the backing record or attachment, without syncing a record. Does nothing if
+     * the message has been removed.
+     */
+    synchronized void writeBackStates() throws IOException {
+        if (mid == null || iidMap == null) {
+            return;
+        }
+
+        int size = statearray.length;
+        ConsumerUID[] iids = new ConsumerUID[size];
+        Iterator itr = iidMap.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry entry = (Map.Entry) itr.next();
+            iids[((Integer) entry.getValue()).intValue()] = (ConsumerUID) entry.getKey();
+        }
+        ByteBuffer buf = ByteBuffer.wrap(new byte[INT_SIZE + size * ENTRY_SIZE]);
+        buf.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buf.putLong(iids[i].longValue());
+            buf.putInt(statearray[i]);
+        }
+        buf.rewind();
+
+        if (vrecord != null) {
+            VRFileRAF vrfile = parent.getVRFile();
+            synchronized (vrfile) {
+                vrecord.position(INT_SIZE + packetSize);
+                vrecord.write(buf);
+            }
+        } else {
+            parent.writeAttachment(mid, buf.array(), true);
+        }
+    }
+
     synchronized int getInterestState(ConsumerUID iid) throws BrokerException {
 
         Integer indexobj = null;
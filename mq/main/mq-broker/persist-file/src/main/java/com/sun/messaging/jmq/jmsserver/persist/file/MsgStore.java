@@ -28,6 +28,8 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import com.sun.messaging.jmq.io.Packet;
@@ -41,6 +43,7 @@ import com.sun.messaging.jmq.jmsserver.core.Destination;
 import com.sun.messaging.jmq.jmsserver.core.DestinationUID;
 import com.sun.messaging.jmq.jmsserver.data.TransactionWorkMessage;
 import com.sun.messaging.jmq.jmsserver.persist.api.Store;
+import com.sun.messaging.jmq.jmsserver.persist.api.StoreManager;
 import com.sun.messaging.jmq.jmsserver.resources.BrokerResources;
 import com.sun.messaging.jmq.jmsserver.util.BrokerException;
 import com.sun.messaging.jmq.jmsservice.BrokerEvent;
@@ -118,6 +121,12 @@ class MsgStore {
 
     protected FileStore parent = null;
 
+    // tracks unsynced writes when the new txn log is enabled; may be null
+    private SyncScheduler syncScheduler = null;
+
+    // size accounted for an unsynced write that does not store a message
+    static final int DIRTY_RECORD_SIZE = 16;
+
     static final private Enumeration emptyEnum = new Enumeration() {
         @Override
         public boolean hasMoreElements() {
@@ -130,6 +139,89 @@ class MsgStore {
         }
     };
 
+    /**
+     * Return the message store configured by imq.persist.store: a LogMsgStore for the filelog store type, otherwise the
+     * per-destination vrfile store. Messages left by the other kind of message store, after the store type was switched,
+     * are moved into the returned store.
+     */
+    static MsgStore create(FileStore p, File top, boolean reset) throws BrokerException {
+        String type = Globals.getConfig().getProperty(StoreManager.STORE_TYPE_PROP, Store.FILE_STORE_TYPE);
+        boolean filelog = type.equals(Store.FILELOG_STORE_TYPE);
+
+        MsgStore store = (filelog ? new LogMsgStore(p, top, reset) : new MsgStore(p, top, reset));
+
+        File otherDir = new File(top, (filelog ? MESSAGE_DIR : LogMsgStore.LOG_DIR));
+        if (otherDir.exists()) {
+            if (!reset) {
+                MsgStore other = (filelog ? new MsgStore(p, top, false) : new LogMsgStore(p, top, false));
+                store.migrateFrom(other, otherDir);
+                other.clearAll(false);
+                other.close(false);
+            }
+            try {
+                FileUtil.removeFiles(otherDir, true);
+            } catch (IOException e) {
+                Globals.getLogger().log(Logger.ERROR, BrokerResources.X_RESET_MESSAGES_FAILED, otherDir, e);
+                throw new BrokerException(Globals.getBrokerResources().getString(BrokerResources.X_RESET_MESSAGES_FAILED, otherDir), e);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Copy all messages with their interest states from the other message store into this one and sync them. Messages
+     * this store has already, from a copy that was interrupted, are skipped.
+     */
+    private void migrateFrom(MsgStore other, File otherDir) throws BrokerException {
+
+        int count = 0;
+        int dstCount = 0;
+        Iterator itr = parent.getDstStore().getDestinations().iterator();
+        while (itr.hasNext()) {
+            DestinationUID dst = ((Destination) itr.next()).getDestinationUID();
+            int n = 0;
+            Enumeration msgs = other.messageEnumeration(dst);
+            while (msgs.hasMoreElements()) {
+                Packet msg = (Packet) msgs.nextElement();
+                SysMessageID mid = msg.getSysMessageID();
+                if (containsMessage(dst, mid)) {
+                    continue;
+                }
+
+                HashMap states = other.getInterestStates(dst, mid);
+                ConsumerUID[] iids = new ConsumerUID[states.size()];
+                int[] vals = new int[states.size()];
+                Iterator sitr = states.entrySet().iterator();
+                for (int i = 0; sitr.hasNext(); i++) {
+                    Map.Entry me = (Map.Entry) sitr.next();
+                    iids[i] = (ConsumerUID) me.getKey();
+                    vals[i] = ((Integer) me.getValue()).intValue();
+                }
+                try {
+                    doStoreMessage(dst, msg, iids, vals, false);
+                } catch (IOException e) {
+                    throw new BrokerException(br.getString(br.X_PERSIST_MESSAGE_FAILED, mid.toString()), e);
+                }
+                n++;
+            }
+            if (n > 0) {
+                sync(dst);
+                count += n;
+                dstCount++;
+            }
+        }
+
+        logger.log(Logger.INFO, br.getKString(BrokerResources.I_MSGSTORE_MIGRATED,
+                new Object[] { Integer.valueOf(count), Integer.valueOf(dstCount), otherDir }));
+    }
+
+    /**
+     * Used by subclasses that manage their own storage hierarchy.
+     */
+    protected MsgStore(FileStore p) {
+        this.parent = p;
+    }
+
     /**
      * Messages are loaded on demand. if reset is true, remove all messages.
      */
@@ -213,10 +305,8 @@ class MsgStore {
                 sync = false;
             }
         }
-        // get from cache; instantiate=true, load=true, create=true
-        DstMsgStore msgstore = getDstMsgStore(dst, true, true, true);
-
-        MessageInfo info = msgstore.storeMessage(message, iids, states, sync);
+        byte[] msgBytes = doStoreMessage(dst, message, iids, states, sync);
+        dirty(dst, message.getPacketSize(), sync);
 
         // log message produce
         if (Globals.logNonTransactedMsgSend() && !Globals.isNewTxnLogEnabled()) {
@@ -224,7 +314,6 @@ class MsgStore {
             // old txn log
             long tid = message.getTransactionID();
             if (tid <= 0) {
-                byte[] msgBytes = info.getCachedMessageBytes();
                 if (msgBytes == null) {
                     msgBytes = message.getBytes();
                 }
@@ -240,6 +329,48 @@ class MsgStore {
 
     }
 
+    /**
+     * Persist the message and its interest states in the backing storage.
+     *
+     * @return the serialized message if it is available, otherwise null
+     */
+    protected byte[] doStoreMessage(DestinationUID dst, Packet message, ConsumerUID[] iids, int[] states, boolean sync)
+            throws IOException, BrokerException {
+
+        // get from cache; instantiate=true, load=true, create=true
+        DstMsgStore msgstore = getDstMsgStore(dst, true, true, true);
+
+        return msgstore.storeMessage(message, iids, states, sync).getCachedMessageBytes();
+    }
+
+    void setSyncScheduler(SyncScheduler s) {
+        syncScheduler = s;
+    }
+
+    SyncScheduler getSyncScheduler() {
+        return syncScheduler;
+    }
+
+    /**
+     * Record an unsynced write to the destination's messages with the sync scheduler.
+     */
+    protected void dirty(DestinationUID dst, long bytes, boolean sync) throws BrokerException {
+        SyncScheduler s = syncScheduler;
+        if (s != null && !sync) {
+            s.dirty(dst, bytes);
+        }
+    }
+
+    /**
+     * Stop tracking unsynced writes of a destination whose messages are gone.
+     */
+    protected void releaseDirty(DestinationUID dst) {
+        SyncScheduler s = syncScheduler;
+        if (s != null) {
+            s.release(dst);
+        }
+    }
+
     /**
      * Return a message with the specified message id.
      */
@@ -275,6 +406,21 @@ class MsgStore {
     void removeMessage(DestinationUID dst, SysMessageID id, boolean sync) throws IOException, BrokerException {
 
         getDstMsgStore(dst).removeMessage(id, sync);
+        dirty(dst, DIRTY_RECORD_SIZE, sync);
+    }
+
+    /**
+     * Remove a batch of messages of the destination.
+     *
+     * @return the number of messages removed
+     */
+    int removeMessages(DestinationUID dst, List<SysMessageID> ids, boolean sync) throws IOException, BrokerException {
+
+        int removed = getDstMsgStore(dst).removeMessages(ids, sync);
+        if (removed > 0) {
+            dirty(dst, (long) removed * DIRTY_RECORD_SIZE, sync);
+        }
+        return removed;
     }
 
     void moveMessage(Packet message, DestinationUID from, DestinationUID to, ConsumerUID[] ints, int[] states, boolean sync)
@@ -295,6 +441,7 @@ class MsgStore {
 
         try {
             fromdst.removeMessage(message.getSysMessageID(), sync);
+            dirty(from, DIRTY_RECORD_SIZE, sync);
         } catch (BrokerException e) {
             // if we fails to remove the message; undo store
             getDstMsgStore(to).removeMessage(message.getSysMessageID(), sync);
@@ -378,6 +525,7 @@ class MsgStore {
 
         if (dstMsgStore != null) {
             dstMsgStore.removeAllMessages(sync);
+            dirty(dst, DIRTY_RECORD_SIZE, sync);
         }
     }
 
@@ -393,6 +541,7 @@ class MsgStore {
                 dstMsgStore.releaseMessageDir(sync);
             }
         }
+        releaseDirty(dst);
     }
 
     /**
@@ -536,6 +685,7 @@ class MsgStore {
             }
 
             getDstMsgStore(dst).storeInterestStates(mid, iids, states, sync);
+            dirty(dst, DIRTY_RECORD_SIZE, sync);
         } catch (IOException e) {
             logger.log(logger.ERROR, br.X_PERSIST_INTEREST_LIST_FAILED, mid.toString());
             throw new BrokerException(br.getString(br.X_PERSIST_INTEREST_LIST_FAILED, mid.toString()), e);
@@ -557,6 +707,7 @@ class MsgStore {
 
         try {
             getDstMsgStore(dst).updateInterestState(mid, iid, state, sync);
+            dirty(dst, DIRTY_RECORD_SIZE, sync);
         } catch (IOException e) {
             // only this state is affected
             logger.log(logger.ERROR, br.X_PERSIST_INTEREST_STATE_FAILED, iid.toString(), mid.toString());
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.file;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.config.BrokerConfig;
+import com.sun.messaging.jmq.jmsserver.core.DestinationUID;
+import com.sun.messaging.jmq.jmsserver.persist.api.Store;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * With the new transaction log enabled, message files are written without sync and are only synced by a checkpoint.
+ * SyncScheduler keeps track of the destinations whose message files have unsynced writes and syncs them incrementally
+ * from a background thread, so a checkpoint only has to sync what was written since the last flush.
+ * <p>
+ * A write is marked dirty after it completes and a destination is unmarked before it is synced, so a write is either
+ * covered by the sync or still marked for the next one. Each destination keeps its counter for the life of the
+ * scheduler and a flush takes the counted bytes with getAndSet, so a write counted concurrently with a flush is never
+ * added to a counter that is no longer looked at. A flush holds the counter's monitor until its sync has returned, so
+ * a checkpoint never completes while a sync of bytes it did not see is still running. When the unsynced bytes exceed the configured maximum the
+ * writing thread syncs its own destination, which slows down the heaviest writers instead of stalling the checkpoint.
+ */
+class SyncScheduler implements Runnable {
+
+    static final String ENABLED_PROP = FileStore.FILE_PROP_PREFIX + "txnLog.syncScheduler.enabled";
+    static final boolean DEFAULT_ENABLED = true;
+
+    // interval in milliseconds between background flushes
+    static final String INTERVAL_PROP = FileStore.FILE_PROP_PREFIX + "txnLog.syncScheduler.interval";
+    static final long DEFAULT_INTERVAL = 1000;
+
+    // unsynced bytes above which writers sync their own destination
+    static final String MAX_DIRTY_SIZE_PROP = FileStore.FILE_PROP_PREFIX + "txnLog.syncScheduler.maxDirtySize";
+    static final long DEFAULT_MAX_DIRTY_SIZE = 64 * 1024; // 64m
+
+    private static boolean DEBUG = false;
+
+    private Logger logger = Globals.getLogger();
+
+    private MsgStore msgStore = null;
+    private long interval = DEFAULT_INTERVAL;
+    private long maxDirtyBytes = 0;
+
+    private Map<DestinationUID, AtomicLong> dirtyMap = new ConcurrentHashMap<>();
+    private AtomicLong dirtyBytes = new AtomicLong(0);
+
+    private AtomicLong flushCount = new AtomicLong(0);
+    private AtomicLong flushedBytes = new AtomicLong(0);
+    private AtomicLong writerFlushCount = new AtomicLong(0);
+
+    private Thread runner = null;
+    private volatile boolean closed = false;
+
+    SyncScheduler(MsgStore msgStore) {
+        this.msgStore = msgStore;
+
+        BrokerConfig config = Globals.getConfig();
+        interval = Math.max(10, config.getLongProperty(INTERVAL_PROP, DEFAULT_INTERVAL));
+        maxDirtyBytes = config.getSizeProperty(MAX_DIRTY_SIZE_PROP, DEFAULT_MAX_DIRTY_SIZE).getBytes();
+
+        runner = new Thread(this, "File store sync scheduler");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    static boolean isEnabled() {
+        return Globals.getConfig().getBooleanProperty(ENABLED_PROP, DEFAULT_ENABLED);
+    }
+
+    /**
+     * Record an unsynced write of the given size to the message file of the destination.
+     */
+    void dirty(DestinationUID dst, long bytes) throws BrokerException {
+
+        // added to the total first so a concurrent flush never takes more than the total holds
+        long total = dirtyBytes.addAndGet(bytes);
+        dirtyMap.computeIfAbsent(dst, k -> new AtomicLong(0)).addAndGet(bytes);
+
+        if (maxDirtyBytes > 0 && total > maxDirtyBytes) {
+            writerFlushCount.incrementAndGet();
+            flush(dst);
+        } else if (maxDirtyBytes > 0 && total > maxDirtyBytes / 2) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Sync the message file of the destination if it has unsynced writes.
+     */
+    void flush(DestinationUID dst) throws BrokerException {
+
+        AtomicLong bytes = dirtyMap.get(dst);
+        if (bytes == null) {
+            return;
+        }
+
+        // held across the sync, so that a flush finding nothing to take, such as the one of a checkpoint, returns only
+        // after a sync of the bytes taken by a concurrent flush has completed
+        synchronized (bytes) {
+            long n = bytes.getAndSet(0);
+            if (n == 0) {
+                return;
+            }
+
+            try {
+                msgStore.sync(dst);
+            } catch (BrokerException e) {
+                // still unsynced
+                bytes.addAndGet(n);
+                throw e;
+            }
+
+            dirtyBytes.addAndGet(-n);
+            flushedBytes.addAndGet(n);
+            flushCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sync all message files that have unsynced writes.
+     */
+    void flushAll() throws BrokerException {
+
+        Iterator<DestinationUID> itr = dirtyMap.keySet().iterator();
+        while (itr.hasNext()) {
+            flush(itr.next());
+        }
+    }
+
+    /**
+     * Stop tracking a destination whose messages have been removed from the store.
+     */
+    void release(DestinationUID dst) {
+        AtomicLong bytes = dirtyMap.remove(dst);
+        if (bytes != null) {
+            dirtyBytes.addAndGet(-bytes.getAndSet(0));
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            synchronized (this) {
+                try {
+                    wait(interval);
+                } catch (InterruptedException e) {
+                }
+            }
+            if (closed) {
+                break;
+            }
+
+            try {
+                flushAll();
+            } catch (Throwable e) {
+                logger.logStack(Logger.WARNING, "Failed to synchronize message store in background", e);
+            }
+
+            if (Store.getDEBUG() && DEBUG) {
+                logger.log(Logger.INFO, "SyncScheduler: dirty bytes after flush=" + dirtyBytes.get());
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    long getDirtyBytes() {
+        return dirtyBytes.get();
+    }
+
+    Hashtable getDebugState() {
+        Hashtable t = new Hashtable();
+        t.put("syncScheduler.dirtyBytes", Long.valueOf(dirtyBytes.get()));
+        int dirtyDsts = 0;
+        Iterator<AtomicLong> itr = dirtyMap.values().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().get() > 0) {
+                dirtyDsts++;
+            }
+        }
+        t.put("syncScheduler.dirtyDestinations", Integer.valueOf(dirtyDsts));
+        t.put("syncScheduler.flushes", Long.valueOf(flushCount.get()));
+        t.put("syncScheduler.flushedBytes", Long.valueOf(flushedBytes.get()));
+        t.put("syncScheduler.writerFlushes", Long.valueOf(writerFlushCount.get()));
+        return t;
+    }
+}
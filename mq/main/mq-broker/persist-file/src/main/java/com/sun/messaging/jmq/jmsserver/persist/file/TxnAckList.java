@@ -27,6 +27,9 @@ import com.sun.messaging.jmq.util.SizeString;
 import com.sun.messaging.jmq.io.disk.PHashMap;
 import com.sun.messaging.jmq.io.disk.PHashMapLoadException;
 import com.sun.messaging.jmq.io.disk.PHashMapMMF;
+import com.sun.messaging.jmq.io.disk.PLongHashMap;
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.core.ConsumerUID;
 import com.sun.messaging.jmq.io.disk.VRFileWarning;
 import com.sun.messaging.jmq.jmsserver.data.TransactionUID;
 import com.sun.messaging.jmq.jmsserver.data.TransactionAcknowledgement;
@@ -42,7 +45,8 @@ import java.io.*;
 import java.util.*;
 
 /**
- * Keep track of acknowledgements for transactions using PHashMap.
+ * Keep track of acknowledgements for transactions using PHashMap, or PLongHashMap if
+ * imq.persist.file.transaction.ack.compactMap.enabled is true. Existing data is migrated when the setting changes.
  */
 class TxnAckList {
 
@@ -52,9 +56,18 @@ class TxnAckList {
 
     static final String BASENAME = "txnack"; // basename of data file
 
+    // property name and default of whether to use PLongHashMap
+    static final String COMPACT_MAP_PROP = FileStore.FILE_PROP_PREFIX + "transaction.ack.compactMap.enabled";
+    static final boolean DEFAULT_COMPACT_MAP = false;
+
+    static final String COMPACT_MAP_BASENAME = "txnack.lmap"; // basename of PLongHashMap data file
+
     // maps tid -> HashSet of TransactionAcknowledgement
     private PHashMap tidMap = null;
 
+    // maps tid -> HashSet of TransactionAcknowledgement; used instead of tidMap if not null
+    private PLongHashMap<HashSet> ackMap = null;
+
     private boolean useMemoryMappedFile = true;
 
     private HashMap emptyHashMap = new HashMap();
@@ -64,12 +77,32 @@ class TxnAckList {
 
     private LoadException loadException = null;
 
+    // the ack set of a tid is read, changed and written back; updates of the same tid are serialized on one of these
+    private static final int TID_LOCKS = 64;
+    private final Object[] tidLocks = new Object[TID_LOCKS];
+    {
+        for (int i = 0; i < TID_LOCKS; i++) {
+            tidLocks[i] = new Object();
+        }
+    }
+
     // when instantiated, all data are loaded
     TxnAckList(FileStore p, File topDir, boolean clear) throws BrokerException {
 
         SizeString filesize = config.getSizeProperty(TidList.TXN_FILE_SIZE_PROP, TidList.DEFAULT_TXN_FILE_SIZE);
 
         backingFile = new File(topDir, BASENAME);
+        File compactFile = new File(topDir, COMPACT_MAP_BASENAME);
+        boolean useCompactMap = config.getBooleanProperty(COMPACT_MAP_PROP, DEFAULT_COMPACT_MAP);
+
+        if (useCompactMap && (clear || !backingFile.exists())) {
+            // nothing to migrate
+            openCompactMap(compactFile, filesize, clear);
+            if (clear) {
+                backingFile.delete();
+            }
+            return;
+        }
 
         try {
             // safe=false; caller controls data synchronization
@@ -120,6 +153,57 @@ class TxnAckList {
         if (Store.getDEBUG()) {
             logger.log(logger.DEBUG, "TxnAckList: loaded acks for " + tidMap.size() + " transactions");
         }
+
+        if (useCompactMap) {
+            // migrate PHashMap data to PLongHashMap
+            openCompactMap(compactFile, filesize, false);
+            Iterator itr = tidMap.entrySet().iterator();
+            while (itr.hasNext()) {
+                Map.Entry entry = (Map.Entry) itr.next();
+                ackMap.put(((TransactionUID) entry.getKey()).longValue(), (HashSet) entry.getValue());
+            }
+            sync(null);
+            logger.log(Logger.INFO, br.getKString(BrokerResources.I_MIGRATED_TXNACK_STORE,
+                    new Object[] { Integer.valueOf(tidMap.size()), backingFile, compactFile }));
+            tidMap.close();
+            tidMap = null;
+            if (!backingFile.delete()) {
+                logger.log(logger.ERROR, br.I_DELETE_FILE_FAILED, backingFile);
+            }
+        } else if (compactFile.exists()) {
+            // migrate PLongHashMap data back to PHashMap
+            PLongHashMap<HashSet> oldMap = null;
+            if (!clear) {
+                try {
+                    oldMap = new PLongHashMap<>(compactFile, filesize.getBytes(), new AckSetCodec(), false, false);
+                } catch (IOException e) {
+                    logger.log(logger.ERROR, br.X_LOAD_TXNACK_FAILED, e);
+                    throw new BrokerException(br.getString(br.X_LOAD_TXNACK_FAILED), e);
+                }
+                oldMap.forEach((tid, acks) -> tidMap.put(new TransactionUID(tid), acks));
+                oldMap.close();
+                sync(null);
+                logger.log(Logger.INFO, br.getKString(BrokerResources.I_MIGRATED_TXNACK_STORE,
+                        new Object[] { Integer.valueOf(tidMap.size()), compactFile, backingFile }));
+            }
+            if (!compactFile.delete()) {
+                logger.log(logger.ERROR, br.I_DELETE_FILE_FAILED, compactFile);
+            }
+        }
+    }
+
+    private void openCompactMap(File compactFile, SizeString filesize, boolean clear) throws BrokerException {
+        try {
+            // safe=false; caller controls data synchronization
+            ackMap = new PLongHashMap<>(compactFile, filesize.getBytes(), new AckSetCodec(), false, clear);
+        } catch (IOException | RuntimeException e) {
+            logger.log(logger.ERROR, br.X_LOAD_TXNACK_FAILED, e);
+            throw new BrokerException(br.getString(br.X_LOAD_TXNACK_FAILED), e);
+        }
+
+        if (Store.getDEBUG()) {
+            logger.log(logger.DEBUG, "TxnAckList: loaded acks for " + ackMap.size() + " transactions from " + compactFile);
+        }
     }
 
     LoadException getLoadException() {
@@ -232,27 +316,19 @@ class TxnAckList {
     void storeAck(TransactionUID tid, TransactionAcknowledgement ack, boolean sync) throws BrokerException {
 
         try {
-            boolean putIfAbsent = false;
-            HashSet acks = (HashSet) tidMap.get(tid);
-
-            if (acks == null) {
-                putIfAbsent = true;
-                acks = new HashSet();
-            } else {
-                if (acks.contains(ack)) {
-                    logger.log(logger.ERROR, br.E_ACK_EXISTS_IN_STORE, ack, tid);
-                    throw new BrokerException(br.getString(br.E_ACK_EXISTS_IN_STORE, ack, tid));
+            synchronized (getTidLock(tid)) {
+                HashSet acks = getAckSet(tid);
+
+                if (acks == null) {
+                    acks = new HashSet();
+                } else {
+                    if (acks.contains(ack)) {
+                        logger.log(logger.ERROR, br.E_ACK_EXISTS_IN_STORE, ack, tid);
+                        throw new BrokerException(br.getString(br.E_ACK_EXISTS_IN_STORE, ack, tid));
+                    }
                 }
-            }
-            acks.add(ack);
-
-            Object oldValue = tidMap.put(tid, acks, putIfAbsent);
-            if (putIfAbsent && (oldValue != null)) {
-                // If we're unable to update the map, then another ack
-                // has been added before we we get a chance; so try again!
-                acks = (HashSet) tidMap.get(tid);
                 acks.add(ack);
-                tidMap.put(tid, acks);
+                putAckSet(tid, acks);
             }
 
             if (sync) {
@@ -276,22 +352,14 @@ class TxnAckList {
         List ackList = Arrays.asList(txnAcks); // Convert array to a List
 
         try {
-            boolean putIfAbsent = false;
-            HashSet acks = (HashSet) tidMap.get(tid);
-
-            if (acks == null) {
-                putIfAbsent = true;
-                acks = new HashSet(ackList.size());
-            }
-            acks.addAll(ackList);
+            synchronized (getTidLock(tid)) {
+                HashSet acks = getAckSet(tid);
 
-            Object oldValue = tidMap.put(tid, acks, putIfAbsent);
-            if (putIfAbsent && (oldValue != null)) {
-                // If we're unable to update the map, then another ack
-                // has been added before we we get a chance; so try again!
-                acks = (HashSet) tidMap.get(tid);
+                if (acks == null) {
+                    acks = new HashSet(ackList.size());
+                }
                 acks.addAll(ackList);
-                tidMap.put(tid, acks);
+                putAckSet(tid, acks);
             }
 
             if (sync) {
@@ -309,11 +377,16 @@ class TxnAckList {
      */
     HashMap getAllAcks() {
 
-        if (tidMap.size() == 0) {
+        if (size() == 0) {
             return emptyHashMap;
         }
 
-        HashMap allacks = new HashMap(tidMap.size());
+        HashMap allacks = new HashMap(size());
+
+        if (ackMap != null) {
+            ackMap.forEach((tid, set) -> allacks.put(new TransactionUID(tid), set.toArray(emptyAckArray)));
+            return allacks;
+        }
 
         Set entries = tidMap.entrySet();
         Iterator itor = entries.iterator();
@@ -336,11 +409,20 @@ class TxnAckList {
      */
     public TransactionUID[] getAllTids() {
         TransactionUID[] tids = null;
+        if (ackMap != null) {
+            long[] keys = ackMap.keys();
+            tids = new TransactionUID[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                tids[i] = new TransactionUID(keys[i]);
+            }
+            return tids;
+        }
+
         Set s = tidMap.keySet();
         tids = new TransactionUID[s.size()];
         int i = 0;
         for (Iterator itr = s.iterator(); itr.hasNext();) {
-            tids[i] = (TransactionUID) itr.next();
+            tids[i++] = (TransactionUID) itr.next();
         }
         return tids;
     }
@@ -353,7 +435,7 @@ class TxnAckList {
      */
     TransactionAcknowledgement[] getAcks(TransactionUID tid) throws BrokerException {
 
-        HashSet acks = (HashSet) tidMap.get(tid);
+        HashSet acks = getAckSet(tid);
 
         if (acks != null) {
             return (TransactionAcknowledgement[]) acks.toArray(emptyAckArray);
@@ -368,7 +450,10 @@ class TxnAckList {
     void removeAcks(TransactionUID tid, boolean sync) throws BrokerException {
 
         try {
-            HashSet acks = (HashSet) tidMap.remove(tid);
+            HashSet acks = null;
+            synchronized (getTidLock(tid)) {
+                acks = (ackMap != null ? ackMap.remove(tid.longValue()) : (HashSet) tidMap.remove(tid));
+            }
 
             if (sync) {
                 sync(tid);
@@ -396,7 +481,11 @@ class TxnAckList {
         }
 
         try {
-            tidMap.clear();
+            if (ackMap != null) {
+                ackMap.clear();
+            } else {
+                tidMap.clear();
+            }
 
             if (sync) {
                 sync(null);
@@ -409,10 +498,14 @@ class TxnAckList {
 
     void close(boolean cleanup) {
         if (Store.getDEBUG()) {
-            logger.log(logger.DEBUGHIGH, "TxnAckList: closing, " + tidMap.size() + " transactions has acks");
+            logger.log(logger.DEBUGHIGH, "TxnAckList: closing, " + size() + " transactions has acks");
         }
 
-        tidMap.close();
+        if (ackMap != null) {
+            ackMap.close();
+        } else {
+            tidMap.close();
+        }
     }
 
     /**
@@ -422,7 +515,11 @@ class TxnAckList {
      */
     Hashtable getDebugState() {
         Hashtable t = new Hashtable();
-        t.put("Txn acks", String.valueOf(tidMap.size()));
+        t.put("Txn acks", String.valueOf(size()));
+        if (ackMap != null) {
+            t.put("Txn acks file size", String.valueOf(ackMap.getFileSize()));
+            t.put("Txn acks garbage size", String.valueOf(ackMap.getGarbageSize()));
+        }
         return t;
     }
 
@@ -430,14 +527,20 @@ class TxnAckList {
         out.println("\nTransaction acknowledgements");
         out.println("----------------------------");
 
-        out.println("backing file: " + backingFile);
-        out.println("Number of transactions containing acknowledgements: " + tidMap.size());
+        out.println("backing file: " + (ackMap != null ? new File(backingFile.getParentFile(), COMPACT_MAP_BASENAME) : backingFile));
+        out.println("Number of transactions containing acknowledgements: " + size());
     }
 
     /**
      * @return the total number of transaction acknowledgements in the store
      */
     public int getNumberOfTxnAcks() {
+        if (ackMap != null) {
+            int[] count = new int[1];
+            ackMap.forEach((tid, acks) -> count[0] += acks.size());
+            return count[0];
+        }
+
         int size = 0;
         Iterator itr = tidMap.entrySet().iterator();
         while (itr.hasNext()) {
@@ -454,7 +557,11 @@ class TxnAckList {
                 String msg = "TxnAckList sync() " + tid;
                 logger.log(Logger.DEBUG, msg);
             }
-            tidMap.force(tid);
+            if (ackMap != null) {
+                ackMap.force();
+            } else {
+                tidMap.force(tid);
+            }
         } catch (IOException e) {
             throw new BrokerException("Failed to synchronize data to disk for file: " + backingFile, e);
         }
@@ -477,15 +584,83 @@ class TxnAckList {
                 }
             }
         }
+
+        file = new File(rootDir, COMPACT_MAP_BASENAME);
+        if (file.exists() && !file.delete()) {
+            throw new BrokerException(Globals.getBrokerResources().getKString(BrokerResources.X_COULD_NOT_DELETE_FILE, file));
+        }
     }
 
     public void deleteAndBackupAllFiles(File rootDir) throws IOException {
-        FileUtil.copyFile(backingFile, new File(rootDir, this.BASENAME + ".backup"));
-        boolean deleted = backingFile.delete();
+        File file = backingFile;
+        String basename = BASENAME;
+        if (ackMap != null) {
+            file = new File(backingFile.getParentFile(), COMPACT_MAP_BASENAME);
+            basename = COMPACT_MAP_BASENAME;
+        }
+        FileUtil.copyFile(file, new File(rootDir, basename + ".backup"));
+        boolean deleted = file.delete();
         if (!deleted) {
-            logger.log(logger.ERROR, "Could not delete " + backingFile + " . Will delete on exit");
+            logger.log(logger.ERROR, "Could not delete " + file + " . Will delete on exit");
+
+            file.deleteOnExit();
+        }
+    }
 
-            backingFile.deleteOnExit();
+    private HashSet getAckSet(TransactionUID tid) {
+        if (ackMap != null) {
+            return ackMap.get(tid.longValue());
+        }
+        return (HashSet) tidMap.get(tid);
+    }
+
+    // callers hold the tid lock
+    private void putAckSet(TransactionUID tid, HashSet acks) {
+        if (ackMap == null) {
+            tidMap.put(tid, acks);
+        } else {
+            ackMap.put(tid.longValue(), acks);
+        }
+    }
+
+    private Object getTidLock(TransactionUID tid) {
+        long id = tid.longValue();
+        return tidLocks[(int) (id ^ (id >>> 32)) & (TID_LOCKS - 1)];
+    }
+
+    private int size() {
+        return (ackMap != null ? ackMap.size() : tidMap.size());
+    }
+
+    /**
+     * Encodes a HashSet of TransactionAcknowledgement as its count followed by the SysMessageID and the two consumer ids of
+     * each ack; this is the same information TransactionAcknowledgement itself externalizes.
+     */
+    static class AckSetCodec implements PLongHashMap.Codec<HashSet> {
+        @Override
+        public void write(DataOutput out, HashSet acks) throws IOException {
+            out.writeInt(acks.size());
+            Iterator itr = acks.iterator();
+            while (itr.hasNext()) {
+                TransactionAcknowledgement ack = (TransactionAcknowledgement) itr.next();
+                ack.getSysMessageID().writeID(out);
+                out.writeLong(ack.getConsumerUID().longValue());
+                out.writeLong(ack.getStoredConsumerUID().longValue());
+            }
+        }
+
+        @Override
+        public HashSet read(DataInput in) throws IOException {
+            int n = in.readInt();
+            HashSet acks = new HashSet(n);
+            for (int i = 0; i < n; i++) {
+                SysMessageID sysid = new SysMessageID();
+                sysid.readID(in);
+                ConsumerUID iid = new ConsumerUID(in.readLong());
+                ConsumerUID sid = new ConsumerUID(in.readLong());
+                acks.add(new TransactionAcknowledgement(sysid, iid, sid));
+            }
+            return acks;
         }
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.messaging.jmq.io.SysMessageID;
+
+class AckJournalTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    @TempDir
+    File dir;
+
+    private DstMsgStore parent;
+    private MessageInfo info1;
+    private MessageInfo info2;
+    private SysMessageID mid1;
+    private SysMessageID mid2;
+
+    private static SysMessageID newID(int seq) {
+        SysMessageID mid = new SysMessageID();
+        mid.setTimestamp(System.currentTimeMillis());
+        mid.setSequence(seq);
+        mid.setPort(7676);
+        return mid;
+    }
+
+    @BeforeEach
+    void setUp() {
+        parent = mock(DstMsgStore.class);
+        mid1 = newID(1);
+        mid2 = newID(2);
+        info1 = mock(MessageInfo.class);
+        info2 = mock(MessageInfo.class);
+        when(info1.getID()).thenReturn(mid1);
+        when(info2.getID()).thenReturn(mid2);
+    }
+
+    private File journalFile() {
+        return new File(dir, AckJournal.FILENAME);
+    }
+
+    @Test
+    void replaysJournaledStates() throws Exception {
+        AckJournal journal = new AckJournal(parent, dir, MAX_SIZE);
+        journal.append(info1, 0, 1, false);
+        journal.append(info1, 1, 1, false);
+        journal.append(info1, 0, 2, false);
+        journal.append(info2, 0, 3, true);
+
+        // as after a crash, nothing written back
+        AckJournal replayed = new AckJournal(parent, dir, MAX_SIZE);
+
+        assertEquals(Map.of(0, 2, 1, 1), replayed.takePending(mid1));
+        assertEquals(Map.of(0, 3), replayed.takePending(mid2));
+        assertNull(replayed.takePending(mid1));
+    }
+
+    @Test
+    void dropsTornRecordAtTheEnd() throws Exception {
+        AckJournal journal = new AckJournal(parent, dir, MAX_SIZE);
+        journal.append(info1, 0, 1, false);
+        journal.append(info2, 0, 2, true);
+        long valid = journalFile().length();
+
+        // a record cut short by a crash
+        try (FileOutputStream fos = new FileOutputStream(journalFile(), true)) {
+            fos.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        }
+
+        AckJournal replayed = new AckJournal(parent, dir, MAX_SIZE);
+
+        assertEquals(Map.of(0, 1), replayed.takePending(mid1));
+        assertEquals(Map.of(0, 2), replayed.takePending(mid2));
+        assertEquals(valid, journalFile().length());
+    }
+
+    @Test
+    void recoversInterruptedCheckpoint() throws Exception {
+        AckJournal journal = new AckJournal(parent, dir, MAX_SIZE);
+        journal.append(info1, 0, 1, false);
+        journal.append(info2, 0, 1, false);
+        doThrow(new IOException("disk full")).when(info1).writeBackStates();
+
+        // the journal has been moved to ackjournal.1, but the states did not make it to the message records
+        assertThrows(IOException.class, journal::checkpoint);
+        File oldFile = new File(dir, AckJournal.OLD_FILENAME);
+        assertTrue(oldFile.exists());
+        verify(parent, never()).syncData();
+
+        journal.append(info1, 0, 2, false);
+        journal.append(info1, 1, 3, true);
+        // and the crash came while the broker merged the two journals on restart
+        try (FileOutputStream fos = new FileOutputStream(new File(dir, "ackjournal.tmp"))) {
+            fos.write(new byte[] { 1, 2, 3 });
+        }
+
+        AckJournal replayed = new AckJournal(parent, dir, MAX_SIZE);
+
+        // the newer states win
+        assertEquals(Map.of(0, 2, 1, 3), replayed.takePending(mid1));
+        assertEquals(Map.of(0, 1), replayed.takePending(mid2));
+        assertFalse(oldFile.exists());
+        assertFalse(new File(dir, "ackjournal.tmp").exists());
+
+        // merged into one journal
+        AckJournal reopened = new AckJournal(parent, dir, MAX_SIZE);
+        assertEquals(Map.of(0, 2, 1, 3), reopened.takePending(mid1));
+        assertEquals(Map.of(0, 1), reopened.takePending(mid2));
+    }
+
+    @Test
+    void checkpointsInTheBackground() throws Exception {
+        AckJournal journal = new AckJournal(parent, dir, 1);
+        CountDownLatch writingBack = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            writingBack.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(info1).writeBackStates();
+
+        journal.append(info1, 0, 1, false);
+        assertTrue(journal.needsCheckpoint());
+        journal.checkpointIfNeeded();
+        assertTrue(writingBack.await(10, TimeUnit.SECONDS));
+
+        // acknowledgements go on while the states are written back
+        assertFalse(journal.needsCheckpoint());
+        journal.append(info2, 0, 2, false);
+        journal.checkpointIfNeeded();
+
+        release.countDown();
+        verify(parent, timeout(10000)).syncData();
+        // close waits for the running checkpoint and writes back what came in meanwhile
+        journal.close();
+        verify(info2).writeBackStates();
+        assertFalse(new File(dir, AckJournal.OLD_FILENAME).exists());
+        assertFalse(journalFile().exists());
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.core.ConsumerUID;
+import com.sun.messaging.jmq.jmsserver.core.Destination;
+import com.sun.messaging.jmq.jmsserver.core.DestinationUID;
+import com.sun.messaging.jmq.jmsserver.persist.api.PartitionedStore;
+import com.sun.messaging.jmq.jmsserver.persist.api.Store;
+import com.sun.messaging.jmq.jmsserver.persist.api.StoreManager;
+
+class LogMsgStoreTest {
+    // five of these fill a 1m segment
+    private static final int BODY_SIZE = 200 * 1024;
+
+    private static final ConsumerUID IID = new ConsumerUID(7);
+
+    @TempDir
+    File top;
+
+    private FileStore parent;
+    private DestinationUID dst;
+    private LogMsgStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Globals.getConfig().put(LogMsgStore.SEGMENT_SIZE_PROP, "1m");
+
+        dst = DestinationUID.getUID("logStoreTestQueue", true);
+        Destination d = mock(Destination.class);
+        lenient().when(d.getDestinationUID()).thenReturn(dst);
+        DestinationListStore dstStore = mock(DestinationListStore.class);
+        lenient().when(dstStore.getDestination(any())).thenReturn(d);
+        lenient().when(dstStore.getDestinations()).thenReturn(Arrays.asList(d));
+        parent = mock(FileStore.class);
+        lenient().when(parent.getDstStore()).thenReturn(dstStore);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close(false);
+        }
+        Globals.getConfig().remove(LogMsgStore.SEGMENT_SIZE_PROP);
+        Globals.getConfig().remove(LogMsgStore.COMPACT_THRESHOLD_PROP);
+        Globals.getConfig().remove(StoreManager.STORE_TYPE_PROP);
+    }
+
+    private static Packet newMessage(int size) throws Exception {
+        Packet pkt = new Packet(false);
+        pkt.setPacketType(PacketType.BYTES_MESSAGE);
+        pkt.setPersistent(true);
+        pkt.setIsQueue(true);
+        pkt.setDestination("logStoreTestQueue");
+        pkt.setMessageBody(new byte[size]);
+        pkt.updateSequenceNumber();
+        pkt.updateTimestamp();
+        pkt.generateSequenceNumber(false);
+        pkt.generateTimestamp(false);
+        return pkt;
+    }
+
+    private SysMessageID store(int size) throws Exception {
+        Packet msg = newMessage(size);
+        store.storeMessage(dst, msg, new ConsumerUID[] { IID }, new int[] { PartitionedStore.INTEREST_STATE_ROUTED }, false);
+        return msg.getSysMessageID();
+    }
+
+    private List<SysMessageID> store(int count, int size) throws Exception {
+        List<SysMessageID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(store(size));
+        }
+        return ids;
+    }
+
+    private void remove(List<SysMessageID> ids) throws Exception {
+        for (SysMessageID id : ids) {
+            store.removeMessage(dst, id, false);
+        }
+    }
+
+    private File logDir() {
+        return new File(top, LogMsgStore.LOG_DIR);
+    }
+
+    private String[] segmentFiles() {
+        String[] names = logDir().list((dir, name) -> name.endsWith(".seg"));
+        Arrays.sort(names);
+        return names;
+    }
+
+    private LogMsgStore reopen() throws Exception {
+        // no close: the mapped records are all a crashed broker leaves behind
+        store = new LogMsgStore(parent, top, false);
+        return store;
+    }
+
+    private List<SysMessageID> enumerate() throws Exception {
+        List<SysMessageID> ids = new ArrayList<>();
+        Enumeration e = store.messageEnumeration(dst);
+        while (e.hasMoreElements()) {
+            ids.add(((Packet) e.nextElement()).getSysMessageID());
+        }
+        return ids;
+    }
+
+    @Test
+    void rollsToNewSegmentWhenFull() throws Exception {
+        store = new LogMsgStore(parent, top, false);
+        List<SysMessageID> ids = store(12, BODY_SIZE);
+
+        assertEquals(3, segmentFiles().length);
+        assertEquals(12, store.getMessageCount(dst));
+        for (SysMessageID id : ids) {
+            assertEquals(id, store.getMessage(dst, id).getSysMessageID());
+        }
+        assertEquals(ids, enumerate());
+    }
+
+    @Test
+    void retiresOldestSegmentsOnceConsumed() throws Exception {
+        store = new LogMsgStore(parent, top, false);
+        List<SysMessageID> ids = store(12, BODY_SIZE);
+        String[] before = segmentFiles();
+
+        // a consumed middle segment is kept while the oldest one is still referenced
+        remove(ids.subList(5, 10));
+        assertArrayEquals(before, segmentFiles());
+
+        remove(ids.subList(0, 5));
+        assertArrayEquals(new String[] { before[2] }, segmentFiles());
+        assertEquals(ids.subList(10, 12), enumerate());
+    }
+
+    @Test
+    void recoversStatesAndRemovalsAfterCrash() throws Exception {
+        store = new LogMsgStore(parent, top, false);
+        List<SysMessageID> ids = store(8, BODY_SIZE);
+        store.updateInterestState(dst, ids.get(1), IID, PartitionedStore.INTEREST_STATE_ACKNOWLEDGED, false);
+        store.removeMessage(dst, ids.get(2), false);
+
+        reopen();
+
+        List<SysMessageID> expected = new ArrayList<>(ids);
+        expected.remove(2);
+        assertEquals(expected, enumerate());
+        assertTrue(store.hasMessageBeenAcked(dst, ids.get(1)));
+        assertEquals(PartitionedStore.INTEREST_STATE_ROUTED, store.getInterestState(dst, ids.get(0), IID));
+    }
+
+    @Test
+    void dropsTornRecordAfterCrash() throws Exception {
+        store = new LogMsgStore(parent, top, false);
+        List<SysMessageID> ids = store(3, 1024);
+        String active = (String) store.getDebugState().get("msglog.activeSegment");
+        int end = Integer.parseInt(active.substring(active.indexOf('[') + 1, active.indexOf(']')));
+
+        // the last message record lost part of its body
+        try (RandomAccessFile raf = new RandomAccessFile(new File(logDir(), segmentFiles()[0]), "rw")) {
+            raf.seek(end - 1);
+            raf.write(0x5a);
+        }
+
+        reopen();
+        assertEquals(ids.subList(0, 2), enumerate());
+
+        // new records go where the torn one was
+        SysMessageID next = store(1024);
+        reopen();
+        assertEquals(Arrays.asList(ids.get(0), ids.get(1), next), enumerate());
+    }
+
+    @Test
+    void compactsOldestSegmentOnRoll() throws Exception {
+        store = new LogMsgStore(parent, top, false);
+        SysMessageID pinned = store(1024);
+        store.updateInterestState(dst, pinned, IID, PartitionedStore.INTEREST_STATE_DELIVERED, false);
+        List<SysMessageID> consumed = store(9, BODY_SIZE);
+        remove(consumed);
+        String[] before = segmentFiles();
+        assertEquals(2, before.length);
+
+        List<SysMessageID> more = store(6, BODY_SIZE);
+
+        List<String> after = Arrays.asList(segmentFiles());
+        assertFalse(after.contains(before[0]));
+        assertFalse(after.contains(before[1]));
+        List<SysMessageID> expected = new ArrayList<>();
+        expected.add(pinned);
+        expected.addAll(more);
+        // the copy keeps its place in the destination's order
+        assertEquals(expected, enumerate());
+
+        reopen();
+        assertEquals(7, store.getMessageCount(dst));
+        assertEquals(PartitionedStore.INTEREST_STATE_DELIVERED, store.getInterestState(dst, pinned, IID));
+        assertEquals(pinned, store.getMessage(dst, pinned).getSysMessageID());
+    }
+
+    @Test
+    void noCompactionWhenThresholdIsZero() throws Exception {
+        Globals.getConfig().put(LogMsgStore.COMPACT_THRESHOLD_PROP, "0");
+        store = new LogMsgStore(parent, top, false);
+        store(1024);
+        remove(store(9, BODY_SIZE));
+        String[] before = segmentFiles();
+
+        store(6, BODY_SIZE);
+
+        assertTrue(Arrays.asList(segmentFiles()).containsAll(Arrays.asList(before)));
+    }
+
+    @Test
+    void compactDestinationRetiresOldSegments() throws Exception {
+        Globals.getConfig().put(LogMsgStore.COMPACT_THRESHOLD_PROP, "0");
+        store = new LogMsgStore(parent, top, false);
+        SysMessageID pinned = store(1024);
+        remove(store(9, BODY_SIZE));
+        assertEquals(2, segmentFiles().length);
+
+        store.compactDestination(null);
+
+        assertEquals(1, segmentFiles().length);
+        reopen();
+        assertEquals(Arrays.asList(pinned), enumerate());
+    }
+
+    @Test
+    void movesMessagesWhenStoreTypeIsSwitched() throws Exception {
+        MsgStore files = MsgStore.create(parent, top, false);
+        List<SysMessageID> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Packet msg = newMessage(1024);
+            files.storeMessage(dst, msg, new ConsumerUID[] { IID }, new int[] { PartitionedStore.INTEREST_STATE_DELIVERED }, true);
+            ids.add(msg.getSysMessageID());
+        }
+        files.close(false);
+
+        Globals.getConfig().put(StoreManager.STORE_TYPE_PROP, Store.FILELOG_STORE_TYPE);
+        store = (LogMsgStore) MsgStore.create(parent, top, false);
+        assertFalse(new File(top, "message").exists());
+        assertEquals(new HashSet<>(ids), new HashSet<>(enumerate()));
+        assertEquals(PartitionedStore.INTEREST_STATE_DELIVERED, store.getInterestState(dst, ids.get(0), IID));
+        store.close(false);
+        store = null;
+
+        Globals.getConfig().put(StoreManager.STORE_TYPE_PROP, Store.FILE_STORE_TYPE);
+        files = MsgStore.create(parent, top, false);
+        try {
+            assertFalse(logDir().exists());
+            assertEquals(3, files.getMessageCount(dst));
+            assertEquals(PartitionedStore.INTEREST_STATE_DELIVERED, files.getInterestState(dst, ids.get(2), IID));
+        } finally {
+            files.close(false);
+        }
+    }
+}
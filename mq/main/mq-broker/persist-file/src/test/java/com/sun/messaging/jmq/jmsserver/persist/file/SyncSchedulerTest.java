@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.core.DestinationUID;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+
+class SyncSchedulerTest {
+    private MsgStore msgStore;
+    private SyncScheduler scheduler;
+    private DestinationUID q1;
+    private DestinationUID q2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // flushes are driven by the tests
+        Globals.getConfig().put(SyncScheduler.INTERVAL_PROP, "3600000");
+        msgStore = mock(MsgStore.class);
+        q1 = DestinationUID.getUID("syncTestQueue1", true);
+        q2 = DestinationUID.getUID("syncTestQueue2", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        Globals.getConfig().remove(SyncScheduler.INTERVAL_PROP);
+        Globals.getConfig().remove(SyncScheduler.MAX_DIRTY_SIZE_PROP);
+    }
+
+    @Test
+    void flushSyncsDirtyDestinationsOnly() throws Exception {
+        scheduler = new SyncScheduler(msgStore);
+        scheduler.dirty(q1, 100);
+        scheduler.dirty(q1, 50);
+        assertEquals(150, scheduler.getDirtyBytes());
+
+        scheduler.flushAll();
+        verify(msgStore, times(1)).sync(q1);
+        verify(msgStore, never()).sync(q2);
+        assertEquals(0, scheduler.getDirtyBytes());
+
+        // nothing new since the last flush
+        scheduler.flush(q1);
+        verify(msgStore, times(1)).sync(q1);
+        assertEquals(0, scheduler.getDebugState().get("syncScheduler.dirtyDestinations"));
+    }
+
+    @Test
+    void failedSyncKeepsBytesDirty() throws Exception {
+        scheduler = new SyncScheduler(msgStore);
+        doThrow(new BrokerException("disk gone")).when(msgStore).sync(q1);
+        scheduler.dirty(q1, 100);
+
+        assertThrows(BrokerException.class, () -> scheduler.flush(q1));
+        assertEquals(100, scheduler.getDirtyBytes());
+
+        doNothing().when(msgStore).sync(q1);
+        scheduler.flush(q1);
+        assertEquals(0, scheduler.getDirtyBytes());
+    }
+
+    @Test
+    void writerSyncsOwnDestinationAboveMaximum() throws Exception {
+        Globals.getConfig().put(SyncScheduler.MAX_DIRTY_SIZE_PROP, "1k");
+        scheduler = new SyncScheduler(msgStore);
+
+        scheduler.dirty(q2, 100);
+        scheduler.dirty(q1, 1000);
+
+        verify(msgStore).sync(q1);
+        verify(msgStore, never()).sync(q2);
+        assertEquals(100, scheduler.getDirtyBytes());
+        assertEquals(1L, scheduler.getDebugState().get("syncScheduler.writerFlushes"));
+    }
+
+    @Test
+    void releaseForgetsDestination() throws Exception {
+        scheduler = new SyncScheduler(msgStore);
+        scheduler.dirty(q1, 100);
+        scheduler.dirty(q2, 10);
+
+        scheduler.release(q1);
+        assertEquals(10, scheduler.getDirtyBytes());
+        scheduler.flushAll();
+        verify(msgStore, never()).sync(q1);
+    }
+
+    @Test
+    void concurrentWritesAndFlushesBalance() throws Exception {
+        scheduler = new SyncScheduler(msgStore);
+
+        // every byte marked before a sync starts must be covered by that sync or stay dirty
+        AtomicLong synced = new AtomicLong();
+        AtomicLong marked = new AtomicLong();
+        doAnswer(inv -> {
+            synced.set(marked.get());
+            return null;
+        }).when(msgStore).sync(any());
+
+        int writers = 4;
+        int writes = 20000;
+        CyclicBarrier start = new CyclicBarrier(writers + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < writes; j++) {
+                        scheduler.dirty(q1, 1);
+                        marked.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        Thread flusher = new Thread(() -> {
+            try {
+                start.await();
+                while (!done.get()) {
+                    scheduler.flush(q1);
+                    assertTrue(scheduler.getDirtyBytes() >= 0);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        threads.forEach(Thread::start);
+        flusher.start();
+        for (Thread t : threads) {
+            t.join();
+        }
+        done.set(true);
+        flusher.join();
+        assertNull(failure.get());
+
+        scheduler.flushAll();
+        assertEquals(0, scheduler.getDirtyBytes());
+        assertEquals((long) writers * writes, scheduler.getDebugState().get("syncScheduler.flushedBytes"));
+        assertEquals(marked.get(), synced.get());
+    }
+
+    @Test
+    void checkpointFlushWaitsForRunningSync() throws Exception {
+        scheduler = new SyncScheduler(msgStore);
+        CountDownLatch syncing = new CountDownLatch(1);
+        CountDownLatch finishSync = new CountDownLatch(1);
+        doAnswer(inv -> {
+            syncing.countDown();
+            finishSync.await();
+            return null;
+        }).when(msgStore).sync(q1);
+        scheduler.dirty(q1, 100);
+
+        Thread background = new Thread(() -> {
+            try {
+                scheduler.flush(q1);
+            } catch (BrokerException e) {
+                fail(e);
+            }
+        });
+        background.start();
+        assertTrue(syncing.await(10, TimeUnit.SECONDS));
+
+        // the checkpoint finds the bytes taken, but must not return before they are synced
+        CountDownLatch checkpointed = new CountDownLatch(1);
+        Thread checkpoint = new Thread(() -> {
+            try {
+                scheduler.flushAll();
+                checkpointed.countDown();
+            } catch (BrokerException e) {
+                fail(e);
+            }
+        });
+        checkpoint.start();
+        assertFalse(checkpointed.await(200, TimeUnit.MILLISECONDS));
+
+        finishSync.countDown();
+        assertTrue(checkpointed.await(10, TimeUnit.SECONDS));
+        background.join();
+        checkpoint.join();
+        verify(msgStore, times(1)).sync(q1);
+        assertEquals(0, scheduler.getDirtyBytes());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.messaging.jmq.io.SysMessageID;
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.core.ConsumerUID;
+import com.sun.messaging.jmq.jmsserver.data.TransactionAcknowledgement;
+import com.sun.messaging.jmq.jmsserver.data.TransactionUID;
+import com.sun.messaging.jmq.jmsserver.persist.api.util.MQObjectInputStream;
+
+class TxnAckListTest {
+    private static final TransactionUID TID = new TransactionUID(4711L);
+
+    @TempDir
+    File top;
+
+    private FileStore parent;
+    private TxnAckList list;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        parent = mock(FileStore.class);
+        lenient().when(parent.getObjectInputStream(any())).thenAnswer(inv -> new MQObjectInputStream((ByteArrayInputStream) inv.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (list != null) {
+            list.close(false);
+        }
+        Globals.getConfig().remove(TxnAckList.COMPACT_MAP_PROP);
+    }
+
+    private void open(boolean compact) throws Exception {
+        if (list != null) {
+            list.close(false);
+        }
+        Globals.getConfig().put(TxnAckList.COMPACT_MAP_PROP, String.valueOf(compact));
+        list = new TxnAckList(parent, top, false);
+    }
+
+    private static TransactionAcknowledgement ack(int i) {
+        SysMessageID sysid = new SysMessageID();
+        sysid.setSequence(i);
+        sysid.setTimestamp(1000L + i);
+        return new TransactionAcknowledgement(sysid, new ConsumerUID(i), new ConsumerUID(i));
+    }
+
+    @Test
+    void migratesToCompactMap() throws Exception {
+        open(false);
+        list.storeAcks(TID, new TransactionAcknowledgement[] { ack(1), ack(2) }, true);
+
+        open(true);
+
+        assertFalse(new File(top, TxnAckList.BASENAME).exists());
+        assertTrue(new File(top, TxnAckList.COMPACT_MAP_BASENAME).exists());
+        HashSet<TransactionAcknowledgement> acks = new HashSet<>(List.of(list.getAcks(TID)));
+        assertEquals(new HashSet<>(List.of(ack(1), ack(2))), acks);
+    }
+
+    @Test
+    void migratesBackFromCompactMap() throws Exception {
+        open(true);
+        list.storeAck(TID, ack(1), true);
+
+        open(false);
+
+        assertFalse(new File(top, TxnAckList.COMPACT_MAP_BASENAME).exists());
+        assertEquals(1, list.getNumberOfTxnAcks());
+        HashMap all = list.getAllAcks();
+        assertArrayEquals(new TransactionAcknowledgement[] { ack(1) }, (TransactionAcknowledgement[]) all.get(TID));
+    }
+
+    @Test
+    void concurrentAcksOfOneTransactionAreKept() throws Exception {
+        open(true);
+        int threads = 4;
+        int perThread = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        list.storeAck(TID, ack(base + i), false);
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            w.start();
+            workers.add(w);
+        }
+        start.countDown();
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(threads * perThread, list.getAcks(TID).length);
+    }
+}
@@ -73,6 +73,8 @@ public interface ConsumerStateDAO extends BaseDAO {
 
     void deleteByMessageID(Connection conn, String id) throws BrokerException;
 
+    void deleteByMessageIDs(Connection conn, List<String> ids) throws BrokerException;
+
     void deleteByTransaction(Connection conn, TransactionUID txnUID) throws BrokerException;
 
     void deleteByDestinationBySession(Connection conn, DestinationUID dstUID, Long storeSession) throws BrokerException;
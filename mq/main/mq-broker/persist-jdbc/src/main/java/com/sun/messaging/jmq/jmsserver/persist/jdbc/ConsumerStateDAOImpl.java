@@ -60,6 +60,7 @@ class ConsumerStateDAOImpl extends BaseDAOImpl implements ConsumerStateDAO {
     private final String deleteByDstSQL;
     private final String deleteByDstBySessionSQL;
     private final String deleteByMsgSQL;
+    private final String deleteByMsgsSQL;
     private final String selectStateSQL;
     private final String selectStatesByMsgSQL;
     private final String selectTransactionSQL;
@@ -127,6 +128,9 @@ class ConsumerStateDAOImpl extends BaseDAOImpl implements ConsumerStateDAO {
 
         deleteByMsgSQL = new StringBuilder(128).append("DELETE FROM ").append(tableName).append(" WHERE ").append(MESSAGE_ID_COLUMN).append(" = ?").toString();
 
+        deleteByMsgsSQL = new StringBuilder(128).append("DELETE FROM ").append(tableName).append(" WHERE ").append(MESSAGE_ID_COLUMN).append(" IN (")
+                .append(Util.getParameterList(MessageDAO.DELETE_BATCH_SIZE)).append(")").toString();
+
         selectStateSQL = new StringBuilder(128).append("SELECT ").append(STATE_COLUMN).append(" FROM ").append(tableName).append(" WHERE ")
                 .append(MESSAGE_ID_COLUMN).append(" = ?").append(" AND ").append(CONSUMER_ID_COLUMN).append(" = ?").toString();
 
@@ -842,6 +846,61 @@ class ConsumerStateDAOImpl extends BaseDAOImpl implements ConsumerStateDAO {
         }
     }
 
+    /**
+     * Delete all consumer states for a batch of messages, {@link MessageDAO#DELETE_BATCH_SIZE} messages per statement.
+     *
+     * @param conn Database Connection
+     * @param msgIDs the SysMessageIDs
+     * @throws BrokerException
+     */
+    @Override
+    public void deleteByMessageIDs(Connection conn, List<String> msgIDs) throws BrokerException {
+
+        boolean myConn = false;
+        PreparedStatement pstmt = null;
+        Exception myex = null;
+        try {
+            // Get a connection
+            DBManager dbMgr = DBManager.getDBManager();
+            if (conn == null) {
+                conn = dbMgr.getConnection(true);
+                myConn = true;
+            }
+
+            pstmt = dbMgr.createPreparedStatement(conn, deleteByMsgsSQL);
+            for (int i = 0; i < msgIDs.size(); i += MessageDAO.DELETE_BATCH_SIZE) {
+                Util.setParameterList(pstmt, 1, msgIDs, i, MessageDAO.DELETE_BATCH_SIZE);
+                pstmt.executeUpdate();
+            }
+        } catch (Exception e) {
+            myex = e;
+            try {
+                if ((conn != null) && !conn.getAutoCommit()) {
+                    conn.rollback();
+                }
+            } catch (SQLException rbe) {
+                logger.log(Logger.ERROR, BrokerResources.X_DB_ROLLBACK_FAILED, rbe);
+            }
+
+            Exception ex;
+            if (e instanceof BrokerException) {
+                throw (BrokerException) e;
+            } else if (e instanceof SQLException) {
+                ex = DBManager.wrapSQLException("[" + deleteByMsgsSQL + "]", (SQLException) e);
+            } else {
+                ex = e;
+            }
+
+            throw new BrokerException(br.getKString(BrokerResources.X_REMOVE_INTEREST_STATE_FAILED, msgIDs.isEmpty() ? "" : msgIDs.get(0) + "..."), ex);
+        } finally {
+            if (myConn) {
+                Util.close(null, pstmt, conn, myex);
+            } else {
+                Util.close(null, pstmt, null, myex);
+            }
+        }
+    }
+
     /**
      * Delete all consumer states for a transaction.
      *
@@ -239,6 +239,13 @@ public final class DBManager extends CommDBManager implements DBConstants {
         return dbpool.getConnection();
     }
 
+    /**
+     * @return the maximum number of connections of the connection pool
+     */
+    public int getMaxConnections() {
+        return dbpool.getMaxConnections();
+    }
+
     @Override
     public void freeConnection(Connection conn, Throwable thr) {
 
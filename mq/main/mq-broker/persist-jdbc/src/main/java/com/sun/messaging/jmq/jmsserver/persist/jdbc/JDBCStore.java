@@ -511,6 +511,54 @@ public class JDBCStore extends Store implements DBConstants, PartitionedStore {
         } while (true);
     }
 
+    /**
+     * Remove a batch of messages of a destination from the persistent store with set-based DELETE statements in one
+     * database transaction.
+     *
+     * @param dID the destination the messages are associated with
+     * @param mIDs the system message ids of the messages to be removed
+     * @param sync ignored, the transaction commit makes the removal durable
+     * @return the number of messages removed; ids not found are skipped
+     * @exception BrokerException if an error occurs while removing the messages
+     */
+    @Override
+    public int removeMessages(DestinationUID dID, List<SysMessageID> mIDs, boolean sync) throws BrokerException {
+
+        // make sure store is not closed then increment in progress count
+        checkClosedAndSetInProgress();
+
+        try {
+            return removeMessagesInternal(dID, mIDs);
+        } finally {
+            // decrement in progress count
+            setInProgress(false);
+        }
+    }
+
+    public int removeMessagesInternal(DestinationUID dID, List<SysMessageID> mIDs) throws BrokerException {
+        if (DEBUG) {
+            logger.log(Logger.INFO, "JDBCStore.removeMessagesInternal(" + dID + ", " + mIDs.size() + " messages)");
+        }
+
+        List<String> ids = new ArrayList<>(mIDs.size());
+        for (SysMessageID mID : mIDs) {
+            ids.add(mID.getUniqueName());
+        }
+
+        Util.RetryStrategy retry = null;
+        do {
+            try {
+                return daoFactory.getMessageDAO().deleteMessages(null, dID, ids);
+            } catch (Exception e) {
+                // Exception will be log & re-throw if operation cannot be retry
+                if (retry == null) {
+                    retry = new Util.RetryStrategy();
+                }
+                retry.assertShouldRetry(e);
+            }
+        } while (true);
+    }
+
     /**
      * Remove all messages associated with the specified destination from the persistent store.
      *
@@ -3257,6 +3305,36 @@ public class JDBCStore extends Store implements DBConstants, PartitionedStore {
         }
     }
 
+    /**
+     * Read the destinations, messages and transactions of the target broker on the takeover connection
+     */
+    private void loadTakeoverData(Connection conn, String targetBrokerID, TakeoverStoreInfo takeoverInfo) throws BrokerException {
+
+        // Get local destinations of target broker
+        DestinationDAO dstDAO = daoFactory.getDestinationDAO();
+        List dstList = dstDAO.getLocalDestinationsByBroker(conn, targetBrokerID);
+        takeoverInfo.setDestinationList(dstList);
+        String args[] = { String.valueOf(dstList.size()), targetBrokerID, dstList.toString() };
+        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_LOCAL_DSTS, args));
+
+        // Get messages of target broker
+        MessageDAO msgDAO = daoFactory.getMessageDAO();
+        Map<String, String> msgMap = msgDAO.getMsgIDsAndDstIDsByBroker(conn, targetBrokerID);
+        takeoverInfo.setMessageMap(msgMap);
+        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_MSGS, msgMap.size(), targetBrokerID));
+
+        // Get transactions of target broker
+        TransactionDAO txnDAO = daoFactory.getTransactionDAO();
+        List txnList = txnDAO.getTransactionsByBroker(conn, targetBrokerID);
+        takeoverInfo.setTransactionList(txnList);
+        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_TXNS, txnList.size(), targetBrokerID));
+
+        // Get remote transactions of target broker
+        List remoteTxnList = txnDAO.getRemoteTransactionsByBroker(conn, targetBrokerID);
+        takeoverInfo.setRemoteTransactionList(remoteTxnList);
+        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_REMOTE_TXNS, remoteTxnList.size(), targetBrokerID));
+    }
+
     @Override
     public TakeoverStoreInfo takeOverBrokerStore(String brokerID, String targetBrokerID, TakingoverTracker tracker) throws BrokerException {
 
@@ -3314,29 +3392,13 @@ public class JDBCStore extends Store implements DBConstants, PartitionedStore {
                 retry = null;
                 do { // JDBC Retry loop
                     try {
-                        // Get local destinations of target broker
-                        DestinationDAO dstDAO = daoFactory.getDestinationDAO();
-                        List dstList = dstDAO.getLocalDestinationsByBroker(conn, targetBrokerID);
-                        takeoverInfo.setDestinationList(dstList);
-                        String args[] = { String.valueOf(dstList.size()), targetBrokerID, dstList.toString() };
-                        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_LOCAL_DSTS, args));
-
-                        // Get messages of target broker
-                        MessageDAO msgDAO = daoFactory.getMessageDAO();
-                        Map<String, String> msgMap = msgDAO.getMsgIDsAndDstIDsByBroker(conn, targetBrokerID);
-                        takeoverInfo.setMessageMap(msgMap);
-                        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_MSGS, msgMap.size(), targetBrokerID));
-
-                        // Get transactions of target broker
-                        TransactionDAO txnDAO = daoFactory.getTransactionDAO();
-                        List txnList = txnDAO.getTransactionsByBroker(conn, targetBrokerID);
-                        takeoverInfo.setTransactionList(txnList);
-                        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_TXNS, txnList.size(), targetBrokerID));
-
-                        // Get remote transactions of target broker
-                        List remoteTxnList = txnDAO.getRemoteTransactionsByBroker(conn, targetBrokerID);
-                        takeoverInfo.setRemoteTransactionList(remoteTxnList);
-                        logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_REMOTE_TXNS, remoteTxnList.size(), targetBrokerID));
+                        int loadThreads = TakeoverLoader.getConfiguredThreads(dbmgr.getMaxConnections());
+                        if (loadThreads > 1) {
+                            // Read the data of target broker on pooled connections
+                            new TakeoverLoader(dbmgr, daoFactory, targetBrokerID, loadThreads).load(takeoverInfo);
+                        } else {
+                            loadTakeoverData(conn, targetBrokerID, takeoverInfo);
+                        }
 
                         tracker.setStage_BEFORE_DB_SWITCH_OWNER();
 
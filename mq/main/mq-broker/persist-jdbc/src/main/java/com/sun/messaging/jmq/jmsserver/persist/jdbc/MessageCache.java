@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.util.SizeString;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * A size bounded LRU cache of messages read from the message table, keyed by the string form of the SysMessageID.
+ * <P>
+ *
+ * Messages are held in wire format and a new Packet is built on every hit, so callers never share a Packet. The cache
+ * is invalidated by the MessageDAO whenever a message is deleted or rewritten. A message read from the database while
+ * that message is invalidated is not cached, so the cache never serves a removed message. Invalidating one message does
+ * not affect the loads of other messages.
+ */
+class MessageCache {
+
+    private static boolean DEBUG = false;
+
+    /**
+     * maximum total size of the cached messages, 0 to disable the cache
+     */
+    public static final String SIZE_PROP = DBManager.JDBC_PROP_PREFIX + ".messageCache.size";
+
+    /**
+     * largest message that is cached
+     */
+    public static final String MAX_MESSAGE_SIZE_PROP = DBManager.JDBC_PROP_PREFIX + ".messageCache.maxMessageSize";
+
+    private final Logger logger = Globals.getLogger();
+
+    private final long maxBytes;
+    private final long maxMessageBytes;
+
+    private final LinkedHashMap<String, byte[]> messages = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * messages being read from the database, by the sequence number of the load. An invalidation drops the entry of the
+     * message so that the load in progress is not cached.
+     */
+    private final HashMap<String, Long> loads = new HashMap<>();
+    private long loadSeq = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * @return the message cache configured for the broker, or null if it is disabled
+     */
+    static MessageCache create() {
+        SizeString size = Globals.getConfig().getSizeProperty(SIZE_PROP, 0L);
+        if (size == null || size.getBytes() <= 0) {
+            return null;
+        }
+        SizeString maxMsg = Globals.getConfig().getSizeProperty(MAX_MESSAGE_SIZE_PROP, 1024L); // 1024k=1m
+        return new MessageCache(size.getBytes(), maxMsg.getBytes());
+    }
+
+    MessageCache(long maxBytes, long maxMessageBytes) {
+        this.maxBytes = maxBytes;
+        this.maxMessageBytes = Math.min(maxBytes, maxMessageBytes);
+    }
+
+    /**
+     * @return the cached message as a new Packet, or null if it is not cached
+     */
+    Packet get(String id) {
+        byte[] data = null;
+        synchronized (this) {
+            data = messages.get(id);
+            if (data == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        Packet msg = new Packet(false);
+        msg.generateTimestamp(false);
+        msg.generateSequenceNumber(false);
+        try {
+            msg.readPacket(new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            if (DEBUG) {
+                logger.logStack(Logger.INFO, "MessageCache: failed to read cached message " + id, e);
+            }
+            remove(id);
+            return null;
+        }
+        return msg;
+    }
+
+    /**
+     * Called before a message is read from the database.
+     *
+     * @return the load to pass to put or cancelLoad once the read is done
+     */
+    synchronized long startLoad(String id) {
+        long load = ++loadSeq;
+        loads.put(id, Long.valueOf(load));
+        return load;
+    }
+
+    /**
+     * Called when a message could not be read from the database.
+     */
+    synchronized void cancelLoad(String id, long load) {
+        endLoad(id, load);
+    }
+
+    /**
+     * @return true if the load is still current, in which case it is ended
+     */
+    private boolean endLoad(String id, long load) {
+        Long current = loads.get(id);
+        if (current == null || current.longValue() != load) {
+            return false;
+        }
+        loads.remove(id);
+        return true;
+    }
+
+    /**
+     * Cache a message read from the database, unless the message was invalidated since the read started.
+     */
+    void put(String id, Packet msg, long load) {
+        byte[] data = null;
+        if (msg.getPacketSize() <= maxMessageBytes) {
+            try {
+                data = msg.getBytes();
+            } catch (IOException e) {
+                data = null;
+            }
+        }
+        synchronized (this) {
+            if (!endLoad(id, load) || data == null) {
+                return;
+            }
+            byte[] old = messages.put(id, data);
+            if (old != null) {
+                bytes -= old.length;
+            }
+            bytes += data.length;
+            Iterator<byte[]> itr = messages.values().iterator();
+            while (bytes > maxBytes && itr.hasNext()) {
+                bytes -= itr.next().length;
+                itr.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Invalidate a message, called before it is deleted or rewritten.
+     */
+    synchronized void remove(String id) {
+        loads.remove(id);
+        byte[] old = messages.remove(id);
+        if (old != null) {
+            bytes -= old.length;
+            invalidations++;
+        }
+    }
+
+    /**
+     * Invalidate all messages, called before messages are deleted by anything but their ids.
+     */
+    synchronized void clear() {
+        loads.clear();
+        invalidations += messages.size();
+        messages.clear();
+        bytes = 0;
+    }
+
+    synchronized HashMap getDebugState() {
+        HashMap map = new LinkedHashMap();
+        map.put("maxBytes", String.valueOf(maxBytes));
+        map.put("maxMessageBytes", String.valueOf(maxMessageBytes));
+        map.put("count", String.valueOf(messages.size()));
+        map.put("bytes", String.valueOf(bytes));
+        map.put("loading", String.valueOf(loads.size()));
+        map.put("hits", String.valueOf(hits));
+        map.put("misses", String.valueOf(misses));
+        map.put("evictions", String.valueOf(evictions));
+        map.put("invalidations", String.valueOf(invalidations));
+        return map;
+    }
+}
@@ -84,6 +84,13 @@ public interface MessageDAO extends BaseDAO {
 
     int deleteByDestinationBySession(Connection conn, DestinationUID dstUID, Long storeSession) throws BrokerException;
 
+    /**
+     * number of message IDs bound to one set-based DELETE statement
+     */
+    int DELETE_BATCH_SIZE = 100;
+
+    int deleteMessages(Connection conn, DestinationUID dstUID, List<String> ids) throws BrokerException;
+
     String getBroker(Connection conn, DestinationUID dstUID, String id) throws BrokerException;
 
     Packet getMessage(Connection conn, DestinationUID dstUID, SysMessageID sysMsgID) throws BrokerException;
@@ -94,6 +101,8 @@ public interface MessageDAO extends BaseDAO {
 
     Map<String, String> getMsgIDsAndDstIDsByBroker(Connection conn, String brokerID) throws BrokerException;
 
+    void getMsgIDsAndDstIDsByStoreSession(Connection conn, long storeSession, Map<String, String> map) throws BrokerException;
+
     List getIDsByDst(Connection conn, Destination dst, String brokerID, Long storeSession) throws BrokerException;
 
     Enumeration messageEnumeration(Destination dst, String brokerID, Long storeSession) throws BrokerException;
@@ -50,19 +50,35 @@ import java.io.*;
  */
 class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
 
+    /**
+     * messages of at least this many bytes are streamed to the database instead of being copied into a byte array first,
+     * 0 to always copy
+     */
+    public static final String STREAM_THRESHOLD_PROP = DBManager.JDBC_PROP_PREFIX + ".message.streamThreshold";
+    private static final int DEFAULT_STREAM_THRESHOLD = 64 * 1024;
+
     protected final String tableName;
     protected static int msgColumnType = -Integer.MAX_VALUE;
 
+    protected final int streamThreshold = Math.max(0, Globals.getConfig().getIntProperty(STREAM_THRESHOLD_PROP, DEFAULT_STREAM_THRESHOLD));
+
+    /**
+     * read-through cache for getMessage, null if disabled
+     */
+    protected final MessageCache msgCache = MessageCache.create();
+
     protected String insertSQL;
     protected String updateDestinationSQL;
     private final String repairSysMessageIDSQL;
     private final String deleteSQL;
+    private final String deleteInSQL;
     private final String deleteByDstSQL;
     private final String deleteByDstBySessionSQL;
     private final String selectSQL;
     protected String selectMsgsBySessionSQL;
     private final String selectMsgsByBrokerSQL;
     private final String selectMsgIDsAndDstIDsByBrokerSQL;
+    private final String selectMsgIDsAndDstIDsBySessionSQL;
     protected String selectForUpdateSQL;
     private final String selectBrokerSQL;
     private final String selectCountByDstBrokerSQL;
@@ -104,6 +120,9 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
 
         deleteSQL = new StringBuilder(128).append("DELETE FROM ").append(tableName).append(" WHERE ").append(ID_COLUMN).append(" = ?").toString();
 
+        deleteInSQL = new StringBuilder(128).append("DELETE FROM ").append(tableName).append(" WHERE ").append(ID_COLUMN).append(" IN (")
+                .append(Util.getParameterList(DELETE_BATCH_SIZE)).append(")").toString();
+
         deleteByDstSQL = new StringBuilder(128).append("DELETE FROM ").append(tableName).append(" WHERE ").append(DESTINATION_ID_COLUMN).append(" = ?")
                 .append(" AND ").append(STORE_SESSION_ID_COLUMN).append(" IN (SELECT ").append(StoreSessionDAO.ID_COLUMN).append(" FROM ")
                 .append(dbMgr.getTableName(StoreSessionDAO.TABLE_NAME_PREFIX)).append(" WHERE ").append(StoreSessionDAO.BROKER_ID_COLUMN).append(" = ?)")
@@ -157,6 +176,9 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
                 .append(" WHERE sesTbl.").append(StoreSessionDAO.BROKER_ID_COLUMN).append(" = ?").append(" AND sesTbl.").append(StoreSessionDAO.ID_COLUMN)
                 .append(" = msgTbl.").append(STORE_SESSION_ID_COLUMN).toString();
 
+        selectMsgIDsAndDstIDsBySessionSQL = new StringBuilder(128).append("SELECT ").append(ID_COLUMN).append(", ").append(DESTINATION_ID_COLUMN)
+                .append(" FROM ").append(tableName).append(" WHERE ").append(STORE_SESSION_ID_COLUMN).append(" = ?").toString();
+
         selectForUpdateSQL = new StringBuilder(128).append(selectSQL).append(" FOR UPDATE").toString();
 
         selectBrokerSQL = new StringBuilder(128).append("SELECT ").append(StoreSessionDAO.BROKER_ID_COLUMN).append(" FROM ").append(tableName)
@@ -320,9 +342,6 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
             }
 
             try {
-                // Get the msg as bytes array
-                byte[] data = message.getBytes();
-
                 pstmt = dbMgr.createPreparedStatement(conn, insertSQL);
                 if (fi.FAULT_INJECTION) {
                     if (fi.checkFault(FaultInjection.FAULT_HA_BADSYSID, null)) {
@@ -336,7 +355,7 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
                 pstmt.setString(4, dstID);
                 Util.setLong(pstmt, 5, ((txnID == 0) ? -1 : txnID));
                 pstmt.setLong(6, createdTime);
-                Util.setBytes(pstmt, 7, data);
+                Util.setPacket(pstmt, 7, message, streamThreshold);
 
                 pstmt.executeUpdate();
 
@@ -409,6 +428,7 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
 
         SysMessageID sysMsgID = (SysMessageID) message.getSysMessageID().clone();
         String id = sysMsgID.getUniqueName();
+        invalidateCachedMessage(id);
         int size = message.getPacketSize();
 
         boolean myConn = false;
@@ -422,13 +442,10 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
                 myConn = true;
             }
 
-            // Get the msg as bytes array
-            byte[] data = message.getBytes();
-
             pstmt = dbMgr.createPreparedStatement(conn, updateDestinationSQL);
             pstmt.setString(1, toDst.toString());
             pstmt.setInt(2, size);
-            Util.setBytes(pstmt, 3, data);
+            Util.setPacket(pstmt, 3, message, streamThreshold);
             pstmt.setString(4, id);
 
             if (pstmt.executeUpdate() == 0) {
@@ -471,6 +488,7 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
             Object[] args = { id, fromDst, toDst };
             throw new BrokerException(br.getKString(BrokerResources.X_MOVE_MESSAGE_FAILED, args), ex);
         } finally {
+            invalidateCachedMessage(id);
             if (myConn) {
                 Util.close(null, pstmt, conn, myex);
             } else {
@@ -490,6 +508,8 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
     @Override
     public void delete(Connection conn, DestinationUID dstUID, String id, boolean replaycheck) throws BrokerException {
 
+        invalidateCachedMessage(id);
+
         boolean myConn = false;
         PreparedStatement pstmt = null;
         Exception myex = null;
@@ -578,6 +598,7 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
             be.setSQLReplayCheck(replayck);
             throw be;
         } finally {
+            invalidateCachedMessage(id);
             if (myConn) {
                 Util.close(null, pstmt, conn, myex);
             } else {
@@ -586,6 +607,99 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
         }
     }
 
+    /**
+     * Delete a batch of messages with set-based DELETE statements, {@link #DELETE_BATCH_SIZE} messages per statement.
+     * Messages that do not exist are skipped.
+     *
+     * @param conn Database Connection
+     * @param dstUID the destination
+     * @param ids the SysMessageIDs
+     * @return the number of msgs deleted
+     * @throws BrokerException
+     */
+    @Override
+    public int deleteMessages(Connection conn, DestinationUID dstUID, List<String> ids) throws BrokerException {
+
+        invalidateCachedMessages(ids);
+
+        int msgCount = 0;
+        boolean myConn = false;
+        PreparedStatement pstmt = null;
+        Exception myex = null;
+        try {
+            // Get a connection
+            DBManager dbMgr = DBManager.getDBManager();
+            if (conn == null) {
+                conn = dbMgr.getConnection(false);
+                myConn = true; // Set to true since this is our connection
+            }
+
+            // Consumer State table is a child table, delete the states first
+            dbMgr.getDAOFactory().getConsumerStateDAO().deleteByMessageIDs(conn, ids);
+
+            pstmt = dbMgr.createPreparedStatement(conn, deleteInSQL);
+            for (int i = 0; i < ids.size(); i += DELETE_BATCH_SIZE) {
+                Util.setParameterList(pstmt, 1, ids, i, DELETE_BATCH_SIZE);
+                msgCount += pstmt.executeUpdate();
+            }
+
+            // For HA mode, make sure this broker still owns the store
+            if (msgCount > 0 && Globals.getHAEnabled()) {
+                String brokerID = dbMgr.getBrokerID();
+                BrokerDAO dao = dbMgr.getDAOFactory().getBrokerDAO();
+                if (dao.isBeingTakenOver(conn, brokerID)) {
+                    BrokerException be = new StoreBeingTakenOverException(br.getKString(BrokerResources.E_STORE_BEING_TAKEN_OVER));
+                    try {
+                        HABrokerInfo bkrInfo = dao.getBrokerInfo(conn, brokerID);
+                        logger.logStack(Logger.ERROR, be.getMessage() + "[" + (bkrInfo == null ? "" + brokerID : bkrInfo.toString()) + "]", be);
+                    } catch (Throwable t) {
+                        /* Ignore error */ }
+
+                    throw be;
+                }
+            }
+
+            // Check whether to commit or not
+            if (myConn) {
+                conn.commit();
+            }
+        } catch (Exception e) {
+            myex = e;
+            try {
+                if ((conn != null) && !conn.getAutoCommit()) {
+                    conn.rollback();
+                }
+            } catch (SQLException rbe) {
+                logger.log(Logger.ERROR, BrokerResources.X_DB_ROLLBACK_FAILED + "[" + deleteInSQL + "]", rbe);
+            }
+
+            Exception ex;
+            if (e instanceof BrokerException) {
+                if (!(e instanceof StoreBeingTakenOverException)) {
+                    ((BrokerException) e).setSQLRecoverable(true);
+                }
+                throw (BrokerException) e;
+            } else if (e instanceof SQLException) {
+                ex = DBManager.wrapSQLException("[" + deleteInSQL + "]", (SQLException) e);
+            } else {
+                ex = e;
+            }
+
+            BrokerException be = new BrokerException(br.getKString(BrokerResources.X_REMOVE_MESSAGES_FOR_DST_FAILED, dstUID), ex);
+            be.setSQLRecoverable(true);
+            throw be;
+        } finally {
+            invalidateCachedMessages(ids);
+            if (myConn) {
+                Util.close(null, pstmt, conn, myex);
+            } else {
+                Util.close(null, pstmt, null, myex);
+            }
+        }
+
+        return msgCount;
+    }
+
     /**
      * Delete all messages from a destination for the current broker.
      *
@@ -598,6 +712,8 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
     @Override
     public int deleteByDestinationBySession(Connection conn, DestinationUID dstUID, Long storeSession) throws BrokerException {
 
+        invalidateCachedMessage(null);
+
         int msgCount;
         String dstID = dstUID.toString();
 
@@ -659,6 +775,7 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
 
             throw new BrokerException(br.getKString(BrokerResources.X_REMOVE_MESSAGES_FOR_DST_FAILED, dstID), ex);
         } finally {
+            invalidateCachedMessage(null);
             if (myConn) {
                 Util.close(null, pstmt, conn, myex);
             } else {
@@ -695,7 +812,12 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
                     .append(dbMgr.getBrokerID()).append("')").toString();
         }
 
-        deleteAll(conn, whereClause, null, 0);
+        invalidateCachedMessage(null);
+        try {
+            deleteAll(conn, whereClause, null, 0);
+        } finally {
+            invalidateCachedMessage(null);
+        }
     }
 
     /**
@@ -791,6 +913,14 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
     public Packet getMessage(Connection conn, DestinationUID dstUID, String id) throws BrokerException {
 
         Packet msg = null;
+        long cacheLoad = 0;
+        if (msgCache != null) {
+            msg = msgCache.get(id);
+            if (msg != null) {
+                return msg;
+            }
+            cacheLoad = msgCache.startLoad(id);
+        }
 
         boolean myConn = false;
         PreparedStatement pstmt = null;
@@ -810,6 +940,9 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
             msg = (Packet) loadData(rs, true);
         } catch (Exception e) {
             myex = e;
+            if (msgCache != null) {
+                msgCache.cancelLoad(id, cacheLoad);
+            }
             try {
                 if ((conn != null) && !conn.getAutoCommit()) {
                     conn.rollback();
@@ -847,8 +980,14 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
         }
 
         if (msg == null) {
+            if (msgCache != null) {
+                msgCache.cancelLoad(id, cacheLoad);
+            }
             throw new BrokerException(br.getKString(BrokerResources.E_MSG_NOT_FOUND_IN_STORE, id, dstUID), Status.NOT_FOUND);
         }
+        if (msgCache != null) {
+            msgCache.put(id, msg, cacheLoad);
+        }
 
         return msg;
     }
@@ -994,6 +1133,67 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
         return map;
     }
 
+    /**
+     * Get all message IDs and corresponding destination IDs of a store session.
+     *
+     * @param conn database connection
+     * @param storeSession the store session ID
+     * @param map the Map the message IDs and corresponding destination IDs are added to
+     * @throws BrokerException
+     */
+    @Override
+    public void getMsgIDsAndDstIDsByStoreSession(Connection conn, long storeSession, Map<String, String> map) throws BrokerException {
+
+        boolean myConn = false;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        Exception myex = null;
+        try {
+            // Get a connection
+            DBManager dbMgr = DBManager.getDBManager();
+            if (conn == null) {
+                conn = dbMgr.getConnection(true);
+                myConn = true;
+            }
+
+            pstmt = dbMgr.createPreparedStatement(conn, selectMsgIDsAndDstIDsBySessionSQL);
+            pstmt.setLong(1, storeSession);
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                map.put(rs.getString(1), rs.getString(2));
+            }
+        } catch (Exception e) {
+            myex = e;
+            try {
+                if ((conn != null) && !conn.getAutoCommit()) {
+                    conn.rollback();
+                }
+            } catch (SQLException rbe) {
+                logger.log(Logger.ERROR, BrokerResources.X_DB_ROLLBACK_FAILED, rbe);
+            }
+
+            Exception ex;
+            if (e instanceof BrokerException) {
+                throw (BrokerException) e;
+            } else if (e instanceof IOException) {
+                ex = DBManager.wrapIOException("[" + selectMsgIDsAndDstIDsBySessionSQL + "]", (IOException) e);
+            } else if (e instanceof SQLException) {
+                ex = DBManager.wrapSQLException("[" + selectMsgIDsAndDstIDsBySessionSQL + "]", (SQLException) e);
+            } else {
+                ex = e;
+            }
+
+            throw new BrokerException(br.getKString(BrokerResources.E_LOAD_MSG_FOR_BROKER_FAILED, String.valueOf(storeSession)), ex);
+        } finally {
+            if (myConn) {
+                Util.close(rs, pstmt, conn, myex);
+            } else {
+                Util.close(rs, pstmt, null, myex);
+            }
+        }
+    }
+
     /**
      * Get all message IDs for a destination and current/local broker.
      *
@@ -1342,7 +1542,11 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
     public HashMap getDebugInfo(Connection conn) {
 
         if (!Boolean.getBoolean(getTableName())) {
-            return super.getDebugInfo(conn);
+            HashMap map = super.getDebugInfo(conn);
+            if (msgCache != null) {
+                map.put("[" + tableName + "]MessageCache", msgCache.getDebugState());
+            }
+            return map;
         }
         HashMap map = new LinkedHashMap();
         HashMap baddata = new LinkedHashMap();
@@ -1385,6 +1589,9 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
         if (!baddata.isEmpty()) {
             map.put("EXCEPTION!![" + tableName + "]SysMessageID:DestinationID(brokerID=" + brokerid + ")\n", baddata);
         }
+        if (msgCache != null) {
+            map.put("[" + tableName + "]MessageCache", msgCache.getDebugState());
+        }
         return map;
     }
 
@@ -1655,6 +1862,30 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
         return list;
     }
 
+    /**
+     * Invalidate a message in the read-through cache. Called both before and after a message is deleted or rewritten, so
+     * that a concurrent read cannot put the old message back.
+     *
+     * @param id the SysMessageID, null to invalidate all messages
+     */
+    protected void invalidateCachedMessage(String id) {
+        if (msgCache != null) {
+            if (id == null) {
+                msgCache.clear();
+            } else {
+                msgCache.remove(id);
+            }
+        }
+    }
+
+    protected void invalidateCachedMessages(List<String> ids) {
+        if (msgCache != null) {
+            for (String id : ids) {
+                msgCache.remove(id);
+            }
+        }
+    }
+
     /**
      * Get Message column type (e.g. is it a Blob?)
      *
@@ -1806,6 +2037,8 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
 
         SysMessageID sysid = (SysMessageID) realSysId.clone();
         String realId = sysid.getUniqueName();
+        invalidateCachedMessage(badSysIdStr);
+        invalidateCachedMessage(realId);
 
         boolean myConn = false;
         PreparedStatement pstmt = null;
@@ -1847,6 +2080,8 @@ class MessageDAOImpl extends BaseDAOImpl implements MessageDAO {
             String[] args = { badSysIdStr, realId, duidStr, e.getMessage() };
             throw new BrokerException(br.getKString(BrokerResources.X_REPAIR_CORRUPTED_MSGID_IN_STORE, args), ex);
         } finally {
+            invalidateCachedMessage(badSysIdStr);
+            invalidateCachedMessage(realId);
             if (myConn) {
                 Util.close(null, pstmt, conn, myex);
             } else {
@@ -177,6 +177,8 @@ class MySQLMessageDAOImpl extends MessageDAOImpl {
     @Override
     public void delete(Connection conn, DestinationUID dstUID, String id, boolean replaycheck) throws BrokerException {
 
+        invalidateCachedMessage(id);
+
         boolean myConn = false;
         CallableStatement stmt = null;
         Exception myex = null;
@@ -253,6 +255,7 @@ class MySQLMessageDAOImpl extends MessageDAOImpl {
 
             throw new BrokerException("Failed to execute " + sql, ex);
         } finally {
+            invalidateCachedMessage(id);
             if (myConn) {
                 closeSQLObjects(null, stmt, conn, myex);
             } else {
@@ -264,6 +264,7 @@ class OracleMessageDAOImpl extends MessageDAOImpl {
 
         SysMessageID sysMsgID = (SysMessageID) message.getSysMessageID().clone();
         String id = sysMsgID.getUniqueName();
+        invalidateCachedMessage(id);
         int size = message.getPacketSize();
 
         boolean myConn = false;
@@ -348,6 +349,7 @@ class OracleMessageDAOImpl extends MessageDAOImpl {
             Object[] args = { id, fromDst, toDst };
             throw new BrokerException(br.getKString(BrokerResources.X_MOVE_MESSAGE_FAILED, args), ex);
         } finally {
+            invalidateCachedMessage(id);
             if (myConn) {
                 Util.close(null, pstmt, conn, myex);
             } else {
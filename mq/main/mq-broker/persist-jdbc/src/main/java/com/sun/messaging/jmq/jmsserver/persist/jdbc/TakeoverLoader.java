@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsserver.persist.jdbc;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.persist.api.TakeoverStoreInfo;
+import com.sun.messaging.jmq.jmsserver.persist.jdbc.comm.CommDBManager;
+import com.sun.messaging.jmq.jmsserver.resources.BrokerResources;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+import com.sun.messaging.jmq.util.MQThread;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * Reads the destinations, messages and transactions of a broker being taken over in parallel, each read on its own
+ * pooled connection. The messages are read per store session of the target broker.
+ * <P>
+ *
+ * The reads only see data of the failed broker, which is not changed by anybody else while the takeover lock is held,
+ * so they need not share the transaction of the takeover connection. Switching the ownership of the store sessions is
+ * left to the caller. A failed read is not retried here, the caller retries the whole takeover.
+ */
+class TakeoverLoader {
+
+    /**
+     * number of threads used to load the data of a taken over broker, 1 loads it on the takeover connection
+     */
+    public static final String THREADS_PROP = DBManager.JDBC_PROP_PREFIX + ".takeover.loadThreads";
+    public static final int THREADS_DEFAULT = 4;
+
+    // pool connections left to the takeover connection and to the rest of the broker
+    private static final int RESERVED_CONNECTIONS = 2;
+
+    private static final AtomicInteger loaderCount = new AtomicInteger();
+
+    private final Logger logger = Globals.getLogger();
+    private final BrokerResources br = Globals.getBrokerResources();
+
+    private final CommDBManager dbmgr;
+    private final DAOFactory daoFactory;
+    private final String targetBrokerID;
+    private final int numThreads;
+
+    /**
+     * a read done with a connection of the pool
+     */
+    private interface Read<T> {
+        T read(Connection conn) throws BrokerException;
+    }
+
+    TakeoverLoader(CommDBManager dbmgr, DAOFactory daoFactory, String targetBrokerID, int numThreads) {
+        this.dbmgr = dbmgr;
+        this.daoFactory = daoFactory;
+        this.targetBrokerID = targetBrokerID;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * @param maxConnections the size of the connection pool the threads read on
+     * @return the configured number of load threads, capped so that the loader does not take the whole pool
+     */
+    static int getConfiguredThreads(int maxConnections) {
+        int n = Math.max(1, Globals.getConfig().getIntProperty(THREADS_PROP, THREADS_DEFAULT));
+        return Math.max(1, Math.min(n, maxConnections - RESERVED_CONNECTIONS));
+    }
+
+    /**
+     * Load the destinations, messages, transactions and remote transactions of the target broker into takeoverInfo.
+     */
+    void load(TakeoverStoreInfo takeoverInfo) throws BrokerException {
+
+        List<Long> sessions = runRead(conn -> daoFactory.getStoreSessionDAO().getStoreSessionsByBroker(conn, targetBrokerID));
+
+        int nthreads = Math.min(numThreads, sessions.size() + 3);
+        logger.log(Logger.INFO, br.getKString(BrokerResources.I_TAKEOVER_PARALLEL_LOAD,
+                new Object[] { targetBrokerID, String.valueOf(sessions.size()), String.valueOf(nthreads) }));
+
+        int id = loaderCount.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads, r -> {
+            MQThread t = new MQThread(r, "imqTakeoverLoader-" + id + "-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Future<List> dsts = executor.submit(() -> runRead(conn -> daoFactory.getDestinationDAO().getLocalDestinationsByBroker(conn, targetBrokerID)));
+            Future<List> txns = executor.submit(() -> runRead(conn -> daoFactory.getTransactionDAO().getTransactionsByBroker(conn, targetBrokerID)));
+            Future<List> remoteTxns = executor
+                    .submit(() -> runRead(conn -> daoFactory.getTransactionDAO().getRemoteTransactionsByBroker(conn, targetBrokerID)));
+
+            // all session reads add to one map
+            Map<String, String> msgMap = new HashMap<>();
+            Map<String, String> syncMsgMap = Collections.synchronizedMap(msgMap);
+            MessageDAO msgDAO = daoFactory.getMessageDAO();
+            List<Future<Object>> msgReads = new ArrayList<>(sessions.size());
+            for (Long ssid : sessions) {
+                msgReads.add(executor.submit(() -> runRead(conn -> {
+                    msgDAO.getMsgIDsAndDstIDsByStoreSession(conn, ssid.longValue(), syncMsgMap);
+                    return null;
+                })));
+            }
+
+            List dstList = await(dsts);
+            takeoverInfo.setDestinationList(dstList);
+            String args[] = { String.valueOf(dstList.size()), targetBrokerID, dstList.toString() };
+            logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_LOCAL_DSTS, args));
+
+            for (Future<Object> f : msgReads) {
+                await(f);
+            }
+            takeoverInfo.setMessageMap(msgMap);
+            logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_MSGS, msgMap.size(), targetBrokerID));
+
+            List txnList = await(txns);
+            takeoverInfo.setTransactionList(txnList);
+            logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_TXNS, txnList.size(), targetBrokerID));
+
+            List remoteTxnList = await(remoteTxns);
+            takeoverInfo.setRemoteTransactionList(remoteTxnList);
+            logger.log(Logger.INFO, br.getString(BrokerResources.I_TAKINGOVER_REMOTE_TXNS, remoteTxnList.size(), targetBrokerID));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T await(Future<T> f) throws BrokerException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BrokerException(e.toString(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BrokerException) {
+                throw (BrokerException) cause;
+            }
+            throw new BrokerException(cause.toString(), cause);
+        }
+    }
+
+    /**
+     * Run a read on a pooled connection
+     */
+    private <T> T runRead(Read<T> read) throws BrokerException {
+        Connection conn = null;
+        Exception myex = null;
+        try {
+            conn = dbmgr.getConnection(true);
+            return read.read(conn);
+        } catch (BrokerException | RuntimeException e) {
+            myex = e;
+            throw e;
+        } finally {
+            Util.close(null, null, conn, myex, dbmgr);
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package com.sun.messaging.jmq.jmsserver.persist.jdbc;
 
 import com.sun.messaging.jmq.util.log.Logger;
+import com.sun.messaging.jmq.io.Packet;
 import com.sun.messaging.jmq.jmsserver.Globals;
 import com.sun.messaging.jmq.jmsserver.BrokerStateHandler;
 import com.sun.messaging.jmq.jmsserver.Broker;
@@ -108,6 +109,20 @@ public class Util implements DBConstants {
         }
     }
 
+    /**
+     * Set a message column. A message of at least <code>streamThreshold</code> bytes is streamed from the packet's own
+     * buffers rather than copied into a byte array first; a threshold of 0 always copies.
+     */
+    static void setPacket(PreparedStatement pstmt, int pos, Packet message, int streamThreshold) throws IOException, SQLException {
+
+        if (streamThreshold > 0 && message.getPacketSize() >= streamThreshold) {
+            InputStream is = message.getInputStream();
+            pstmt.setBinaryStream(pos, is, message.getPacketSize());
+        } else {
+            setBytes(pstmt, pos, message.getBytes());
+        }
+    }
+
     static void setBytesAsBinaryStream(PreparedStatement pstmt, int pos, byte[] data) throws IOException, SQLException {
 
         if (data == null) {
@@ -362,6 +377,31 @@ public class Util implements DBConstants {
         return list;
     }
 
+    /**
+     * @return a comma separated list of count parameter markers for an IN clause
+     */
+    public static String getParameterList(int count) {
+        StringBuilder buf = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append('?');
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Bind up to count values starting at values[offset] to the count parameters of an IN clause starting at pos. When
+     * fewer than count values are left, the last value is repeated so that one statement shape serves all batch sizes.
+     */
+    public static void setParameterList(PreparedStatement pstmt, int pos, List<String> values, int offset, int count) throws SQLException {
+        int last = Math.min(values.size(), offset + count) - 1;
+        for (int i = 0; i < count; i++) {
+            pstmt.setString(pos + i, values.get(Math.min(offset + i, last)));
+        }
+    }
+
     /**
      * Class to encapsulate database transaction retry strategy.
      *
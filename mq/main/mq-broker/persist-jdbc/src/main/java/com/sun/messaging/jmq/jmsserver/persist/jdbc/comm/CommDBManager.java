@@ -1093,7 +1093,7 @@ public abstract class CommDBManager {
      * SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING SQL_NONCONSTANT_STRING_PASSED_TO_EXECUTE
      ***************************************************************/
     public static final PreparedStatement createPreparedStatement(Connection conn, String sql) throws SQLException {
-        return conn.prepareStatement(sql);
+        return StatementCache.prepareStatement(conn, sql);
     }
 
     public static final PreparedStatement createPreparedStatement(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
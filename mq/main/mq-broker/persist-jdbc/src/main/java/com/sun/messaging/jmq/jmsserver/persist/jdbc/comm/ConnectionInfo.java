@@ -30,6 +30,7 @@ class ConnectionInfo {
     boolean validating = false;
     long idleStartTime = System.currentTimeMillis();
     long creationTime = System.currentTimeMillis();
+    StatementCache stmtCache = null;
 
     ConnectionInfo(Object conn, ConnectionEventListener listener) {
         this.conn = conn;
@@ -71,6 +72,10 @@ class ConnectionInfo {
         return thr;
     }
 
+    public void setStatementCache(StatementCache cache) {
+        stmtCache = cache;
+    }
+
     public Connection getConnection() throws SQLException {
         if (conn instanceof PooledConnection) {
             return ((PooledConnection) conn).getConnection();
@@ -80,6 +85,9 @@ class ConnectionInfo {
     }
 
     public void destroy() {
+        if (stmtCache != null) {
+            stmtCache.destroy();
+        }
         try {
             if (conn instanceof PooledConnection) {
                 ((PooledConnection) conn).removeConnectionEventListener(listener);
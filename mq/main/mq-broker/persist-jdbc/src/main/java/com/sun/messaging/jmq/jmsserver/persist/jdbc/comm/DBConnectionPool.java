@@ -42,6 +42,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.lang.reflect.InvocationTargetException;
 
 /**
@@ -71,6 +72,12 @@ public class DBConnectionPool {
      */
     private static final String VALIDATION_QUERY_PROP_SUFFIX = ".connection.validationQuery";
 
+    /**
+     * maximum number of prepared statements cached per connection, 0 to disable
+     */
+    private static final String STATEMENT_CACHE_SIZE_PROP_SUFFIX = ".connection.statementCacheSize";
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
     public static final String VALIDATE_ON_GET_PROP_SUFFIX = ".connection.validateOnGet";
     public static final String INVALIDATE_ALL_PROP_SUFFIX = ".connection.invalidateAll";
 
@@ -102,6 +109,10 @@ public class DBConnectionPool {
     private String name = null;
     private boolean dedicated = false;
 
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private AtomicLong statementCacheHits = new AtomicLong();
+    private AtomicLong statementCacheMisses = new AtomicLong();
+
     private Object invalidateAllTimestampLock = new Object();
     private Long invalidateAllTimestamp = null;
 
@@ -234,6 +245,15 @@ public class DBConnectionPool {
                 timeoutIdle = Globals.getConfig().getBooleanProperty(key, true);
                 logger.log(logger.INFO, key + "=" + timeoutIdle);
 
+                if (!isPoolDataSource) {
+                    // a ConnectionPoolDataSource is expected to pool statements itself
+                    key = dbmgr.getJDBCPropPrefix() + STATEMENT_CACHE_SIZE_PROP_SUFFIX;
+                    statementCacheSize = Globals.getConfig().getIntProperty(key, DEFAULT_STATEMENT_CACHE_SIZE);
+                    logger.log(logger.INFO, key + "=" + statementCacheSize);
+                } else {
+                    statementCacheSize = 0;
+                }
+
                 if (!dedicated) {
                     // Check deprecated "imq.persist.jdbc.connection.limit" property
                     key = dbmgr.getJDBCPropPrefix() + NUM_CONN_PROP_SUFFIX;
@@ -326,6 +346,13 @@ public class DBConnectionPool {
         }
     }
 
+    /**
+     * @return the maximum number of connections of the pool
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
     public Hashtable getDebugState() {
         Hashtable ht = new Hashtable();
         ht.put("initialized", String.valueOf(initialized));
@@ -339,6 +366,9 @@ public class DBConnectionPool {
         ht.put("isPoolDataSource", Boolean.valueOf(isPoolDataSource));
         ht.put("activeConnections.size", String.valueOf(activeConnections.size()));
         ht.put("idleConnections.size", String.valueOf(idleConnections.size()));
+        ht.put("statementCacheSize", String.valueOf(statementCacheSize));
+        ht.put("statementCache.hits", String.valueOf(statementCacheHits.get()));
+        ht.put("statementCache.misses", String.valueOf(statementCacheMisses.get()));
         return ht;
     }
 
@@ -384,6 +414,20 @@ public class DBConnectionPool {
         return "(" + name + ")[" + activeConnections.size() + "," + idleConnections.size() + "]";
     }
 
+    /**
+     * @return number of times a cached prepared statement was reused
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * @return number of times a statement had to be prepared while statement caching was enabled
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
     /**
      * Recreates all the connections.
      *
@@ -426,6 +470,9 @@ public class DBConnectionPool {
     private ConnectionInfo createConnection() throws BrokerException {
         Object conn = dbmgr.getNewConnection();
         ConnectionInfo cinfo = new ConnectionInfo(conn, connectionListener);
+        if (statementCacheSize > 0 && conn instanceof Connection) {
+            cinfo.setStatementCache(new StatementCache((Connection) conn, statementCacheSize, statementCacheHits, statementCacheMisses));
+        }
         connMap.put(conn, cinfo);
         return cinfo;
     }
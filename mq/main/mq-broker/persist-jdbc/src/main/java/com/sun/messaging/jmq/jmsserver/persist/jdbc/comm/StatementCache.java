@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.jdbc.comm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.util.log.Logger;
+
+/**
+ * A bounded LRU cache of the prepared statements of one pooled database connection.
+ * <P>
+ *
+ * The statements handed out are proxies: closing one clears its parameters and returns it to the cache instead of
+ * closing it, so the next DAO operation with the same SQL on the connection does not prepare it again. A statement that
+ * is still open when the same SQL is prepared again is not shared, a new uncached statement is prepared instead. The
+ * cache is destroyed with its connection.
+ */
+class StatementCache {
+
+    private static boolean DEBUG = false;
+
+    /**
+     * the caches of all pooled connections that have one
+     */
+    private static final Map<Connection, StatementCache> caches = new ConcurrentHashMap<>();
+
+    private final Connection conn;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    private boolean destroyed = false;
+
+    /**
+     * @param hits counter incremented each time a cached statement is reused
+     * @param misses counter incremented each time a statement is prepared
+     */
+    StatementCache(Connection conn, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.conn = conn;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+        caches.put(conn, this);
+    }
+
+    /**
+     * Prepare a statement on a connection, using the connection's statement cache if it has one.
+     */
+    static PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+        StatementCache cache = caches.get(conn);
+        if (cache == null) {
+            return conn.prepareStatement(sql);
+        }
+        return cache.prepare(sql);
+    }
+
+    synchronized PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cs = statements.get(sql);
+        if (cs != null && !cs.inUse) {
+            hits.incrementAndGet();
+            cs.checkOut();
+            return cs.proxy;
+        }
+        misses.incrementAndGet();
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        if (cs != null || destroyed) {
+            return stmt;
+        }
+        cs = new CachedStatement(sql, stmt);
+        statements.put(sql, cs);
+        if (statements.size() > maxSize) {
+            evictEldest();
+        }
+        cs.checkOut();
+        return cs.proxy;
+    }
+
+    private void evictEldest() {
+        Iterator<CachedStatement> itr = statements.values().iterator();
+        while (itr.hasNext()) {
+            CachedStatement cs = itr.next();
+            if (!cs.inUse) {
+                itr.remove();
+                close(cs);
+                return;
+            }
+        }
+    }
+
+    private synchronized void release(CachedStatement cs) {
+        cs.inUse = false;
+        if (destroyed || statements.get(cs.sql) != cs) {
+            close(cs);
+            return;
+        }
+        try {
+            cs.stmt.clearParameters();
+            cs.stmt.clearBatch();
+            cs.stmt.clearWarnings();
+        } catch (SQLException e) {
+            statements.remove(cs.sql);
+            close(cs);
+        }
+    }
+
+    /**
+     * Close all cached statements, called before the connection is closed.
+     */
+    synchronized void destroy() {
+        destroyed = true;
+        caches.remove(conn);
+        Iterator<CachedStatement> itr = statements.values().iterator();
+        while (itr.hasNext()) {
+            CachedStatement cs = itr.next();
+            itr.remove();
+            if (!cs.inUse) {
+                close(cs);
+            }
+        }
+    }
+
+    private static void close(CachedStatement cs) {
+        try {
+            cs.stmt.close();
+        } catch (Throwable t) {
+            if (DEBUG) {
+                Globals.getLogger().log(Logger.INFO, "StatementCache: failed to close statement [" + cs.sql + "]: " + t);
+            }
+        }
+    }
+
+    private class CachedStatement implements InvocationHandler {
+        final String sql;
+        final PreparedStatement stmt;
+        final PreparedStatement proxy;
+        boolean inUse = false;
+        volatile boolean closed = false;
+
+        CachedStatement(String sql, PreparedStatement stmt) {
+            this.sql = sql;
+            this.stmt = stmt;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[] { PreparedStatement.class },
+                    this);
+        }
+
+        void checkOut() {
+            inUse = true;
+            closed = false;
+        }
+
+        @Override
+        public Object invoke(Object p, Method m, Object[] args) throws Throwable {
+            String name = m.getName();
+            if (name.equals("close") && args == null) {
+                if (!closed) {
+                    closed = true;
+                    release(this);
+                }
+                return null;
+            }
+            if (name.equals("isClosed") && args == null) {
+                return Boolean.valueOf(closed || stmt.isClosed());
+            }
+            if (name.equals("equals") && args != null && args.length == 1) {
+                return Boolean.valueOf(p == args[0]);
+            }
+            if (name.equals("hashCode") && args == null) {
+                return Integer.valueOf(System.identityHashCode(p));
+            }
+            if (name.equals("toString") && args == null) {
+                return stmt.toString();
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed: " + sql);
+            }
+            try {
+                return m.invoke(stmt, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+
+class MessageCacheTest {
+    private MessageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new MessageCache(1024 * 1024, 64 * 1024);
+    }
+
+    private static Packet newMessage(String body) throws Exception {
+        Packet pkt = new Packet(false);
+        pkt.setPacketType(PacketType.TEXT_MESSAGE);
+        pkt.setPersistent(true);
+        pkt.setIsQueue(true);
+        pkt.setDestination("cacheTestQueue");
+        pkt.setMessageBody(body.getBytes("UTF-8"));
+        pkt.updateSequenceNumber();
+        pkt.updateTimestamp();
+        // as for a message read from the database, writing it must not change its id
+        pkt.generateSequenceNumber(false);
+        pkt.generateTimestamp(false);
+        return pkt;
+    }
+
+    private static String idOf(Packet pkt) {
+        return pkt.getSysMessageID().getUniqueName();
+    }
+
+    private static String bodyOf(Packet pkt) throws Exception {
+        return new String(pkt.getMessageBodyByteArray(), "UTF-8");
+    }
+
+    @Test
+    void loadedMessageIsCached() throws Exception {
+        Packet msg = newMessage("one");
+        String id = idOf(msg);
+
+        assertNull(cache.get(id));
+        cache.put(id, msg, cache.startLoad(id));
+
+        Packet hit = cache.get(id);
+        assertNotNull(hit);
+        assertNotSame(msg, hit);
+        assertEquals(msg.getSysMessageID(), hit.getSysMessageID());
+        assertEquals("one", bodyOf(hit));
+        assertEquals("0", cache.getDebugState().get("loading"));
+    }
+
+    @Test
+    void removeDuringLoadIsNotCached() throws Exception {
+        Packet msg = newMessage("one");
+        String id = idOf(msg);
+
+        long load = cache.startLoad(id);
+        // the message is deleted while it is read from the database
+        cache.remove(id);
+        cache.put(id, msg, load);
+
+        assertNull(cache.get(id));
+        assertEquals("0", cache.getDebugState().get("loading"));
+    }
+
+    @Test
+    void clearDuringLoadIsNotCached() throws Exception {
+        Packet msg = newMessage("one");
+        String id = idOf(msg);
+
+        long load = cache.startLoad(id);
+        cache.clear();
+        cache.put(id, msg, load);
+
+        assertNull(cache.get(id));
+    }
+
+    @Test
+    void removeOfOtherMessageDoesNotAffectLoad() throws Exception {
+        Packet msg = newMessage("one");
+        Packet other = newMessage("two");
+        String id = idOf(msg);
+
+        long load = cache.startLoad(id);
+        cache.remove(idOf(other));
+        cache.put(id, msg, load);
+
+        assertNotNull(cache.get(id));
+    }
+
+    @Test
+    void loadStartedAfterRemoveIsCached() throws Exception {
+        Packet msg = newMessage("one");
+        String id = idOf(msg);
+
+        long first = cache.startLoad(id);
+        cache.remove(id);
+        long second = cache.startLoad(id);
+        cache.put(id, msg, first);
+        assertNull(cache.get(id), "the load that overlapped the remove must not be cached");
+
+        Packet rewritten = newMessage("two");
+        cache.put(id, rewritten, second);
+        assertEquals("two", bodyOf(cache.get(id)));
+    }
+
+    @Test
+    void cancelledLoadIsForgotten() throws Exception {
+        Packet msg = newMessage("one");
+        String id = idOf(msg);
+
+        long load = cache.startLoad(id);
+        cache.cancelLoad(id, load);
+        assertEquals("0", cache.getDebugState().get("loading"));
+
+        cache.put(id, msg, load);
+        assertNull(cache.get(id));
+    }
+
+    @Test
+    void oversizedMessageIsNotCached() throws Exception {
+        MessageCache small = new MessageCache(1024 * 1024, 16);
+        Packet msg = newMessage("a body larger than sixteen bytes");
+        String id = idOf(msg);
+
+        small.put(id, msg, small.startLoad(id));
+
+        assertNull(small.get(id));
+        assertEquals("0", small.getDebugState().get("loading"));
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() throws Exception {
+        Packet a = newMessage("a");
+        Packet b = newMessage("b");
+        Packet c = newMessage("c");
+        MessageCache two = new MessageCache(a.getBytes().length + b.getBytes().length, 1024);
+
+        two.put(idOf(a), a, two.startLoad(idOf(a)));
+        two.put(idOf(b), b, two.startLoad(idOf(b)));
+        assertNotNull(two.get(idOf(a)));
+        two.put(idOf(c), c, two.startLoad(idOf(c)));
+
+        assertNotNull(two.get(idOf(a)));
+        assertNull(two.get(idOf(b)));
+        assertNotNull(two.get(idOf(c)));
+    }
+
+    @Test
+    void concurrentDeleteNeverLeavesStaleMessage() throws Exception {
+        Packet msg = newMessage("one");
+        String id = idOf(msg);
+        // stands in for the message table
+        AtomicReference<Packet> table = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        for (int i = 0; i < 2000; i++) {
+            table.set(msg);
+            CyclicBarrier start = new CyclicBarrier(2);
+            Thread loader = new Thread(() -> {
+                try {
+                    start.await();
+                    long load = cache.startLoad(id);
+                    Packet row = table.get();
+                    if (row == null) {
+                        cache.cancelLoad(id, load);
+                    } else {
+                        cache.put(id, row, load);
+                    }
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            });
+            loader.start();
+            start.await();
+            // MessageDAOImpl invalidates before and after the delete
+            cache.remove(id);
+            table.set(null);
+            cache.remove(id);
+            loader.join();
+
+            assertNull(error.get());
+            assertNull(cache.get(id), "a message deleted during its load was cached, round " + i);
+        }
+        assertEquals("0", cache.getDebugState().get("loading"));
+    }
+}
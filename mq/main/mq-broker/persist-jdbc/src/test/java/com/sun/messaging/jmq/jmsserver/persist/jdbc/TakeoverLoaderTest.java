@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.jmsserver.persist.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.jmsserver.Globals;
+import com.sun.messaging.jmq.jmsserver.persist.api.TakeoverStoreInfo;
+import com.sun.messaging.jmq.jmsserver.persist.jdbc.comm.CommDBManager;
+import com.sun.messaging.jmq.jmsserver.util.BrokerException;
+
+class TakeoverLoaderTest {
+
+    private static final String TARGET = "failedBroker";
+
+    private CommDBManager dbmgr;
+    private DAOFactory daoFactory;
+    private StoreSessionDAO sesDAO;
+    private DestinationDAO dstDAO;
+    private TransactionDAO txnDAO;
+    private MessageDAO msgDAO;
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger maxOpen = new AtomicInteger();
+    private final Set<String> readThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dbmgr = mock(CommDBManager.class);
+        when(dbmgr.getConnection(true)).thenAnswer(inv -> {
+            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            readThreads.add(Thread.currentThread().getName());
+            return mock(Connection.class);
+        });
+        doAnswer(inv -> {
+            open.decrementAndGet();
+            return null;
+        }).when(dbmgr).freeConnection(any(), any());
+
+        sesDAO = mock(StoreSessionDAO.class);
+        dstDAO = mock(DestinationDAO.class);
+        txnDAO = mock(TransactionDAO.class);
+        msgDAO = mock(MessageDAO.class);
+        daoFactory = mock(DAOFactory.class);
+        when(daoFactory.getStoreSessionDAO()).thenReturn(sesDAO);
+        when(daoFactory.getDestinationDAO()).thenReturn(dstDAO);
+        when(daoFactory.getTransactionDAO()).thenReturn(txnDAO);
+        when(daoFactory.getMessageDAO()).thenReturn(msgDAO);
+
+        when(sesDAO.getStoreSessionsByBroker(any(), eq(TARGET))).thenReturn(List.of(1L, 2L, 3L));
+        when(dstDAO.getLocalDestinationsByBroker(any(), eq(TARGET))).thenReturn(List.of("dst"));
+        when(txnDAO.getTransactionsByBroker(any(), eq(TARGET))).thenReturn(List.of("txn"));
+        when(txnDAO.getRemoteTransactionsByBroker(any(), eq(TARGET))).thenReturn(List.of());
+        doAnswer(inv -> {
+            long ssid = inv.getArgument(1);
+            Map<String, String> map = inv.getArgument(2);
+            // give the other reads a chance to run at the same time
+            Thread.sleep(50);
+            map.put("msg" + ssid, "dst");
+            return null;
+        }).when(msgDAO).getMsgIDsAndDstIDsByStoreSession(any(), anyLong(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Globals.getConfig().remove(TakeoverLoader.THREADS_PROP);
+    }
+
+    @Test
+    void loadsEverythingInParallel() throws Exception {
+        TakeoverStoreInfo info = new TakeoverStoreInfo(TARGET, System.currentTimeMillis());
+
+        new TakeoverLoader(dbmgr, daoFactory, TARGET, 3).load(info);
+
+        assertEquals(List.of("dst"), info.getDestinationList());
+        assertEquals(Map.of("msg1", "dst", "msg2", "dst", "msg3", "dst"), info.getMessageMap());
+        assertEquals(List.of("txn"), info.getTransactionList());
+        assertEquals(List.of(), info.getRemoteTransactionList());
+
+        assertEquals(0, open.get(), "all connections returned to the pool");
+        assertTrue(maxOpen.get() > 1, "reads ran in parallel");
+        assertTrue(maxOpen.get() <= 3, "no more connections than threads");
+        assertTrue(readThreads.stream().anyMatch(n -> n.startsWith("imqTakeoverLoader-")));
+    }
+
+    @Test
+    void failedReadIsNotRetried() throws Exception {
+        BrokerException failure = new BrokerException("read failed");
+        doThrow(failure).when(msgDAO).getMsgIDsAndDstIDsByStoreSession(any(), eq(2L), any());
+        TakeoverStoreInfo info = new TakeoverStoreInfo(TARGET, System.currentTimeMillis());
+
+        BrokerException ex = assertThrows(BrokerException.class, () -> new TakeoverLoader(dbmgr, daoFactory, TARGET, 3).load(info));
+
+        // left to the retry of the whole takeover
+        assertSame(failure, ex);
+        verify(msgDAO, times(1)).getMsgIDsAndDstIDsByStoreSession(any(), eq(2L), any());
+        verify(dbmgr).freeConnection(any(), same(failure));
+    }
+
+    @Test
+    void threadsLeaveConnectionsInThePool() {
+        // 4 threads by default, the default pool has 5 connections
+        assertEquals(3, TakeoverLoader.getConfiguredThreads(5));
+        assertEquals(4, TakeoverLoader.getConfiguredThreads(20));
+        assertEquals(1, TakeoverLoader.getConfiguredThreads(2));
+
+        Globals.getConfig().put(TakeoverLoader.THREADS_PROP, "8");
+        assertEquals(8, TakeoverLoader.getConfiguredThreads(20));
+        assertEquals(6, TakeoverLoader.getConfiguredThreads(8));
+    }
+}
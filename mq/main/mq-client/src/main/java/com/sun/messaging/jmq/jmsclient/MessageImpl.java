@@ -479,6 +479,9 @@ public class MessageImpl implements jakarta.jms.Message, com.sun.messaging.jms.M
 
     public static final String JMS_SUN_COMPRESSED_SIZE = "JMS_SUN_COMPRESSED_SIZE";
 
+    // codec used for the compressed body, absent means deflate
+    public static final String JMS_SUN_COMPRESSION_CODEC = "JMS_SUN_COMPRESSION_CODEC";
+
     /*
      * When message.acknowledge() is called we need to have a reference of session so that we can use session.acknowledge()
      * to ack to the broker
@@ -583,6 +586,16 @@ public class MessageImpl implements jakarta.jms.Message, com.sun.messaging.jms.M
                 return;
             }
 
+            /**
+             * no compression if the body is below the compression threshold.
+             */
+            if (!CompressionCodecs.shouldCompress(unzipSize)) {
+                pkt.setFlag(PacketFlag.Z_FLAG, false);
+                return;
+            }
+
+            CompressionCodec codec = getCompressionCodec();
+
             /**
              * byte array for the ziped body
              */
@@ -592,7 +605,7 @@ public class MessageImpl implements jakarta.jms.Message, com.sun.messaging.jms.M
             Compressor compressor = Compressor.getInstance();
 
             // compress body into baos.
-            compressor.compress(body, offset, unzipSize, baos);
+            compressor.compress(codec, body, offset, unzipSize, baos);
 
             baos.flush();
 
@@ -610,6 +623,13 @@ public class MessageImpl implements jakarta.jms.Message, com.sun.messaging.jms.M
             // set zip size prop.
             setProperty(MessageImpl.JMS_SUN_COMPRESSED_SIZE, Integer.valueOf(zipSize));
 
+            // deflate is implied when no codec is named, so older clients can still read it.
+            if (DeflateCodec.NAME.equals(codec.getName())) {
+                properties.remove(MessageImpl.JMS_SUN_COMPRESSION_CODEC);
+            } else {
+                setProperty(MessageImpl.JMS_SUN_COMPRESSION_CODEC, codec.getName());
+            }
+
             // set zip flag to true.
             pkt.setFlag(PacketFlag.Z_FLAG, true);
 
@@ -623,6 +643,23 @@ public class MessageImpl implements jakarta.jms.Message, com.sun.messaging.jms.M
         }
     }
 
+    /**
+     * The codec named by the JMS_SUN_COMPRESSION_CODEC property if it is set and registered, otherwise the codec
+     * configured by imq.zip.codec.
+     */
+    private CompressionCodec getCompressionCodec() {
+        if (properties != null) {
+            Object name = properties.get(MessageImpl.JMS_SUN_COMPRESSION_CODEC);
+            if (name instanceof String) {
+                CompressionCodec codec = CompressionCodecs.getCodec((String) name);
+                if (codec != null) {
+                    return codec;
+                }
+            }
+        }
+        return CompressionCodecs.getDefaultCodec();
+    }
+
     /**
      * decompress the message body. This methid is called from getMessageBody() above.
      *
@@ -645,7 +682,7 @@ public class MessageImpl implements jakarta.jms.Message, com.sun.messaging.jms.M
         byte[] unzipBody = new byte[unzipSize];
 
         // decompress zip body into unzip body
-        decomp.decompress(zipBody, unzipBody);
+        decomp.decompress(getStringProperty(MessageImpl.JMS_SUN_COMPRESSION_CODEC), zipBody, pkt.getMessageBodyOffset(), pkt.getMessageBodyLength(), unzipBody);
 
         // set unzip body into packet
         pkt.setMessageBody(unzipBody, 0, unzipSize);
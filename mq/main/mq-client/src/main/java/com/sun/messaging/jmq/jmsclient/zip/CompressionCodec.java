@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsclient.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Message body compression codec. Implementations must be thread safe; a single instance is shared by all sessions in
+ * the VM.
+ *
+ * <p>
+ * Additional codecs can be plugged in through {@link java.util.ServiceLoader} by listing the implementation class in
+ * <code>META-INF/services/com.sun.messaging.jmq.jmsclient.zip.CompressionCodec</code>. The codec name travels with each
+ * compressed message in the <code>JMS_SUN_COMPRESSION_CODEC</code> property, so the receiving side must have the same
+ * codec available.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return the name this codec is registered and negotiated under
+     */
+    String getName();
+
+    /**
+     * Compress <code>length</code> bytes of <code>body</code> starting at <code>offset</code> into <code>os</code>.
+     *
+     * @return the number of compressed bytes written to <code>os</code>
+     */
+    int compress(byte[] body, int offset, int length, OutputStream os) throws IOException;
+
+    /**
+     * Decompress <code>length</code> bytes of <code>zipBody</code> starting at <code>offset</code> into
+     * <code>unzipBody</code>. <code>unzipBody</code> is sized to exactly the uncompressed length.
+     *
+     * @return the number of bytes written to <code>unzipBody</code>
+     */
+    int decompress(byte[] zipBody, int offset, int length, byte[] unzipBody) throws IOException;
+}
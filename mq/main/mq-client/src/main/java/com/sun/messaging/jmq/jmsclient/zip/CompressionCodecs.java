@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsclient.zip;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.messaging.jmq.jmsclient.Debug;
+
+/**
+ * Registry of the message body compression codecs available in this VM.
+ *
+ * <p>
+ * The codec used for outgoing messages is selected with the <code>imq.zip.codec</code> system property (default
+ * <code>deflate</code>). Bodies smaller than <code>imq.zip.threshold</code> bytes (default 0) are sent uncompressed.
+ */
+public final class CompressionCodecs {
+
+    public static final String CODEC_PROP = "imq.zip.codec";
+
+    public static final String THRESHOLD_PROP = "imq.zip.threshold";
+
+    private static final boolean debug = Boolean.getBoolean("imq.zip.debug");
+
+    private static final Map<String, CompressionCodec> codecs = new ConcurrentHashMap<>();
+
+    private static final DeflateCodec deflateCodec = new DeflateCodec();
+
+    private static final int threshold = Integer.getInteger(THRESHOLD_PROP, 0);
+
+    private static volatile CompressionCodec defaultCodec = null;
+
+    static {
+        register(deflateCodec);
+        register(new LZCodec());
+        loadServiceCodecs();
+    }
+
+    private CompressionCodecs() {
+    }
+
+    private static void loadServiceCodecs() {
+        try {
+            Iterator<CompressionCodec> itr = ServiceLoader.load(CompressionCodec.class, CompressionCodecs.class.getClassLoader()).iterator();
+            while (itr.hasNext()) {
+                register(itr.next());
+            }
+        } catch (ServiceConfigurationError e) {
+            if (debug) {
+                Debug.getPrintStream().println("**** unable to load compression codecs: " + e);
+            }
+        }
+    }
+
+    /**
+     * Register a codec under its name, replacing any codec previously registered with that name.
+     */
+    public static void register(CompressionCodec codec) {
+        codecs.put(codec.getName().toLowerCase(Locale.ROOT), codec);
+        defaultCodec = null;
+    }
+
+    /**
+     * @return the codec registered as <code>name</code>, the deflate codec if <code>name</code> is null, or null if no
+     * such codec is registered
+     */
+    public static CompressionCodec getCodec(String name) {
+        if (name == null) {
+            return deflateCodec;
+        }
+        return codecs.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the codec selected by <code>imq.zip.codec</code>, falling back to deflate if it is not registered
+     */
+    public static CompressionCodec getDefaultCodec() {
+        CompressionCodec c = defaultCodec;
+        if (c == null) {
+            c = getCodec(System.getProperty(CODEC_PROP, DeflateCodec.NAME));
+            if (c == null) {
+                if (debug) {
+                    Debug.getPrintStream().println("**** unknown compression codec " + System.getProperty(CODEC_PROP) + ", using " + DeflateCodec.NAME);
+                }
+                c = deflateCodec;
+            }
+            defaultCodec = c;
+        }
+        return c;
+    }
+
+    /**
+     * @return true if a body of <code>length</code> bytes is large enough to be worth compressing
+     */
+    public static boolean shouldCompress(int length) {
+        return length >= threshold;
+    }
+}
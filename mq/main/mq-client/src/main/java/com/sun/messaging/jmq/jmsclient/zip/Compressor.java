@@ -1,5 +1,6 @@
 /*
  * Copyright (c) 2000, 2017 Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
  *
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License v. 2.0, which is available at
@@ -20,17 +21,12 @@
 
 package com.sun.messaging.jmq.jmsclient.zip;
 
-import java.util.zip.*;
 import java.io.*;
 
 import com.sun.messaging.jmq.jmsclient.Debug;
 
 public class Compressor {
 
-    private Deflater deflater = new Deflater();
-
-    // private Deflater noWrapDeflater = new Deflater (Deflater.DEFAULT_COMPRESSION, true);
-
     private static Compressor compressor = new Compressor();
 
     private boolean debug = Boolean.getBoolean("imq.zip.debug");
@@ -42,51 +38,25 @@ public class Compressor {
         return compressor;
     }
 
-    public synchronized int compress(byte[] body, int offset, int length, OutputStream os) throws IOException {
-
-        int compressedLength = -1;
-
-        Deflater def = getDefaultDeflater();
-
-        DeflaterOutputStream defos = new DeflaterOutputStream(os, def);
-
-        defos.write(body, offset, length);
+    /**
+     * Compress with the deflate codec.
+     */
+    public int compress(byte[] body, int offset, int length, OutputStream os) throws IOException {
+        return compress(CompressionCodecs.getCodec(DeflateCodec.NAME), body, offset, length, os);
+    }
 
-        defos.finish();
+    public int compress(CompressionCodec codec, byte[] body, int offset, int length, OutputStream os) throws IOException {
 
-        int totalIn = def.getTotalIn();
-        compressedLength = def.getTotalOut();
+        int compressedLength = codec.compress(body, offset, length, os);
 
         if (debug) {
-            Debug.getPrintStream().println("**** compressor total in: " + totalIn);
+            Debug.getPrintStream().println("**** compressor codec: " + codec.getName());
+
+            Debug.getPrintStream().println("**** compressor total in: " + length);
 
             Debug.getPrintStream().println("**** compressor total out: " + compressedLength);
         }
 
-        def.reset();
-
         return compressedLength;
     }
-
-    private Deflater getDeflater(boolean noWrap, int strategy, int level) {
-
-        Deflater def = null;
-
-        if (noWrap) {
-            // def = noWrapDeflater;
-            throw new RuntimeException("No wrap deflater is not Unsupported.");
-        } else {
-            def = deflater;
-        }
-
-        def.setStrategy(strategy);
-
-        def.setLevel(level);
-
-        return def;
-    }
-
-    private Deflater getDefaultDeflater() {
-        return getDeflater(false, Deflater.DEFAULT_STRATEGY, Deflater.DEFAULT_COMPRESSION);
-    }
 }
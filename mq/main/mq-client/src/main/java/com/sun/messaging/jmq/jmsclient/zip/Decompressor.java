@@ -1,5 +1,6 @@
 /*
  * Copyright (c) 2000, 2020 Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
  *
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License v. 2.0, which is available at
@@ -20,7 +21,7 @@
 
 package com.sun.messaging.jmq.jmsclient.zip;
 
-import java.util.zip.*;
+import java.io.IOException;
 
 import jakarta.jms.*;
 
@@ -28,8 +29,6 @@ import com.sun.messaging.jmq.jmsclient.Debug;
 
 public class Decompressor {
 
-    private Inflater inflater = new Inflater(false);
-
     private static Decompressor decompressor = new Decompressor();
 
     private boolean debug = Boolean.getBoolean("imq.zip.debug");
@@ -41,14 +40,27 @@ public class Decompressor {
         return decompressor;
     }
 
-    public synchronized void decompress(byte[] zipBody, byte[] unzipBody) throws JMSException {
+    /**
+     * Decompress with the deflate codec.
+     */
+    public void decompress(byte[] zipBody, byte[] unzipBody) throws JMSException {
+        decompress(null, zipBody, 0, zipBody.length, unzipBody);
+    }
 
-        Inflater inf = getDefaultInflater();
+    /**
+     * Decompress with the named codec.
+     *
+     * @param codecName the codec name carried by the message, null for deflate
+     */
+    public void decompress(String codecName, byte[] zipBody, int offset, int length, byte[] unzipBody) throws JMSException {
 
-        try {
-            inf.setInput(zipBody);
+        CompressionCodec codec = CompressionCodecs.getCodec(codecName);
+        if (codec == null) {
+            throw new JMSException("Unsupported compression codec: " + codecName);
+        }
 
-            int uncompressedSize = inf.inflate(unzipBody);
+        try {
+            int uncompressedSize = codec.decompress(zipBody, offset, length, unzipBody);
 
             if (uncompressedSize != unzipBody.length) {
                 // This should never happen!
@@ -56,21 +68,16 @@ public class Decompressor {
             }
 
             if (debug) {
-                Debug.getPrintStream().println("*** decompressor zip size: " + zipBody.length);
+                Debug.getPrintStream().println("*** decompressor codec: " + codec.getName());
+                Debug.getPrintStream().println("*** decompressor zip size: " + length);
                 Debug.getPrintStream().println("*** decompressor unzip size: " + uncompressedSize);
             }
 
-        } catch (DataFormatException e) {
+        } catch (IOException e) {
             JMSException jmse = new JMSException(e.toString());
             jmse.setLinkedException(e);
             throw jmse;
-        } finally {
-            inf.reset();
         }
     }
 
-    private Inflater getDefaultInflater() {
-        return this.inflater;
-    }
-
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsclient.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * java.util.zip based codec. This is the codec used when a compressed message carries no codec name, so it stays
+ * compatible with older clients.
+ *
+ * Deflater and Inflater instances are pooled rather than guarded by a single monitor, so concurrent sessions do not
+ * serialize on compression.
+ */
+public class DeflateCodec implements CompressionCodec {
+
+    public static final String NAME = "deflate";
+
+    private static final int BUFFER_SIZE = 512;
+
+    private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    private final ConcurrentLinkedQueue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int compress(byte[] body, int offset, int length, OutputStream os) throws IOException {
+        Deflater def = deflaters.poll();
+        if (def == null) {
+            def = new Deflater();
+        }
+        try {
+            def.setInput(body, offset, length);
+            def.finish();
+
+            byte[] buf = new byte[BUFFER_SIZE];
+            while (!def.finished()) {
+                int n = def.deflate(buf, 0, buf.length);
+                if (n > 0) {
+                    os.write(buf, 0, n);
+                }
+            }
+            return (int) def.getBytesWritten();
+        } finally {
+            def.reset();
+            deflaters.offer(def);
+        }
+    }
+
+    @Override
+    public int decompress(byte[] zipBody, int offset, int length, byte[] unzipBody) throws IOException {
+        Inflater inf = inflaters.poll();
+        if (inf == null) {
+            inf = new Inflater(false);
+        }
+        try {
+            inf.setInput(zipBody, offset, length);
+            return inf.inflate(unzipBody);
+        } catch (DataFormatException e) {
+            throw new IOException(e.toString(), e);
+        } finally {
+            inf.reset();
+            inflaters.offer(inf);
+        }
+    }
+}
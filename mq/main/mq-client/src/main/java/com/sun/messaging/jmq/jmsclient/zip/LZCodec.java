@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsclient.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Fast LZ77 block codec in pure Java, trading compression ratio for much lower CPU cost than deflate.
+ *
+ * <p>
+ * The block is a series of sequences. Each sequence is a token byte whose high nibble is the literal run length and
+ * whose low nibble is the match length minus {@link #MIN_MATCH}; a nibble value of 15 is followed by extra length bytes
+ * (255 means "add 255 and continue"). The literals come next, then a 2 byte little endian match offset and any extra
+ * match length bytes. The last sequence holds literals only. The uncompressed size is not part of the block; it travels
+ * in the <code>JMS_SUN_UNCOMPRESSED_SIZE</code> property like it does for deflate.
+ */
+public class LZCodec implements CompressionCodec {
+
+    public static final String NAME = "lz";
+
+    static final int MIN_MATCH = 4;
+
+    static final int MAX_OFFSET = 0xFFFF;
+
+    /**
+     * the last bytes of the input are always emitted as literals
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * no match may start within this distance of the end of the input
+     */
+    private static final int MF_LIMIT = 12;
+
+    private static final int MAX_HASH_LOG = 14;
+
+    private static final int MIN_HASH_LOG = 8;
+
+    private static final int SKIP_TRIGGER = 6;
+
+    private final ConcurrentLinkedQueue<int[]> hashTables = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @return the largest possible compressed size for <code>length</code> bytes of input
+     */
+    public static int maxCompressedLength(int length) {
+        return length + (length / 255) + 16;
+    }
+
+    @Override
+    public int compress(byte[] body, int offset, int length, OutputStream os) throws IOException {
+        byte[] dst = new byte[maxCompressedLength(length)];
+        int n = compress(body, offset, length, dst);
+        os.write(dst, 0, n);
+        return n;
+    }
+
+    /**
+     * Compress into <code>dst</code>, which must hold at least {@link #maxCompressedLength(int)} bytes.
+     *
+     * @return the compressed length
+     */
+    public int compress(byte[] src, int offset, int length, byte[] dst) {
+        int[] table = hashTables.poll();
+        if (table == null) {
+            table = new int[1 << MAX_HASH_LOG];
+        }
+        try {
+            return compress(src, offset, length, dst, table);
+        } finally {
+            hashTables.offer(table);
+        }
+    }
+
+    private static int compress(byte[] src, int offset, int length, byte[] dst, int[] table) {
+        int end = offset + length;
+        int anchor = offset;
+        int op = 0;
+
+        if (length >= MF_LIMIT) {
+            int hashLog = hashLog(length);
+            int hashShift = 32 - hashLog;
+            // table entries are positions relative to offset plus one, zero means empty
+            Arrays.fill(table, 0, 1 << hashLog, 0);
+
+            int matchLimit = end - LAST_LITERALS;
+            int mfLimit = end - MF_LIMIT;
+            int ip = offset;
+
+            while (ip < mfLimit) {
+                int seq = readInt(src, ip);
+                int h = (seq * -1640531535) >>> hashShift;
+                int ref = table[h] - 1 + offset;
+                table[h] = ip - offset + 1;
+
+                if (ref < offset || ip - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+                    // step faster through data that does not compress
+                    ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+                    continue;
+                }
+
+                while (ip > anchor && ref > offset && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLen = MIN_MATCH;
+                while (ip + matchLen < matchLimit && src[ip + matchLen] == src[ref + matchLen]) {
+                    matchLen++;
+                }
+
+                op = writeSequence(dst, op, src, anchor, ip - anchor, ip - ref, matchLen);
+                ip += matchLen;
+                anchor = ip;
+            }
+        }
+        return writeLastLiterals(dst, op, src, anchor, end - anchor);
+    }
+
+    private static int hashLog(int length) {
+        int log = 32 - Integer.numberOfLeadingZeros(length - 1);
+        return Math.max(MIN_HASH_LOG, Math.min(MAX_HASH_LOG, log));
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private static int writeLength(byte[] dst, int op, int len) {
+        while (len >= 255) {
+            dst[op++] = (byte) 255;
+            len -= 255;
+        }
+        dst[op++] = (byte) len;
+        return op;
+    }
+
+    private static int writeSequence(byte[] dst, int op, byte[] src, int litStart, int litLen, int matchOffset, int matchLen) {
+        int tokenPos = op++;
+        int token;
+        if (litLen >= 15) {
+            token = 15 << 4;
+            op = writeLength(dst, op, litLen - 15);
+        } else {
+            token = litLen << 4;
+        }
+        System.arraycopy(src, litStart, dst, op, litLen);
+        op += litLen;
+
+        dst[op++] = (byte) matchOffset;
+        dst[op++] = (byte) (matchOffset >>> 8);
+
+        int ml = matchLen - MIN_MATCH;
+        if (ml >= 15) {
+            token |= 15;
+            op = writeLength(dst, op, ml - 15);
+        } else {
+            token |= ml;
+        }
+        dst[tokenPos] = (byte) token;
+        return op;
+    }
+
+    private static int writeLastLiterals(byte[] dst, int op, byte[] src, int litStart, int litLen) {
+        if (litLen >= 15) {
+            dst[op++] = (byte) (15 << 4);
+            op = writeLength(dst, op, litLen - 15);
+        } else {
+            dst[op++] = (byte) (litLen << 4);
+        }
+        System.arraycopy(src, litStart, dst, op, litLen);
+        return op + litLen;
+    }
+
+    @Override
+    public int decompress(byte[] zipBody, int offset, int length, byte[] unzipBody) throws IOException {
+        int ip = offset;
+        int end = offset + length;
+        int op = 0;
+        try {
+            while (ip < end) {
+                int token = zipBody[ip++] & 0xFF;
+
+                int litLen = token >>> 4;
+                if (litLen == 15) {
+                    int b;
+                    do {
+                        b = zipBody[ip++] & 0xFF;
+                        litLen += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(zipBody, ip, unzipBody, op, litLen);
+                ip += litLen;
+                op += litLen;
+
+                if (ip >= end) {
+                    break;
+                }
+
+                int matchOffset = (zipBody[ip++] & 0xFF) | (zipBody[ip++] & 0xFF) << 8;
+                if (matchOffset == 0 || matchOffset > op) {
+                    throw new IOException("Invalid match offset " + matchOffset + " at output position " + op);
+                }
+                int matchLen = token & 0x0F;
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = zipBody[ip++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+
+                int ref = op - matchOffset;
+                if (matchOffset >= matchLen) {
+                    System.arraycopy(unzipBody, ref, unzipBody, op, matchLen);
+                    op += matchLen;
+                } else {
+                    // overlapping copy repeats the last matchOffset bytes
+                    for (int i = 0; i < matchLen; i++) {
+                        unzipBody[op++] = unzipBody[ref++];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed compressed data at input position " + (ip - offset), e);
+        }
+        return op;
+    }
+}
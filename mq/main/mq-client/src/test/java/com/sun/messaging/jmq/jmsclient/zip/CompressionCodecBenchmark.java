@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsclient.zip;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Measures compression ratio and throughput of the registered codecs on JSON and XML payloads.
+ *
+ * <pre>
+ * java -cp ... com.sun.messaging.jmq.jmsclient.zip.CompressionCodecBenchmark [payloadSize] [iterations]
+ * </pre>
+ */
+public class CompressionCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 16 * 1024;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        byte[][] payloads = { CompressionCodecTest.jsonPayload(size), CompressionCodecTest.xmlPayload(size) };
+        String[] payloadNames = { "json", "xml" };
+
+        for (String codecName : new String[] { DeflateCodec.NAME, LZCodec.NAME }) {
+            CompressionCodec codec = CompressionCodecs.getCodec(codecName);
+            for (int p = 0; p < payloads.length; p++) {
+                run(codec, payloadNames[p], payloads[p], iterations / 4, false);
+                run(codec, payloadNames[p], payloads[p], iterations, true);
+            }
+        }
+    }
+
+    private static void run(CompressionCodec codec, String payloadName, byte[] body, int iterations, boolean report) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(body.length);
+        int zipSize = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            baos.reset();
+            zipSize = codec.compress(body, 0, body.length, baos);
+        }
+        long compressNanos = System.nanoTime() - start;
+
+        byte[] zipBody = baos.toByteArray();
+        byte[] unzipBody = new byte[body.length];
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codec.decompress(zipBody, 0, zipSize, unzipBody);
+        }
+        long decompressNanos = System.nanoTime() - start;
+
+        if (report) {
+            double mb = (double) body.length * iterations / (1024 * 1024);
+            System.out.printf("%-8s %-5s size=%d ratio=%.2f compress=%.1f MB/s decompress=%.1f MB/s%n", codec.getName(), payloadName, body.length,
+                    (double) body.length / zipSize, mb / (compressNanos / 1e9), mb / (decompressNanos / 1e9));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jmq.jmsclient.zip;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CompressionCodecTest {
+
+    static byte[] jsonPayload(int size) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("{\"id\":").append(i).append(",\"symbol\":\"SYM").append(i % 97).append("\",\"price\":").append(100 + (i * 7) % 13)
+                    .append(".25,\"side\":\"").append(i % 2 == 0 ? "BUY" : "SELL").append("\",\"account\":\"ACCT-").append(i % 11).append("\"},");
+        }
+        return sb.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] xmlPayload(int size) {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?><orders>");
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("<order id=\"").append(i).append("\"><symbol>SYM").append(i % 97).append("</symbol><quantity>").append(i % 500)
+                    .append("</quantity><status>NEW</status></order>");
+        }
+        return sb.append("</orders>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertRoundTrip(CompressionCodec codec, byte[] body, int offset, int length) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int zipSize = codec.compress(body, offset, length, baos);
+        byte[] zipBody = baos.toByteArray();
+        assertEquals(zipBody.length, zipSize);
+
+        byte[] unzipBody = new byte[length];
+        assertEquals(length, codec.decompress(zipBody, 0, zipSize, unzipBody));
+        for (int i = 0; i < length; i++) {
+            assertEquals(body[offset + i], unzipBody[i], "mismatch at " + i);
+        }
+    }
+
+    @Test
+    void testRoundTripTypicalPayloads() throws IOException {
+        for (String name : new String[] { DeflateCodec.NAME, LZCodec.NAME }) {
+            CompressionCodec codec = CompressionCodecs.getCodec(name);
+            assertNotNull(codec);
+            assertRoundTrip(codec, jsonPayload(64 * 1024), 0, jsonPayload(64 * 1024).length);
+            assertRoundTrip(codec, xmlPayload(256 * 1024), 0, xmlPayload(256 * 1024).length);
+        }
+    }
+
+    @Test
+    void testLZEdgeCases() throws IOException {
+        CompressionCodec lz = new LZCodec();
+        assertRoundTrip(lz, new byte[0], 0, 0);
+        assertRoundTrip(lz, new byte[] { 1, 2, 3 }, 0, 3);
+        assertRoundTrip(lz, new byte[100000], 0, 100000);
+
+        byte[] random = new byte[70000];
+        new Random(42).nextBytes(random);
+        assertRoundTrip(lz, random, 0, random.length);
+        assertRoundTrip(lz, random, 1000, 5000);
+
+        byte[] repeated = new byte[5000];
+        for (int i = 0; i < repeated.length; i++) {
+            repeated[i] = (byte) (i % 3);
+        }
+        assertRoundTrip(lz, repeated, 7, repeated.length - 7);
+    }
+
+    @Test
+    void testLZCompresses() throws IOException {
+        byte[] json = jsonPayload(64 * 1024);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int zipSize = new LZCodec().compress(json, 0, json.length, baos);
+        assertTrue(zipSize < json.length / 2, "compressed size " + zipSize);
+    }
+
+    @Test
+    void testLZRejectsCorruptInput() {
+        byte[] corrupt = { 0x1F, 'a', 0x10, 0x00 };
+        assertThrows(IOException.class, () -> new LZCodec().decompress(corrupt, 0, corrupt.length, new byte[64]));
+    }
+
+    @Test
+    void testUnknownCodec() {
+        assertNull(CompressionCodecs.getCodec("no-such-codec"));
+        assertSame(CompressionCodecs.getCodec(DeflateCodec.NAME), CompressionCodecs.getCodec(null));
+    }
+}
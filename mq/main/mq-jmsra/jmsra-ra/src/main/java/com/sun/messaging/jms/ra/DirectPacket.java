@@ -22,6 +22,7 @@ import java.lang.reflect.Modifier;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.logging.Logger;
@@ -43,8 +44,11 @@ import com.sun.messaging.jmq.io.PacketFlag;
 import com.sun.messaging.jmq.io.PacketType;
 import com.sun.messaging.jmq.io.SysMessageID;
 import com.sun.messaging.jmq.jmsclient.MessageImpl;
+import com.sun.messaging.jmq.jmsclient.zip.CompressionCodec;
+import com.sun.messaging.jmq.jmsclient.zip.CompressionCodecs;
 import com.sun.messaging.jmq.jmsclient.zip.Compressor;
 import com.sun.messaging.jmq.jmsclient.zip.Decompressor;
+import com.sun.messaging.jmq.jmsclient.zip.DeflateCodec;
 import com.sun.messaging.jmq.jmsservice.JMSService;
 import com.sun.messaging.jmq.util.net.IPAddress;
 
@@ -65,6 +69,15 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
     /** The Properties of the JMS Message */
     private Hashtable<String, Object> properties = null;
 
+    /** Whether properties is also referenced by a Packet and must be copied before it is modified */
+    private boolean propertiesShared = false;
+
+    /** Whether properties has yet to be read from the Packet of a received message */
+    private boolean propertiesPending = false;
+
+    /** The JMSXDeliveryCount of a received message while it is held apart from properties, otherwise -1 */
+    private int deliveryCount = -1;
+
     /** The consumerId sent by the broker if this is a delivered JMS Message */
     private long consumerId = 0L;
 
@@ -118,6 +131,8 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
 
     protected final static int DIRECT_PACKET_LOCAL_PORT = 1;
 
+    private static final String JMSX_DELIVERY_COUNT = JMSService.JMSXProperties.JMSXDeliveryCount.toString();
+
     private final static byte[] pktIPAddress;
     private final static byte[] pktMacAddress;
 
@@ -131,6 +146,9 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
 
     public static final String JMS_SUN_COMPRESSED_SIZE = "JMS_SUN_COMPRESSED_SIZE";
 
+    // codec used for the compressed body, absent means deflate
+    public static final String JMS_SUN_COMPRESSION_CODEC = "JMS_SUN_COMPRESSION_CODEC";
+
     private boolean enableZip = Boolean.getBoolean("imq.zip.enable");
 
     static {
@@ -175,16 +193,9 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             this.pkt = jmsPacket.getPacket();
             this.consumerId = consumerId;
             this.ds = ds;
-            try {
-                this.properties = this.pkt.getProperties();
-            } catch (Exception ex) {
-                this.properties = null;
-                ex.printStackTrace();
-                String exerrmsg = _lgrMID_EXC + "DirectPacket:Constructor on deliver:Unable to get properties from JMSPacket.";
-                JMSException jmse = new JMSException(exerrmsg);
-                throw jmse;
-            }
-            this.setIntProperty(JMSService.JMSXProperties.JMSXDeliveryCount.toString(), jmsPacket.getPacket().getDeliveryCount());
+            // properties are read from the packet only when the application asks for them
+            this.propertiesPending = true;
+            this.deliveryCount = this.pkt.getDeliveryCount();
             this.readOnlyProperties = true;
             this.readOnlyBody = true;
         } else {
@@ -466,9 +477,11 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */"clearProperties()");
         }
         this._setReadOnlyProperties(false);
-        if (this.properties != null) {
-            this.properties.clear();
-        }
+        // drop rather than clear since a Packet may still reference the Hashtable
+        this.properties = null;
+        this.propertiesShared = false;
+        this.propertiesPending = false;
+        this.deliveryCount = -1;
 
         // set shouldCompress compress flag to false.
         shouldCompress = false;
@@ -491,10 +504,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName + name);
         }
-        Object obj = null;
-        if (this.properties != null) {
-            obj = this.properties.get(name);
-        }
+        Object obj = this._getPropertyValue(name);
         return ConvertValue.toBoolean(obj);
     }
 
@@ -516,10 +526,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
                     methodName + name);
         }
 
-        Object obj = null;
-        if (this.properties != null) {
-            obj = this.properties.get(name);
-        }
+        Object obj = this._getPropertyValue(name);
         return ConvertValue.toByte(obj);
     }
 
@@ -540,10 +547,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName + name);
         }
-        Object obj = null;
-        if (this.properties != null) {
-            obj = this.properties.get(name);
-        }
+        Object obj = this._getPropertyValue(name);
         return ConvertValue.toDouble(obj);
     }
 
@@ -564,10 +568,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName + name);
         }
-        Object obj = null;
-        if (this.properties != null) {
-            obj = this.properties.get(name);
-        }
+        Object obj = this._getPropertyValue(name);
         return ConvertValue.toFloat(obj);
     }
 
@@ -588,10 +589,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName + name);
         }
-        Object obj = null;
-        if (this.properties != null) {
-            obj = this.properties.get(name);
-        }
+        Object obj = this._getPropertyValue(name);
         return ConvertValue.toInt(obj);
     }
 
@@ -1021,10 +1019,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName + name);
         }
-        Object obj = null;
-        if (this.properties != null) {
-            obj = this.properties.get(name);
-        }
+        Object obj = this._getPropertyValue(name);
         return ConvertValue.toLong(obj);
     }
 
@@ -1052,10 +1047,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
                     methodName + name);
         }
         // String and Object properties return null if the value doesn't exist
-        if (this.properties == null) {
-            return null;
-        }
-        return this.properties.get(name);
+        return this._getPropertyValue(name);
     }
 
     /**
@@ -1075,11 +1067,12 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName);
         }
-        if (this.properties == null) {
+        Hashtable<String, Object> props = (this.deliveryCount >= 0) ? this._getPropertiesForUpdate() : this._loadProperties();
+        if (props == null) {
             // Returns empty Enumeration
-            this.properties = new Hashtable<>();
+            return Collections.emptyEnumeration();
         }
-        return this.properties.keys();
+        return props.keys();
     }
 
     /**
@@ -1099,10 +1092,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName + name);
         }
-        Object obj = null;
-        if (this.properties != null) {
-            obj = this.properties.get(name);
-        }
+        Object obj = this._getPropertyValue(name);
         return ConvertValue.toShort(obj);
     }
 
@@ -1125,7 +1115,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
         }
         // String and Object properties return null if the value doesn't exist
         Object obj;
-        if ((this.properties == null) || ((obj = properties.get(name)) == null)) {
+        if ((obj = this._getPropertyValue(name)) == null) {
             return null;
         }
         return ConvertValue.toString(obj);
@@ -1147,11 +1137,8 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             _loggerJM.fine(_lgrMID_INF + /* "messageId="+messageId+":"+ */
                     methodName + name);
         }
-        if (this.properties == null) {
-            return false;
-        }
         try {
-            if (this.properties.containsKey(name)) {
+            if (this._getPropertyValue(name) != null) {
                 return true;
             } else {
                 return false;
@@ -1526,10 +1513,65 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             throw new jakarta.jms.MessageFormatException(errMsg);
         }
         this._checkValidPropertyName(methodName, name);
+        this._getPropertiesForUpdate().put(name, value);
+    }
+
+    /**
+     * Return the properties of this message, reading them from the Packet of a received message on first use.
+     *
+     * The returned Hashtable may be shared with a Packet and must not be modified. It does not hold JMSXDeliveryCount while
+     * that is held in deliveryCount.
+     */
+    private Hashtable<String, Object> _loadProperties() throws JMSException {
+        if (this.propertiesPending) {
+            try {
+                this.properties = this.pkt.getProperties();
+            } catch (Exception ex) {
+                String exerrmsg = _lgrMID_EXC + "DirectPacket:Unable to get properties from JMSPacket.";
+                JMSException jmse = new JMSException(exerrmsg);
+                jmse.initCause(ex);
+                throw jmse;
+            }
+            this.propertiesPending = false;
+            this.propertiesShared = true;
+        }
+        return this.properties;
+    }
+
+    /**
+     * Return the properties of this message for modification, copying them first if they are shared with a Packet
+     */
+    private Hashtable<String, Object> _getPropertiesForUpdate() throws JMSException {
+        this._loadProperties();
+        return this._ownProperties();
+    }
+
+    /**
+     * Make the already loaded properties private to this message and fold JMSXDeliveryCount into them
+     */
+    private Hashtable<String, Object> _ownProperties() {
         if (this.properties == null) {
             this.properties = new Hashtable<>();
+        } else if (this.propertiesShared) {
+            this.properties = new Hashtable<>(this.properties);
+        }
+        this.propertiesShared = false;
+        if (this.deliveryCount >= 0) {
+            this.properties.put(JMSX_DELIVERY_COUNT, Integer.valueOf(this.deliveryCount));
+            this.deliveryCount = -1;
         }
-        this.properties.put(name, value);
+        return this.properties;
+    }
+
+    /**
+     * Return the value of a property without copying or modifying the properties of this message
+     */
+    private Object _getPropertyValue(String name) throws JMSException {
+        if (this.deliveryCount >= 0 && JMSX_DELIVERY_COUNT.equals(name)) {
+            return Integer.valueOf(this.deliveryCount);
+        }
+        Hashtable<String, Object> props = this._loadProperties();
+        return (props == null) ? null : props.get(name);
     }
 
     /**
@@ -1658,7 +1700,10 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             this.pkt.setReplyToClass(this.jmsReplyTo.getClass().getName());
         }
         this._setBodyToPacket();
-        this.pkt.setProperties(this.properties);
+        // the Packet and the broker reference the properties; they are copied before this message modifies them again
+        Hashtable<String, Object> props = (this.deliveryCount >= 0) ? this._getPropertiesForUpdate() : this._loadProperties();
+        this.pkt.setProperties(props);
+        this.propertiesShared = (props != null);
         this.jmsMessageIDSet = false;
         this.pkt.prepareToSend();
         this._resetJMSMessageID();
@@ -1780,6 +1825,16 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
                 return;
             }
 
+            /**
+             * no compression if the body is below the compression threshold.
+             */
+            if (!CompressionCodecs.shouldCompress(unzipSize)) {
+                pkt.setFlag(PacketFlag.Z_FLAG, false);
+                return;
+            }
+
+            CompressionCodec codec = getCompressionCodec();
+
             /**
              * byte array for the ziped body
              */
@@ -1789,7 +1844,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             Compressor compressor = Compressor.getInstance();
 
             // compress body into baos.
-            compressor.compress(body, offset, unzipSize, baos);
+            compressor.compress(codec, body, offset, unzipSize, baos);
 
             baos.flush();
 
@@ -1807,6 +1862,13 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
             // set zip size prop.
             setIntProperty(JMS_SUN_COMPRESSED_SIZE, zipSize);
 
+            // deflate is implied when no codec is named, so older clients can still read it.
+            if (DeflateCodec.NAME.equals(codec.getName())) {
+                this._getPropertiesForUpdate().remove(JMS_SUN_COMPRESSION_CODEC);
+            } else {
+                setStringProperty(JMS_SUN_COMPRESSION_CODEC, codec.getName());
+            }
+
             // set zip flag to true.
             pkt.setFlag(PacketFlag.Z_FLAG, true);
 
@@ -1820,6 +1882,21 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
         }
     }
 
+    /**
+     * The codec named by the JMS_SUN_COMPRESSION_CODEC property if it is set and registered, otherwise the codec
+     * configured by imq.zip.codec.
+     */
+    private CompressionCodec getCompressionCodec() throws JMSException {
+        Object name = this._getPropertyValue(JMS_SUN_COMPRESSION_CODEC);
+        if (name instanceof String) {
+            CompressionCodec codec = CompressionCodecs.getCodec((String) name);
+            if (codec != null) {
+                return codec;
+            }
+        }
+        return CompressionCodecs.getDefaultCodec();
+    }
+
     /**
      * decompress the message body.
      *
@@ -1842,7 +1919,7 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
         byte[] unzipBody = new byte[unzipSize];
 
         // decompress zip body into unzip body
-        decomp.decompress(zipBody, unzipBody);
+        decomp.decompress(getStringProperty(JMS_SUN_COMPRESSION_CODEC), zipBody, 0, pkt.getMessageBodySize(), unzipBody);
 
         // set unzip body into packet
         pkt.setMessageBody(unzipBody, 0, unzipSize);
@@ -1866,10 +1943,12 @@ public class DirectPacket implements JMSPacket, jakarta.jms.Message, com.sun.mes
     }
 
     public void updateDeliveryCount(int newDeliveryCount) {
-        if (this.properties == null) {
-            this.properties = new Hashtable<>();
+        if (this.deliveryCount >= 0) {
+            this.deliveryCount = newDeliveryCount;
+            return;
         }
-        this.properties.put(JMSService.JMSXProperties.JMSXDeliveryCount.toString(), Integer.valueOf(newDeliveryCount));
+        // deliveryCount is only released once the properties have been loaded
+        this._ownProperties().put(JMSX_DELIVERY_COUNT, Integer.valueOf(newDeliveryCount));
     }
 
     public int getClientRetries() {
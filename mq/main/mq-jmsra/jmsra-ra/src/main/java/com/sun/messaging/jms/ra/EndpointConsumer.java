@@ -47,6 +47,9 @@ public class EndpointConsumer implements jakarta.jms.ExceptionListener, com.sun.
     private static final String QUEUE = "jakarta.jms.Queue";
     private static final String TOPIC = "jakarta.jms.Topic";
 
+    /** Number of messages prefetched per endpoint in the OnMessageRunner pool */
+    private static final int PREFETCH_PER_ENDPOINT = 2;
+
     /** Resource Adapter holding this epConsumer */
     protected com.sun.messaging.jms.ra.ResourceAdapter ra = null;
 
@@ -219,6 +222,12 @@ public class EndpointConsumer implements jakarta.jms.ExceptionListener, com.sun.
                 // get reconnectInterval from activation spec or resource adapter
                 this.xacf.setProperty(ConnectionConfiguration.imqReconnectInterval, Integer.toString(aSpec.getReconnectInterval()));
 
+                // prefetch enough messages to keep every endpoint in the pool busy
+                int flowLimit = aSpec.getEndpointPoolMaxSize() * PREFETCH_PER_ENDPOINT;
+                if (flowLimit > Integer.parseInt(xacf.getProperty(ConnectionConfiguration.imqConsumerFlowLimit))) {
+                    xacf.setProperty(ConnectionConfiguration.imqConsumerFlowLimit, Integer.toString(flowLimit));
+                }
+
                 // configure xacf with any additional connection factory properties defined in the activation spec
                 setAdditionalConnectionFactoryProperties(aSpec.getOptions());
 
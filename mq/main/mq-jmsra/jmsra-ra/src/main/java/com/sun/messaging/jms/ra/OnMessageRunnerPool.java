@@ -19,8 +19,12 @@ package com.sun.messaging.jms.ra;
 
 import jakarta.jms.*;
 
-import java.util.Vector;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Logger;
 
 import jakarta.resource.spi.endpoint.MessageEndpointFactory;
@@ -29,6 +33,10 @@ import com.sun.messaging.jmq.jmsservice.ConsumerClosedNoDeliveryException;
 
 /**
  * Holds a pool of OnMessageRunner objects.
+ *
+ * Getting and returning a runner does not take a monitor: idle runners are kept in a lock-free stack so that the most
+ * recently used runner is handed out first, and a dispatcher that finds no idle runner parks until one is returned.
+ * Each returned runner unparks one dispatcher.
  */
 
 public class OnMessageRunnerPool {
@@ -40,7 +48,10 @@ public class OnMessageRunnerPool {
     private int min;
 
     /** The slack - number of OnMessageRunner objects that can and have not been created */
-    private int slackCount;
+    private final AtomicInteger slackCount = new AtomicInteger();
+
+    /** The id to give to the next OnMessageRunner created from the slack */
+    private final AtomicInteger nextId = new AtomicInteger();
 
     /** The MessageEndpointFactory for this onMessageRunnerPool */
     private MessageEndpointFactory epFactory;
@@ -52,10 +63,19 @@ public class OnMessageRunnerPool {
     private ActivationSpec spec = null;
     private boolean useDirect = false;
 
-    private ArrayList<OnMessageRunner> onMessageRunners;
+    private final List<OnMessageRunner> onMessageRunners = new CopyOnWriteArrayList<>();
+
+    /** The stack of available OnMessageRunner objects */
+    private final ConcurrentLinkedDeque<OnMessageRunner> available = new ConcurrentLinkedDeque<>();
 
-    /** The list of available OnMessageRunner objects */
-    private Vector<OnMessageRunner> available;
+    /** The number of OnMessageRunner objects handed out, or being taken, and not yet returned or removed */
+    private final AtomicInteger busyCount = new AtomicInteger();
+
+    /** Threads parked until a OnMessageRunner is returned to the pool, each put unparks one */
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+    /** Threads parked until no OnMessageRunner is busy */
+    private final ConcurrentLinkedQueue<Thread> idleWaiters = new ConcurrentLinkedQueue<>();
 
     private volatile boolean deactivating;
 
@@ -101,19 +121,15 @@ public class OnMessageRunnerPool {
             this.min = minimum;
         }
 
-        available = new Vector<>(min);
-
-        /* list of all onMessageRunner objects created */
-        onMessageRunners = new ArrayList<>(min);
-
         OnMessageRunner omr;
 
         for (int i = 0; i < min; i++) {
             omr = new OnMessageRunner(i, this, epFactory, epConsumer, spec, useDirect);
             onMessageRunners.add(omr);
-            available.addElement(omr);
+            available.push(omr);
         }
-        slackCount = max - min;
+        nextId.set(min);
+        slackCount.set(max - min);
     }
 
     /**
@@ -121,43 +137,70 @@ public class OnMessageRunnerPool {
      *
      *
      */
-    public synchronized OnMessageRunner getOnMessageRunner() throws JMSException {
+    public OnMessageRunner getOnMessageRunner() throws JMSException {
 
-        OnMessageRunner omr;
+        OnMessageRunner omr = takeOnMessageRunner();
+        if (omr != null) {
+            return omr;
+        }
 
-        // System.out.println("MQRA:OMRP:getOMR()");
-        if (available.isEmpty()) {
-            if (deactivating)
-                throw new ConsumerClosedNoDeliveryException("MQRA:OMRP:getOMR:OnMessageRunnerPool is in deactivating");
-
-            // System.out.println("MQRA:OMRP:getOMR:size=0");
-            if (slackCount > 0) {
-                // System.out.println("MQRA:OMRP:getOMR:adding from slack");
-                omr = new OnMessageRunner(onMessageRunners.size(), this, epFactory, epConsumer, spec, useDirect);
-                onMessageRunners.add(omr);
-                slackCount--;
-                // System.out.println("MQRA:OMRP:getOMR:slack-Getting omr Id="+omr.omrId);
-                return omr;
+        Thread current = Thread.currentThread();
+        try {
+            while (true) {
+                // Register before taking again so that a put in between cannot be missed
+                waiters.add(current);
+                omr = takeOnMessageRunner();
+                if (omr != null) {
+                    return omr;
+                }
+                LockSupport.park(this);
+                waiters.remove(current);
+                if (Thread.interrupted()) {
+                    InterruptedException ie = new InterruptedException("interrupted while waiting for an OnMessageRunner");
+                    JMSException jmse = new com.sun.messaging.jms.JMSException("MQRA:OMRP:Unable to get OMR from pool:" + ie.getMessage());
+                    jmse.setLinkedException(ie);
+                    throw jmse;
+                }
+            }
+        } finally {
+            waiters.remove(current);
+            // a put may have unparked this thread although it did not need the runner, pass that on
+            if (!available.isEmpty() || slackCount.get() > 0) {
+                signalWaiter();
             }
         }
+    }
 
-        while (available.isEmpty()) {
-            if (deactivating)
-                throw new ConsumerClosedNoDeliveryException("MQRA:OMRP:getOMR:OnMessageRunnerPool is in deactivating");
+    /**
+     * Take an available OnMessageRunner, or create one if the pool has not reached its maximum size
+     *
+     * @return the OnMessageRunner, now busy, or null if there is none
+     */
+    private OnMessageRunner takeOnMessageRunner() throws JMSException {
 
-            try {
-                // System.out.println("MQRA:OMRP:getOMR:Waiting...");
-                wait();
-            } catch (InterruptedException ie) {
-                // System.out.println("MQRA:OMRP:getOMR:Interrupted while waiting...throwing exception-"+ie.getMessage());
-                JMSException jmse = new com.sun.messaging.jms.JMSException("MQRA:OMRP:Unable to get OMR from pool:" + ie.getMessage());
-                jmse.setLinkedException(ie);
-                throw jmse;
+        // counted busy before it leaves available, so that waitForAllOnMessageRunners cannot miss it
+        busyCount.incrementAndGet();
+
+        OnMessageRunner omr = available.poll();
+        boolean created = false;
+        if (omr == null && !deactivating) {
+            omr = createFromSlack();
+            created = (omr != null);
+        }
+        if (deactivating) {
+            if (created) {
+                discard(omr);
+                releaseBusy();
+            } else if (omr != null) {
+                putOnMessageRunner(omr);
+            } else {
+                releaseBusy();
             }
+            throw new ConsumerClosedNoDeliveryException("MQRA:OMRP:getOMR:OnMessageRunnerPool is in deactivating");
+        }
+        if (omr == null) {
+            releaseBusy();
         }
-        omr = available.elementAt(available.size() - 1);
-        // System.out.println("MQRA:OMRP:getOMR:Getting omr at index="+(available.size()-1)+" with omrId="+omr.omrId);
-        available.removeElementAt(available.size() - 1);
         return omr;
     }
 
@@ -165,66 +208,108 @@ public class OnMessageRunnerPool {
      * Put an OnMessageRunner back to the pool
      *
      */
-    public synchronized void putOnMessageRunner(OnMessageRunner omr) {
+    public void putOnMessageRunner(OnMessageRunner omr) {
 
-        // System.out.println("MQRA:OMRP:Putting back omrId="+omr.omrId+" at index="+available.size());
-        available.addElement(omr);
+        available.push(omr);
+        releaseBusy();
 
         // XXX:reduction logic - here if needed
 
-        notifyAll();
+        signalWaiter();
     }
 
-    public synchronized void removeOnMessageRunner(OnMessageRunner omr) {
-        int index;
-
-        // System.out.println("MQRA:OMRP:removeOMR:Id="+omr.getId());
-        index = onMessageRunners.indexOf(omr);
-        if (index != -1) {
-            // System.out.println("MQRA:OMRP:removeOMR:Id="+omr.getId()+" at index="+index);
-            onMessageRunners.remove(index);
-            notifyAll();
-            if (slackCount < (max - min)) {
-                slackCount++;
-            }
+    public void removeOnMessageRunner(OnMessageRunner omr) {
+        if (onMessageRunners.remove(omr)) {
+            slackCount.getAndUpdate(slack -> slack < (max - min) ? slack + 1 : slack);
         }
+        releaseBusy();
+        signalWaiter();
     }
 
-    public synchronized void waitForAllOnMessageRunners() throws JMSException {
-        // System.out.println("MQRA:OMRP:wfaOMRs():allocated="+onMessageRunners.size()+" available="+available.size());
-        while (available.size() < onMessageRunners.size()) {
-            try {
-                // System.out.println("(MQRA:OMRP:wfaOMRs:Waiting...");
-                wait();
-            } catch (InterruptedException ie) {
-                // System.out.println("MQRA:OMRP:wfaOMRs:Interrupted while waiting...throwing exception-"+ie.getMessage());
-                JMSException jmse = new com.sun.messaging.jms.JMSException("MQRA:OMRP:Didnot finish waiting for OMRs to return:" + ie.getMessage());
-                jmse.setLinkedException(ie);
-                throw jmse;
+    public void waitForAllOnMessageRunners() throws JMSException {
+        Thread current = Thread.currentThread();
+        idleWaiters.add(current);
+        try {
+            while (busyCount.get() > 0) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    InterruptedException ie = new InterruptedException("interrupted while waiting for OnMessageRunners");
+                    JMSException jmse = new com.sun.messaging.jms.JMSException("MQRA:OMRP:Didnot finish waiting for OMRs to return:" + ie.getMessage());
+                    jmse.setLinkedException(ie);
+                    throw jmse;
+                }
             }
+        } finally {
+            idleWaiters.remove(current);
         }
-        // System.out.println("MQRA:OMRP:wfaOMRs:DONE:allocated="+onMessageRunners.size()+" available="+available.size());
     }
 
     public synchronized void releaseOnMessageRunners() {
         this.deactivating = true;
-        // System.out.println("MQRA:OMRP:releaseOMRs()");
-        for (int i = 0; i < onMessageRunners.size(); i++) {
-            onMessageRunners.get(i).releaseEndpoint();
+        for (OnMessageRunner omr : onMessageRunners) {
+            omr.releaseEndpoint();
         }
         onMessageRunners.clear();
-        available.removeAllElements();
-        notifyAll();
-        slackCount = max;
-        // System.out.println("MQRA:OMRP:releaseOMRs-done");
+        available.clear();
+        slackCount.set(max);
+
+        // every waiting dispatcher has to see deactivating
+        Thread waiter;
+        while ((waiter = waiters.poll()) != null) {
+            LockSupport.unpark(waiter);
+        }
     }
 
     public synchronized void invalidateOnMessageRunners() {
-        // System.err.println("MQRA:OMRP:invalidateOMRs()");
-        for (int i = 0; i < onMessageRunners.size(); i++) {
-            onMessageRunners.get(i).invalidate();
+        for (OnMessageRunner omr : onMessageRunners) {
+            omr.invalidate();
         }
         releaseOnMessageRunners();
-        // System.err.println("MQRA:OMRP:invalidateOMRs-done");
+    }
+
+    /**
+     * Release a OnMessageRunner created while the pool was deactivated, unless deactivation released it already
+     */
+    private synchronized void discard(OnMessageRunner omr) {
+        if (onMessageRunners.remove(omr)) {
+            omr.releaseEndpoint();
+        }
+    }
+
+    /**
+     * Creates a new OnMessageRunner if the pool has not yet reached its maximum size
+     *
+     * @return the new OnMessageRunner, or null if there is no slack left
+     */
+    private OnMessageRunner createFromSlack() {
+        int slack;
+        do {
+            slack = slackCount.get();
+            if (slack <= 0) {
+                return null;
+            }
+        } while (!slackCount.compareAndSet(slack, slack - 1));
+
+        OnMessageRunner omr = new OnMessageRunner(nextId.getAndIncrement(), this, epFactory, epConsumer, spec, useDirect);
+        onMessageRunners.add(omr);
+        return omr;
+    }
+
+    private void releaseBusy() {
+        if (busyCount.decrementAndGet() == 0) {
+            for (Thread waiter : idleWaiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * Unpark one waiting dispatcher; it is removed from the waiters so that the next signal goes to another one
+     */
+    private void signalWaiter() {
+        Thread waiter = waiters.poll();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
     }
 }
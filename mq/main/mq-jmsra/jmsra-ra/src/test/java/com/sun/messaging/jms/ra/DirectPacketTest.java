@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.jms.ra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Set;
+
+import jakarta.jms.MessageNotWriteableException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.io.JMSPacket;
+import com.sun.messaging.jmq.io.Packet;
+import com.sun.messaging.jmq.io.PacketType;
+
+class DirectPacketTest {
+
+    private DirectSession ds;
+
+    @BeforeEach
+    void setUp() {
+        ds = mock(DirectSession.class);
+    }
+
+    /**
+     * Hand the message to the broker the way JMSServiceImpl.sendMessage does
+     */
+    private static Packet send(DirectPacket dp) throws Exception {
+        dp.preparePacketForSend();
+        Packet p = new Packet();
+        p.fill(dp.getPacket());
+        p.shareProperties(dp.getPacket());
+        return p;
+    }
+
+    private DirectPacket receive(Hashtable<String, Object> props, int deliveryCount) throws Exception {
+        Packet sent = new Packet();
+        sent.setPacketType(PacketType.MESSAGE);
+        sent.setProperties(props);
+        Packet pkt = new Packet();
+        pkt.fill(sent, true);
+        pkt.setDeliveryCount(deliveryCount);
+
+        JMSPacket jmsPacket = mock(JMSPacket.class);
+        when(jmsPacket.getPacket()).thenReturn(pkt);
+        return new DirectPacket(jmsPacket, 1L, ds);
+    }
+
+    private static Set<String> propertyNames(DirectPacket dp) throws Exception {
+        Set<String> names = new HashSet<>();
+        for (Object name : Collections.list(dp.getPropertyNames())) {
+            names.add((String) name);
+        }
+        return names;
+    }
+
+    @Test
+    void modifyingAfterSendDoesNotChangeBrokerCopy() throws Exception {
+        DirectPacket dp = new DirectPacket(ds);
+        dp.setJMSDestination(new com.sun.messaging.Queue("q"));
+        dp.setStringProperty("a", "1");
+
+        Packet broker = send(dp);
+
+        dp.setStringProperty("a", "2");
+        dp.setStringProperty("b", "3");
+        assertEquals("1", broker.getProperties().get("a"));
+        assertNull(broker.getProperties().get("b"));
+
+        Packet broker2 = send(dp);
+
+        assertEquals("1", broker.getProperties().get("a"));
+        assertEquals("2", broker2.getProperties().get("a"));
+        assertEquals("3", broker2.getProperties().get("b"));
+
+        dp.clearProperties();
+        assertEquals("2", broker2.getProperties().get("a"));
+        assertTrue(propertyNames(dp).isEmpty());
+    }
+
+    @Test
+    void receivedPropertyNamesIncludeDeliveryCount() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("a", "1");
+        DirectPacket dp = receive(props, 3);
+
+        assertEquals(Set.of("a", "JMSXDeliveryCount"), propertyNames(dp));
+        assertEquals(3, dp.getIntProperty("JMSXDeliveryCount"));
+        assertEquals("1", dp.getStringProperty("a"));
+
+        dp.updateDeliveryCount(4);
+        assertEquals(4, dp.getIntProperty("JMSXDeliveryCount"));
+        assertEquals(Set.of("a", "JMSXDeliveryCount"), propertyNames(dp));
+
+        // the packet's properties are not changed
+        assertEquals(Set.of("a"), dp.getPacket().getProperties().keySet());
+    }
+
+    @Test
+    void receivedPropertiesAreReadOnly() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("a", "1");
+        DirectPacket dp = receive(props, 1);
+
+        assertThrows(MessageNotWriteableException.class, () -> dp.setStringProperty("b", "2"));
+    }
+
+    @Test
+    void clearPropertiesOfReceivedMessage() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put("a", "1");
+        DirectPacket dp = receive(props, 2);
+        assertEquals("1", dp.getStringProperty("a"));
+
+        dp.clearProperties();
+
+        assertTrue(propertyNames(dp).isEmpty());
+        assertNull(dp.getStringProperty("a"));
+        assertNull(dp.getObjectProperty("JMSXDeliveryCount"));
+        dp.setStringProperty("b", "2");
+        assertEquals(Set.of("b"), propertyNames(dp));
+        assertEquals(Set.of("a"), dp.getPacket().getProperties().keySet());
+    }
+}
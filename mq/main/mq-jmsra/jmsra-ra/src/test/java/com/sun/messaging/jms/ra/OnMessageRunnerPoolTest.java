@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jms.ra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import jakarta.resource.spi.endpoint.MessageEndpoint;
+import jakarta.resource.spi.endpoint.MessageEndpointFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.jmq.jmsservice.ConsumerClosedNoDeliveryException;
+
+class OnMessageRunnerPoolTest {
+
+    private MessageEndpoint endpoint;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private OnMessageRunnerPool pool(int steady, int max) throws Exception {
+        ActivationSpec spec = mock(ActivationSpec.class);
+        when(spec.getEndpointPoolSteadySize()).thenReturn(steady);
+        when(spec.getEndpointPoolMaxSize()).thenReturn(max);
+
+        endpoint = mock(MessageEndpoint.class);
+        MessageEndpointFactory epFactory = mock(MessageEndpointFactory.class);
+        when(epFactory.createEndpoint(any())).thenReturn(endpoint);
+
+        EndpointConsumer epConsumer = mock(EndpointConsumer.class);
+        epConsumer.ra = mock(ResourceAdapter.class);
+
+        return new OnMessageRunnerPool(epFactory, epConsumer, spec, false);
+    }
+
+    private Future<?> waitForAll(OnMessageRunnerPool pool) {
+        return executor.submit(() -> {
+            pool.waitForAllOnMessageRunners();
+            return null;
+        });
+    }
+
+    @Test
+    void testWaitForAllWaitsForBusyRunners() throws Exception {
+        OnMessageRunnerPool pool = pool(1, 2);
+        OnMessageRunner first = pool.getOnMessageRunner();
+        OnMessageRunner created = pool.getOnMessageRunner();
+        assertNotSame(first, created);
+
+        Future<?> wait = waitForAll(pool);
+        pool.putOnMessageRunner(first);
+        assertThrows(TimeoutException.class, () -> wait.get(200, TimeUnit.MILLISECONDS));
+
+        pool.removeOnMessageRunner(created);
+        wait.get(10, TimeUnit.SECONDS);
+
+        // the removed runner left slack for a new one
+        assertNotNull(pool.getOnMessageRunner());
+        assertNotNull(pool.getOnMessageRunner());
+    }
+
+    @Test
+    void testNoRunnerAfterRelease() throws Exception {
+        OnMessageRunnerPool pool = pool(1, 2);
+        pool.releaseOnMessageRunners();
+
+        assertThrows(ConsumerClosedNoDeliveryException.class, () -> pool.getOnMessageRunner());
+
+        // the failed attempt is not left busy
+        waitForAll(pool).get(10, TimeUnit.SECONDS);
+        verify(endpoint).release();
+    }
+
+    @Test
+    void testReleaseFailsWaitingDispatchers() throws Exception {
+        OnMessageRunnerPool pool = pool(1, 1);
+        OnMessageRunner omr = pool.getOnMessageRunner();
+
+        List<Future<OnMessageRunner>> gets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            gets.add(executor.submit(() -> pool.getOnMessageRunner()));
+        }
+        Thread.sleep(100);
+        pool.releaseOnMessageRunners();
+
+        for (Future<OnMessageRunner> get : gets) {
+            Exception e = assertThrows(Exception.class, () -> get.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof ConsumerClosedNoDeliveryException, e.toString());
+        }
+
+        // the runner that was out is returned after the release
+        pool.putOnMessageRunner(omr);
+        waitForAll(pool).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testConcurrentDispatchers() throws Exception {
+        OnMessageRunnerPool pool = pool(1, 2);
+        int threads = 8;
+        int rounds = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> dispatchers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            dispatchers.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < rounds; j++) {
+                    pool.putOnMessageRunner(pool.getOnMessageRunner());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : dispatchers) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        waitForAll(pool).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -106,6 +106,19 @@ public class Constants {
 
     //// Service timeout attribute name -- used by receive
     public static final String RECEIVE_TIMEOUT = "timeout";
+
+    //// max number of messages returned by one receive -- default 1
+    public static final String RECEIVE_MAX_MESSAGES = "maxMessages";
+
+    //// stream received messages in one chunked response until timeout -- default false
+    public static final String RECEIVE_STREAM = "stream";
+
+    //// the request carries a batch of messages to send -- default false
+    public static final String SEND_BATCH = "batch";
+
+    //// number of messages sent/received by a batch request
+    public static final String MESSAGE_COUNT = "count";
+
     // Service element, service status code attribute name.
     public static final String SERVICE_STATUS_NAME = "status";
 
@@ -142,6 +155,27 @@ public class Constants {
     // default receive timeout - 7 seconds.
     public static final String IMQ_RECEIVE_TIMEOUT_DEFAULT_VALUE = "7000";
 
+    /**
+     * Number of threads that serve asynchronous (long-poll and streaming) receive requests.
+     */
+    public static final String ASYNC_RECEIVE_THREADS = "ums.receive.async.threads";
+
+    public static final String ASYNC_RECEIVE_THREADS_DEFAULT_VALUE = "2";
+
+    /**
+     * Interval (milli secs) at which a waiting asynchronous receive request checks its consumer for messages.
+     */
+    public static final String ASYNC_RECEIVE_POLL_INTERVAL = "ums.receive.async.poll.interval";
+
+    public static final String ASYNC_RECEIVE_POLL_INTERVAL_DEFAULT_VALUE = "50";
+
+    /**
+     * Max number of messages returned by one receive request.
+     */
+    public static final String RECEIVE_MAX_BATCH = "ums.receive.max.batch";
+
+    public static final String RECEIVE_MAX_BATCH_DEFAULT_VALUE = "100";
+
     /**
      * JMS cache duration. JMS resources are closed if not used for the defined duration (milli secs).
      *
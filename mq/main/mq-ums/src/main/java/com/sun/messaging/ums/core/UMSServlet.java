@@ -27,6 +27,7 @@ import com.sun.messaging.ums.readonly.DefaultReadOnlyService;
 import com.sun.messaging.ums.readonly.ReadOnlyMessageFactory;
 import com.sun.messaging.ums.readonly.ReadOnlyRequestMessage;
 import com.sun.messaging.ums.readonly.ReadOnlyResponseMessage;
+import com.sun.messaging.ums.service.AsyncReceiver;
 import com.sun.messaging.ums.service.DestinationService;
 import com.sun.messaging.ums.service.BrokerInfoService;
 import com.sun.messaging.ums.service.SOAP2JMSService;
@@ -50,6 +51,11 @@ import java.util.logging.Logger;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -177,6 +183,16 @@ public class UMSServlet extends HttpServlet {
      */
     private static long receiveTimeout = 7000;
 
+    /**
+     * max number of messages returned by one HTTP receive request.
+     */
+    private static int receiveMaxBatch = 100;
+
+    /**
+     * extra time given to an async receive before the container times out the request.
+     */
+    private static final long ASYNC_TIMEOUT_MARGIN = 30000;
+
     /**
      * topic/queue domain
      */
@@ -224,6 +240,7 @@ public class UMSServlet extends HttpServlet {
     private static final String UMS_DESTINATION = "ums.destination";
     private static final String UMS_DOMAIN = "ums.domain";
     private static final String UMS_STATUS = "ums.status";
+    private static final String UMS_COUNT = "ums.count";
 
     /**
      * UTF-8
@@ -382,6 +399,9 @@ public class UMSServlet extends HttpServlet {
 
             String msg = UMSResources.getResources().getKString(UMSResources.UMS_DEFAULT_RECEIVE_TIMEOUT, receiveTimeout);
             logger.info(msg);
+
+            tmp = props.getProperty(Constants.RECEIVE_MAX_BATCH, Constants.RECEIVE_MAX_BATCH_DEFAULT_VALUE);
+            receiveMaxBatch = Math.max(1, Integer.parseInt(tmp));
             // logger.info("default receive timeout=" + receiveTimeout + " milli seconds.");
 
             /**
@@ -624,6 +644,11 @@ public class UMSServlet extends HttpServlet {
             isValidRequest = false;
         }
 
+        if (isReceive && req.isAsyncSupported()) {
+            doAsyncReceive(req, resp, msg, map);
+            return;
+        }
+
         try {
 
             // logger.info("request servlet path=" + req.getServletPath());
@@ -636,7 +661,26 @@ public class UMSServlet extends HttpServlet {
 
             } else {
 
-                if (isSend) {
+                if (isSend && msg.isBatch()) {
+
+                    // all messages in the body are sent in one transaction
+                    List<String> texts = msg.getTextBatch();
+
+                    if (UMSServiceImpl.debug) {
+                        logger.info("Simple messaging, sending batch of " + texts.size() + " messages");
+                    }
+
+                    this.JMSService.sendTextBatch(clientId, isTopic, destName, texts, map);
+
+                    resp.setHeader(UMS_SERVICE, Constants.SERVICE_VALUE_SEND_MESSAGE_REPLY);
+                    resp.setHeader(UMS_DESTINATION, destName);
+                    resp.setHeader(UMS_DOMAIN, getDomain(isTopic));
+
+                    resp.setHeader(UMS_MOM, JMSService.getProvider(map));
+                    resp.setHeader(UMS_STATUS, Constants.SERVICE_STATUS_VALUE_OK);
+                    resp.setHeader(UMS_COUNT, String.valueOf(texts.size()));
+
+                } else if (isSend) {
 
                     // String text = req.getParameter(Constants.HTTP_GET_SEND_TEXT);
 
@@ -655,6 +699,27 @@ public class UMSServlet extends HttpServlet {
                     resp.setHeader(UMS_MOM, JMSService.getProvider(map));
                     resp.setHeader(UMS_STATUS, Constants.SERVICE_STATUS_VALUE_OK);
 
+                } else if (isReceive && getServiceMaxMessages(msg) > 1) {
+
+                    long timeout = this.getServiceTimeout(msg);
+
+                    // receive up to maxMessages messages, acknowledged together
+                    List<String> texts = this.JMSService.receiveTextBatch(clientId, destName, isTopic, timeout, getServiceMaxMessages(msg), map);
+
+                    resp.setHeader(UMS_SERVICE, Constants.SERVICE_VALUE_RECEIVE_MESSAGE_REPLY);
+                    resp.setHeader(UMS_DESTINATION, destName);
+                    resp.setHeader(UMS_DOMAIN, getDomain(isTopic));
+
+                    resp.setHeader(UMS_MOM, JMSService.getProvider(map));
+                    resp.setHeader(UMS_COUNT, String.valueOf(texts.size()));
+
+                    if (texts.isEmpty()) {
+                        resp.setHeader(UMS_STATUS, Constants.SERVICE_STATUS_VALUE_NO_MESSAGE);
+                    } else {
+                        resp.setHeader(UMS_STATUS, Constants.SERVICE_STATUS_VALUE_OK);
+                        respMsg = SimpleMessage.toTextBatch(texts);
+                    }
+
                 } else if (isReceive) {
 
                     long timeout = this.getServiceTimeout(msg);
@@ -786,6 +851,204 @@ public class UMSServlet extends HttpServlet {
 
     }
 
+    /**
+     * Receive text messages without holding the servlet thread while waiting for messages.
+     *
+     * With maxMessages=1 (default) the reply is the same as for a synchronous receive. Otherwise, and in streaming mode
+     * (stream=true), each message in the reply body is written as its length in characters, a new line, the message text
+     * and a new line. A batch reply is written once the receive is done, with the message count in the ums.count header.
+     * A streaming reply is written in chunks as messages arrive until the receive timeout and has no ums.count header.
+     */
+    private void doAsyncReceive(HttpServletRequest req, HttpServletResponse resp, SimpleMessage msg, Map map) throws IOException {
+
+        String destName = msg.getMessageProperty(Constants.DESTINATION_NAME);
+        boolean isTopic = msg.isTopicDomain();
+        String clientId = msg.getMessageProperty(Constants.CLIENT_ID);
+
+        long timeout = getServiceTimeout(msg);
+        int maxMessages = getServiceMaxMessages(msg);
+        boolean stream = Boolean.parseBoolean(msg.getMessageProperty(Constants.RECEIVE_STREAM));
+
+        AsyncContext actx = req.startAsync();
+        actx.setTimeout(timeout + ASYNC_TIMEOUT_MARGIN);
+
+        AsyncTextReply reply = new AsyncTextReply(actx, resp, destName, isTopic, map, stream || maxMessages > 1, stream);
+        actx.addListener(reply);
+
+        try {
+            this.JMSService.receiveTextAsync(clientId, destName, isTopic, timeout, maxMessages, stream, map, reply);
+        } catch (Exception e) {
+            reply.onException(e);
+        }
+    }
+
+    /**
+     * Writes the reply of an asynchronous receive.
+     */
+    class AsyncTextReply implements AsyncReceiver.Callback, AsyncListener {
+
+        private AsyncContext actx = null;
+        private HttpServletResponse resp = null;
+        private String destName = null;
+        private boolean isTopic = false;
+        private Map map = null;
+        private boolean framed = false;
+        private boolean stream = false;
+
+        private List<String> received = new ArrayList<>();
+        private int count = 0;
+        private volatile boolean cancelled = false;
+        private AtomicBoolean completed = new AtomicBoolean(false);
+
+        AsyncTextReply(AsyncContext actx, HttpServletResponse resp, String destName, boolean isTopic, Map map, boolean framed, boolean stream) {
+            this.actx = actx;
+            this.resp = resp;
+            this.destName = destName;
+            this.isTopic = isTopic;
+            this.map = map;
+            this.framed = framed;
+            this.stream = stream;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void onMessages(List<String> texts) throws Exception {
+
+            count += texts.size();
+
+            if (!stream) {
+                received.addAll(texts);
+                return;
+            }
+
+            // streaming: no content length, the container sends chunks
+            if (!resp.isCommitted()) {
+                setReplyHeaders(Constants.SERVICE_STATUS_VALUE_OK);
+            }
+
+            writeFramed(resp.getOutputStream(), texts);
+            resp.flushBuffer();
+        }
+
+        @Override
+        public void onComplete() {
+
+            try {
+
+                if (!cancelled && !resp.isCommitted()) {
+
+                    setReplyHeaders(count == 0 ? Constants.SERVICE_STATUS_VALUE_NO_MESSAGE : Constants.SERVICE_STATUS_VALUE_OK);
+                    resp.setHeader(UMS_COUNT, String.valueOf(count));
+
+                    byte[] data = null;
+
+                    if (framed) {
+                        data = (stream ? EMPTY_STRING : SimpleMessage.toTextBatch(received)).getBytes(UTF8);
+                    } else if (received.isEmpty()) {
+                        data = EMPTY_STRING.getBytes(UTF8);
+                    } else {
+                        data = received.get(0).getBytes(UTF8);
+                    }
+
+                    resp.setContentLength(data.length);
+                    resp.getOutputStream().write(data, 0, data.length);
+                }
+
+            } catch (Exception e) {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            } finally {
+                complete();
+            }
+        }
+
+        @Override
+        public void onException(Exception e) {
+
+            try {
+
+                if (!cancelled && !resp.isCommitted()) {
+
+                    resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    resp.setHeader(CONTENT_TYPE, PLAIN_TEXT_CONTENT_TYPE);
+
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+                    PrintStream ps = new PrintStream(baos);
+                    e.printStackTrace(ps);
+                    byte[] data = baos.toString().getBytes(UTF8);
+
+                    resp.setContentLength(data.length);
+                    resp.getOutputStream().write(data, 0, data.length);
+                }
+
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, ex.getMessage(), ex);
+            } finally {
+                complete();
+            }
+        }
+
+        private void setReplyHeaders(String status) throws Exception {
+
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.setHeader(CONTENT_TYPE, PLAIN_TEXT_CONTENT_TYPE);
+
+            resp.setHeader(UMS_SERVICE, Constants.SERVICE_VALUE_RECEIVE_MESSAGE_REPLY);
+            resp.setHeader(UMS_DESTINATION, destName);
+            resp.setHeader(UMS_DOMAIN, getDomain(isTopic));
+
+            resp.setHeader(UMS_MOM, JMSService.getProvider(map));
+            resp.setHeader(UMS_STATUS, status);
+        }
+
+        private void complete() {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            cancelled = true;
+            try {
+                actx.complete();
+            } catch (IllegalStateException e) {
+                // request already completed by the container
+                if (UMSServiceImpl.getDebug()) {
+                    logger.info("async receive already completed: " + e);
+                }
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            cancelled = true;
+            completed.set(true);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            cancelled = true;
+            complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            cancelled = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+        }
+    }
+
+    private static void writeFramed(OutputStream out, List<String> texts) throws IOException {
+
+        byte[] data = SimpleMessage.toTextBatch(texts).getBytes(UTF8);
+
+        out.write(data, 0, data.length);
+    }
+
     /**
      * Http request services. HTTP requests are transformed into SOAP messages and dispated to the appropriate services.
      */
@@ -1111,6 +1374,25 @@ public class UMSServlet extends HttpServlet {
         return timeout;
     }
 
+    protected static int getServiceMaxMessages(SimpleMessage msg) {
+
+        int max = 1;
+
+        try {
+
+            String str = msg.getMessageProperty(Constants.RECEIVE_MAX_MESSAGES);
+
+            if (str != null) {
+                max = Math.min(Math.max(1, Integer.parseInt(str)), receiveMaxBatch);
+            }
+
+        } catch (Exception e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+        }
+
+        return max;
+    }
+
     private String getDomain(boolean isTopic) {
         if (isTopic) {
             return TOPIC_DOMAIN;
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.ums.service;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.TextMessage;
+
+import com.sun.messaging.ums.common.Constants;
+
+/**
+ * Serves long-poll and streaming text receive requests without a thread per waiting request.
+ *
+ * A pending request is checked with receiveNoWait() on a small shared scheduler until messages arrive or it times out.
+ * The client lock is only held while draining the consumer, so concurrent requests of the same client do not wait
+ * behind each other's timeout. If the lock is held, for example by a blocking SOAP receive, the check is rescheduled
+ * instead of blocking a scheduler thread.
+ */
+public class AsyncReceiver {
+
+    /**
+     * Receives the result of an asynchronous receive. Callbacks are made on a receiver thread, never concurrently for
+     * the same request.
+     */
+    public interface Callback {
+
+        /**
+         * Called with the received messages, once for a long-poll receive and for each batch in streaming mode.
+         */
+        void onMessages(List<String> texts) throws Exception;
+
+        /**
+         * @return true if the requester has gone away, no more messages are received for the request
+         */
+        boolean isCancelled();
+
+        /**
+         * Called once when the request finished, whether or not messages were received.
+         */
+        void onComplete();
+
+        /**
+         * Called once instead of onComplete() if the request failed.
+         */
+        void onException(Exception e);
+    }
+
+    private Logger logger = UMSServiceImpl.logger;
+
+    private ReceiveServiceImpl receiveService = null;
+    private ClientPool cache = null;
+    private ScheduledExecutorService scheduler = null;
+    private long pollInterval = 50;
+
+    AsyncReceiver(ReceiveServiceImpl receiveService, ClientPool cache, Properties props) {
+
+        this.receiveService = receiveService;
+        this.cache = cache;
+
+        String tmp = props.getProperty(Constants.ASYNC_RECEIVE_POLL_INTERVAL, Constants.ASYNC_RECEIVE_POLL_INTERVAL_DEFAULT_VALUE);
+        pollInterval = Math.max(1L, Long.parseLong(tmp));
+
+        tmp = props.getProperty(Constants.ASYNC_RECEIVE_THREADS, Constants.ASYNC_RECEIVE_THREADS_DEFAULT_VALUE);
+        int threads = Math.max(1, Integer.parseInt(tmp));
+
+        final AtomicInteger index = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "UMS-AsyncReceiver-" + index.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Start an asynchronous receive on the client. The client is returned to the pool when the request finishes.
+     *
+     * @param stream if true, keep delivering messages until timeout, otherwise finish with the first batch
+     */
+    void receive(Client client, String destName, boolean isTopic, long timeout, int maxMessages, boolean stream, Callback callback) {
+        PendingReceive pr = new PendingReceive(client, destName, isTopic, System.currentTimeMillis() + timeout, maxMessages, stream, callback);
+        pr.schedule(0L);
+    }
+
+    void close() {
+        scheduler.shutdownNow();
+    }
+
+    private class PendingReceive implements Runnable {
+
+        private Client client = null;
+        private String destName = null;
+        private boolean isTopic = false;
+        private long deadline = 0L;
+        private int maxMessages = 1;
+        private boolean stream = false;
+        private Callback callback = null;
+
+        private boolean done = false;
+
+        PendingReceive(Client client, String destName, boolean isTopic, long deadline, int maxMessages, boolean stream, Callback callback) {
+            this.client = client;
+            this.destName = destName;
+            this.isTopic = isTopic;
+            this.deadline = deadline;
+            this.maxMessages = maxMessages;
+            this.stream = stream;
+            this.callback = callback;
+        }
+
+        void schedule(long delay) {
+            try {
+                scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // receive service closed
+                finish(null);
+            }
+        }
+
+        @Override
+        public void run() {
+
+            if (callback.isCancelled()) {
+                finish(null);
+                return;
+            }
+
+            List<String> texts = null;
+
+            try {
+                texts = drain();
+
+                if (texts != null && !texts.isEmpty()) {
+                    callback.onMessages(texts);
+                }
+            } catch (Exception e) {
+                finish(e);
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            if (texts == null) {
+                // client busy, possibly in a blocking receive; do not tie up a receiver thread waiting for it
+                if (now >= deadline) {
+                    finish(null);
+                } else {
+                    schedule(Math.min(pollInterval, deadline - now));
+                }
+            } else if ((!texts.isEmpty() && !stream) || now >= deadline) {
+                finish(null);
+            } else if (texts.isEmpty()) {
+                schedule(Math.min(pollInterval, deadline - now));
+            } else {
+                // more may be ready, queue behind the other waiting requests
+                schedule(0L);
+            }
+        }
+
+        /**
+         * Take up to maxMessages messages that are already available on the client consumer.
+         *
+         * @return the messages taken, or null if another request holds the client lock
+         */
+        private List<String> drain() throws JMSException {
+
+            List<String> texts = new ArrayList<>();
+
+            Lock lock = client.getLock();
+            if (!lock.tryLock()) {
+                return null;
+            }
+            try {
+
+                // keep the sweeper off a client that is waiting for messages
+                client.setTimestamp();
+
+                // a batch is acknowledged with one commit
+                boolean batch = maxMessages > 1;
+
+                MessageConsumer consumer = (batch ? client.getBatchConsumer(isTopic, destName) : client.getConsumer(isTopic, destName));
+
+                int received = 0;
+
+                try {
+
+                    while (texts.size() < maxMessages) {
+
+                        Message jmsMessage = consumer.receiveNoWait();
+
+                        if (jmsMessage == null) {
+                            break;
+                        }
+
+                        received++;
+
+                        if (jmsMessage instanceof TextMessage) {
+                            String text = ((TextMessage) jmsMessage).getText();
+                            texts.add(text == null ? "" : text);
+                        } else {
+                            // XXX I18N
+                            logger.warning("received message is not a TextMessage type, message=" + jmsMessage);
+                            receiveService.sendToDMQ(client, jmsMessage);
+                        }
+                    }
+
+                    if (batch && received > 0) {
+                        client.commitBatch();
+                    }
+
+                } catch (JMSException e) {
+                    if (batch) {
+                        client.rollbackBatch();
+                    }
+                    throw e;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (UMSServiceImpl.debug && !texts.isEmpty()) {
+                logger.info("AsyncReceiver received " + texts.size() + " message(s) for client " + client.getId());
+            }
+
+            return texts;
+        }
+
+        private void finish(Exception e) {
+
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+
+            try {
+                cache.returnClient(client);
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, ex.getMessage(), ex);
+            }
+
+            if (e == null) {
+                callback.onComplete();
+            } else {
+                logger.log(Level.WARNING, e.getMessage(), e);
+                callback.onException(e);
+            }
+        }
+    }
+}
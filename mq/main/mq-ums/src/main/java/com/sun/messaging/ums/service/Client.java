@@ -17,6 +17,8 @@
 
 package com.sun.messaging.ums.service;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.jms.Destination;
@@ -32,11 +34,17 @@ public class Client {
     private Session session = null;
     private MessageProducer producer = null;
     private MessageConsumer consumer = null;
+
+    /**
+     * transacted session of a non-transacted client, used to send/receive a batch of messages with one commit.
+     */
+    private Session batchSession = null;
+    private MessageProducer batchProducer = null;
     private long timestamp = 0;
 
     private Logger logger = UMSServiceImpl.logger;
 
-    private Object lock;
+    private final ReentrantLock lock = new ReentrantLock();
     private boolean sweeped = false;
     // XXX use this for sweep
     private boolean inuse = false;
@@ -53,6 +61,11 @@ public class Client {
      */
     private String consumerOnDestName = null;
 
+    /**
+     * true if the current consumer is created on the batch session.
+     */
+    private boolean consumerOnBatchSession = false;
+
     public Client(String sid, CachedConnectionPool ccPool, boolean transacted) throws JMSException {
 
         this.sid = sid;
@@ -65,8 +78,6 @@ public class Client {
 
         cc.add(this);
 
-        this.lock = new Object();
-
         if (UMSServiceImpl.debug) {
             logger.info("client created: " + sid + ", transacted=" + transacted);
         }
@@ -76,7 +87,10 @@ public class Client {
         return this.sid;
     }
 
-    public Object getLock() {
+    /**
+     * @return the lock serializing the use of this client's sessions
+     */
+    public Lock getLock() {
         return this.lock;
     }
 
@@ -127,38 +141,98 @@ public class Client {
         return producer;
     }
 
+    /**
+     * The session to send/receive a batch of messages in. For a transacted client this is the client session and the
+     * batch is part of the client transaction, otherwise the batch is committed by commitBatch().
+     */
+    public synchronized Session getBatchSession() throws JMSException {
+
+        if (transacted) {
+            return getSession();
+        }
+
+        if (batchSession == null) {
+            batchSession = cc.getConnection().createSession(true, Session.SESSION_TRANSACTED);
+        }
+
+        this.setTimestamp();
+
+        return batchSession;
+    }
+
+    public synchronized MessageProducer getBatchProducer() throws JMSException {
+
+        if (transacted) {
+            return getProducer();
+        }
+
+        if (batchProducer == null) {
+            batchProducer = getBatchSession().createProducer(null);
+        }
+
+        return batchProducer;
+    }
+
+    /**
+     * commit the messages sent/received in the batch session. No-op for a transacted client.
+     */
+    public synchronized void commitBatch() throws JMSException {
+        if (!transacted && batchSession != null) {
+            batchSession.commit();
+        }
+    }
+
+    public synchronized void rollbackBatch() throws JMSException {
+        if (!transacted && batchSession != null) {
+            batchSession.rollback();
+        }
+    }
+
     public synchronized MessageConsumer getConsumer(boolean isTopic, String destName) throws JMSException {
+        return getConsumer(isTopic, destName, false);
+    }
+
+    /**
+     * The consumer to receive a batch of messages from. A client has one consumer at a time, so it is recreated when
+     * the application switches between single and batch receive.
+     */
+    public synchronized MessageConsumer getBatchConsumer(boolean isTopic, String destName) throws JMSException {
+        return getConsumer(isTopic, destName, !transacted);
+    }
+
+    private synchronized MessageConsumer getConsumer(boolean isTopic, String destName, boolean onBatchSession) throws JMSException {
 
         if (consumer == null) {
-            this.createConsumer(isTopic, destName);
+            this.createConsumer(isTopic, destName, onBatchSession);
         } else {
 
             if (UMSServiceImpl.debug) {
                 logger.info("consumer in cache for clientId ... " + sid + ", on dest: " + destName);
             }
 
-            if (destName.equals(this.consumerOnDestName) == false) {
+            if (destName.equals(this.consumerOnDestName) == false || onBatchSession != consumerOnBatchSession) {
                 // app tries ti receive on diff dest.
-                this.recreateConsumer(isTopic, destName);
+                this.recreateConsumer(isTopic, destName, onBatchSession);
             }
         }
 
         return consumer;
     }
 
-    private synchronized void recreateConsumer(boolean isTopic, String destName) throws JMSException {
+    private synchronized void recreateConsumer(boolean isTopic, String destName, boolean onBatchSession) throws JMSException {
         this.consumer.close();
-        this.createConsumer(isTopic, destName);
+        this.createConsumer(isTopic, destName, onBatchSession);
     }
 
-    private synchronized void createConsumer(boolean isTopic, String destName) throws JMSException {
+    private synchronized void createConsumer(boolean isTopic, String destName, boolean onBatchSession) throws JMSException {
 
         // set current associated dest name
         this.consumerOnDestName = destName;
+        this.consumerOnBatchSession = onBatchSession;
 
         Destination dest = null;
 
-        getSession();
+        Session session = (onBatchSession ? getBatchSession() : getSession());
 
         if (UMSServiceImpl.debug) {
             logger.info("got session ..." + session);
@@ -223,6 +297,10 @@ public class Client {
                 this.session.close();
             }
 
+            if (batchSession != null) {
+                this.batchSession.close();
+            }
+
         } catch (Exception e) {
             logger.log(Level.WARNING, e.getMessage(), e);
         }
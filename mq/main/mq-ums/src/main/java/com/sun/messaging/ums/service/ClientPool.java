@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.locks.Lock;
 import java.util.Vector;
 import java.util.logging.Logger;
 import jakarta.jms.Destination;
@@ -255,9 +256,10 @@ public class ClientPool implements Sweepable {
             return;
         }
 
-        Object lock = client.getLock();
+        Lock lock = client.getLock();
 
-        synchronized (lock) {
+        lock.lock();
+        try {
 
             client.setInuse(false);
             client.setTimestamp();
@@ -265,6 +267,8 @@ public class ClientPool implements Sweepable {
             if (client.getNoCache()) {
                 this.closeClient(client);
             }
+        } finally {
+            lock.unlock();
         }
 
     }
@@ -307,15 +311,18 @@ public class ClientPool implements Sweepable {
 
         String sid = client.getId();
 
-        Object lock = client.getLock();
+        Lock lock = client.getLock();
 
-        synchronized (lock) {
+        lock.lock();
+        try {
 
             this.clients.remove(sid);
 
             // this.locks.removeLock(sid);
 
             client.close();
+        } finally {
+            lock.unlock();
         }
 
         int index = sid.indexOf("-");
@@ -485,15 +492,18 @@ public class ClientPool implements Sweepable {
             String id = (String) list.get(i);
 
             Client client = clients.get(id);
-            Object lock = client.getLock();
+            Lock lock = client.getLock();
 
-            synchronized (lock) {
+            lock.lock();
+            try {
 
                 if (client.getInUse() == false) {
                     // this.clients.remove(id);
                     // client.close();
                     this.closeClient(client);
                 }
+            } finally {
+                lock.unlock();
             }
 
             if (UMSServiceImpl.debug) {
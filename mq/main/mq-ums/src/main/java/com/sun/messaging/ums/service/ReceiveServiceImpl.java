@@ -21,6 +21,9 @@ import com.sun.messaging.xml.MessageTransformer;
 import com.sun.messaging.ums.common.MessageUtil;
 
 import java.util.Properties;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.locks.Lock;
 
 import jakarta.jms.BytesMessage;
 import jakarta.jms.JMSException;
@@ -46,6 +49,7 @@ public class ReceiveServiceImpl implements ReceiveService {
     private long receiveTimeout = 7000;
     private Logger logger = UMSServiceImpl.logger;
     private MessageFactory soapMF = null;
+    private AsyncReceiver asyncReceiver = null;
 
     private static final String UMS_DMQ = "UMS.DMQ";
 
@@ -66,6 +70,7 @@ public class ReceiveServiceImpl implements ReceiveService {
 
         initSOAPMessageFactory();
 
+        asyncReceiver = new AsyncReceiver(this, cache, props);
     }
 
     private void initSOAPMessageFactory() throws JMSException {
@@ -100,7 +105,7 @@ public class ReceiveServiceImpl implements ReceiveService {
             client = cache.getClient(request);
 
             // Object syncObj = lock.getLock(client.getId());
-            Object syncObj = client.getLock();
+            Lock syncObj = client.getLock();
 
             // Object syncObj = lock.getLock(clientId);
 
@@ -112,7 +117,8 @@ public class ReceiveServiceImpl implements ReceiveService {
                 logger.info("Receiving message ...");
             }
 
-            synchronized (syncObj) {
+            syncObj.lock();
+            try {
 
                 // client = cache.getClient(clientId);
 
@@ -125,6 +131,8 @@ public class ReceiveServiceImpl implements ReceiveService {
                 long timeout = getTimeout(request);
 
                 jmsMessage = consumer.receive(timeout);
+            } finally {
+                syncObj.unlock();
             }
 
             // logger.info ("ReceiveService received message ...");
@@ -215,7 +223,7 @@ public class ReceiveServiceImpl implements ReceiveService {
              **/
             client = cache.getClient(sid, map);
             // Object syncObj = lock.getLock(client.getId());
-            Object syncObj = client.getLock();
+            Lock syncObj = client.getLock();
 
             MessageConsumer consumer = null;
 
@@ -225,11 +233,14 @@ public class ReceiveServiceImpl implements ReceiveService {
                 logger.info("ReceiveService receiving Text message ...");
             }
 
-            synchronized (syncObj) {
+            syncObj.lock();
+            try {
 
                 consumer = client.getConsumer(isTopic, destName);
 
                 jmsMessage = consumer.receive(timeout);
+            } finally {
+                syncObj.unlock();
             }
 
             if (UMSServiceImpl.debug) {
@@ -276,6 +287,188 @@ public class ReceiveServiceImpl implements ReceiveService {
         return reply;
     }
 
+    /**
+     * Receive up to maxMessages SOAP messages, waiting up to the request timeout for the first one. The messages are
+     * acknowledged together, or are part of the client transaction for a transacted client.
+     */
+    public List<SOAPMessage> receiveBatch(SOAPMessage request, int maxMessages) throws JMSException {
+
+        List<SOAPMessage> replies = new ArrayList<>();
+        Client client = null;
+
+        try {
+
+            client = cache.getClient(request);
+
+            client.getLock().lock();
+            try {
+
+                boolean isTopic = MessageUtil.isServiceTopicDomain(request);
+
+                String destName = MessageUtil.getServiceDestinationName(request);
+
+                MessageConsumer consumer = client.getBatchConsumer(isTopic, destName);
+
+                Message jmsMessage = consumer.receive(getTimeout(request));
+
+                boolean received = (jmsMessage != null);
+
+                while (jmsMessage != null) {
+
+                    if (jmsMessage instanceof BytesMessage) {
+                        replies.add(MessageTransformer.SOAPMessageFromJMSMessage(jmsMessage, soapMF));
+                    } else {
+                        // XXX I18N
+                        logger.warning("received message is not a JMS BytesMessage type: " + jmsMessage);
+                        this.sendToDMQ(client, jmsMessage);
+                    }
+
+                    if (replies.size() >= maxMessages) {
+                        break;
+                    }
+
+                    jmsMessage = consumer.receiveNoWait();
+                }
+
+                if (received) {
+                    client.commitBatch();
+                }
+            } finally {
+                client.getLock().unlock();
+            }
+
+            if (UMSServiceImpl.debug) {
+                logger.info("received batch of " + replies.size() + " soap messages");
+            }
+
+        } catch (Exception ex) {
+
+            logger.log(Level.WARNING, ex.getMessage(), ex);
+
+            rollbackBatch(client);
+
+            if (ex instanceof JMSException) {
+                throw (JMSException) ex;
+            } else {
+                JMSException jmse = new JMSException(ex.getMessage());
+                jmse.setLinkedException(ex);
+                throw jmse;
+            }
+
+        } finally {
+            cache.returnClient(client);
+        }
+
+        return replies;
+    }
+
+    /**
+     * Receive up to maxMessages TextMessages, waiting up to timeout for the first one. The messages are acknowledged
+     * together, or are part of the client transaction for a transacted client.
+     */
+    public List<String> receiveTextBatch(String sid, String destName, boolean isTopic, long timeout, int maxMessages, Map map) throws JMSException {
+
+        List<String> texts = new ArrayList<>();
+        Client client = null;
+
+        try {
+
+            client = cache.getClient(sid, map);
+
+            client.getLock().lock();
+            try {
+
+                MessageConsumer consumer = client.getBatchConsumer(isTopic, destName);
+
+                Message jmsMessage = consumer.receive(timeout);
+
+                boolean received = (jmsMessage != null);
+
+                while (jmsMessage != null) {
+
+                    if (jmsMessage instanceof TextMessage) {
+                        String text = ((TextMessage) jmsMessage).getText();
+                        texts.add(text == null ? "" : text);
+                    } else {
+                        // XXX I18N
+                        logger.warning("received message is not a TextMessage type, message=" + jmsMessage);
+                        this.sendToDMQ(client, jmsMessage);
+                    }
+
+                    if (texts.size() >= maxMessages) {
+                        break;
+                    }
+
+                    jmsMessage = consumer.receiveNoWait();
+                }
+
+                if (received) {
+                    client.commitBatch();
+                }
+            } finally {
+                client.getLock().unlock();
+            }
+
+        } catch (Exception ex) {
+
+            logger.log(Level.WARNING, ex.getMessage(), ex);
+
+            rollbackBatch(client);
+
+            if (ex instanceof JMSException) {
+                throw (JMSException) ex;
+            } else {
+                JMSException jmse = new JMSException(ex.getMessage());
+                jmse.setLinkedException(ex);
+                throw jmse;
+            }
+
+        } finally {
+            cache.returnClient(client);
+        }
+
+        return texts;
+    }
+
+    /**
+     * receive TextMessages from MQ without holding the calling thread while waiting for messages.
+     *
+     * @param maxMessages max number of messages delivered to the callback at a time
+     * @param stream keep delivering messages to the callback until timeout
+     */
+    public void receiveTextAsync(String sid, String destName, boolean isTopic, long timeout, int maxMessages, boolean stream, Map map,
+            AsyncReceiver.Callback callback) throws JMSException {
+
+        Client client = cache.getClient(sid, map);
+
+        if (UMSServiceImpl.debug) {
+            logger.info("ReceiveService receiving Text message asynchronously, maxMessages=" + maxMessages + ", stream=" + stream);
+        }
+
+        asyncReceiver.receive(client, destName, isTopic, timeout, maxMessages, stream, callback);
+    }
+
+    /**
+     * Messages received in a failed batch are redelivered.
+     */
+    private void rollbackBatch(Client client) {
+
+        if (client == null) {
+            return;
+        }
+
+        try {
+            client.getLock().lock();
+            try {
+                client.rollbackBatch();
+            } finally {
+                client.getLock().unlock();
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+        }
+    }
+
     /**
      * Messages unable to process is sent to UMS_DMQ
      *
@@ -302,6 +495,8 @@ public class ReceiveServiceImpl implements ReceiveService {
 
             // sweeper.removeClientPool(cache);
 
+            this.asyncReceiver.close();
+
             this.cache.close();
         } catch (Exception e) {
             logger.log(Level.WARNING, e.getMessage(), e);
@@ -23,6 +23,8 @@ import com.sun.messaging.ums.core.MessageContext;
 import com.sun.messaging.ums.core.ServiceContext;
 import com.sun.messaging.ums.common.*;
 //import com.sun.messaging.xml.imq.soap.service.jms.impl.SimpleLogger;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -103,6 +105,11 @@ public class SOAP2JMSService extends UMSService {
      */
     private UMSServiceImpl MQService = null;
 
+    /**
+     * max number of messages returned by a batch receive
+     */
+    private int receiveMaxBatch = 100;
+
     /**
      * init this SOAPService with the specified Properties in the parameter.
      */
@@ -116,6 +123,8 @@ public class SOAP2JMSService extends UMSService {
 
         MQService.init();
 
+        String tmp = this.props.getProperty(Constants.RECEIVE_MAX_BATCH, Constants.RECEIVE_MAX_BATCH_DEFAULT_VALUE);
+        receiveMaxBatch = Math.max(1, Integer.parseInt(tmp));
     }
 
     /**
@@ -176,6 +185,27 @@ public class SOAP2JMSService extends UMSService {
 
                 context.setResponseMessage(response);
 
+            } else if (Constants.SERVICE_VALUE_SEND_MESSAGE.equals(serviceName) && isBatch(request)) {
+
+                // each attachment is a message, all sent in one transaction
+                int count = MQService.sendBatch(request);
+
+                response = MessageUtil.createResponseMessage(request);
+
+                MessageUtil.setServiceAttribute(response, Constants.SERVICE_NAME, Constants.SERVICE_VALUE_SEND_MESSAGE_REPLY);
+
+                MessageUtil.setServiceAttribute(response, Constants.SERVICE_STATUS_NAME, Constants.SERVICE_STATUS_VALUE_OK);
+
+                MessageUtil.setServiceAttribute(response, Constants.SERVICE_PROVIDER_ATTR_NAME, provider);
+
+                MessageUtil.setServiceAttribute(response, Constants.DESTINATION_NAME, destName);
+
+                MessageUtil.setServiceAttribute(response, Constants.DOMAIN, domain);
+
+                MessageUtil.setServiceAttribute(response, Constants.MESSAGE_COUNT, String.valueOf(count));
+
+                context.setResponseMessage(response);
+
             } else if (Constants.SERVICE_VALUE_SEND_MESSAGE.equals(serviceName)) {
 
                 MQService.send(request);
@@ -194,6 +224,45 @@ public class SOAP2JMSService extends UMSService {
 
                 context.setResponseMessage(response);
 
+            } else if (Constants.SERVICE_VALUE_RECEIVE_MESSAGE.equals(serviceName) && getMaxMessages(request) > 1) {
+
+                // the received messages are returned as attachments of the response
+                List<SOAPMessage> messages = MQService.receiveBatch(request, getMaxMessages(request));
+
+                response = MessageUtil.createResponseMessage(request);
+
+                for (SOAPMessage m : messages) {
+
+                    if (m.saveRequired()) {
+                        m.saveChanges();
+                    }
+
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    m.writeTo(baos);
+
+                    String[] ct = m.getMimeHeaders().getHeader("Content-Type");
+
+                    AttachmentPart ap = response.createAttachmentPart();
+                    ap.setRawContentBytes(baos.toByteArray(), 0, baos.size(), (ct == null ? "text/xml" : ct[0]));
+
+                    response.addAttachmentPart(ap);
+                }
+
+                String statusCode = (messages.isEmpty() ? Constants.SERVICE_STATUS_VALUE_NO_MESSAGE : Constants.SERVICE_STATUS_VALUE_OK);
+
+                MessageUtil.setServiceAttribute(response, Constants.SERVICE_NAME, Constants.SERVICE_VALUE_RECEIVE_MESSAGE_REPLY);
+                MessageUtil.setServiceAttribute(response, Constants.SERVICE_STATUS_NAME, statusCode);
+
+                MessageUtil.setServiceAttribute(response, Constants.SERVICE_PROVIDER_ATTR_NAME, provider);
+
+                MessageUtil.setServiceAttribute(response, Constants.DESTINATION_NAME, destName);
+
+                MessageUtil.setServiceAttribute(response, Constants.DOMAIN, domain);
+
+                MessageUtil.setServiceAttribute(response, Constants.MESSAGE_COUNT, String.valueOf(messages.size()));
+
+                context.setResponseMessage(response);
+
             } else if (Constants.SERVICE_VALUE_RECEIVE_MESSAGE.equals(serviceName)) {
 
                 response = MQService.receive(request);
@@ -288,6 +357,21 @@ public class SOAP2JMSService extends UMSService {
 
     }
 
+    private static boolean isBatch(SOAPMessage request) throws SOAPException {
+        return Boolean.parseBoolean(MessageUtil.getServiceAttribute(request, Constants.SEND_BATCH));
+    }
+
+    private int getMaxMessages(SOAPMessage request) throws SOAPException {
+
+        String str = MessageUtil.getServiceAttribute(request, Constants.RECEIVE_MAX_MESSAGES);
+
+        if (str == null) {
+            return 1;
+        }
+
+        return Math.min(Math.max(1, Integer.parseInt(str)), receiveMaxBatch);
+    }
+
     @Override
     public void close() {
         try {
@@ -22,6 +22,10 @@ import com.sun.messaging.xml.MessageTransformer;
 import com.sun.messaging.ums.common.MessageUtil;
 import com.sun.messaging.ums.simple.SimpleMessage;
 import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.locks.Lock;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,6 +35,10 @@ import jakarta.jms.Message;
 import jakarta.jms.MessageProducer;
 
 import jakarta.jms.Session;
+import jakarta.xml.soap.AttachmentPart;
+import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.MimeHeaders;
+import jakarta.xml.soap.SOAPConstants;
 import jakarta.xml.soap.SOAPException;
 import jakarta.xml.soap.SOAPMessage;
 
@@ -39,8 +47,9 @@ public class SendServiceImpl implements SendService {
     // private Lock lock = null;
     private ClientPool cache = null;
     private Logger logger = UMSServiceImpl.logger;
+    private MessageFactory soapMF = null;
 
-    public SendServiceImpl(ClientPool cache) {
+    public SendServiceImpl(ClientPool cache) throws JMSException {
 
         // lock = new Lock();
 
@@ -50,6 +59,16 @@ public class SendServiceImpl implements SendService {
         // add my cache to the sweeper
         // sweeper.addClientPool(cache);
         this.cache = cache;
+
+        try {
+            soapMF = MessageFactory.newInstance(SOAPConstants.DEFAULT_SOAP_PROTOCOL);
+        } catch (Exception ex) {
+
+            JMSException jmse = new JMSException(ex.getMessage());
+            jmse.setLinkedException(ex);
+
+            throw jmse;
+        }
     }
 
     // public String authenticate (String user, String password) throws JMSException {
@@ -80,13 +99,14 @@ public class SendServiceImpl implements SendService {
             client = cache.getClient(sm);
 
             // Object syncObj = lock.getLock(client.getId());
-            Object syncObj = client.getLock();
+            Lock syncObj = client.getLock();
 
             if (UMSServiceImpl.debug) {
                 logger.info("*** SendServiceImpl sending message: " + sm);
             }
 
-            synchronized (syncObj) {
+            syncObj.lock();
+            try {
 
                 // client = cache.getClient(clientId);
 
@@ -110,6 +130,8 @@ public class SendServiceImpl implements SendService {
                 MessageProducer producer = client.getProducer();
 
                 producer.send(dest, message);
+            } finally {
+                syncObj.unlock();
             }
 
             if (UMSServiceImpl.debug) {
@@ -145,13 +167,14 @@ public class SendServiceImpl implements SendService {
             client = cache.getClient(sid, map);
 
             // Object syncObj = lock.getLock(client.getId());
-            Object syncObj = client.getLock();
+            Lock syncObj = client.getLock();
 
             if (UMSServiceImpl.debug) {
                 logger.info("*** SendServiceImpl sending simple message: sid = " + sid + ", text=" + text);
             }
 
-            synchronized (syncObj) {
+            syncObj.lock();
+            try {
 
                 // client = cache.getClient(clientId);
 
@@ -164,6 +187,8 @@ public class SendServiceImpl implements SendService {
                 MessageProducer producer = client.getProducer();
 
                 producer.send(dest, message);
+            } finally {
+                syncObj.unlock();
             }
 
             if (UMSServiceImpl.debug) {
@@ -187,6 +212,147 @@ public class SendServiceImpl implements SendService {
         }
     }
 
+    /**
+     * Send the SOAP messages attached to the request in one transaction. Each attachment is a complete SOAP message.
+     *
+     * @return the number of messages sent
+     */
+    public int sendBatch(SOAPMessage sm) throws JMSException {
+
+        Client client = null;
+
+        try {
+
+            client = cache.getClient(sm);
+
+            String destName = MessageUtil.getServiceDestinationName(sm);
+            boolean isTopic = MessageUtil.isServiceTopicDomain(sm);
+
+            List<SOAPMessage> batch = new ArrayList<>();
+
+            Iterator it = sm.getAttachments();
+            while (it.hasNext()) {
+
+                AttachmentPart ap = (AttachmentPart) it.next();
+
+                MimeHeaders mh = new MimeHeaders();
+                mh.addHeader("Content-Type", ap.getContentType());
+
+                SOAPMessage m = soapMF.createMessage(mh, ap.getRawContent());
+
+                if (MessageUtil.getMessageHeaderElement(m) != null) {
+                    MessageUtil.removeMessageHeaderElement(m);
+                }
+
+                batch.add(m);
+            }
+
+            if (UMSServiceImpl.debug) {
+                logger.info("*** SendServiceImpl sending batch of " + batch.size() + " SOAP messages");
+            }
+
+            client.getLock().lock();
+            try {
+
+                Session session = client.getBatchSession();
+
+                Destination dest = cache.getJMSDestination(destName, isTopic);
+
+                MessageProducer producer = client.getBatchProducer();
+
+                try {
+
+                    for (SOAPMessage m : batch) {
+                        producer.send(dest, MessageTransformer.SOAPMessageIntoJMSMessage(m, session));
+                    }
+
+                    client.commitBatch();
+
+                } catch (Exception ex) {
+                    client.rollbackBatch();
+                    throw ex;
+                }
+            } finally {
+                client.getLock().unlock();
+            }
+
+            return batch.size();
+
+        } catch (Exception ex) {
+
+            logger.log(Level.WARNING, ex.getMessage(), ex);
+
+            if (ex instanceof JMSException) {
+                throw (JMSException) ex;
+            } else {
+                JMSException jmse = new JMSException(ex.getMessage());
+                jmse.setLinkedException(ex);
+                throw jmse;
+            }
+
+        } finally {
+            cache.returnClient(client);
+        }
+    }
+
+    /**
+     * Send a batch of Text messages to MQ in one transaction.
+     *
+     */
+    public void sendTextBatch(String sid, boolean isTopic, String destName, List<String> texts, Map map) throws JMSException {
+
+        Client client = null;
+
+        try {
+
+            client = cache.getClient(sid, map);
+
+            if (UMSServiceImpl.debug) {
+                logger.info("*** SendServiceImpl sending batch of " + texts.size() + " simple messages: sid = " + sid);
+            }
+
+            client.getLock().lock();
+            try {
+
+                Session session = client.getBatchSession();
+
+                Destination dest = cache.getJMSDestination(destName, isTopic);
+
+                MessageProducer producer = client.getBatchProducer();
+
+                try {
+
+                    for (String text : texts) {
+                        producer.send(dest, session.createTextMessage(text));
+                    }
+
+                    client.commitBatch();
+
+                } catch (JMSException ex) {
+                    client.rollbackBatch();
+                    throw ex;
+                }
+            } finally {
+                client.getLock().unlock();
+            }
+
+        } catch (Exception ex) {
+
+            logger.log(Level.WARNING, ex.getMessage(), ex);
+
+            if (ex instanceof JMSException) {
+                throw (JMSException) ex;
+            } else {
+                JMSException jmse = new JMSException(ex.getMessage());
+                jmse.setLinkedException(ex);
+                throw jmse;
+            }
+
+        } finally {
+            cache.returnClient(client);
+        }
+    }
+
     @Override
     public void commit(SimpleMessage sm) throws JMSException {
 
@@ -269,16 +435,19 @@ public class SendServiceImpl implements SendService {
             // client = cache.getClient(sm);
 
             // Object syncObj = lock.getLock(client.getId());
-            Object syncObj = client.getLock();
+            Lock syncObj = client.getLock();
 
             if (UMSServiceImpl.debug) {
                 logger.info("*** Commiting transaction, sid = " + client.getId());
             }
 
-            synchronized (syncObj) {
+            syncObj.lock();
+            try {
 
                 Session session = client.getSession();
                 session.commit();
+            } finally {
+                syncObj.unlock();
             }
 
             if (UMSServiceImpl.debug) {
@@ -307,16 +476,19 @@ public class SendServiceImpl implements SendService {
             // client = cache.getClient(sm);
 
             // Object syncObj = lock.getLock(client.getId());
-            Object syncObj = client.getLock();
+            Lock syncObj = client.getLock();
 
             if (UMSServiceImpl.debug) {
                 logger.info("*** rolling back transaction, sid = " + client.getId());
             }
 
-            synchronized (syncObj) {
+            syncObj.lock();
+            try {
 
                 Session session = client.getSession();
                 session.rollback();
+            } finally {
+                syncObj.unlock();
             }
 
             if (UMSServiceImpl.debug) {
@@ -335,6 +335,52 @@ public class UMSServiceImpl {
         return text;
     }
 
+    public void receiveTextAsync(String sid, String destName, boolean isTopic, long timeout, int maxMessages, boolean stream, Map map,
+            AsyncReceiver.Callback callback) throws JMSException {
+
+        String provider = this.getProvider(map);
+
+        ReceiveService service = getReceiveService(provider);
+
+        ((ReceiveServiceImpl) service).receiveTextAsync(sid, destName, isTopic, timeout, maxMessages, stream, map, callback);
+    }
+
+    public void sendTextBatch(String sid, boolean isTopic, String destName, List<String> texts, Map map) throws JMSException {
+
+        String provider = this.getProvider(map);
+
+        SendService service = getSendService(provider);
+
+        ((SendServiceImpl) service).sendTextBatch(sid, isTopic, destName, texts, map);
+    }
+
+    public List<String> receiveTextBatch(String sid, String destName, boolean isTopic, long timeout, int maxMessages, Map map) throws JMSException {
+
+        String provider = this.getProvider(map);
+
+        ReceiveService service = getReceiveService(provider);
+
+        return ((ReceiveServiceImpl) service).receiveTextBatch(sid, destName, isTopic, timeout, maxMessages, map);
+    }
+
+    public int sendBatch(SOAPMessage message) throws JMSException {
+
+        String provider = this.getProvider(message);
+
+        SendService service = getSendService(provider);
+
+        return ((SendServiceImpl) service).sendBatch(message);
+    }
+
+    public List<SOAPMessage> receiveBatch(SOAPMessage request, int maxMessages) throws JMSException {
+
+        String provider = this.getProvider(request);
+
+        ReceiveService service = getReceiveService(provider);
+
+        return ((ReceiveServiceImpl) service).receiveBatch(request, maxMessages);
+    }
+
     private SendService getSendService(String provider) throws JMSException {
 
         SendService service = this.sendServices.get(provider);
@@ -18,6 +18,8 @@ package com.sun.messaging.ums.simple;
 
 import com.sun.messaging.ums.common.Constants;
 import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
 
 /**
  *
@@ -170,4 +172,72 @@ public class SimpleMessage {
         return ("admin".equals(service));
     }
 
+    /**
+     * @return true if the message text is a batch of messages, see getTextBatch()
+     */
+    public boolean isBatch() {
+        return Boolean.parseBoolean(this.getMessageProperty(Constants.SEND_BATCH));
+    }
+
+    /**
+     * Split the message text into a batch of messages. Each message in the batch is its length in characters, a new line,
+     * the message text and a new line.
+     *
+     * @throws IllegalArgumentException if the message text is not a valid batch
+     */
+    public List<String> getTextBatch() {
+
+        List<String> texts = new ArrayList<>();
+
+        if (text == null) {
+            return texts;
+        }
+
+        int pos = 0;
+
+        while (pos < text.length()) {
+
+            int nl = text.indexOf('\n', pos);
+
+            if (nl < 0) {
+                throw new IllegalArgumentException("Missing message length at position " + pos);
+            }
+
+            int len = Integer.parseInt(text.substring(pos, nl).trim());
+            int start = nl + 1;
+
+            // start + len could overflow
+            if (len < 0 || len > text.length() - start) {
+                throw new IllegalArgumentException("Invalid message length " + len + " at position " + pos);
+            }
+
+            int end = start + len;
+
+            if (end < text.length() && text.charAt(end) != '\n') {
+                throw new IllegalArgumentException("Missing new line after message at position " + pos);
+            }
+
+            texts.add(text.substring(start, end));
+
+            // skip the new line after the message text
+            pos = end + 1;
+        }
+
+        return texts;
+    }
+
+    /**
+     * Join a batch of messages into one message text, the reverse of getTextBatch().
+     */
+    public static String toTextBatch(List<String> texts) {
+
+        StringBuilder sb = new StringBuilder();
+
+        for (String t : texts) {
+            sb.append(t.length()).append('\n').append(t).append('\n');
+        }
+
+        return sb.toString();
+    }
+
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.ums.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.ums.common.Constants;
+import com.sun.messaging.ums.service.UMSServiceImpl;
+import com.sun.messaging.ums.simple.SimpleMessage;
+
+class UMSServletTest {
+
+    private UMSServlet servlet;
+    private AsyncContext actx;
+    private HttpServletResponse resp;
+    private ByteArrayOutputStream body;
+    private boolean committed;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        servlet = new UMSServlet();
+        servlet.JMSService = mock(UMSServiceImpl.class);
+        actx = mock(AsyncContext.class);
+        resp = mock(HttpServletResponse.class);
+        body = new ByteArrayOutputStream();
+        when(resp.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        });
+        when(resp.isCommitted()).thenAnswer(inv -> committed);
+        doAnswer(inv -> committed = true).when(resp).flushBuffer();
+    }
+
+    private UMSServlet.AsyncTextReply reply(boolean framed, boolean stream) {
+        return servlet.new AsyncTextReply(actx, resp, "umsTestQueue", false, new HashMap<>(), framed, stream);
+    }
+
+    @Test
+    void batchReplyIsWrittenOnCompleteWithCount() throws Exception {
+        UMSServlet.AsyncTextReply reply = reply(true, false);
+        reply.onMessages(List.of("one", "two"));
+        reply.onMessages(List.of("three"));
+
+        verify(resp, never()).flushBuffer();
+        assertEquals(0, body.size());
+
+        reply.onComplete();
+
+        verify(resp).setHeader("ums.count", "3");
+        String text = body.toString(StandardCharsets.UTF_8);
+        assertEquals(SimpleMessage.toTextBatch(List.of("one", "two", "three")), text);
+        verify(resp).setContentLength(text.getBytes(StandardCharsets.UTF_8).length);
+        verify(actx).complete();
+    }
+
+    @Test
+    void streamReplyIsWrittenAsMessagesArrive() throws Exception {
+        UMSServlet.AsyncTextReply reply = reply(true, true);
+        reply.onMessages(List.of("one"));
+
+        verify(resp).flushBuffer();
+        assertEquals(SimpleMessage.toTextBatch(List.of("one")), body.toString(StandardCharsets.UTF_8));
+
+        reply.onMessages(List.of("two"));
+        reply.onComplete();
+
+        assertEquals(SimpleMessage.toTextBatch(List.of("one")) + SimpleMessage.toTextBatch(List.of("two")), body.toString(StandardCharsets.UTF_8));
+        verify(resp, never()).setHeader(eq("ums.count"), anyString());
+        verify(actx).complete();
+    }
+
+    @Test
+    void singleReplyIsTheMessageText() throws Exception {
+        UMSServlet.AsyncTextReply reply = reply(false, false);
+        reply.onMessages(List.of("only"));
+        reply.onComplete();
+
+        verify(resp).setHeader("ums.count", "1");
+        assertEquals("only", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void emptyReplyHasNoMessageStatus() throws Exception {
+        UMSServlet.AsyncTextReply reply = reply(true, false);
+        reply.onComplete();
+
+        verify(resp).setHeader("ums.count", "0");
+        verify(resp).setHeader("ums.status", Constants.SERVICE_STATUS_VALUE_NO_MESSAGE);
+        assertEquals(0, body.size());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.ums.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.TextMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.ums.common.Constants;
+
+class AsyncReceiverTest {
+
+    private ClientPool cache;
+    private AsyncReceiver receiver;
+
+    @BeforeEach
+    void setUp() {
+        Properties props = new Properties();
+        props.setProperty(Constants.ASYNC_RECEIVE_THREADS, "1");
+        props.setProperty(Constants.ASYNC_RECEIVE_POLL_INTERVAL, "10");
+        cache = mock(ClientPool.class);
+        receiver = new AsyncReceiver(mock(ReceiveServiceImpl.class), cache, props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.close();
+    }
+
+    private static Client client(String text) throws Exception {
+        TextMessage msg = mock(TextMessage.class);
+        when(msg.getText()).thenReturn(text);
+        MessageConsumer consumer = mock(MessageConsumer.class);
+        when(consumer.receiveNoWait()).thenReturn(msg, (TextMessage) null);
+
+        Client client = mock(Client.class);
+        when(client.getLock()).thenReturn(new ReentrantLock());
+        when(client.getConsumer(anyBoolean(), anyString())).thenReturn(consumer);
+        return client;
+    }
+
+    private static class Result implements AsyncReceiver.Callback {
+        final LinkedBlockingQueue<List<String>> messages = new LinkedBlockingQueue<>();
+        final CountDownLatch complete = new CountDownLatch(1);
+
+        @Override
+        public void onMessages(List<String> texts) {
+            messages.add(texts);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void onComplete() {
+            complete.countDown();
+        }
+
+        @Override
+        public void onException(Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    void testBusyClientDoesNotBlockReceiverThread() throws Exception {
+        Client busy = client("late");
+        Client idle = client("early");
+
+        // a blocking receive of another request holds the busy client
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            busy.getLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                busy.getLock().unlock();
+            }
+        });
+        holder.start();
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        Result busyResult = new Result();
+        Result idleResult = new Result();
+        receiver.receive(busy, "q", false, 10000L, 1, false, busyResult);
+        receiver.receive(idle, "q", false, 10000L, 1, false, idleResult);
+
+        // served by the only receiver thread while the busy client is still locked
+        assertEquals(List.of("early"), idleResult.messages.poll(10, TimeUnit.SECONDS));
+        assertTrue(idleResult.complete.await(10, TimeUnit.SECONDS));
+        assertNull(busyResult.messages.peek());
+
+        release.countDown();
+        assertEquals(List.of("late"), busyResult.messages.poll(10, TimeUnit.SECONDS));
+        assertTrue(busyResult.complete.await(10, TimeUnit.SECONDS));
+        holder.join();
+
+        verify(cache).returnClient(busy);
+        verify(cache).returnClient(idle);
+    }
+
+    @Test
+    void testBusyClientTimesOut() throws Exception {
+        Client busy = client("never");
+        busy.getLock().lock();
+        try {
+            Result result = new Result();
+            receiver.receive(busy, "q", false, 50L, 1, false, result);
+
+            assertTrue(result.complete.await(10, TimeUnit.SECONDS));
+            assertNull(result.messages.peek());
+        } finally {
+            busy.getLock().unlock();
+        }
+    }
+}
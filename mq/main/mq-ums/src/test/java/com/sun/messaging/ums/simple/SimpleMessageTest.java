@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.messaging.ums.simple;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.messaging.ums.common.Constants;
+
+class SimpleMessageTest {
+
+    private static SimpleMessage batchMessage(String text) {
+        Map<String, String[]> map = new HashMap<>();
+        map.put(Constants.SEND_BATCH, new String[] { "true" });
+        return new SimpleMessage(map, text);
+    }
+
+    @Test
+    void splitsJoinedBatch() {
+        List<String> texts = Arrays.asList("hello", "", "two\nlines", "12\nnot a length");
+        SimpleMessage message = batchMessage(SimpleMessage.toTextBatch(texts));
+
+        assertTrue(message.isBatch());
+        assertEquals(texts, message.getTextBatch());
+    }
+
+    @Test
+    void splitsEmptyBatch() {
+        assertEquals(Collections.emptyList(), batchMessage(SimpleMessage.toTextBatch(Collections.emptyList())).getTextBatch());
+        assertEquals(Collections.emptyList(), batchMessage(null).getTextBatch());
+    }
+
+    @Test
+    void acceptsLastMessageWithoutNewLine() {
+        assertEquals(Arrays.asList("ab", "c"), batchMessage("2\nab\n1\nc").getTextBatch());
+    }
+
+    @Test
+    void rejectsLengthPastEndOfText() {
+        assertThrows(IllegalArgumentException.class, () -> batchMessage("6\nabc\n").getTextBatch());
+    }
+
+    @Test
+    void rejectsLengthThatOverflows() {
+        assertThrows(IllegalArgumentException.class, () -> batchMessage(Integer.MAX_VALUE + "\nabc\n").getTextBatch());
+    }
+
+    @Test
+    void rejectsNegativeLength() {
+        assertThrows(IllegalArgumentException.class, () -> batchMessage("-1\nabc\n").getTextBatch());
+    }
+
+    @Test
+    void rejectsMissingLength() {
+        assertThrows(IllegalArgumentException.class, () -> batchMessage("abc").getTextBatch());
+        assertThrows(IllegalArgumentException.class, () -> batchMessage("x\nabc\n").getTextBatch());
+    }
+
+    @Test
+    void rejectsLengthShorterThanMessage() {
+        assertThrows(IllegalArgumentException.class, () -> batchMessage("2\nabc\n").getTextBatch());
+    }
+}
@@ -139,6 +139,26 @@ public class DestinationAttributes {
      */
     public static final String NUM_MSGS_IN_DELAY_DELIVERY = "NumMsgsInDelayDelivery";
 
+    /**
+     * Number of messages read back from the persistent store by the message pager
+     */
+    public static final String NUM_MSGS_PAGED_IN = "NumMsgsPagedIn";
+
+    /**
+     * Number of messages dropped from memory by the message pager
+     */
+    public static final String NUM_MSGS_PAGED_OUT = "NumMsgsPagedOut";
+
+    /**
+     * Messages per second read back from the persistent store by the message pager
+     */
+    public static final String MSGS_PAGED_IN_RATE = "MsgsPagedInRate";
+
+    /**
+     * Messages per second dropped from memory by the message pager
+     */
+    public static final String MSGS_PAGED_OUT_RATE = "MsgsPagedOutRate";
+
     /**
      * Number of messages in dead message queue.
      */
@@ -344,6 +364,11 @@ public class DestinationAttributes {
      */
     public static final String RELOAD_XML_SCHEMA_ON_FAILURE = "ReloadXMLSchemaOnFailure";
 
+    /**
+     * Queue dispatch policy
+     */
+    public static final String DISPATCH_POLICY = "DispatchPolicy";
+
     /*
      * Class cannot be instantiated
      */
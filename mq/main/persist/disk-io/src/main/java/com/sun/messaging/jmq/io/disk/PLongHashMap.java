@@ -0,0 +1,564 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.io.disk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * PLongHashMap is a persistent map with primitive long keys, backed by a memory-mapped file.
+ * <p>
+ * Unlike PHashMap, entries are not kept on the heap as boxed objects. The map keeps an open addressing index from key to
+ * the offset of the entry's record in the file, and values are decoded with the supplied Codec only when they are read.
+ * Loading the file only scans the record headers, no value is deserialized.
+ * <p>
+ * The file is an append-only sequence of checksummed put and remove records. When the space taken by superseded
+ * records exceeds the live data, the live records are copied to a new file which then replaces the old one.
+ */
+public class PLongHashMap<V> {
+
+    private static boolean DEBUG = false;
+
+    public static final int VERSION = 1;
+
+    public static final long DEFAULT_INITIAL_FILE_SIZE = 64 * 1024;
+
+    /**
+     * Encodes and decodes the values of the map.
+     */
+    public interface Codec<V> {
+        void write(DataOutput out, V value) throws IOException;
+
+        V read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Receives the entries of the map.
+     */
+    public interface EntryVisitor<V> {
+        void visit(long key, V value);
+    }
+
+    private static final int MAGIC = 0x504c484d; // "PLHM"
+
+    // magic (int), version (int), reserved (long)
+    private static final int FILE_HEADER_SIZE = 16;
+
+    /**
+     * record format: length of type, key and value (int), CRC32 of type, key and value (int), type (byte), key (long),
+     * encoded value. A length of 0 marks the end of the records.
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int KEY_SIZE = 1 + 8;
+    private static final byte PUT_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+
+    private File file = null;
+    private Codec<V> codec = null;
+    private boolean safe = false;
+    private long initialSize = DEFAULT_INITIAL_FILE_SIZE;
+
+    private RandomAccessFile raf = null;
+    private MappedByteBuffer buf = null;
+
+    // end of the records and bytes taken by superseded records
+    private int end = FILE_HEADER_SIZE;
+    private long garbage = 0;
+
+    private LongIndex index = new LongIndex(64);
+
+    private boolean closed = false;
+
+    /**
+     * Open the map backed by the specified file and load its index.
+     *
+     * @param file Backing file.
+     * @param initialSize Initial size of the backing file.
+     * @param codec Value encoder.
+     * @param safe Indicate whether the file should be sync'ed after each change.
+     * @param reset If true, all data in the file will be cleared.
+     */
+    public PLongHashMap(File file, long initialSize, Codec<V> codec, boolean safe, boolean reset) throws IOException {
+        this.file = file;
+        this.codec = codec;
+        this.safe = safe;
+        this.initialSize = Math.max(initialSize, 1024);
+
+        if (reset && file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete " + file);
+        }
+        open(file);
+        load();
+    }
+
+    public synchronized int size() {
+        return index.size;
+    }
+
+    public synchronized boolean containsKey(long key) {
+        checkOpen();
+        return index.get(key) != 0;
+    }
+
+    public synchronized V get(long key) {
+        checkOpen();
+        int offset = index.get(key);
+        return (offset == 0 ? null : readValue(offset));
+    }
+
+    public synchronized void put(long key, V value) {
+        checkOpen();
+        try {
+            int offset = append(PUT_RECORD, key, encode(value));
+            int old = index.put(key, offset);
+            if (old != 0) {
+                garbage += recordSize(old);
+            }
+            if (safe) {
+                buf.force();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Map the key to the value unless it is already mapped.
+     *
+     * @return the current value if the key is already mapped, otherwise null
+     */
+    public synchronized V putIfAbsent(long key, V value) {
+        V old = get(key);
+        if (old == null) {
+            put(key, value);
+        }
+        return old;
+    }
+
+    public synchronized V remove(long key) {
+        checkOpen();
+        int old = index.get(key);
+        if (old == 0) {
+            return null;
+        }
+
+        V value = readValue(old);
+        try {
+            // appending may compact the file and move the old record, its size stays the same
+            int oldSize = recordSize(old);
+            int offset = append(REMOVE_RECORD, key, new byte[0]);
+            index.remove(key);
+            garbage += oldSize + recordSize(offset);
+            if (safe) {
+                buf.force();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the keys in no particular order.
+     */
+    public synchronized long[] keys() {
+        checkOpen();
+        long[] keys = new long[index.size];
+        int n = 0;
+        for (int i = 0; i < index.offsets.length; i++) {
+            if (index.offsets[i] != 0) {
+                keys[n++] = index.keys[i];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Decode and pass every entry to the visitor, in no particular order.
+     */
+    public synchronized void forEach(EntryVisitor<V> visitor) {
+        checkOpen();
+        for (int i = 0; i < index.offsets.length; i++) {
+            if (index.offsets[i] != 0) {
+                visitor.visit(index.keys[i], readValue(index.offsets[i]));
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        checkOpen();
+        try {
+            closeFile();
+            if (!file.delete()) {
+                throw new IOException("Failed to delete " + file);
+            }
+            index = new LongIndex(64);
+            open(file);
+            load();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Forces any changes made to the map to be written to disk.
+     */
+    public synchronized void force() throws IOException {
+        checkOpen();
+        buf.force();
+    }
+
+    public synchronized void close() {
+        if (!closed) {
+            buf.force();
+            closeFile();
+            closed = true;
+        }
+    }
+
+    public synchronized long getFileSize() {
+        return (buf == null ? 0 : buf.capacity());
+    }
+
+    public synchronized long getGarbageSize() {
+        return garbage;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("PLongHashMap is closed: " + file);
+        }
+    }
+
+    private byte[] encode(V value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+        DataOutputStream dos = new DataOutputStream(bos);
+        codec.write(dos, value);
+        dos.close();
+        return bos.toByteArray();
+    }
+
+    private V readValue(int offset) {
+        int length = buf.getInt(offset);
+        byte[] data = new byte[length - KEY_SIZE];
+        ByteBuffer dup = buf.duplicate();
+        dup.position(offset + RECORD_HEADER_SIZE + KEY_SIZE);
+        dup.get(data);
+        try {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decode value at " + offset + " of " + file, e);
+        }
+    }
+
+    private int recordSize(int offset) {
+        return RECORD_HEADER_SIZE + buf.getInt(offset);
+    }
+
+    private int append(byte type, long key, byte[] data) throws IOException {
+
+        int length = KEY_SIZE + data.length;
+        int total = RECORD_HEADER_SIZE + length;
+        if (end + total > buf.capacity()) {
+            makeRoom(total);
+        }
+
+        ByteBuffer rec = ByteBuffer.allocate(length);
+        rec.put(type);
+        rec.putLong(key);
+        rec.put(data);
+        CRC32 crc = new CRC32();
+        crc.update(rec.array());
+
+        int offset = end;
+        ByteBuffer dup = buf.duplicate();
+        dup.position(offset + RECORD_HEADER_SIZE);
+        dup.put(rec.array());
+        buf.putInt(offset + 4, (int) crc.getValue());
+        // the length is written last, a record is only visible once it is complete
+        buf.putInt(offset, length);
+
+        end += total;
+        return offset;
+    }
+
+    /**
+     * Compact the file if most of it is superseded records, otherwise grow it.
+     */
+    private void makeRoom(int needed) throws IOException {
+
+        long live = end - FILE_HEADER_SIZE - garbage;
+        if (garbage > live) {
+            compact();
+            if (end + needed <= buf.capacity()) {
+                return;
+            }
+        }
+
+        long size = Math.max((long) buf.capacity() * 2, (long) end + needed);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("PLongHashMap file too large: " + file);
+        }
+        buf.force();
+        buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Copy the live records to a new file and replace the backing file with it.
+     */
+    private void compact() throws IOException {
+
+        File tmp = new File(file.getPath() + ".tmp");
+        if (tmp.exists() && !tmp.delete()) {
+            throw new IOException("Failed to delete " + tmp);
+        }
+
+        long live = end - FILE_HEADER_SIZE - garbage;
+        long size = Math.max(initialSize, FILE_HEADER_SIZE + live * 2);
+        LongIndex newIndex = new LongIndex(index.offsets.length);
+        try (RandomAccessFile newRaf = new RandomAccessFile(tmp, "rw")) {
+            MappedByteBuffer newBuf = newRaf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            writeHeader(newBuf);
+            int pos = FILE_HEADER_SIZE;
+            for (int i = 0; i < index.offsets.length; i++) {
+                int offset = index.offsets[i];
+                if (offset == 0) {
+                    continue;
+                }
+                int total = recordSize(offset);
+                byte[] rec = new byte[total];
+                ByteBuffer dup = buf.duplicate();
+                dup.position(offset);
+                dup.get(rec);
+                dup = newBuf.duplicate();
+                dup.position(pos);
+                dup.put(rec);
+                newIndex.put(index.keys[i], pos);
+                pos += total;
+            }
+            newBuf.force();
+        }
+
+        closeFile();
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open(file);
+
+        end = FILE_HEADER_SIZE;
+        while (end + RECORD_HEADER_SIZE <= buf.capacity() && buf.getInt(end) != 0) {
+            end += recordSize(end);
+        }
+        index = newIndex;
+        garbage = 0;
+
+        if (DEBUG) {
+            System.out.println("PLongHashMap compacted " + file + ": " + index.size + " entries, " + end + " bytes");
+        }
+    }
+
+    private void open(File f) throws IOException {
+        boolean exists = f.exists() && f.length() > 0;
+        raf = new RandomAccessFile(f, "rw");
+        long size = Math.max(raf.length(), initialSize);
+        buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (!exists) {
+            writeHeader(buf);
+            buf.force();
+        } else if (buf.getInt(0) != MAGIC) {
+            closeFile();
+            throw new IOException("Not a PLongHashMap file: " + f);
+        } else if (buf.getInt(4) != VERSION) {
+            closeFile();
+            throw new IOException("Unsupported PLongHashMap version " + buf.getInt(4) + ": " + f);
+        }
+    }
+
+    private static void writeHeader(ByteBuffer b) {
+        b.putInt(0, MAGIC);
+        b.putInt(4, VERSION);
+        b.putLong(8, 0);
+    }
+
+    /**
+     * Rebuild the index by scanning the record headers.
+     */
+    private void load() {
+
+        int capacity = buf.capacity();
+        int pos = FILE_HEADER_SIZE;
+        garbage = 0;
+        while (pos + RECORD_HEADER_SIZE + KEY_SIZE <= capacity) {
+            int length = buf.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+            if (length < KEY_SIZE || length > capacity - pos - RECORD_HEADER_SIZE || !checkRecord(pos, length)) {
+                // incomplete record from a crash, everything after it is ignored
+                buf.putInt(pos, 0);
+                break;
+            }
+
+            byte type = buf.get(pos + RECORD_HEADER_SIZE);
+            long key = buf.getLong(pos + RECORD_HEADER_SIZE + 1);
+            int old = 0;
+            if (type == PUT_RECORD) {
+                old = index.put(key, pos);
+            } else {
+                old = index.remove(key);
+                garbage += RECORD_HEADER_SIZE + length;
+            }
+            if (old != 0) {
+                garbage += recordSize(old);
+            }
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        end = pos;
+    }
+
+    private boolean checkRecord(int pos, int length) {
+        byte[] rec = new byte[length];
+        ByteBuffer dup = buf.duplicate();
+        dup.position(pos + RECORD_HEADER_SIZE);
+        dup.get(rec);
+        CRC32 crc = new CRC32();
+        crc.update(rec);
+        return (int) crc.getValue() == buf.getInt(pos + 4);
+    }
+
+    private void closeFile() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            if (DEBUG) {
+                System.out.println("PLongHashMap failed to close " + file + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Open addressing hash index from long key to record offset, using linear probing with backward shift deletion. An
+     * offset of 0 marks an empty slot; records never start at 0 because of the file header.
+     */
+    private static final class LongIndex {
+        long[] keys;
+        int[] offsets;
+        int size = 0;
+        int mask;
+
+        LongIndex(int capacity) {
+            int cap = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+            keys = new long[cap];
+            offsets = new int[cap];
+            mask = cap - 1;
+        }
+
+        int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        int get(long key) {
+            for (int i = slot(key);; i = (i + 1) & mask) {
+                if (offsets[i] == 0) {
+                    return 0;
+                }
+                if (keys[i] == key) {
+                    return offsets[i];
+                }
+            }
+        }
+
+        int put(long key, int offset) {
+            if ((size + 1) * 4L >= offsets.length * 3L) {
+                resize(offsets.length * 2);
+            }
+            for (int i = slot(key);; i = (i + 1) & mask) {
+                if (offsets[i] == 0) {
+                    keys[i] = key;
+                    offsets[i] = offset;
+                    size++;
+                    return 0;
+                }
+                if (keys[i] == key) {
+                    int old = offsets[i];
+                    offsets[i] = offset;
+                    return old;
+                }
+            }
+        }
+
+        int remove(long key) {
+            int i = slot(key);
+            while (true) {
+                if (offsets[i] == 0) {
+                    return 0;
+                }
+                if (keys[i] == key) {
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            int old = offsets[i];
+
+            // shift back the following entries of the probe sequence
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (offsets[j] == 0) {
+                    break;
+                }
+                int k = slot(keys[j]);
+                boolean stays = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+                if (!stays) {
+                    keys[i] = keys[j];
+                    offsets[i] = offsets[j];
+                    i = j;
+                }
+            }
+            offsets[i] = 0;
+            size--;
+            return old;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldOffsets = offsets;
+            keys = new long[capacity];
+            offsets = new int[capacity];
+            mask = capacity - 1;
+            size = 0;
+            for (int i = 0; i < oldOffsets.length; i++) {
+                if (oldOffsets[i] != 0) {
+                    put(oldKeys[i], oldOffsets[i]);
+                }
+            }
+        }
+    }
+}
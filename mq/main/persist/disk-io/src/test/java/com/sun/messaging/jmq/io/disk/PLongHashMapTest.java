@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.messaging.jmq.io.disk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PLongHashMapTest {
+    private static final PLongHashMap.Codec<String> CODEC = new PLongHashMap.Codec<>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    // file header, then record header and key
+    private static final int FIRST_RECORD = 16;
+    private static final int RECORD_OVERHEAD = 8 + 1 + 8;
+
+    @TempDir
+    File dir;
+
+    private PLongHashMap<String> map;
+
+    private PLongHashMap<String> open() throws IOException {
+        map = new PLongHashMap<>(new File(dir, "test.lmap"), 1024, CODEC, false, false);
+        return map;
+    }
+
+    private void reopen() throws IOException {
+        map.close();
+        open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (map != null) {
+            map.close();
+        }
+    }
+
+    @Test
+    void reloadsEntries() throws Exception {
+        open();
+        map.put(1L, "one");
+        map.put(2L, "two");
+        map.put(1L, "uno");
+        map.remove(2L);
+
+        reopen();
+
+        assertEquals(1, map.size());
+        assertEquals("uno", map.get(1L));
+        assertNull(map.get(2L));
+    }
+
+    @Test
+    void dropsTornTailRecord() throws Exception {
+        open();
+        map.put(1L, "one");
+        map.put(2L, "two");
+        map.close();
+        map = null;
+
+        // damage the value of the second record as if the broker crashed while writing it
+        int second = FIRST_RECORD + RECORD_OVERHEAD + 2 + "one".length();
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir, "test.lmap"), "rw")) {
+            raf.seek(second + RECORD_OVERHEAD + 2);
+            raf.write('X');
+        }
+
+        open();
+        assertEquals(1, map.size());
+        assertEquals("one", map.get(1L));
+        assertNull(map.get(2L));
+
+        // the torn record is overwritten by the next put
+        map.put(3L, "three");
+        reopen();
+        assertEquals(2, map.size());
+        assertEquals("one", map.get(1L));
+        assertEquals("three", map.get(3L));
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachable() throws Exception {
+        open();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        // a small key range keeps the index dense, so removes shift back entries of long probe sequences
+        for (int i = 0; i < 5000; i++) {
+            long key = random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+        assertContents(expected);
+
+        reopen();
+        assertContents(expected);
+    }
+
+    @Test
+    void compactsSupersededRecords() throws Exception {
+        open();
+        String value = "x".repeat(100);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i % 4, value + i);
+        }
+
+        // 1000 records of more than 100 bytes would need over 100k without compaction
+        assertTrue(map.getFileSize() < 8 * 1024, "file size " + map.getFileSize());
+        assertTrue(map.getGarbageSize() < map.getFileSize());
+        assertFalse(new File(dir, "test.lmap.tmp").exists());
+
+        reopen();
+        assertEquals(4, map.size());
+        for (int i = 996; i < 1000; i++) {
+            assertEquals(value + i, map.get(i % 4));
+        }
+    }
+
+    private void assertContents(Map<Long, String> expected) {
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 200; key++) {
+            assertEquals(expected.get(key), map.get(key), "key " + key);
+        }
+    }
+}